@@ -2,23 +2,44 @@ package ogc.rs.apiserver;
 
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
 import io.vertx.core.Promise;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageConsumer;
 import io.vertx.core.file.FileSystem;
 import io.vertx.core.http.*;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.parsetools.JsonEventType;
+import io.vertx.core.parsetools.JsonParser;
 import io.vertx.ext.web.Route;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.validation.RequestParameters;
 import io.vertx.ext.web.validation.ValidationHandler;
+import io.vertx.json.schema.OutputUnit;
+import io.vertx.json.schema.Validator;
 import ogc.rs.apiserver.handlers.DxTokenAuthenticationHandler;
+import ogc.rs.apiserver.handlers.TilesMeteringHandler;
+import ogc.rs.apiserver.util.AssetCache;
 import ogc.rs.apiserver.util.AuthInfo;
 import ogc.rs.apiserver.util.AuthInfo.RoleEnum;
+import ogc.rs.apiserver.util.AuthZMetadataCache;
 import ogc.rs.apiserver.util.Limits;
+import ogc.rs.apiserver.util.MeteringBuffer;
 import ogc.rs.apiserver.util.OgcException;
+import ogc.rs.apiserver.util.RasterTileRenderer;
+import ogc.rs.apiserver.util.RenderedDocument;
+import ogc.rs.apiserver.util.StacCollectionsCache;
+import ogc.rs.apiserver.util.StacItemCache;
 import ogc.rs.apiserver.util.StacItemSearchParams;
+import ogc.rs.apiserver.util.TileBatchWriter;
+import ogc.rs.apiserver.util.TileCache;
+import ogc.rs.apiserver.util.TileMatrixSetRegistry;
+import ogc.rs.apiserver.util.UsageCounters;
+import ogc.rs.apiserver.util.UsageStream;
+import ogc.rs.apiserver.util.VectorTiles;
 import ogc.rs.catalogue.CatalogueService;
 import ogc.rs.common.DataFromS3;
 import ogc.rs.common.S3BucketReadAccess;
@@ -54,8 +75,12 @@ import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static ogc.rs.apiserver.handlers.DxTokenAuthenticationHandler.USER_KEY;
 import static ogc.rs.apiserver.handlers.StacItemByIdAuthZHandler.SHOULD_CREATE_KEY;
@@ -86,23 +111,61 @@ import static ogc.rs.metering.util.MeteringConstant.*;
  */
 public class ApiServerVerticle extends AbstractVerticle {
   private static final Logger LOGGER = LogManager.getLogger(ApiServerVerticle.class);
+  private static final long USAGE_STREAM_KEEP_ALIVE_MS = 15000;
   private S3ConfigsHolder s3conf;
   CatalogueService catalogueService;
   MeteringService meteringService;
+  private MeteringBuffer meteringBuffer;
+  private TilesMeteringHandler tilesMeteringHandler;
   private Router router;
   private String ogcBasePath;
   private String hostName;
   private DatabaseService dbService;
   private Buffer ogcLandingPageBuf;
   private JsonObject stacMetaJson;
+  private JsonObject stacConformanceJson;
+  private StacCollectionsCache stacCollectionsCache;
+  private StacItemCache stacItemCache;
+  private AssetCache assetCache;
+  private AuthZMetadataCache authZMetadataCache;
+  private TileCache tileCache;
+  /* TMS definitions and tile sets, replaced when the DB notifies a change */
+  private Future<TileMatrixSetRegistry> tileMatrixSetRegistry;
+  /* null if map tiles are not rendered from GeoTIFFs */
+  private RasterTileRenderer rasterTileRenderer;
+  /* GeoTIFF enclosure of a collection to render map tiles from, empty if there is none */
+  private final Map<String, Future<JsonObject>> rasterTileSources = new HashMap<>();
+  /* tile key -> fetch of the tile from S3 or render in progress, shared by concurrent requests */
+  private final Map<String, Future<TileCache.Tile>> tileFetches = new HashMap<>();
   private HttpClient httpClient;
   private ProcessesRunnerService processService;
   private JobsService jobsService;
+  private int stacIngestBatchSize;
+  private int tileBatchMaxTiles;
 
   String tileMatrixSetUrl = "https://raw.githubusercontent.com/opengeospatial/2D-Tile-Matrix-Set/master/registry" +
       "/json/$.json";
   JsonArray allCrsSupported = new JsonArray();
   private static final int ROUTER_CREATION_WAIT_TIME_SEC = 60;
+  private static final int DEFAULT_STAC_INGEST_BATCH_SIZE = 500;
+  private static final int DEFAULT_STAC_COLLECTIONS_CACHE_TTL_SEC = 300;
+  private static final int DEFAULT_STAC_ITEM_CACHE_SIZE = 10000;
+  private static final int DEFAULT_STAC_ITEM_CACHE_TTL_SEC = 60;
+  private static final int DEFAULT_ASSET_CACHE_SIZE = 10000;
+  private static final int DEFAULT_ASSET_CACHE_TTL_SEC = 300;
+  private static final int DEFAULT_AUTHZ_CACHE_SIZE = 10000;
+  private static final int DEFAULT_AUTHZ_CACHE_TTL_SEC = 300;
+  private static final long DEFAULT_TILE_CACHE_MAX_TILE_BYTES = 1024L * 1024;
+  private static final long DEFAULT_TILE_CACHE_MAX_BYTES = 64L * 1024 * 1024;
+  private static final long DEFAULT_TILE_DISK_CACHE_MAX_BYTES = 1024L * 1024 * 1024;
+  private static final int DEFAULT_EMPTY_TILE_CACHE_SIZE = 100000;
+  private static final int DEFAULT_EMPTY_TILE_CACHE_TTL_SEC = 300;
+  private static final int DEFAULT_RASTER_TILE_RENDERING_POOL_SIZE = 4;
+  private static final int DEFAULT_RASTER_TILE_RENDERING_TIMEOUT_SEC = 30;
+  private static final long DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS = 200;
+  private static final int DEFAULT_TILE_BATCH_MAX_TILES = 64;
+  /** Maximum number of tiles of a batch fetched at a time. */
+  private static final int TILE_BATCH_MAX_IN_FLIGHT = 8;
 
   /**
    * This method is used to start the Verticle. It deploys a verticle in a cluster/single instance, reads the
@@ -120,6 +183,9 @@ public class ApiServerVerticle extends AbstractVerticle {
 
     catalogueService = new CatalogueService(vertx, config());
     meteringService = MeteringService.createProxy(vertx, METERING_SERVICE_ADDRESS);
+    meteringBuffer = MeteringBuffer.create(vertx, meteringService, config());
+    /* one per instance, shared by its routers so that rebuilding them does not add timers */
+    tilesMeteringHandler = new TilesMeteringHandler(vertx, catalogueService, meteringBuffer);
 
     /* Initialize OGC landing page buffer - since configured hostname needs to be in it */
     String landingPageTemplate = vertx.fileSystem().readFileBlocking("docs/landingPage.json").toString();
@@ -129,6 +195,59 @@ public class ApiServerVerticle extends AbstractVerticle {
     String stacMetaObject = vertx.fileSystem().readFileBlocking("docs/getStacLandingPage.json").toString();
     stacMetaJson = new JsonObject(stacMetaObject);
     stacMetaJson.put("hostname", hostName);
+    stacConformanceJson =
+        new JsonObject(vertx.fileSystem().readFileBlocking("docs/stacConformance.json").toString());
+
+    /*
+     * STAC collection documents are rendered once and served from memory. Any instance that changes
+     * the STAC metadata publishes on STAC_METADATA_CHANGED_ADDRESS so that all instances re-render.
+     */
+    stacCollectionsCache = new StacCollectionsCache(1000L
+        * config().getInteger("stacCollectionsCacheTtlSec", DEFAULT_STAC_COLLECTIONS_CACHE_TTL_SEC));
+    vertx.eventBus().consumer(STAC_METADATA_CHANGED_ADDRESS, message -> {
+      stacCollectionsCache.invalidate();
+      assetCache.invalidateAll();
+    });
+
+    /* STAC items read from the DB are cached, updates and deletes on any instance evict them */
+    stacItemCache = new StacItemCache(
+        config().getInteger("stacItemCacheSize", DEFAULT_STAC_ITEM_CACHE_SIZE),
+        1000L * config().getInteger("stacItemCacheTtlSec", DEFAULT_STAC_ITEM_CACHE_TTL_SEC));
+
+    /* asset records used by /assets/{assetId} are cached, item changes evict the item's assets */
+    assetCache = new AssetCache(
+        config().getInteger("assetCacheSize", DEFAULT_ASSET_CACHE_SIZE),
+        1000L * config().getInteger("assetCacheTtlSec", DEFAULT_ASSET_CACHE_TTL_SEC));
+
+    vertx.eventBus().<JsonObject>consumer(STAC_ITEM_CHANGED_ADDRESS, message -> {
+      String collectionId = message.body().getString("collectionId");
+      String itemId = message.body().getString("itemId");
+      stacItemCache.invalidate(collectionId, itemId);
+      assetCache.invalidateItem(collectionId, itemId);
+    });
+
+    /*
+     * Collection access and process titles used by the authorization handlers are cached. The
+     * RouterManager publishes on AUTHZ_METADATA_CHANGED_ADDRESS when they or assets change in the DB.
+     */
+    authZMetadataCache = new AuthZMetadataCache(
+        config().getInteger("authZCacheSize", DEFAULT_AUTHZ_CACHE_SIZE),
+        1000L * config().getInteger("authZCacheTtlSec", DEFAULT_AUTHZ_CACHE_TTL_SEC));
+
+    vertx.eventBus().<String>consumer(AUTHZ_METADATA_CHANGED_ADDRESS, message -> {
+      switch (message.body()) {
+        case "ri_details":
+          authZMetadataCache.invalidateAccess();
+          break;
+        case "processes_table":
+          authZMetadataCache.invalidateProcessTitles();
+          break;
+        default:
+          assetCache.invalidateAll();
+          // a GeoTIFF enclosure may have been added to or removed from a collection
+          rasterTileSources.clear();
+      }
+    });
 
     /* Initialize S3-related things */
     s3conf = S3ConfigsHolder.createFromServerConfig(config().getJsonObject(S3ConfigsHolder.S3_CONFIGS_BLOCK_KEY_NAME));
@@ -137,9 +256,23 @@ public class ApiServerVerticle extends AbstractVerticle {
     dbService = DatabaseService.createProxy(vertx, DATABASE_SERVICE_ADDRESS);
     jobsService = JobsService.createProxy(vertx,JOBS_SERVICE_ADDRESS);
 
+    stacIngestBatchSize =
+        config().getInteger("stacIngestBatchSize", DEFAULT_STAC_INGEST_BATCH_SIZE);
+
     // TODO: ssl configuration
     HttpServerOptions serverOptions = new HttpServerOptions();
     serverOptions.setCompressionSupported(true).setCompressionLevel(5);
+
+    /*
+     * HTTP/2 lets map clients multiplex their tile requests over one connection. The server does
+     * not terminate TLS, so HTTP/2 is only served over plain TCP as h2c (prior knowledge or upgrade),
+     * e.g. from a TLS-terminating proxy.
+     */
+    serverOptions
+        .setHttp2ClearTextEnabled(true)
+        .setInitialSettings(new Http2Settings().setMaxConcurrentStreams(
+            config().getLong("http2MaxConcurrentStreams", DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS)));
+    tileBatchMaxTiles = config().getInteger("tileBatchMaxTiles", DEFAULT_TILE_BATCH_MAX_TILES);
     int port = config().getInteger("httpPort") == null ? 8080 : config().getInteger("httpPort");
 
     HttpServer server = vertx.createHttpServer(serverOptions);
@@ -176,6 +309,51 @@ public class ApiServerVerticle extends AbstractVerticle {
     });
 
     httpClient = vertx.createHttpClient();
+
+    tileCache = new TileCache(vertx.fileSystem(),
+        config().getLong("tileCacheMaxTileBytes", DEFAULT_TILE_CACHE_MAX_TILE_BYTES),
+        config().getLong("tileCacheMaxBytes", DEFAULT_TILE_CACHE_MAX_BYTES),
+        config().getString("tileDiskCacheDir"),
+        config().getLong("tileDiskCacheMaxBytes", DEFAULT_TILE_DISK_CACHE_MAX_BYTES),
+        config().getInteger("emptyTileCacheSize", DEFAULT_EMPTY_TILE_CACHE_SIZE),
+        1000L * config().getInteger("emptyTileCacheTtlSec", DEFAULT_EMPTY_TILE_CACHE_TTL_SEC));
+
+    vertx.eventBus().<JsonObject>consumer(FEATURES_APPENDED_ADDRESS, message -> {
+      String collectionId = message.body().getString("collectionId");
+      JsonArray bbox = message.body().getJsonArray("bbox");
+      tileCache.removeIf(VectorTiles.cacheKeysInExtent(collectionId, bbox));
+    });
+
+    /*
+     * TMS definitions and tile sets are held in memory. The RouterManager publishes on
+     * TILE_MATRIX_SETS_CHANGED_ADDRESS when they change in the DB.
+     */
+    getTileMatrixSetRegistry();
+    vertx.eventBus().consumer(TILE_MATRIX_SETS_CHANGED_ADDRESS, message -> {
+      refreshTileMatrixSetRegistry();
+      // tiles onboarded since may fill tiles that were missing
+      tileCache.removeEmptyTiles();
+      rasterTileSources.clear();
+    });
+
+    /*
+     * Optionally render PNG map tiles from the GeoTIFF enclosure of collections that have no
+     * pre-generated map tiles. Rendered tiles are cached like tiles fetched from S3.
+     */
+    if (config().getBoolean("rasterTileRendering", false)) {
+      rasterTileRenderer = new RasterTileRenderer(vertx,
+          config().getInteger("rasterTileRenderingPoolSize", DEFAULT_RASTER_TILE_RENDERING_POOL_SIZE),
+          Duration.ofSeconds(config().getInteger("rasterTileRenderingTimeoutSec",
+              DEFAULT_RASTER_TILE_RENDERING_TIMEOUT_SEC)));
+    }
+  }
+
+  @Override
+  public void stop(Promise<Void> stopPromise) {
+    if (rasterTileRenderer != null) {
+      rasterTileRenderer.close();
+    }
+    tileCache.close().onComplete(stopPromise);
   }
 
   /**
@@ -188,6 +366,9 @@ public class ApiServerVerticle extends AbstractVerticle {
   public void resetRouter(List<Router> routerList) {
     router.clear();
 
+    /* routers are rebuilt when collections are added, so the rendered STAC documents are stale */
+    stacCollectionsCache.invalidate();
+
     routerList.forEach(subrouter -> router.route("/*").subRouter(subrouter));
 
     /* Add route to handle not implemented / not found paths */
@@ -689,9 +870,6 @@ public class ApiServerVerticle extends AbstractVerticle {
     HttpServerResponse response = routingContext.response();
     StringBuilder tilesUrlString = new StringBuilder(
         collectionId + "/" + tileMatrixSetId + "/" + tileMatrixId + "/" + tileCol + "/" + tileRow);
-    // need to set chunked for streaming response because Content-Length cannot be determined
-    // beforehand.
-    response.setChunked(true);
 
     // determine tile format if it is a map (PNG image) or vector (MVT tile) using request header.
     String encodingType = getEncodingFromRequest(routingContext.request().getHeader("Accept"));
@@ -717,30 +895,513 @@ public class ApiServerVerticle extends AbstractVerticle {
 
     //TODO: determine tile format using 'f' query parameter
 
-    // TODO : maybe cache the bucket ID for particular collection ID + TMS, because querying DB everytime may not be great
-    // for performance
-    dbService.getTileS3BucketId(collectionId, tileMatrixSetId).compose(s3BucketId -> {
-    Optional<S3Config> conf = s3conf.getConfigByIdentifier(s3BucketId);
+    // the S3 object path identifies the tile, so it is used as the cache key
+    String tileKey = tilesUrlString.toString();
 
-    if (conf.isEmpty()) {
-      LOGGER.error("Failed to get S3 config details - No S3Config object found for {}", s3BucketId);
+    // tiles that cannot exist are rejected before the cache and S3 are looked up
+    Future<JsonObject> rasterTileSource = validateTile(collectionId, tileMatrixSetId, tileMatrixId,
+        tileRow, tileCol, tileKey.endsWith(".png"));
+    Future<TileCache.Tile> fromCache = rasterTileSource.compose(valid -> tileCache.get(tileKey));
+
+    fromCache.compose(cachedTile -> {
+      if (cachedTile != null) {
+        return Future.succeededFuture(cachedTile);
+      }
+
+      if (rasterTileSource.result() != null) {
+        return fetchTileOnce(tileKey, true, () -> renderRasterTile(rasterTileSource.result(),
+            tileKey, tileMatrixSetId, tileMatrixId, tileRow, tileCol));
+      }
+
+      // a conditional or range request gets a response of its own from S3, so it can't be shared
+      MultiMap requestHeaders = routingContext.request().headers();
+      boolean isShareable = Stream.of(HttpHeaders.RANGE, HttpHeaders.IF_RANGE,
+          HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_MODIFIED_SINCE).noneMatch(requestHeaders::contains);
+
+      return fetchTileOnce(tileKey, isShareable,
+          () -> getTileFromS3(collectionId, tileMatrixSetId, tileKey, requestHeaders).compose(s3Response -> {
+        String contentLength = s3Response.getHeader(HttpHeaders.CONTENT_LENGTH);
+
+        // only complete tiles are cached, partial (206) and not modified (304) responses are passed on
+        if (s3Response.statusCode() == 200 && contentLength != null
+            && tileCache.isCacheable(Long.parseLong(contentLength))) {
+          return s3Response.body().map(data -> {
+            TileCache.Tile tile = new TileCache.Tile(data, s3Response.getHeader(HttpHeaders.ETAG),
+                s3Response.getHeader(HttpHeaders.LAST_MODIFIED));
+            tileCache.put(tileKey, tile);
+            return tile;
+          });
+        }
+
+        return DataFromS3.pipeToClient(s3Response, response)
+            .recover(err -> {
+              // the response may be partly written, so it can't be failed with an error response
+              LOGGER.error("Failed to stream tile {} - {}", tileKey, err.getMessage());
+              return Future.succeededFuture();
+            })
+            .map((TileCache.Tile) null);
+      }).recover(err -> emptyTileIfMissing(tileKey, err)));
+    })
+        .onSuccess(tile -> {
+          // a null tile has been streamed to the response already
+          if (tile != null) {
+            sendTile(routingContext, tile);
+          }
+        })
+        .onFailure(routingContext::fail);
+  }
+
+  /**
+   * Get a Mapbox vector tile of an OGC feature collection, generated from the features in the DB.
+   * Tiles are cached on generation, and are removed from the cache when features are appended to
+   * the collection in the tile's extent. Tiles of tokens with bbox or feature limits depend on the
+   * token and are neither cached nor served from the cache.
+   *
+   * @param routingContext
+   */
+  public void getVectorTile(RoutingContext routingContext) {
+    RequestParameters requestParameters = routingContext.get(ValidationHandler.REQUEST_CONTEXT_KEY);
+    String collectionId = routingContext.request().path().split("/")[2];
+    int tileMatrix = requestParameters.pathParameter("tileMatrix").getInteger();
+    int tileRow = requestParameters.pathParameter("tileRow").getInteger();
+    int tileCol = requestParameters.pathParameter("tileCol").getInteger();
+
+    if (!VectorTiles.isInTileMatrix(tileMatrix, tileRow, tileCol)) {
+      routingContext.put(
+          "response",
+          new OgcException(400, "Bad Request",
+              "Tile row or column is outside of tile matrix " + tileMatrix)
+              .getJson()
+              .toString());
+      routingContext.put("statusCode", 400);
+      routingContext.next();
+      return;
+    }
+
+    Limits limits = getLimitsFromContext(routingContext);
+    boolean isCacheable = limits == null
+        || (limits.getBboxLimit() == null
+            && (limits.getFeatLimit() == null || limits.getFeatLimit().isEmpty()));
+    String tileKey = VectorTiles.cacheKey(collectionId, tileMatrix, tileRow, tileCol);
+
+    Future<TileCache.Tile> cachedTile =
+        isCacheable ? tileCache.get(tileKey) : Future.succeededFuture();
+
+    cachedTile
+        .compose(cached -> {
+          if (cached != null) {
+            return Future.succeededFuture(cached);
+          }
+          long cacheGeneration = tileCache.generation();
+          return dbService
+              .getVectorTile(collectionId, tileMatrix, tileRow, tileCol, limits)
+              .map(data -> {
+                TileCache.Tile tile = new TileCache.Tile(data, null, null);
+                if (isCacheable) {
+                  tileCache.put(tileKey, tile, cacheGeneration);
+                }
+                return tile;
+              });
+        })
+        .onSuccess(tile -> {
+          HttpServerResponse response = routingContext.response();
+          if (tile.getData().length() == 0) {
+            response.setStatusCode(204).end();
+            return;
+          }
+          response
+              .putHeader(HttpHeaders.CONTENT_TYPE, "application/vnd.mapbox-vector-tile")
+              .end(tile.getData());
+        })
+        .onFailure(routingContext::fail);
+  }
+
+  /**
+   * Get a batch of tiles of a collection + TMS in one request, so that a map view costs one
+   * authorization and one round trip instead of one per tile. The tiles are written as the parts of
+   * a <code>multipart/mixed</code> response by a {@link TileBatchWriter}, which fetches at most
+   * {@link #TILE_BATCH_MAX_IN_FLIGHT} tiles at a time and respects the backpressure of the
+   * response. Once the batch is written, each tile sent with data is metered by the
+   * {@link TilesMeteringHandler}.
+   *
+   * @param routingContext
+   */
+  public void getTileBatch(RoutingContext routingContext) {
+    RequestParameters paramsFromOasValidation =
+        routingContext.get(ValidationHandler.REQUEST_CONTEXT_KEY);
+    String collectionId = routingContext.pathParam("collectionId");
+    String tileMatrixSetId = routingContext.pathParam("tileMatrixSetId");
+    JsonObject requestBody = paramsFromOasValidation.body().getJsonObject();
+    JsonArray tiles = requestBody.getJsonArray("tiles");
+    String mediaType = requestBody.getString("mediaType", "image/png");
+
+    if (tiles.size() > tileBatchMaxTiles) {
+      routingContext.fail(new OgcException(400, "Bad Request",
+          "A batch can have at most " + tileBatchMaxTiles + " tiles"));
+      return;
+    }
+
+    String extension = mediaType.equals("application/vnd.mapbox-vector-tile") ? ".pbf" : ".png";
+    String boundary = UUID.randomUUID().toString();
+    HttpServerResponse response = routingContext.response();
+    response
+        .setChunked(true)
+        .putHeader(HttpHeaders.CONTENT_TYPE, "multipart/mixed; boundary=" + boundary);
+
+    new TileBatchWriter(response, boundary, mediaType, tiles, TILE_BATCH_MAX_IN_FLIGHT,
+        coordinates -> {
+          String tileMatrixId = coordinates.getString("tileMatrix");
+          String tileRow = String.valueOf(coordinates.getInteger("tileRow"));
+          String tileCol = String.valueOf(coordinates.getInteger("tileCol"));
+          String tileKey = collectionId + "/" + tileMatrixSetId + "/" + tileMatrixId + "/"
+              + tileCol + "/" + tileRow + extension;
+
+          return validateTile(collectionId, tileMatrixSetId, tileMatrixId, tileRow, tileCol,
+              extension.equals(".png"))
+              .compose(rasterTileSource -> getBatchedTile(collectionId, tileMatrixSetId, tileKey,
+                  rasterTileSource, tileMatrixId, tileRow, tileCol));
+        })
+        .write()
+        .onComplete(written -> {
+          // metered here and not when the response ends, so that the tiles sent before the client
+          // disconnected are metered too
+          tilesMeteringHandler.handleBatchMetering(routingContext, written.result());
+          if (!response.closed()) {
+            response.end("--" + boundary + "--\r\n");
+          }
+        });
+  }
+
+  /**
+   * Get a tile of a batch from the tile cache, or from S3 or rendered, caching it on the way.
+   * Unlike {@link #getTile(RoutingContext)} the tile is always buffered, since it is sent as one
+   * part of the batch response.
+   *
+   * @param collectionId the collection ID
+   * @param tileMatrixSetId the tile matrix set ID
+   * @param tileKey the S3 object path of the tile
+   * @param rasterTileSource the GeoTIFF to render the tile from, or null if the tile is in S3
+   * @param tileMatrixId the tile matrix ID
+   * @param tileRow the tile row
+   * @param tileCol the tile column
+   * @return future of the tile
+   */
+  private Future<TileCache.Tile> getBatchedTile(String collectionId, String tileMatrixSetId,
+      String tileKey, JsonObject rasterTileSource, String tileMatrixId, String tileRow,
+      String tileCol) {
+    return tileCache.get(tileKey).compose(cachedTile -> {
+      if (cachedTile != null) {
+        return Future.succeededFuture(cachedTile);
+      }
+
+      if (rasterTileSource != null) {
+        return fetchTileOnce(tileKey, true, () -> renderRasterTile(rasterTileSource, tileKey,
+            tileMatrixSetId, tileMatrixId, tileRow, tileCol));
+      }
+
+      return fetchTileOnce(tileKey, true, () -> getTileFromS3(collectionId, tileMatrixSetId,
+          tileKey, MultiMap.caseInsensitiveMultiMap())
+          .compose(s3Response -> s3Response.body().map(data -> {
+            TileCache.Tile tile = new TileCache.Tile(data, s3Response.getHeader(HttpHeaders.ETAG),
+                s3Response.getHeader(HttpHeaders.LAST_MODIFIED));
+            tileCache.put(tileKey, tile);
+            return tile;
+          }))
+          .recover(err -> emptyTileIfMissing(tileKey, err)));
+    });
+  }
+
+  /**
+   * Fetch a tile that is not cached at most once for concurrent requests of the same tile. A request
+   * for a tile that is being fetched waits for that fetch and gets the same tile. If the shared
+   * fetch completes with no tile, i.e. the tile was too big to buffer and has been streamed to the
+   * request that started the fetch, the tile is fetched again using <code>fetch</code>.
+   *
+   * @param tileKey the S3 object path of the tile
+   * @param isShareable true if the tile fetched by <code>fetch</code> can be sent to other requests,
+   *     false if it is specific to this request, e.g. for a range request
+   * @param fetch fetches the tile, completing with null if the tile has been sent already
+   * @return future of the tile, null if the tile has been sent already
+   */
+  private Future<TileCache.Tile> fetchTileOnce(String tileKey, boolean isShareable,
+      Supplier<Future<TileCache.Tile>> fetch) {
+    Future<TileCache.Tile> inProgress = tileFetches.get(tileKey);
+
+    if (inProgress != null) {
+      return inProgress.compose(tile -> tile != null ? Future.succeededFuture(tile) : fetch.get());
+    }
+
+    Future<TileCache.Tile> fetching = fetch.get();
+    if (isShareable && !fetching.isComplete()) {
+      tileFetches.put(tileKey, fetching);
+      fetching.onComplete(done -> tileFetches.remove(tileKey, fetching));
+    }
+    return fetching;
+  }
+
+  /**
+   * Request a tile from the S3 bucket holding the tiles of a collection + TMS.
+   *
+   * @param collectionId the collection ID
+   * @param tileMatrixSetId the tile matrix set ID
+   * @param tileKey the S3 object path of the tile
+   * @param requestHeaders headers of the client request, the conditional and range headers are
+   *     forwarded to S3
+   * @return future of the S3 response
+   */
+  private Future<HttpClientResponse> getTileFromS3(String collectionId, String tileMatrixSetId,
+      String tileKey, MultiMap requestHeaders) {
+    return getTileS3BucketId(collectionId, tileMatrixSetId).compose(s3BucketId -> {
+      Optional<S3Config> conf = s3conf.getConfigByIdentifier(s3BucketId);
+
+      if (conf.isEmpty()) {
+        LOGGER.error("Failed to get S3 config details - No S3Config object found for {}", s3BucketId);
         return Future.failedFuture(new OgcException(403,
             "Cannot fetch tile - failed to get details of bucket ID " + s3BucketId,
             "Please contact OGC server RS Admin"));
       }
 
-    DataFromS3 dataFromS3 =
-        new DataFromS3(httpClient, conf.get());
+      DataFromS3 dataFromS3 =
+          new DataFromS3(httpClient, conf.get());
+
+      String urlString =
+          dataFromS3.getFullyQualifiedUrlString(tileKey);
+      dataFromS3.setUrlFromString(urlString);
+      dataFromS3.setForwardedRequestHeaders(requestHeaders);
+      dataFromS3.setNotFoundExpected(true);
+      dataFromS3.setSignatureHeader(HttpMethod.GET);
+      return dataFromS3
+          .getDataFromS3(HttpMethod.GET);
+    });
+  }
 
-    String urlString =
-        dataFromS3.getFullyQualifiedUrlString(tilesUrlString.toString());
-    dataFromS3.setUrlFromString(urlString);
-    dataFromS3.setSignatureHeader(HttpMethod.GET);
-    return dataFromS3
-        .getDataFromS3(HttpMethod.GET);
-    })
-        .onSuccess(success -> success.pipeTo(response))
-        .onFailure(routingContext::fail);
+  /**
+   * A tile that is missing in S3 is an empty tile, since the tile coordinates have been validated.
+   * It is cached as empty so that later requests for it do not reach S3.
+   *
+   * @param tileKey the S3 object path of the tile
+   * @param err the failure getting the tile from S3
+   * @return future of an empty tile if the tile is missing, else the failure
+   */
+  private Future<TileCache.Tile> emptyTileIfMissing(String tileKey, Throwable err) {
+    if (err instanceof OgcException && ((OgcException) err).getStatusCode() == 404) {
+      TileCache.Tile emptyTile = new TileCache.Tile(Buffer.buffer(), null, null);
+      tileCache.put(tileKey, emptyTile);
+      return Future.succeededFuture(emptyTile);
+    }
+    return Future.failedFuture(err);
+  }
+
+  /**
+   * Send a tile from the tile cache, or a 304 if the client's copy is still valid. An empty tile is
+   * sent as a 204. A <code>Range</code> header is ignored since tiles in the cache are small.
+   *
+   * @param routingContext
+   * @param tile the cached tile
+   */
+  private void sendTile(RoutingContext routingContext, TileCache.Tile tile) {
+    HttpServerResponse response = routingContext.response();
+
+    if (tile.getData().length() == 0) {
+      response.headers().remove(HttpHeaders.CONTENT_TYPE);
+      response.setStatusCode(204).end();
+      return;
+    }
+
+    if (tile.getEtag() != null) {
+      response.putHeader(HttpHeaders.ETAG, tile.getEtag());
+    }
+    if (tile.getLastModified() != null) {
+      response.putHeader(HttpHeaders.LAST_MODIFIED, tile.getLastModified());
+    }
+
+    if (isNotModified(routingContext.request(), tile.getEtag(), tile.getLastModified())) {
+      response.setStatusCode(304).end();
+      return;
+    }
+    response.end(tile.getData());
+  }
+
+  /**
+   * Evaluate <code>If-None-Match</code>, or if absent <code>If-Modified-Since</code>, against the
+   * validators of a representation as per RFC 9110.
+   *
+   * @param request the client request
+   * @param etag the ETag of the representation, can be null
+   * @param lastModified the <code>Last-Modified</code> of the representation, can be null
+   * @return true if a 304 can be sent
+   */
+  private static boolean isNotModified(HttpServerRequest request, String etag, String lastModified) {
+    String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+    if (ifNoneMatch != null) {
+      return RenderedDocument.etagMatches(etag, ifNoneMatch);
+    }
+
+    String ifModifiedSince = request.getHeader(HttpHeaders.IF_MODIFIED_SINCE);
+    if (ifModifiedSince == null || lastModified == null) {
+      return false;
+    }
+    try {
+      return !ZonedDateTime.parse(lastModified, DateTimeFormatter.RFC_1123_DATE_TIME)
+          .isAfter(ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME));
+    } catch (DateTimeParseException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Get the S3 bucket ID of the tiles of a collection + TMS from the in-memory tile sets.
+   *
+   * @param collectionId the collection ID
+   * @param tileMatrixSetId the tile matrix set ID
+   * @return future of the S3 bucket ID
+   */
+  private Future<String> getTileS3BucketId(String collectionId, String tileMatrixSetId) {
+    return getTileMatrixSetRegistry().compose(registry -> {
+      JsonObject tileSet = registry.getTileSet(collectionId, tileMatrixSetId);
+      if (tileSet == null) {
+        return Future.failedFuture(new OgcException(404, "Failed to get tile",
+            "Could not get S3 bucket id for collection + TMS"));
+      }
+      return Future.succeededFuture(tileSet.getString("s3_bucket_id"));
+    });
+  }
+
+  /**
+   * Check that a collection has tiles in a TMS and that the tile coordinates are within the limits
+   * of the TMS, so that requests for tiles that cannot exist are rejected before reaching S3. If
+   * raster tile rendering is enabled, a collection without pre-generated map tiles has map tiles if
+   * it has a GeoTIFF enclosure.
+   *
+   * @param collectionId the collection ID
+   * @param tileMatrixSetId the tile matrix set ID
+   * @param tileMatrixId the tile matrix ID
+   * @param tileRow the tile row
+   * @param tileCol the tile column
+   * @param isMapTile true if a PNG map tile is requested
+   * @return future of the GeoTIFF to render the tile from, or null if the tile is in S3. Fails
+   *     with an {@link OgcException} if the tile cannot exist
+   */
+  private Future<JsonObject> validateTile(String collectionId, String tileMatrixSetId,
+      String tileMatrixId, String tileRow, String tileCol, boolean isMapTile) {
+    return getTileMatrixSetRegistry().compose(registry -> {
+      boolean isInTileMatrixSet;
+      try {
+        isInTileMatrixSet = registry.isInTileMatrixSet(tileMatrixSetId, tileMatrixId,
+            Long.parseLong(tileRow), Long.parseLong(tileCol));
+      } catch (NumberFormatException e) {
+        isInTileMatrixSet = false;
+      }
+      OgcException outOfTileMatrixSet = new OgcException(400, "Bad Request",
+          "Tile matrix, row or column is outside of tile matrix set " + tileMatrixSetId);
+      OgcException noTileSet = new OgcException(404, "Not found",
+          "Collection has no tiles in tile matrix set " + tileMatrixSetId);
+
+      if (registry.getTileSet(collectionId, tileMatrixSetId) != null) {
+        return isInTileMatrixSet
+            ? Future.succeededFuture()
+            : Future.failedFuture(outOfTileMatrixSet);
+      }
+
+      if (rasterTileRenderer == null || !isMapTile
+          || !RasterTileRenderer.TILE_MATRIX_SETS.contains(tileMatrixSetId)) {
+        return Future.failedFuture(noTileSet);
+      }
+
+      boolean isRenderable = isInTileMatrixSet;
+      return getRasterTileSource(collectionId).compose(source -> {
+        if (source.isEmpty()) {
+          return Future.failedFuture(noTileSet);
+        }
+        return isRenderable
+            ? Future.succeededFuture(source)
+            : Future.failedFuture(outOfTileMatrixSet);
+      });
+    });
+  }
+
+  /**
+   * Get the GeoTIFF enclosure of a collection to render map tiles from. Lookups, including those
+   * that find no GeoTIFF, are cached until the tile matrix sets or the assets, which include the
+   * enclosures, change. Failed lookups are not.
+   *
+   * @param collectionId the collection ID
+   * @return future of the <code>href</code> and <code>s3_bucket_id</code> of the GeoTIFF, empty if
+   *     the collection has none
+   */
+  private Future<JsonObject> getRasterTileSource(String collectionId) {
+    Future<JsonObject> source = rasterTileSources.get(collectionId);
+
+    if (source == null) {
+      Future<JsonObject> lookup = dbService.getRasterTileSource(collectionId);
+      rasterTileSources.put(collectionId, lookup);
+      lookup.onFailure(err -> rasterTileSources.remove(collectionId, lookup));
+      source = lookup;
+    }
+    return source;
+  }
+
+  /**
+   * Render a PNG map tile from a GeoTIFF and cache it.
+   *
+   * @param rasterTileSource the <code>href</code> and <code>s3_bucket_id</code> of the GeoTIFF
+   * @param tileKey the S3 object path the tile would have if pre-generated, used as the cache key
+   * @param tileMatrixSetId the tile matrix set ID
+   * @param tileMatrixId the tile matrix ID
+   * @param tileRow the tile row
+   * @param tileCol the tile column
+   * @return future of the tile
+   */
+  private Future<TileCache.Tile> renderRasterTile(JsonObject rasterTileSource, String tileKey,
+      String tileMatrixSetId, String tileMatrixId, String tileRow, String tileCol) {
+    String s3BucketId = rasterTileSource.getString("s3_bucket_id");
+    Optional<S3Config> conf = s3conf.getConfigByIdentifier(s3BucketId);
+
+    if (conf.isEmpty()) {
+      LOGGER.error("Failed to get S3 config details - No S3Config object found for {}", s3BucketId);
+      return Future.failedFuture(new OgcException(403,
+          "Cannot render tile - failed to get details of bucket ID " + s3BucketId,
+          "Please contact OGC server RS Admin"));
+    }
+
+    return rasterTileRenderer
+        .render(conf.get(), rasterTileSource.getString("href"), tileMatrixSetId,
+            Integer.parseInt(tileMatrixId), Long.parseLong(tileRow), Long.parseLong(tileCol))
+        .map(data -> {
+          TileCache.Tile tile = new TileCache.Tile(data, null, null);
+          tileCache.put(tileKey, tile);
+          return tile;
+        });
+  }
+
+  /**
+   * Get the in-memory TMS definitions and tile sets, loading them from the DB if they have not been
+   * loaded yet or if the last load failed.
+   *
+   * @return future of the registry
+   */
+  private Future<TileMatrixSetRegistry> getTileMatrixSetRegistry() {
+    if (tileMatrixSetRegistry == null || tileMatrixSetRegistry.failed()) {
+      tileMatrixSetRegistry =
+          dbService.getTileMatrixSetDefinitions().map(TileMatrixSetRegistry::new);
+      tileMatrixSetRegistry.onFailure(err ->
+          LOGGER.error("Failed to load tile matrix sets - {}", err.getMessage()));
+    }
+    return tileMatrixSetRegistry;
+  }
+
+  /**
+   * Reload the TMS definitions and tile sets. The current registry is used until the new one is
+   * loaded, and kept if loading fails.
+   */
+  private void refreshTileMatrixSetRegistry() {
+    dbService.getTileMatrixSetDefinitions()
+        .map(TileMatrixSetRegistry::new)
+        .onSuccess(registry -> {
+          LOGGER.debug("Reloaded tile matrix sets");
+          tileMatrixSetRegistry = Future.succeededFuture(registry);
+        })
+        .onFailure(err -> LOGGER.error("Failed to reload tile matrix sets - {}", err.getMessage()));
   }
 
   public String getEncodingFromRequest(String acceptRequestHeaders) {
@@ -774,8 +1435,14 @@ public class ApiServerVerticle extends AbstractVerticle {
   public void getTileSet(RoutingContext routingContext) {
     String collectionId = routingContext.pathParam("collectionId");
     String tileMatrixSetId = routingContext.pathParam("tileMatrixSetId");
-    dbService
-        .getTileMatrixSetRelationOverload(collectionId, tileMatrixSetId)
+    getTileMatrixSetRegistry()
+        .compose(registry -> {
+          JsonObject tileSet = registry.getTileSet(collectionId, tileMatrixSetId);
+          return tileSet == null
+              ? Future.<List<JsonObject>>failedFuture(
+                  new OgcException(404, "Not found", "TileSetList not found"))
+              : Future.succeededFuture(List.of(tileSet));
+        })
         .onSuccess(
             success -> {
               JsonObject tileSetResponse = buildTileSetResponse(collectionId,
@@ -807,7 +1474,14 @@ public class ApiServerVerticle extends AbstractVerticle {
 
   public void getTileSetList(RoutingContext routingContext) {
     String collectionId = routingContext.pathParam("collectionId");
-    dbService.getTileMatrixSetRelation(collectionId)
+    getTileMatrixSetRegistry()
+        .compose(registry -> {
+          List<JsonObject> tileSets = registry.getTileSets(collectionId);
+          return tileSets.isEmpty()
+              ? Future.<List<JsonObject>>failedFuture(
+                  new OgcException(404, "Not found", "TileSetList not found"))
+              : Future.succeededFuture(tileSets);
+        })
         .onSuccess(success -> {
               JsonObject tileSetListResponse = new JsonObject()
                       .put("links", new JsonObject().put("href", hostName + ogcBasePath + COLLECTIONS + "/"
@@ -850,7 +1524,14 @@ public class ApiServerVerticle extends AbstractVerticle {
   }
 
   public void getTileMatrixSetList(RoutingContext routingContext) {
-    dbService.getTileMatrixSets()
+    getTileMatrixSetRegistry()
+        .compose(registry -> {
+          List<JsonObject> tileMatrixSets = registry.getTileMatrixSets();
+          return tileMatrixSets.isEmpty()
+              ? Future.<List<JsonObject>>failedFuture(
+                  new OgcException(404, "Not found", "TileMatrixSets (tiling scheme) not found"))
+              : Future.succeededFuture(tileMatrixSets);
+        })
         .onSuccess(success -> {
               JsonArray tileMatrixSets = new JsonArray();
               success.forEach(tileMatrixSet -> {
@@ -1032,120 +1713,16 @@ public class ApiServerVerticle extends AbstractVerticle {
   }
 
   public void stacCollections(RoutingContext routingContext) {
-    dbService
-        .getStacCollections()
-        .onSuccess(
-            success -> {
-              JsonArray collections = new JsonArray();
-              JsonObject nestedCollections = new JsonObject();
-              success.forEach(
-                  collection -> {
-                    try {
-                      List<JsonObject> tempArray = new ArrayList<>();
-                      tempArray.add(collection);
-                      String jsonFilePath = "docs/getStacLandingPage.json";
-                      FileSystem fileSystem = vertx.fileSystem();
-                      Buffer buffer = fileSystem.readFileBlocking(jsonFilePath);
-                      JsonObject stacMetadata = new JsonObject(buffer.toString());
-                      String stacVersion = stacMetadata.getString("stacVersion");
-                      JsonObject singleCollection = tempArray.get(0);
-                      if (singleCollection.getString("license") == null
-                          || singleCollection.getString("license").isEmpty()) {
-                        singleCollection.put("license", stacMetadata.getString("stacLicense"));
-                      }
-                      if (singleCollection.getJsonArray("temporal") == null
-                          || singleCollection.getJsonArray("temporal").isEmpty()) {
-                        singleCollection.put("temporal", new JsonArray().add(null).add(null));
-                      }
-                      singleCollection
-                          .put("type", "Collection")
-                          .put(
-                              "links",
-                              new JsonArray()
-                                  .add(createLink("root", STAC, null))
-                                  .add(createLink("parent", STAC, null))
-                                  .add(
-                                      createLink(
-                                          "self",
-                                          STAC
-                                              + "/"
-                                              + COLLECTIONS
-                                              + "/"
-                                              + collection.getString("id"),
-                                          collection.getString("title")))
-                                  .add(createLink("items", STAC + "/" + COLLECTIONS + "/" +
-                                          collection.getString("id") + "/items", "Items API to fetch items belonging " +
-                                      "to this collection"))
-                              )
-                          .put("stac_version", stacVersion)
-                          .put(
-                              "extent",
-                              new JsonObject()
-                                  .put(
-                                      "spatial",
-                                      new JsonObject()
-                                          .put(
-                                              "bbox",
-                                              new JsonArray().add(collection.getJsonArray("bbox"))))
-                                  .put(
-                                      "temporal",
-                                      new JsonObject()
-                                          .put(
-                                              "interval",
-                                              new JsonArray()
-                                                  .add(collection.getJsonArray("temporal")))));
-                      if (singleCollection.containsKey("assets")) {
-                        JsonObject assets = new JsonObject();
-
-                        singleCollection
-                            .getJsonArray("assets")
-                            .forEach(
-                                assetJson -> {
-                                  JsonObject asset = new JsonObject();
-                                  asset.mergeIn((JsonObject) assetJson);
-                                  String href =
-                                      hostName + ogcBasePath + "assets/" + asset.getString("id");
-                                  asset.put("href", href);
-                                  asset.put("file:size", asset.getInteger("size"));
-                                  asset.remove("size");
-                                  asset.remove("id");
-                                  asset.remove("stac_collections_id");
-                                  assets.put(((JsonObject) assetJson).getString("id"), asset);
-                                });
-                        singleCollection.put("assets", assets);
-                      }
-                      singleCollection.remove("bbox");
-                      singleCollection.remove("temporal");
-                      collections.add(singleCollection);
-                      nestedCollections
-                          .put("collections", collections)
-                          .put(
-                              "links",
-                              new JsonArray()
-                                  .add(createLink("root", STAC, null))
-                                  .add(createLink("parent", STAC, null))
-                                  .add(createLink("self", STAC + "/" + COLLECTIONS, null)));
-                    } catch (Exception e) {
-                      LOGGER.error("Something went wrong here: {}", e.getMessage());
-                      routingContext.put(
-                          "response",
-                          new OgcException(500, "Internal Server Error", "Something " + "broke")
-                              .getJson()
-                              .toString());
-                      routingContext.put("statusCode", 500);
-                      routingContext.next();
-                    }
-                  });
-              routingContext.put("response", nestedCollections.toString());
-              routingContext.put("statusCode", 200);
-              routingContext.next();
-            })
+    stacCollectionsCache
+        .get(this::renderStacCollections)
+        .onSuccess(snapshot -> sendRenderedDocument(routingContext, snapshot.getCollections()))
         .onFailure(
             failed -> {
               if (failed instanceof OgcException) {
                 routingContext.put("response", ((OgcException) failed).getJson().toString());
                 routingContext.put("statusCode", 404);
               } else {
+                LOGGER.error("Something went wrong here: {}", failed.getMessage());
                 routingContext.put(
                     "response",
                     new OgcException(500, "Internal Server Error", "Internal Server Error")
@@ -1157,130 +1734,247 @@ public class ApiServerVerticle extends AbstractVerticle {
             });
   }
 
-  public void stacCatalog(RoutingContext routingContext) {
-    try {
-      String jsonFilePath = "docs/getStacLandingPage.json";
-      String conformanceFilePath = "docs/stacConformance.json";
-      FileSystem fileSystem = vertx.fileSystem();
-      Buffer buffer = fileSystem.readFileBlocking(jsonFilePath);
-      Buffer conformanceBuffer = fileSystem.readFileBlocking(conformanceFilePath);
-      JsonObject stacLandingPage = new JsonObject(buffer.toString());
-      JsonObject stacConformance = new JsonObject(conformanceBuffer.toString());
-
-      String type = stacLandingPage.getString("type");
-      String description = stacLandingPage.getString("description");
-      String title = stacLandingPage.getString("title");
-      String stacVersion = stacLandingPage.getString("stacVersion");
-      String catalogId = config().getString("catalogId");
-
-      JsonArray links =
-          new JsonArray()
-              .add(createLink("root", STAC, title))
-              .add(createLink("self", STAC, title))
-              .add(
-                  new JsonObject()
-                      .put("rel", "service-desc")
-                      .put("href", hostName + ogcBasePath + "stac/api?f=json")
-                      .put("type", "application/vnd.oai.openapi+json;version=3.0")
-                      .put("title", "API definition for endpoints in JSON format"))
-              .add(
-                  new JsonObject()
-                      .put("rel", "service-doc")
-                      .put("href", hostName + ogcBasePath + "stac/api")
-                      .put("type", "text/html")
-                      .put("title", "API definition for endpoints in HTML format"))
-              .add(
-                  new JsonObject()
-                      .put("rel", "data")
-                      .put("href", hostName + ogcBasePath + "stac/collections")
-                      .put("type", "application/json"))
-              .add(
-                  new JsonObject()
-                      .put("rel", "search")
-                      .put("href", hostName + ogcBasePath + "stac/search")
-                      .put("method", "GET")
-                      .put("title", "STAC Search")
-                      .put("type", "application/geo+json"))
-              .add(
-                  new JsonObject()
-                      .put("rel", "search")
-                      .put("href", hostName + ogcBasePath + "stac/search")
-                      .put("method", "POST")
-                      .put("title", "STAC Search")
-                      .put("type", "application/geo+json"))
-              .add(
+  /**
+   * Render <code>/stac/collections</code>, every <code>/stac/collections/{collectionId}</code> and
+   * the child links of the STAC landing page from a single read of the STAC collections. Used to
+   * fill {@link ApiServerVerticle#stacCollectionsCache}.
+   *
+   * @return future of the rendered documents
+   */
+  private Future<StacCollectionsCache.Snapshot> renderStacCollections() {
+    return dbService
+        .getStacCollections()
+        .map(
+            dbCollections -> {
+              JsonArray collections = new JsonArray();
+              JsonArray childLinks = new JsonArray();
+              Map<String, RenderedDocument> collectionById = new HashMap<>();
+
+              for (JsonObject collection : dbCollections) {
+                String collectionId = collection.getString("id");
+                childLinks.add(
+                    createLink(
+                        "child",
+                        STAC + "/" + COLLECTIONS + "/" + collectionId,
+                        collection.getString("title")));
+                collectionById.put(
+                    collectionId,
+                    RenderedDocument.fromBody(
+                        handleStacCollectionResponse(collection.copy()).toString()));
+                collections.add(buildStacCollectionsListEntry(collection));
+              }
+
+              JsonObject nestedCollections =
                   new JsonObject()
-                      .put("rel", "conformance")
-                      .put("href", hostName + ogcBasePath + "stac/conformance")
-                      .put("type", "application/json")
-                      .put("title", "STAC/WFS3 conformance classes implemented by this server"));
-      dbService
-          .getStacCollections()
-          .onSuccess(
-              success -> {
-                success.forEach(
-                    collection -> {
-                      try {
-                        links.add(
-                            createLink(
-                                "child",
-                                STAC + "/" + COLLECTIONS + "/" + collection.getString("id"),
-                                collection.getString("title")));
-                      } catch (Exception e) {
-                        LOGGER.error("Something went wrong here: {}", e.getMessage());
-                        routingContext.put(
-                            "response",
-                            new OgcException(500, "Internal Server Error", "Something " + "broke")
-                                .getJson()
-                                .toString());
-                        routingContext.put("statusCode", 500);
-                        routingContext.next();
-                      }
-                    });
-                JsonObject catalog =
+                      .put("collections", collections)
+                      .put(
+                          "links",
+                          new JsonArray()
+                              .add(createLink("root", STAC, null))
+                              .add(createLink("parent", STAC, null))
+                              .add(createLink("self", STAC + "/" + COLLECTIONS, null)));
+
+              LOGGER.debug("Rendered {} STAC collections", collections.size());
+              return new StacCollectionsCache.Snapshot(
+                  RenderedDocument.fromBody(nestedCollections.toString()),
+                  collectionById,
+                  childLinks);
+            });
+  }
+
+  private JsonObject buildStacCollectionsListEntry(JsonObject collection) {
+    if (collection.getString("license") == null || collection.getString("license").isEmpty()) {
+      collection.put("license", stacMetaJson.getString("stacLicense"));
+    }
+    if (collection.getJsonArray("temporal") == null
+        || collection.getJsonArray("temporal").isEmpty()) {
+      collection.put("temporal", new JsonArray().add(null).add(null));
+    }
+    collection
+        .put("type", "Collection")
+        .put(
+            "links",
+            new JsonArray()
+                .add(createLink("root", STAC, null))
+                .add(createLink("parent", STAC, null))
+                .add(
+                    createLink(
+                        "self",
+                        STAC + "/" + COLLECTIONS + "/" + collection.getString("id"),
+                        collection.getString("title")))
+                .add(
+                    createLink(
+                        "items",
+                        STAC + "/" + COLLECTIONS + "/" + collection.getString("id") + "/items",
+                        "Items API to fetch items belonging to this collection")))
+        .put("stac_version", stacMetaJson.getString("stacVersion"))
+        .put(
+            "extent",
+            new JsonObject()
+                .put(
+                    "spatial",
+                    new JsonObject().put("bbox", new JsonArray().add(collection.getJsonArray("bbox"))))
+                .put(
+                    "temporal",
                     new JsonObject()
-                        .put("type", type)
-                        .put("description", description)
-                        .put("id", catalogId)
-                        .put("stac_version", stacVersion)
-                        .put("links", links)
-                        .put("conformsTo", stacConformance.getJsonArray("conformsTo"));
-
-                routingContext.put("response", catalog.encode());
-                routingContext.put("statusCode", 200);
-                routingContext.next();
-              })
-          .onFailure(
-              failed -> {
-                if (failed instanceof OgcException) {
-                  routingContext.put("response", ((OgcException) failed).getJson().toString());
-                  routingContext.put("statusCode", 404);
-                } else {
-                  routingContext.put(
-                      "response",
-                      new OgcException(500, "Internal Server Error", "Internal Server Error")
-                          .getJson()
-                          .toString());
-                  routingContext.put("statusCode", 500);
-                }
-                routingContext.next();
+                        .put("interval", new JsonArray().add(collection.getJsonArray("temporal")))));
+    if (collection.containsKey("assets")) {
+      JsonObject assets = new JsonObject();
+
+      collection
+          .getJsonArray("assets")
+          .forEach(
+              assetJson -> {
+                JsonObject asset = new JsonObject();
+                asset.mergeIn((JsonObject) assetJson);
+                String href = hostName + ogcBasePath + "assets/" + asset.getString("id");
+                asset.put("href", href);
+                asset.put("file:size", asset.getInteger("size"));
+                asset.remove("size");
+                asset.remove("id");
+                asset.remove("stac_collections_id");
+                assets.put(((JsonObject) assetJson).getString("id"), asset);
               });
+      collection.put("assets", assets);
+    }
+    collection.remove("bbox");
+    collection.remove("temporal");
+    return collection;
+  }
 
-    } catch (Exception e) {
-      LOGGER.debug("Error reading the JSON file: {}", e.getMessage());
-      routingContext.put(
-          "response",
-          new OgcException(500, "Internal Server Error", "Something " + "broke")
-              .getJson()
-              .toString());
-      routingContext.put("statusCode", 500);
-      routingContext.next();
+  /**
+   * Respond with a {@link RenderedDocument}, or with a 304 if the client already has it. The
+   * response is sent by the <code>buildResponse</code> handler.
+   *
+   * @param routingContext the routing context
+   * @param document the document to be sent
+   */
+  private void sendRenderedDocument(RoutingContext routingContext, RenderedDocument document) {
+    routingContext.response().putHeader(HttpHeaders.ETAG, document.getEtag());
+    if (document.matches(routingContext.request().getHeader(HttpHeaders.IF_NONE_MATCH))) {
+      routingContext.put("response", "");
+      routingContext.put("statusCode", 304);
+    } else {
+      routingContext.put("response", document.getBody());
+      routingContext.put("statusCode", 200);
     }
+    routingContext.next();
+  }
+
+  public void stacCatalog(RoutingContext routingContext) {
+    String type = stacMetaJson.getString("type");
+    String description = stacMetaJson.getString("description");
+    String title = stacMetaJson.getString("title");
+    String stacVersion = stacMetaJson.getString("stacVersion");
+    String catalogId = config().getString("catalogId");
+
+    JsonArray links =
+        new JsonArray()
+            .add(createLink("root", STAC, title))
+            .add(createLink("self", STAC, title))
+            .add(
+                new JsonObject()
+                    .put("rel", "service-desc")
+                    .put("href", hostName + ogcBasePath + "stac/api?f=json")
+                    .put("type", "application/vnd.oai.openapi+json;version=3.0")
+                    .put("title", "API definition for endpoints in JSON format"))
+            .add(
+                new JsonObject()
+                    .put("rel", "service-doc")
+                    .put("href", hostName + ogcBasePath + "stac/api")
+                    .put("type", "text/html")
+                    .put("title", "API definition for endpoints in HTML format"))
+            .add(
+                new JsonObject()
+                    .put("rel", "data")
+                    .put("href", hostName + ogcBasePath + "stac/collections")
+                    .put("type", "application/json"))
+            .add(
+                new JsonObject()
+                    .put("rel", "search")
+                    .put("href", hostName + ogcBasePath + "stac/search")
+                    .put("method", "GET")
+                    .put("title", "STAC Search")
+                    .put("type", "application/geo+json"))
+            .add(
+                new JsonObject()
+                    .put("rel", "search")
+                    .put("href", hostName + ogcBasePath + "stac/search")
+                    .put("method", "POST")
+                    .put("title", "STAC Search")
+                    .put("type", "application/geo+json"))
+            .add(
+                new JsonObject()
+                    .put("rel", "aggregate")
+                    .put("href", hostName + ogcBasePath + "stac/aggregate")
+                    .put("method", "GET")
+                    .put("title", "STAC Search Aggregation")
+                    .put("type", "application/json"))
+            .add(
+                new JsonObject()
+                    .put("rel", "aggregations")
+                    .put("href", hostName + ogcBasePath + "stac/aggregations")
+                    .put("type", "application/json")
+                    .put("title", "Aggregations supported by STAC Search Aggregation"))
+            .add(
+                new JsonObject()
+                    .put("rel", "conformance")
+                    .put("href", hostName + ogcBasePath + "stac/conformance")
+                    .put("type", "application/json")
+                    .put("title", "STAC/WFS3 conformance classes implemented by this server"));
+    stacCollectionsCache
+        .get(this::renderStacCollections)
+        .onSuccess(
+            snapshot -> {
+              links.addAll(snapshot.getCatalogChildLinks());
+              JsonObject catalog =
+                  new JsonObject()
+                      .put("type", type)
+                      .put("description", description)
+                      .put("id", catalogId)
+                      .put("stac_version", stacVersion)
+                      .put("links", links)
+                      .put("conformsTo", stacConformanceJson.getJsonArray("conformsTo"));
+
+              routingContext.put("response", catalog.encode());
+              routingContext.put("statusCode", 200);
+              routingContext.next();
+            })
+        .onFailure(
+            failed -> {
+              if (failed instanceof OgcException) {
+                routingContext.put("response", ((OgcException) failed).getJson().toString());
+                routingContext.put("statusCode", 404);
+              } else {
+                routingContext.put(
+                    "response",
+                    new OgcException(500, "Internal Server Error", "Internal Server Error")
+                        .getJson()
+                        .toString());
+                routingContext.put("statusCode", 500);
+              }
+              routingContext.next();
+            });
   }
 
     public void getStacCollection(RoutingContext routingContext) {
         String collectionId = routingContext.normalizedPath().split("/")[3];
         LOGGER.debug("collectionId- {}", collectionId);
+        stacCollectionsCache
+                .get(this::renderStacCollections)
+                .map(snapshot -> snapshot.getCollection(collectionId))
+                .otherwiseEmpty()
+                .onComplete(cached -> {
+                    if (cached.result() != null && cached.result().isPresent()) {
+                        sendRenderedDocument(routingContext, cached.result().get());
+                    } else {
+                        /* may have been created after the last render, so check the DB */
+                        getStacCollectionFromDb(routingContext, collectionId);
+                    }
+                });
+    }
+
+    private void getStacCollectionFromDb(RoutingContext routingContext, String collectionId) {
         dbService
                 .getStacCollection(collectionId)
                 .onSuccess(
@@ -1432,9 +2126,7 @@ public class ApiServerVerticle extends AbstractVerticle {
                     .put("href", stacMetaJson.getString("hostname")
                         + "/stac/collections/" + stacCollectionId + "/items")));
           }
-          routingContext.put("response", featureCollections.toString());
-          routingContext.put("statusCode", 200);
-          routingContext.next();
+          sendRenderedDocument(routingContext, RenderedDocument.fromBody(featureCollections.toString()));
         })
         .onFailure(
             failed -> {
@@ -1471,13 +2163,22 @@ public class ApiServerVerticle extends AbstractVerticle {
             .put("rel", "root")
             .put("type", "application/json")
             .put("href", stacMetaJson.getString("hostname") + "/stac"));
-    dbService
-        .getStacItemById(stacCollectionId, stacItemId)
+    Optional<JsonObject> cachedStacItem = stacItemCache.get(stacCollectionId, stacItemId);
+    Future<JsonObject> stacItemFut = cachedStacItem.isPresent()
+        ? Future.succeededFuture(cachedStacItem.get())
+        : dbService.getStacItemById(stacCollectionId, stacItemId)
+            .onSuccess(stacItem -> stacItemCache.put(stacCollectionId, stacItemId, stacItem));
+
+    stacItemFut
         .onSuccess(stacItem -> {
+              String itemVersion = (String) stacItem.remove("item_version");
+              boolean hasPresignedAssets = false;
               try {
                 // Retrieve user authentication info
                 AuthInfo userKey = routingContext.get(USER_KEY);
                 boolean shouldCreate = routingContext.get(SHOULD_CREATE_KEY);
+                hasPresignedAssets =
+                    shouldCreate && hasRelativeAssetHref(stacItem.getJsonArray("assetobjects"));
                 long expiry = (userKey != null) ? userKey.getExpiry() : 0;
                   String userId = null;
                   if (userKey != null) {
@@ -1511,6 +2212,16 @@ public class ApiServerVerticle extends AbstractVerticle {
                         .toString());
                 routingContext.put("statusCode", 500);
                 routingContext.next();
+                return;
+              }
+              /*
+               * Pre-signed asset URLs differ for every user and request, so only responses without
+               * them can be validated using the item version.
+               */
+              if (!hasPresignedAssets && itemVersion != null) {
+                sendRenderedDocument(routingContext,
+                    RenderedDocument.fromVersion(stacItem.toString(), itemVersion));
+                return;
               }
               routingContext.put("response", stacItem.toString());
               routingContext.put("statusCode", 200);
@@ -1586,6 +2297,35 @@ public class ApiServerVerticle extends AbstractVerticle {
     }
   }
 
+  /**
+   * Check if any asset of a STAC item has a relative href, i.e. one for which a pre-signed URL is
+   * generated in {@link ApiServerVerticle#formatAssetObjectsForStacItemById}.
+   *
+   * @param assetArray the <code>assetobjects</code> array of the item
+   * @return true if there is at least one relative (or unparseable) href
+   */
+  private boolean hasRelativeAssetHref(JsonArray assetArray) {
+    if (assetArray == null || assetArray.contains(null)) {
+      return false;
+    }
+    return assetArray.stream().anyMatch(asset -> {
+      try {
+        return !new URI(((JsonObject) asset).getString("href")).isAbsolute();
+      } catch (URISyntaxException | NullPointerException e) {
+        return true;
+      }
+    });
+  }
+
+  /**
+   * Let all API server instances know that a STAC item has been changed or deleted, so that it is
+   * evicted from {@link ApiServerVerticle#stacItemCache}.
+   */
+  private void notifyStacItemChanged(String collectionId, String itemId) {
+    vertx.eventBus().publish(STAC_ITEM_CHANGED_ADDRESS,
+        new JsonObject().put("collectionId", collectionId).put("itemId", itemId));
+  }
+
   private JsonObject formatAssetObjectsForStacItemById(JsonArray assetArray, boolean shouldCreate, long expiry, String userId, String stacCollectionId, String stacItemId) {
     JsonObject assets = new JsonObject();
     if(assetArray.contains(null))
@@ -1802,6 +2542,141 @@ public class ApiServerVerticle extends AbstractVerticle {
     .onFailure(failed -> routingContext.fail(failed));
   }
 
+  /**
+   * GET STAC Item Search aggregation. Takes the same filters as GET STAC Item Search along with the
+   * aggregations to be computed.
+   *
+   * @param routingContext
+   */
+  public void getStacItemAggregate(RoutingContext routingContext) {
+
+    RequestParameters paramsFromOasValidation =
+        routingContext.get(ValidationHandler.REQUEST_CONTEXT_KEY);
+    StacItemSearchParams searchParams =
+        StacItemSearchParams.createFromGetRequest(paramsFromOasValidation);
+
+    List<String> aggregations = new ArrayList<String>();
+    if (paramsFromOasValidation.queryParameter("aggregations") != null) {
+      paramsFromOasValidation.queryParameter("aggregations").getJsonArray()
+          .forEach(aggregation -> aggregations.add(aggregation.toString()));
+    }
+
+    String datetimeInterval =
+        paramsFromOasValidation.queryParameter("datetime_frequency_interval") == null ? null
+            : paramsFromOasValidation.queryParameter("datetime_frequency_interval").getString();
+
+    stacItemAggregate(routingContext, searchParams, aggregations, datetimeInterval);
+  }
+
+  /**
+   * POST STAC Item Search aggregation. Takes the same body as POST STAC Item Search along with the
+   * aggregations to be computed.
+   *
+   * @param routingContext
+   */
+  public void postStacItemAggregate(RoutingContext routingContext) {
+
+    RequestParameters paramsFromOasValidation =
+        routingContext.get(ValidationHandler.REQUEST_CONTEXT_KEY);
+
+    JsonObject currentBody;
+
+    if (paramsFromOasValidation.body() == null || !paramsFromOasValidation.body().isJsonObject()) {
+      currentBody = new JsonObject();
+    } else {
+      currentBody = paramsFromOasValidation.body().getJsonObject();
+    }
+
+    StacItemSearchParams searchParams = StacItemSearchParams.createFromPostRequest(currentBody);
+
+    List<String> aggregations = new ArrayList<String>();
+    currentBody.getJsonArray("aggregations", new JsonArray())
+        .forEach(aggregation -> aggregations.add(aggregation.toString()));
+
+    stacItemAggregate(routingContext, searchParams, aggregations,
+        currentBody.getString("datetime_frequency_interval"));
+  }
+
+  /**
+   * List the aggregations supported by STAC Item Search aggregation.
+   *
+   * @param routingContext
+   */
+  public void getStacAggregations(RoutingContext routingContext) {
+    JsonArray aggregations = new JsonArray();
+    STAC_AGGREGATIONS.forEach(name -> aggregations.add(new JsonObject()
+        .put("name", name)
+        .put("data_type", STAC_AGGREGATION_SINGLE_VALUES.contains(name)
+            ? ("total_count".equals(name) ? "integer" : "datetime")
+            : "frequency_distribution")));
+
+    JsonObject response = new JsonObject()
+        .put("type", "AggregationCollection")
+        .put("aggregations", aggregations)
+        .put("links", new JsonArray()
+            .add(new JsonObject()
+                .put("rel", "root")
+                .put("type", "application/json")
+                .put("href", stacMetaJson.getString("hostname") + "/stac"))
+            .add(new JsonObject()
+                .put("rel", "self")
+                .put("type", "application/json")
+                .put("href", routingContext.request().absoluteURI())));
+
+    routingContext.put("response", response.toString());
+    routingContext.put("statusCode", 200);
+    routingContext.next();
+  }
+
+  /**
+   * Validate the requested aggregations and compute them over the items matching the search
+   * filters. <code>total_count</code> is computed if no aggregation is requested.
+   */
+  private void stacItemAggregate(RoutingContext routingContext,
+      StacItemSearchParams searchParams, List<String> aggregations, String datetimeInterval) {
+
+    if (aggregations.isEmpty()) {
+      aggregations.add("total_count");
+    }
+
+    Optional<String> unsupported =
+        aggregations.stream().filter(name -> !STAC_AGGREGATIONS.contains(name)).findFirst();
+    if (unsupported.isPresent()) {
+      routingContext.fail(new OgcException(400, "Bad Request",
+          "Unsupported aggregation " + unsupported.get() + ", supported aggregations are "
+              + STAC_AGGREGATIONS));
+      return;
+    }
+
+    if (datetimeInterval == null) {
+      datetimeInterval = "month";
+    } else if (!STAC_AGGREGATION_DATETIME_INTERVALS.contains(datetimeInterval)) {
+      routingContext.fail(new OgcException(400, "Bad Request",
+          "datetime_frequency_interval must be one of " + STAC_AGGREGATION_DATETIME_INTERVALS));
+      return;
+    }
+
+    List<String> distinctAggregations = aggregations.stream().distinct().collect(Collectors.toList());
+
+    dbService.stacItemAggregate(searchParams, distinctAggregations, datetimeInterval)
+        .onSuccess(result -> {
+          result.put("links", new JsonArray()
+              .add(new JsonObject()
+                  .put("rel", "root")
+                  .put("type", "application/json")
+                  .put("href", stacMetaJson.getString("hostname") + "/stac"))
+              .add(new JsonObject()
+                  .put("rel", "self")
+                  .put("type", "application/json")
+                  .put("href", routingContext.request().absoluteURI())));
+
+          routingContext.put("response", result.toString());
+          routingContext.put("statusCode", 200);
+          routingContext.next();
+        })
+        .onFailure(failed -> routingContext.fail(failed));
+  }
+
   /**
    * POST STAC Item Search.
    *
@@ -1949,13 +2824,56 @@ public class ApiServerVerticle extends AbstractVerticle {
     .onFailure(failed -> routingContext.fail(failed));
   }
 
+  /**
+   * Get the metering handler of tiles and features requests of this instance, for the routers.
+   *
+   * @return the metering handler
+   */
+  public TilesMeteringHandler getTilesMeteringHandler() {
+    return tilesMeteringHandler;
+  }
+
+  /**
+   * Get the <code>asset_registry</code> record of an asset, from the cache if present.
+   *
+   * @param assetId the asset ID
+   * @return future of the asset record
+   */
+  public Future<JsonObject> getAssetRecord(String assetId) {
+    return assetCache.get(assetId, dbService::getAssets);
+  }
+
+  /**
+   * Get whether a collection is open, for the authorization handlers.
+   *
+   * @param collectionId the collection ID
+   * @return future of true if the collection is open, false if secure
+   */
+  public Future<Boolean> getCollectionAccess(String collectionId) {
+    return authZMetadataCache.getAccess(collectionId, dbService::getAccess);
+  }
+
+  /**
+   * Get the title of a process, for the authorization handlers.
+   *
+   * @param processId the process ID
+   * @return future of the title
+   */
+  public Future<String> getProcessTitle(String processId) {
+    return authZMetadataCache.getProcessTitle(processId, dbService::getProcessTitle);
+  }
+
   public void getAssets(RoutingContext routingContext) {
     String assetId = routingContext.pathParam("assetId");
 
     HttpServerResponse response = routingContext.response();
-    response.setChunked(true);
-    dbService
-        .getAssets(assetId)
+
+    // the asset is usually resolved already by the authorization handler
+    JsonObject resolvedAsset = routingContext.get(STAC_ASSET_CONTEXT_KEY);
+    Future<JsonObject> assetFuture =
+        resolvedAsset != null ? Future.succeededFuture(resolvedAsset) : getAssetRecord(assetId);
+
+    assetFuture
         .compose(
             handler -> {
               response.putHeader("Content-Type", handler.getString("type"));
@@ -1971,18 +2889,60 @@ public class ApiServerVerticle extends AbstractVerticle {
                     "Please contact OGC server RS Admin"));
               }
 
+              if (conf.get().isPresignedRedirect()) {
+                // the asset is downloaded from S3 directly, so the asset size is metered
+                routingContext.put(REDIRECTED_RESPONSE_SIZE_KEY, handler.getLong("size"));
+                sendPresignedRedirect(routingContext, conf.get(), handler.getString("href"),
+                    handler.getString("collection_id"), handler.getString("item_id"), assetId);
+                return Future.succeededFuture();
+              }
+
               DataFromS3 dataFromS3 =
                   new DataFromS3(httpClient, conf.get());
               String urlString =
                   dataFromS3.getFullyQualifiedUrlString(handler.getString("href"));
               dataFromS3.setUrlFromString(urlString);
+              dataFromS3.setForwardedRequestHeaders(routingContext.request().headers());
               dataFromS3.setSignatureHeader(HttpMethod.GET);
               return dataFromS3
                   .getDataFromS3(HttpMethod.GET);
-            }).onSuccess(success -> success.pipeTo(response))
+            }).onSuccess(success -> {
+              // no S3 response if the client has been redirected
+              if (success != null) {
+                DataFromS3.pipeToClient(success, response);
+              }
+            })
                   .onFailure(routingContext::fail);
   }
 
+  /**
+   * Answer a download request with a 302 redirect to a short-lived pre-signed URL of the S3
+   * object. The user, collection, item and asset IDs are added to the URL as query parameters so
+   * that they appear in the S3 access logs.
+   *
+   * @param routingContext
+   * @param conf config of the bucket having the object
+   * @param objectKey key of the S3 object
+   * @param collectionId the collection ID, can be null
+   * @param itemId the STAC item ID, can be null
+   * @param assetId the asset ID, can be null
+   */
+  private void sendPresignedRedirect(RoutingContext routingContext, S3Config conf,
+      String objectKey, String collectionId, String itemId, String assetId) {
+    AuthInfo user = routingContext.get(DxTokenAuthenticationHandler.USER_KEY);
+    String userId = user != null && user.getUserId() != null ? user.getUserId().toString() : null;
+    long expiry = Instant.now().getEpochSecond() + conf.getPresignedRedirectExpirySec();
+
+    String preSignedUrl = getPresignedUrlSupportForStacItemById(objectKey, expiry, conf, userId,
+        collectionId, itemId, assetId);
+
+    routingContext.response()
+        .setStatusCode(302)
+        .putHeader(HttpHeaders.LOCATION, preSignedUrl)
+        .putHeader("Cache-Control", "no-store")
+        .end();
+  }
+
 
   public void postStacCollection(RoutingContext routingContext) {
     LOGGER.debug("Post STAC collection" + routingContext.body().asJsonObject());
@@ -2020,6 +2980,7 @@ public class ApiServerVerticle extends AbstractVerticle {
           .postStacCollections(collectionNew)
           .onSuccess(
               dbRequest -> {
+                notifyStacMetadataChanged();
                 JsonArray responseBody = new JsonArray();
                 collections.forEach(
                     obj -> responseBody.add(processStacCollection((JsonObject) obj)));
@@ -2075,6 +3036,7 @@ public class ApiServerVerticle extends AbstractVerticle {
           .onSuccess(
               dbRequest -> {
                 LOGGER.debug("Request successfully posted");
+                notifyStacMetadataChanged();
                 JsonObject response = processStacCollection(requestBody);
                 routingContext.put("response", response.toString());
                 routingContext.put("statusCode", 201);
@@ -2104,6 +3066,14 @@ public class ApiServerVerticle extends AbstractVerticle {
     }
   }
 
+  /**
+   * Let all API server instances know that STAC collections have been added or changed, so that
+   * the rendered STAC collection documents are dropped.
+   */
+  private void notifyStacMetadataChanged() {
+    vertx.eventBus().publish(STAC_METADATA_CHANGED_ADDRESS, null);
+  }
+
   private JsonObject processStacCollection(JsonObject collection) {
     JsonArray temporalArray =
         collection
@@ -2178,6 +3148,7 @@ public class ApiServerVerticle extends AbstractVerticle {
                 })
                 .onSuccess(updatedCollection -> {
                     LOGGER.debug("Request successfully updated");
+                    notifyStacMetadataChanged();
                     JsonObject response = handleStacCollectionResponse(updatedCollection);
                     routingContext.put("response", response.toString())
                             .put("statusCode", 200)
@@ -2287,9 +3258,14 @@ public class ApiServerVerticle extends AbstractVerticle {
 
   private Future<Void> updateAuditTable(RoutingContext context) {
     LOGGER.debug("Audit logging initiated for incoming request...");
-    final List<Integer> STATUS_CODES_TO_AUDIT = List.of(200, 201);
+    final List<Integer> STATUS_CODES_TO_AUDIT = List.of(200, 201, 206);
+
+    // redirects to pre-signed URLs are audited with the size of the object the client downloads
+    Long redirectedResponseSize = context.get(REDIRECTED_RESPONSE_SIZE_KEY);
+    boolean isRedirectedDownload =
+        context.response().getStatusCode() == 302 && redirectedResponseSize != null;
 
-    if(!STATUS_CODES_TO_AUDIT.contains(context.response().getStatusCode())) {
+    if(!STATUS_CODES_TO_AUDIT.contains(context.response().getStatusCode()) && !isRedirectedDownload) {
       return Future.succeededFuture();
     }
 
@@ -2328,7 +3304,8 @@ public class ApiServerVerticle extends AbstractVerticle {
                 ZonedDateTime zst = ZonedDateTime.now(ZoneId.of("Asia/Kolkata"));
                 long epochTime = zst.toInstant().toEpochMilli();
                 String isoTime = zst.truncatedTo(ChronoUnit.SECONDS).toString();
-                long responseSize = context.response().bytesWritten();
+                long responseSize = isRedirectedDownload ? redirectedResponseSize
+                    : context.response().bytesWritten();
                 String apiPath = context.request().path();
 
                 request.put(RESOURCE_GROUP, resourceGroup);
@@ -2350,25 +3327,12 @@ public class ApiServerVerticle extends AbstractVerticle {
                         .put("timestamp", isoTime)
                         .put("resp_size", responseSize);
 
-                meteringService.insertIntoPostgresAuditTable(postgresAuditPayload)
-                        .onComplete(pgHandler -> {
-                          if (pgHandler.failed()) {
-                            LOGGER.error("Failed to insert into Postgres metering table: ", pgHandler.cause());
-                          } else {
-                            LOGGER.debug("Inserted audit record into Postgres metering table.");
-                          }
-
-                          // Publish to RabbitMQ
-                          meteringService.insertMeteringValuesInRmq(request)
-                                  .onComplete(rmqHandler -> {
-                                    if (rmqHandler.succeeded()) {
-                                      LOGGER.debug("Message published in RMQ.");
-                                    } else {
-                                      LOGGER.error("Failed to publish message in RMQ.");
-                                    }
-                                    promise.complete();
-                                  });
-                        });
+                UsageCounters.record(vertx, authInfo.getUserId().toString(),
+                    authInfo.getResourceId().toString(), apiPath, responseSize);
+
+                // Inserted into the metering table and published to RabbitMQ in batches
+                meteringBuffer.add(postgresAuditPayload, request);
+                promise.complete();
 
               } else {
                 LOGGER.debug("Item not found and failed to call metering service");
@@ -2478,6 +3442,7 @@ public class ApiServerVerticle extends AbstractVerticle {
     entries.put("options", request.headers().get("options"));
     entries.put("offset", offset);
     entries.put("limit", limit);
+    entries.put("cursor", request.getParam("cursor"));
 
     LOGGER.debug(entries);
     Promise<JsonObject> promise = Promise.promise();
@@ -2490,6 +3455,9 @@ public class ApiServerVerticle extends AbstractVerticle {
               if (handler.succeeded()) {
                 LOGGER.debug("Table Reading Done.");
                 responseJson.put("results", handler.result().getJsonArray("result"));
+                if (handler.result().containsKey("nextCursor")) {
+                  responseJson.put("nextCursor", handler.result().getString("nextCursor"));
+                }
                 promise.complete(responseJson);
                 routingContext.put("response", responseJson.toString());
                 routingContext.put("statusCode", 200);
@@ -2533,6 +3501,7 @@ public class ApiServerVerticle extends AbstractVerticle {
     entries.put("api", request.getParam("api"));
     entries.put("offset", offset);
     entries.put("limit", limit);
+    entries.put("cursor", request.getParam("cursor"));
 
     LOGGER.debug(entries);
     JsonObject responseJson =
@@ -2552,6 +3521,9 @@ public class ApiServerVerticle extends AbstractVerticle {
                   return;
                 }
                 responseJson.put("results", handler.result().getJsonArray("result"));
+                if (handler.result().containsKey("nextCursor")) {
+                  responseJson.put("nextCursor", handler.result().getString("nextCursor"));
+                }
                 routingContext.put("response", responseJson.toString());
                 routingContext.put("statusCode", 200);
                 routingContext.next();
@@ -2573,6 +3545,104 @@ public class ApiServerVerticle extends AbstractVerticle {
             });
   }
 
+  /**
+   * Stream the usage of resources as server-sent events, so that dashboards can follow usage live
+   * instead of polling the summary and overview APIs. The usage published by the {@link
+   * UsageStream}s of all API server instances is summed per resource and sent as a
+   * <code>usage</code> event. An admin gets the usage of all resources, a provider or delegate the
+   * usage of the resources of the provider of the token's resource, and a consumer their own usage.
+   * Usage received while the client is not keeping up is added to the next event. A comment is sent
+   * when there is no usage for a while, so that proxies don't close the connection.
+   *
+   * @param routingContext the routing context of the request
+   */
+  public void streamUsage(RoutingContext routingContext) {
+    LOGGER.trace("Info: streamUsage Started.");
+    AuthInfo authInfo = routingContext.get(USER_KEY);
+    RoleEnum role = authInfo.getRole();
+
+    Future<Predicate<JsonObject>> usageFilter;
+    if (RoleEnum.admin.equals(role)) {
+      usageFilter = Future.succeededFuture(usage -> true);
+    } else if (RoleEnum.consumer.equals(role)) {
+      String userId = authInfo.getUserId().toString();
+      usageFilter = Future.succeededFuture(usage -> userId.equals(usage.getString(USER_ID)));
+    } else {
+      usageFilter =
+          catalogueService
+              .getCatItem(authInfo.getResourceId().toString())
+              .map(
+                  item -> {
+                    String providerId = item.getString("provider");
+                    return usage -> providerId.equals(usage.getString(PROVIDER_ID));
+                  });
+    }
+
+    usageFilter
+        .onSuccess(filter -> streamUsage(routingContext.response(), filter))
+        .onFailure(
+            err -> {
+              LOGGER.error("Failed to get the provider of the usage stream - {}", err.getMessage());
+              routingContext.fail(
+                  new OgcException(500, "Internal Server Error", "Internal Server Error"));
+            });
+  }
+
+  private void streamUsage(HttpServerResponse response, Predicate<JsonObject> filter) {
+    response
+        .setChunked(true)
+        .putHeader(HttpHeaders.CONTENT_TYPE, "text/event-stream")
+        .putHeader(HttpHeaders.CACHE_CONTROL, "no-cache")
+        .write(": usage stream\n\n");
+
+    Map<String, JsonObject> pending = new LinkedHashMap<>();
+    AtomicLong lastWrite = new AtomicLong(System.currentTimeMillis());
+
+    MessageConsumer<JsonArray> consumer =
+        vertx.eventBus().consumer(USAGE_STREAM_ADDRESS, message -> {
+          message.body().stream()
+              .map(JsonObject.class::cast)
+              .filter(filter)
+              .forEach(usage -> {
+                JsonObject resource = pending.computeIfAbsent(usage.getString(ID),
+                    id -> new JsonObject()
+                        .put(ID, id)
+                        .put(RESOURCE_GROUP, usage.getString(RESOURCE_GROUP))
+                        .put(UsageStream.API_HITS, 0L)
+                        .put(UsageStream.DATA_USAGE, 0L));
+                resource
+                    .put(UsageStream.API_HITS, resource.getLong(UsageStream.API_HITS)
+                        + usage.getLong(UsageStream.API_HITS))
+                    .put(UsageStream.DATA_USAGE, resource.getLong(UsageStream.DATA_USAGE)
+                        + usage.getLong(UsageStream.DATA_USAGE));
+              });
+
+          if (pending.isEmpty() || response.writeQueueFull()) {
+            return;
+          }
+          JsonObject event = new JsonObject()
+              .put("time", ZonedDateTime.now(ZoneId.of("Asia/Kolkata"))
+                  .truncatedTo(ChronoUnit.SECONDS).toString())
+              .put("results", new JsonArray(new ArrayList<>(pending.values())));
+          pending.clear();
+          response.write("event: usage\ndata: " + event.encode() + "\n\n");
+          lastWrite.set(System.currentTimeMillis());
+        });
+
+    long keepAliveTimer = vertx.setPeriodic(USAGE_STREAM_KEEP_ALIVE_MS, id -> {
+      if (System.currentTimeMillis() - lastWrite.get() >= USAGE_STREAM_KEEP_ALIVE_MS
+          && !response.writeQueueFull()) {
+        response.write(":\n\n");
+        lastWrite.set(System.currentTimeMillis());
+      }
+    });
+
+    response.closeHandler(closed -> {
+      consumer.unregister();
+      vertx.cancelTimer(keepAliveTimer);
+    });
+  }
+
   /**
    * Handles the request to retrieve the schema of coverage for a given collection.
    *
@@ -2624,7 +3694,6 @@ public class ApiServerVerticle extends AbstractVerticle {
     String collectionId = routingContext.normalizedPath().split("/")[2];
 
     HttpServerResponse response = routingContext.response();
-    response.setChunked(true);
     dbService
         .getCoverageDetails(collectionId)
         .compose(
@@ -2642,15 +3711,27 @@ public class ApiServerVerticle extends AbstractVerticle {
                     "Please contact OGC server RS Admin"));
               }
 
+              if (conf.get().isPresignedRedirect()) {
+                sendPresignedRedirect(routingContext, conf.get(), handler.getString("href"),
+                    collectionId, null, null);
+                return Future.succeededFuture();
+              }
+
               DataFromS3 dataFromS3 =
                   new DataFromS3(httpClient, conf.get());
 
               String urlString = dataFromS3.getFullyQualifiedUrlString(handler.getString("href"));
               dataFromS3.setUrlFromString(urlString);
+              dataFromS3.setForwardedRequestHeaders(routingContext.request().headers());
               dataFromS3.setSignatureHeader(HttpMethod.GET);
               return dataFromS3
                   .getDataFromS3(HttpMethod.GET);
-              }).onSuccess(success -> success.pipeTo(response))
+              }).onSuccess(success -> {
+                // no S3 response if the client has been redirected
+                if (success != null) {
+                  DataFromS3.pipeToClient(success, response);
+                }
+              })
                   .onFailure(routingContext::fail);
   }
 
@@ -2734,6 +3815,7 @@ public class ApiServerVerticle extends AbstractVerticle {
     assert result != null;
     result
         .onSuccess(success -> {
+          success.remove("item_version");
           success.put("stac_version", stacMetaJson.getString("stacVersion"));
           routingContext.put("response", success.toString());
           routingContext.put("statusCode", 201);
@@ -2757,6 +3839,207 @@ public class ApiServerVerticle extends AbstractVerticle {
         });
   }
 
+  /**
+   * Streaming variant of {@link ApiServerVerticle#createStacItems(RoutingContext)} for large
+   * FeatureCollection uploads sent with <code>Content-Type: application/geo+json</code>. The request
+   * body is not buffered - it is parsed with a {@link JsonParser} and each feature in the
+   * <code>features</code> array is validated and added to a batch as soon as it has been read. Full
+   * batches are inserted using {@link DatabaseService#insertStacItems(JsonObject)}; the request is
+   * paused while a batch is being written, so the rate of upload is bound by the database.
+   *
+   * <p>Note that batches are committed independently, so a failure midway through the stream leaves
+   * the already inserted items in place. The routing context is then failed with an
+   * {@link OgcException} whose JSON carries the number of items that were created
+   * (<code>numberOfItemsCreated</code>) and the ID of the last one (<code>lastItemCreated</code>),
+   * since items are inserted in the order in which they were sent.
+   *
+   * @param routingContext the routing context
+   * @param itemValidator validator of the <code>postOrPutItem</code> schema of the OAS
+   */
+  public void createStacItemsStreaming(RoutingContext routingContext, Validator itemValidator) {
+    HttpServerRequest request = routingContext.request();
+    String collectionId = request.path().split("/")[3];
+
+    JsonParser parser = JsonParser.newParser(request);
+
+    Set<String> itemIds = new HashSet<>();
+    List<JsonObject> batch = new ArrayList<>();
+    AtomicInteger depth = new AtomicInteger(0);
+    AtomicInteger ingestedCount = new AtomicInteger(0);
+    AtomicReference<String> lastIngestedId = new AtomicReference<>();
+    AtomicReference<Boolean> inFeatures = new AtomicReference<>(false);
+    AtomicReference<Boolean> done = new AtomicReference<>(false);
+    AtomicReference<Future<Void>> pendingInsert = new AtomicReference<>(Future.succeededFuture());
+
+    /* Once a response has been decided, the rest of the body is drained and ignored */
+    Handler<Throwable> finishWithError = err -> {
+      if (done.get()) {
+        return;
+      }
+      done.set(true);
+      parser.resume();
+      request.resume();
+
+      OgcException ogcException = err instanceof OgcException ? (OgcException) err
+          : new OgcException(500, "Internal Server Error", "Internal Server Error");
+      LOGGER.error("Streaming STAC item ingest failed after {} items : {}", ingestedCount.get(),
+          err.getMessage());
+
+      JsonObject created = new JsonObject().put("numberOfItemsCreated", ingestedCount.get())
+          .put("lastItemCreated", lastIngestedId.get());
+      routingContext.fail(new OgcException(ogcException.getStatusCode(),
+          ogcException.getJson().getString("code"), ogcException.getJson().getString("description"),
+          created));
+    };
+
+    Supplier<Future<Void>> flushBatch = () -> {
+      if (batch.isEmpty()) {
+        return Future.succeededFuture();
+      }
+      JsonArray features = new JsonArray(new ArrayList<>(batch));
+      batch.clear();
+
+      JsonObject requestBody = new JsonObject().put("type", "FeatureCollection")
+          .put("collectionId", collectionId).put("features", features);
+
+      return dbService.insertStacItems(requestBody)
+          .onSuccess(inserted -> {
+            ingestedCount.addAndGet(features.size());
+            lastIngestedId.set(features.getJsonObject(features.size() - 1).getString("id"));
+          }).mapEmpty();
+    };
+
+    parser.handler(event -> {
+      if (done.get()) {
+        return;
+      }
+
+      JsonEventType type = event.type();
+
+      if (type == JsonEventType.START_OBJECT || type == JsonEventType.START_ARRAY) {
+        if (depth.get() == 0 && type != JsonEventType.START_OBJECT) {
+          finishWithError.handle(new OgcException(400, "Bad Request", "Post body not in JSON"));
+          return;
+        }
+        if (depth.get() == 1 && type == JsonEventType.START_ARRAY
+            && "features".equals(event.fieldName())) {
+          /* each element of the features array is now emitted as a single JsonObject VALUE */
+          inFeatures.set(true);
+          parser.objectValueMode();
+        }
+        depth.incrementAndGet();
+        return;
+      }
+
+      if (type == JsonEventType.END_OBJECT || type == JsonEventType.END_ARRAY) {
+        if (inFeatures.get() && depth.get() == 2) {
+          inFeatures.set(false);
+          parser.objectEventMode();
+        }
+        depth.decrementAndGet();
+        return;
+      }
+
+      /* VALUE events */
+      if (depth.get() == 1 && "type".equals(event.fieldName())) {
+        if (!"FeatureCollection".equals(event.value())) {
+          finishWithError.handle(new OgcException(400, "Bad Request",
+              "Only a FeatureCollection can be posted as " + MIME_APPLICATION_GEOJSON));
+        }
+        return;
+      }
+
+      if (!inFeatures.get() || depth.get() != 2) {
+        return;
+      }
+
+      if (!event.isObject()) {
+        finishWithError.handle(new OgcException(400, "Bad Request", "Invalid feature in request"));
+        return;
+      }
+
+      JsonObject feature = event.objectValue();
+      try {
+        validateStreamedStacItem(feature, itemValidator);
+        if (!itemIds.add(feature.getString("id"))) {
+          throw new OgcException(400, "Bad Request", "Duplicate Item Ids present in the request");
+        }
+        if (feature.containsKey(STAC_ITEM_TRAN_ASSETS)) {
+          feature.put(STAC_ITEM_TRAN_ASSETS,
+              validateAndProcessStacAssets(feature.getJsonObject(STAC_ITEM_TRAN_ASSETS)));
+        }
+      } catch (OgcException e) {
+        finishWithError.handle(e);
+        return;
+      } catch (ClassCastException e) {
+        finishWithError.handle(new OgcException(400, "Bad Request", "Invalid feature in request"));
+        return;
+      }
+
+      batch.add(feature);
+
+      if (batch.size() >= stacIngestBatchSize) {
+        /* backpressure - stop reading the body till the batch has been written to the DB */
+        parser.pause();
+        Future<Void> insert = pendingInsert.get().compose(v -> flushBatch.get());
+        pendingInsert.set(insert);
+        insert.onSuccess(v -> {
+          if (!done.get()) {
+            parser.resume();
+          }
+        }).onFailure(finishWithError);
+      }
+    });
+
+    parser.exceptionHandler(err -> {
+      LOGGER.debug("Failed to parse streamed STAC items : {}", err.getMessage());
+      finishWithError.handle(new OgcException(400, "Bad Request", "Post body not in JSON"));
+    });
+
+    parser.endHandler(end -> {
+      if (done.get()) {
+        return;
+      }
+      if (itemIds.isEmpty()) {
+        finishWithError.handle(new OgcException(400, "Bad Request", "No features present in request"));
+        return;
+      }
+      pendingInsert.get().compose(v -> flushBatch.get()).onSuccess(v -> {
+        done.set(true);
+        LOGGER.info("{} STAC items have been created through streaming ingest",
+            ingestedCount.get());
+        JsonObject response = new JsonObject().put("code", "Items are created.")
+            .put("numberOfItemsCreated", ingestedCount.get())
+            .put("stac_version", stacMetaJson.getString("stacVersion"));
+        routingContext.put("response", response.toString());
+        routingContext.put("statusCode", 201);
+        routingContext.next();
+      }).onFailure(finishWithError);
+    });
+
+    request.resume();
+  }
+
+  /**
+   * Validate a STAC item that has been read during streaming ingest against the
+   * <code>postOrPutItem</code> schema of the OAS, since the OAS request validation is skipped for
+   * streamed bodies.
+   *
+   * @param feature the STAC item
+   * @param itemValidator validator of the <code>postOrPutItem</code> schema
+   * @throws OgcException if the item is not valid
+   */
+  private void validateStreamedStacItem(JsonObject feature, Validator itemValidator)
+      throws OgcException {
+    OutputUnit result = itemValidator.validate(feature);
+    if (!result.getValid()) {
+      String errors = result.getErrors() == null ? ""
+          : result.getErrors().stream().map(OutputUnit::getError)
+              .collect(Collectors.joining(", "));
+      throw new OgcException(400, "Bad Request", "Invalid STAC item in request : " + errors);
+    }
+  }
+
   public void updateStacItem(RoutingContext routingContext) {
 
     RequestParameters paramsFromOasValidation =
@@ -2816,6 +4099,11 @@ public class ApiServerVerticle extends AbstractVerticle {
             .put("href", stacMetaJson.getString("hostname") + "/stac"));
 
     dbService.updateStacItem(requestBody).onSuccess(stacItem -> {
+          notifyStacItemChanged(collectionId, itemId);
+          String itemVersion = (String) stacItem.remove("item_version");
+          if (itemVersion != null) {
+            routingContext.response().putHeader(HttpHeaders.ETAG, "\"" + itemVersion + "\"");
+          }
           stacItem.put("stac_version", stacMetaJson.getString("stacVersion"));
           JsonArray allLinksInFeature = new JsonArray(commonLinksInFeature.toString());
           allLinksInFeature
@@ -3311,6 +4599,7 @@ public class ApiServerVerticle extends AbstractVerticle {
 
     dbService.deleteStacItem(collectionId, itemId)
         .onSuccess(success -> {
+          notifyStacItemChanged(collectionId, itemId);
           if (success.isEmpty()) {
             routingContext.put("response", new JsonObject().put("description", "STAC Item is deleted.").toString());
             routingContext.put("statusCode", 200);
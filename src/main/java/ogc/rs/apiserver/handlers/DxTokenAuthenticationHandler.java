@@ -13,21 +13,26 @@ import io.vertx.ext.web.client.WebClientOptions;
 import io.vertx.ext.web.handler.AuthenticationHandler;
 import ogc.rs.apiserver.util.OgcException;
 import ogc.rs.apiserver.util.AuthInfo;
+import ogc.rs.apiserver.util.VerifiedTokenCache;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Optional;
 
 import static ogc.rs.apiserver.util.Constants.*;
 
 public class DxTokenAuthenticationHandler implements AuthenticationHandler {
   private static final Logger LOGGER = LogManager.getLogger(DxTokenAuthenticationHandler.class);
   public static final String USER_KEY = "userKey";
+  private static final int DEFAULT_TOKEN_CACHE_SIZE = 10000;
+  private static final int DEFAULT_TOKEN_CACHE_TTL_SEC = 60;
 
   Vertx vertx;
   private WebClient webClient;
   private static JWTAuth jwtAuth;
+  private final VerifiedTokenCache verifiedTokenCache;
 
   static WebClient createWebClient(Vertx vertx, JsonObject config) {
     return createWebClient(vertx, config, false);
@@ -44,6 +49,14 @@ public class DxTokenAuthenticationHandler implements AuthenticationHandler {
 
   public DxTokenAuthenticationHandler(Vertx vertx, JsonObject config) {
     this.vertx = vertx;
+    /*
+     * Tokens are reused by clients, so verified tokens are cached for a short while to skip the
+     * signature verification and parsing
+     */
+    this.verifiedTokenCache = new VerifiedTokenCache(
+        config.getInteger("tokenCacheSize", DEFAULT_TOKEN_CACHE_SIZE),
+        config.getInteger("tokenCacheTtlSec", DEFAULT_TOKEN_CACHE_TTL_SEC) * 1000L,
+        config.getBoolean("jwtIgnoreExpiry", false));
     getJwtPublicKey(vertx, config)
         .onSuccess(
             handler -> {
@@ -139,6 +152,13 @@ public class DxTokenAuthenticationHandler implements AuthenticationHandler {
     
     String token = parts[1];
 
+    Optional<AuthInfo> verifiedUser = verifiedTokenCache.get(token);
+    if (verifiedUser.isPresent()) {
+      routingContext.put(USER_KEY, verifiedUser.get());
+      routingContext.next();
+      return;
+    }
+
       jwtAuth.authenticate(
               new JsonObject().put("token", token),
               res -> {
@@ -148,6 +168,7 @@ public class DxTokenAuthenticationHandler implements AuthenticationHandler {
                       String accessToken = res.result().principal().getString("access_token");
                       tokenDetails.put("access_token", accessToken);
                       AuthInfo user = AuthInfo.createUser(tokenDetails);
+                      cacheVerifiedUser(token, user);
                       routingContext.put(USER_KEY, user);
                       LOGGER.debug("the user key: " + routingContext.get(USER_KEY).toString());
                       routingContext.next();
@@ -158,4 +179,20 @@ public class DxTokenAuthenticationHandler implements AuthenticationHandler {
               });
 
   }
+
+  /**
+   * Cache the user of a verified token, with its limits parsed so that requests reusing the token
+   * skip the parsing too. Invalid limits are left to be reported when they are enforced.
+   *
+   * @param token the JWT
+   * @param user the user created from the token
+   */
+  private void cacheVerifiedUser(String token, AuthInfo user) {
+    try {
+      user.getLimits();
+    } catch (OgcException e) {
+      LOGGER.debug("Invalid limits in token: {}", e.getMessage());
+    }
+    verifiedTokenCache.put(token, user);
+  }
 }
@@ -34,6 +34,8 @@ public class MeteringAuthZHandler implements Handler<RoutingContext> {
    * +--------------------+--------------+--------------+------------+-------------------+------------+
    * | Summary API        | yes          | yes          | yes        | no                | yes        |
    * +--------------------+--------------+--------------+------------+-------------------+------------+
+   * | Usage Stream API   | yes          | yes          | yes        | no                | yes        |
+   * +--------------------+--------------+--------------+------------+-------------------+------------+
    */
   @Override
   public void handle(RoutingContext routingContext) {
@@ -63,6 +65,7 @@ public class MeteringAuthZHandler implements Handler<RoutingContext> {
         break;
 
       case "/ngsi-ld/v1/overview": // uses similar authZ to summary
+      case "/ngsi-ld/v1/usage/stream":
       case "/ngsi-ld/v1/summary":
         if (user.isRsToken()
             && (user.getRole() == AuthInfo.RoleEnum.provider
@@ -1,32 +1,36 @@
 package ogc.rs.apiserver.handlers;
 
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonArray;
 import io.vertx.ext.web.RoutingContext;
 import ogc.rs.apiserver.util.OgcException;
 import ogc.rs.apiserver.util.AuthInfo;
-import ogc.rs.database.DatabaseService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.UUID;
+import java.util.function.Function;
 
 import static ogc.rs.apiserver.handlers.DxTokenAuthenticationHandler.USER_KEY;
-import static ogc.rs.common.Constants.DATABASE_SERVICE_ADDRESS;
 import static ogc.rs.common.Constants.UUID_REGEX;
 
 public class OgcFeaturesAuthZHandler implements Handler<RoutingContext> {
 
   Vertx vertx;
 
-  private final DatabaseService databaseService;
+  private final Function<String, Future<Boolean>> accessResolver;
 
   private static final Logger LOGGER = LogManager.getLogger(OgcFeaturesAuthZHandler.class);
 
-  public OgcFeaturesAuthZHandler(Vertx vertx) {
+  /**
+   * @param vertx an instance of Vert.x
+   * @param accessResolver resolves a collection ID to true if the collection is open
+   */
+  public OgcFeaturesAuthZHandler(Vertx vertx, Function<String, Future<Boolean>> accessResolver) {
     this.vertx = vertx;
-    this.databaseService = DatabaseService.createProxy(vertx, DATABASE_SERVICE_ADDRESS);
+    this.accessResolver = accessResolver;
   }
 
   /**
@@ -57,8 +61,8 @@ public class OgcFeaturesAuthZHandler implements Handler<RoutingContext> {
               401, "Not Authorized", "User is not authorised. Please contact DX AAA "));
       return;
     }
-    databaseService
-        .getAccess(collectionId)
+    accessResolver
+        .apply(collectionId)
         .onSuccess(
             isOpen -> {
               
@@ -1,20 +1,16 @@
 package ogc.rs.apiserver.handlers;
 
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
-import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.RoutingContext;
-import io.vertx.pgclient.PgConnectOptions;
-import io.vertx.pgclient.PgPool;
-import io.vertx.sqlclient.PoolOptions;
-import io.vertx.sqlclient.Row;
-import io.vertx.sqlclient.Tuple;
 import ogc.rs.apiserver.util.OgcException;
 import ogc.rs.apiserver.util.AuthInfo;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 
 import static ogc.rs.apiserver.handlers.DxTokenAuthenticationHandler.USER_KEY;
@@ -29,35 +25,16 @@ public class ProcessAuthZHandler implements Handler<RoutingContext> {
     private static final boolean FAKE_TOKEN_ENABLED =
             Boolean.parseBoolean(System.getProperty("fake-token", "false"));
 
-    private final PgPool pool;
+    private final Function<String, Future<String>> processTitleResolver;
 
     /**
      * Constructor for ProcessAuthZHandler
      *
-     * @param vertx Vertx instance
-     * @param config Configuration containing database credentials
+     * @param processTitleResolver resolves a process ID to the title of the process, failing with a
+     *     404 {@link OgcException} if the process does not exist
      */
-    public ProcessAuthZHandler(Vertx vertx, JsonObject config) {
-        String databaseIp = config.getString("databaseHost");
-        int databasePort = config.getInteger("databasePort");
-        String databaseName = config.getString("databaseName");
-        String databaseUserName = config.getString("databaseUser");
-        String databasePassword = config.getString("databasePassword");
-        int poolSize = config.getInteger("poolSize");
-
-        PgConnectOptions connectOptions =
-                new PgConnectOptions()
-                        .setPort(databasePort)
-                        .setHost(databaseIp)
-                        .setDatabase(databaseName)
-                        .setUser(databaseUserName)
-                        .setPassword(databasePassword)
-                        .setReconnectAttempts(5)
-                        .setReconnectInterval(1000L)
-                        .setTcpKeepAlive(true);
-
-        PoolOptions poolOptions = new PoolOptions().setMaxSize(poolSize);
-        this.pool = PgPool.pool(vertx, connectOptions, poolOptions);
+    public ProcessAuthZHandler(Function<String, Future<String>> processTitleResolver) {
+        this.processTitleResolver = processTitleResolver;
     }
 
     @Override
@@ -86,30 +63,16 @@ public class ProcessAuthZHandler implements Handler<RoutingContext> {
             return;
         }
 
-        // Query database to get process title
-        String PROCESS_TITLE_QUERY = "SELECT title FROM processes_table WHERE id = $1";
-        pool
-                .preparedQuery(PROCESS_TITLE_QUERY)
-                .execute(
-                        Tuple.of(processId),
-                        ar -> {
-                            if (ar.failed()) {
-                                LOGGER.error("Failed to PROCESS_TITLE_QUERY process title: {}", ar.cause().getMessage());
-                                routingContext.fail(
-                                        new OgcException(
-                                                500, "Database Error", "Failed to retrieve process information"));
-                                return;
-                            }
-
-                            if (ar.result().size() == 0) {
-                                LOGGER.error("Process not found with ID: {}", processId);
-                                routingContext.fail(
-                                        new OgcException(404, "Not Found", "The requested process does not exist"));
-                                return;
-                            }
-
-                            Row row = ar.result().iterator().next();
-                            String processTitle = row.getString("title");
+        // Get the process title, usually cached
+        processTitleResolver
+                .apply(processId.toString())
+                .onFailure(
+                        err -> {
+                            LOGGER.error("Failed to get process title for ID {}: {}", processId, err.getMessage());
+                            routingContext.fail(err);
+                        })
+                .onSuccess(
+                        processTitle -> {
                             LOGGER.debug("Process title for ID {}: {}", processId, processTitle);
 
                             // Check if this is the echo process - block unless fake-token enabled
@@ -1,27 +1,36 @@
 package ogc.rs.apiserver.handlers;
 
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.RoutingContext;
 import ogc.rs.apiserver.util.OgcException;
 import ogc.rs.apiserver.util.AuthInfo;
-import ogc.rs.database.DatabaseService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.UUID;
+import java.util.function.Function;
 
 import static ogc.rs.apiserver.handlers.DxTokenAuthenticationHandler.USER_KEY;
 import static ogc.rs.apiserver.util.Constants.*;
-import static ogc.rs.common.Constants.DATABASE_SERVICE_ADDRESS;
 
 public class StacAssetsAuthZHandler implements Handler<RoutingContext> {
   private static final Logger LOGGER = LogManager.getLogger(StacAssetsAuthZHandler.class);
-  private final DatabaseService databaseService;
+  private final Function<String, Future<JsonObject>> assetResolver;
+  private final Function<String, Future<Boolean>> accessResolver;
 
-  public StacAssetsAuthZHandler(Vertx vertx) {
-    this.databaseService = DatabaseService.createProxy(vertx, DATABASE_SERVICE_ADDRESS);
+  /**
+   * @param vertx an instance of Vert.x
+   * @param assetResolver resolves an asset ID to its <code>asset_registry</code> record
+   * @param accessResolver resolves a collection ID to true if the collection is open
+   */
+  public StacAssetsAuthZHandler(Vertx vertx, Function<String, Future<JsonObject>> assetResolver,
+      Function<String, Future<Boolean>> accessResolver) {
+    this.assetResolver = assetResolver;
+    this.accessResolver = accessResolver;
   }
 
   /**
@@ -37,8 +46,8 @@ public class StacAssetsAuthZHandler implements Handler<RoutingContext> {
     UUID resourceId = user.getResourceId();
     String assetId = routingContext.pathParam("assetId");
 
-    databaseService
-        .getAssets(assetId)
+    assetResolver
+        .apply(assetId)
         .onSuccess(
             asset -> {
               if (asset.isEmpty()) {
@@ -48,12 +57,10 @@ public class StacAssetsAuthZHandler implements Handler<RoutingContext> {
               }
 
               LOGGER.debug("Asset found: {}", asset);
+              // saved so that the asset is not resolved again when it is streamed
+              routingContext.put(STAC_ASSET_CONTEXT_KEY, asset);
             try {
-                String collectionId = asset.containsKey("stac_collections_id")
-                        ? asset.getString("stac_collections_id")
-                        : asset.containsKey("collection_id")
-                        ? asset.getString("collection_id")
-                        : asset.getString("collections_id");
+                String collectionId = asset.getString("collection_id");
                 if (!user.isRsToken()
                     && !collectionId.equals(resourceId.toString())) {
                   LOGGER.error("Collection associated with asset is not the same as in token.");
@@ -64,8 +71,8 @@ public class StacAssetsAuthZHandler implements Handler<RoutingContext> {
                 LOGGER.debug("Collection ID in token validated.");
 
 
-                databaseService
-                    .getAccess(collectionId)
+                accessResolver
+                    .apply(collectionId)
                     .onSuccess(
                         isOpenResource -> {
                           user.setResourceId(UUID.fromString(collectionId));
@@ -1,18 +1,18 @@
 package ogc.rs.apiserver.handlers;
 
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonArray;
 import io.vertx.ext.web.RoutingContext;
 import ogc.rs.apiserver.util.AuthInfo;
 import ogc.rs.apiserver.util.OgcException;
-import ogc.rs.database.DatabaseService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import java.time.Instant;
 import java.util.UUID;
+import java.util.function.Function;
 import static ogc.rs.apiserver.handlers.DxTokenAuthenticationHandler.USER_KEY;
-import static ogc.rs.common.Constants.DATABASE_SERVICE_ADDRESS;
 import static ogc.rs.common.Constants.UUID_REGEX;
 
 /**
@@ -24,17 +24,18 @@ public class StacItemByIdAuthZHandler implements Handler<RoutingContext> {
     Vertx vertx;
     public static final String SHOULD_CREATE_KEY = "shouldCreate"; // Key used to store authorization result in the RoutingContext
     private static final int TOKEN_EXPIRY_THRESHOLD_SECONDS = 10; // token expiry threshold
-    private final DatabaseService databaseService;
+    private final Function<String, Future<Boolean>> accessResolver;
     private static final Logger LOGGER = LogManager.getLogger(StacItemByIdAuthZHandler.class);
 
     /**
-     * Constructs the handler with Vert.x and initializes the database service.
+     * Constructs the handler with Vert.x and the resolver of collection access.
      *
      * @param vertx The Vert.x instance.
+     * @param accessResolver Resolves a collection ID to true if the collection is open.
      */
-    public StacItemByIdAuthZHandler(Vertx vertx) {
+    public StacItemByIdAuthZHandler(Vertx vertx, Function<String, Future<Boolean>> accessResolver) {
         this.vertx = vertx;
-        this.databaseService = DatabaseService.createProxy(vertx, DATABASE_SERVICE_ADDRESS);
+        this.accessResolver = accessResolver;
     }
 
     /**
@@ -90,7 +91,7 @@ public class StacItemByIdAuthZHandler implements Handler<RoutingContext> {
         }
 
         // Check collection access permissions
-        databaseService.getAccess(collectionId)
+        accessResolver.apply(collectionId)
                 .onSuccess(isOpenResource -> {
                     user.setResourceId(UUID.fromString(collectionId));
 
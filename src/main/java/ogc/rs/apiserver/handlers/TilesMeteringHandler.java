@@ -11,9 +11,10 @@ import io.vertx.ext.web.RoutingContext;
 import java.util.Arrays;
 import java.util.List;
 import ogc.rs.apiserver.util.AuthInfo;
+import ogc.rs.apiserver.util.MeteringBuffer;
 import ogc.rs.apiserver.util.MeteringInfo;
+import ogc.rs.apiserver.util.UsageCounters;
 import ogc.rs.catalogue.CatalogueService;
-import ogc.rs.metering.MeteringService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -22,28 +23,30 @@ public class TilesMeteringHandler implements Handler<Void> {
   private static final Logger LOGGER = LogManager.getLogger(TilesMeteringHandler.class);
 
   private final CatalogueService catalogueService;
-  private final MeteringService meteringService;
   private final Vertx vertx;
   private final LocalMap<MeteringInfo, Integer> meteringDataMap;
+  private final MeteringBuffer meteringBuffer;
 
   /**
-   * Constructs a TilesMeteringHandler instance.
+   * Constructs a TilesMeteringHandler instance. One instance is created per API server verticle
+   * instance and shared by its routers, so that rebuilding the routers does not add timers.
    *
    * @param vertx the Vert.x instance used for shared data and scheduling periodic tasks.
-   * @param config a JsonObject containing configuration for initializing CatalogueService. This
-   *     handler initializes: 1. A connection to the CatalogueService using the provided
-   *     configuration. 2. A metering service proxy for publishing data to RMQ.
+   * @param catalogueService the catalogue service to get the resource group and provider of the
+   *     resources metered.
+   * @param meteringBuffer the metering buffer of the verticle instance, which inserts the metering
+   *     data into the metering table and publishes it to RMQ in batches.
    *     <p>A periodic task is scheduled every 2 seconds, which: - Retrieves the shared data map
    *     (LocalMap) storing metering information. - Iterates through each entry in the map: -
    *     Removes the entry after retrieving its value. - Logs the removed entry and its value. -
-   *     Publishes the metering data (converted to JSON) to RMQ. - Logs success or failure for each
-   *     message published to RMQ.
+   *     Queues the metering data (converted to JSON) in the {@link MeteringBuffer}.
    */
-  public TilesMeteringHandler(Vertx vertx, JsonObject config) {
+  public TilesMeteringHandler(Vertx vertx, CatalogueService catalogueService,
+      MeteringBuffer meteringBuffer) {
     this.vertx = vertx;
-    this.catalogueService = new CatalogueService(vertx, config);
-    this.meteringService = MeteringService.createProxy(vertx, METERING_SERVICE_ADDRESS);
+    this.catalogueService = catalogueService;
     this.meteringDataMap = vertx.sharedData().getLocalMap("MeteringDataMap");
+    this.meteringBuffer = meteringBuffer;
 
     // Set up a periodic task to clean up the shared data map
       vertx.setPeriodic(
@@ -56,27 +59,7 @@ public class TilesMeteringHandler implements Handler<Void> {
                               if (value != null) {
                                   JsonObject meteringJson = key.toJson(value);
                                   LOGGER.debug(this + " removed " + meteringJson + " " + value);
-
-                                  // Reformat the JSON to insert into postgres metering table
-                                  JsonObject formattedJson = new JsonObject()
-                                          .put("user_id", meteringJson.getString("delegatorId"))
-                                          .put("collection_id", meteringJson.getString("id"))
-                                          .put("api_path", meteringJson.getString("api"))
-                                          .put("timestamp", meteringJson.getString("isoTime"))
-                                          .put("resp_size", meteringJson.getLong("response_size"));
-
-                                  // First insert into Postgres
-                                  meteringService
-                                          .insertIntoPostgresAuditTable(formattedJson)
-                                          .onSuccess(r -> LOGGER.debug("Inserted into Postgres metering table"))
-                                          .onFailure(e -> LOGGER.error("Failed to insert into Postgres metering table", e));
-
-                                  // Then publish to RMQ
-                                  meteringService
-                                          .insertMeteringValuesInRmq(meteringJson)
-                                          .onSuccess(r -> LOGGER.debug("Message published in RMQ"))
-                                          .onFailure(e -> LOGGER.error("Failed to publish message in RMQ", e));
-
+                                  meter(meteringJson);
                               } else {
                                   LOGGER.error(this + " NOT removed " + key);
                               }
@@ -100,10 +83,11 @@ public class TilesMeteringHandler implements Handler<Void> {
    *     `api path and userId' as the key. - If the key exists, increments the stored size value; if
    *     not, sets it to the initial size. 7. Logs if the catalog item is not found or if the
    *     metering service call fails.
+   *     <p>A batch of tiles is metered by {@link #handleBatchMetering(RoutingContext, List)}.
    */
   public void handleMetering(RoutingContext routingContext) {
 
-    final List<Integer> STATUS_CODES_TO_AUDIT = List.of(200, 201);
+    final List<Integer> STATUS_CODES_TO_AUDIT = List.of(200, 201, 206);
     if (!STATUS_CODES_TO_AUDIT.contains(routingContext.response().getStatusCode())) {
       return;
     }
@@ -124,12 +108,8 @@ public class TilesMeteringHandler implements Handler<Void> {
                     cacheResult.getString(RESOURCE_GROUP, cacheResult.getString(ID));
 
                 String providerId = cacheResult.getString("provider");
-                // Extract the base URL dynamically from the request path
-                String fullPath = routingContext.request().path();
-
-                String[] segments = fullPath.split("/");
                 // Join the segments up to the last three removing tileMatrix, tileRow, tileColumn
-                String baseTileUrl = String.join("/", Arrays.copyOf(segments, segments.length - 3));
+                String baseTileUrl = baseTileUrl(routingContext, 3);
 
                 MeteringInfo meteringInfo =
                     new MeteringInfo(
@@ -150,6 +130,81 @@ public class TilesMeteringHandler implements Handler<Void> {
             });
   }
 
+  /**
+   * Meter the tiles of a batch. Each tile sent with data is metered as one API hit, with the size of
+   * the tile and its coordinates as the request, under the same API as single tiles. This is called
+   * once the batch is written, also when the client disconnected before the end of the batch, so
+   * that the tiles it received are metered.
+   *
+   * @param routingContext the RoutingContext of the batch request
+   * @param servedTiles the coordinates of the tiles sent with data, each with the
+   *     <code>size</code> of the tile in bytes
+   */
+  public void handleBatchMetering(RoutingContext routingContext, List<JsonObject> servedTiles) {
+    if (servedTiles.isEmpty()) {
+      return;
+    }
+
+    AuthInfo authInfo = (AuthInfo) routingContext.data().get(DxTokenAuthenticationHandler.USER_KEY);
+    // up to the last segment, i.e. without batch
+    String baseTileUrl = baseTileUrl(routingContext, 1);
+
+    catalogueService
+        .getCatItem(authInfo.getResourceId().toString())
+        .onSuccess(
+            cacheResult -> {
+              String resourceGroup =
+                  cacheResult.getString(RESOURCE_GROUP, cacheResult.getString(ID));
+              String providerId = cacheResult.getString("provider");
+
+              servedTiles.forEach(
+                  tile -> {
+                    JsonObject coordinates = tile.copy();
+                    coordinates.remove("size");
+                    MeteringInfo tileMeteringInfo =
+                        new MeteringInfo(
+                            authInfo,
+                            resourceGroup,
+                            providerId,
+                            baseTileUrl,
+                            tile.getLong("size"),
+                            coordinates);
+                    meter(tileMeteringInfo.toJson(tileMeteringInfo.getSize()));
+                  });
+            })
+        .onFailure(err -> LOGGER.debug("Item not found, metering service call failed"));
+  }
+
+  /* the request path without its last segments */
+  private static String baseTileUrl(RoutingContext routingContext, int segmentsToRemove) {
+    String[] segments = routingContext.request().path().split("/");
+    return String.join("/", Arrays.copyOf(segments, segments.length - segmentsToRemove));
+  }
+
+  /**
+   * Queue a metering record in the {@link MeteringBuffer}, which inserts it into the metering table
+   * and publishes it to RMQ in batches, and count it in the {@link UsageCounters}.
+   *
+   * @param meteringJson the metering record, as from {@link MeteringInfo#toJson(int)}
+   */
+  private void meter(JsonObject meteringJson) {
+    // Reformat the JSON to insert into postgres metering table
+    JsonObject formattedJson = new JsonObject()
+        .put("user_id", meteringJson.getString("delegatorId"))
+        .put("collection_id", meteringJson.getString("id"))
+        .put("api_path", meteringJson.getString("api"))
+        .put("timestamp", meteringJson.getString("isoTime"))
+        .put("resp_size", meteringJson.getLong("response_size"));
+
+    UsageCounters.record(vertx, formattedJson.getString("user_id"),
+        formattedJson.getString("collection_id"),
+        formattedJson.getString("api_path"),
+        formattedJson.getLong("resp_size"));
+
+    // Inserted into Postgres and published to RMQ in batches
+    meteringBuffer.add(formattedJson, meteringJson);
+  }
+
   @Override
   public void handle(Void event) {
     // Implement any necessary actions when the handler is triggered
@@ -2,11 +2,14 @@ package ogc.rs.apiserver.handlers;
 
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.RoutingContext;
 import ogc.rs.apiserver.util.AuthInfo;
+import ogc.rs.apiserver.util.ClusterQuota;
 import ogc.rs.apiserver.util.Limits;
 import ogc.rs.apiserver.util.OgcException;
+import ogc.rs.apiserver.util.UsageCounters;
 import ogc.rs.database.DatabaseService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -24,26 +27,39 @@ import static ogc.rs.common.Constants.DATABASE_SERVICE_ADDRESS;
  * Limits are extracted from the user's JWT token and can include:
  * - Data usage limit (e.g., "100:mb")
  * - API hit limit (e.g., 100)
+ * - Rate limit in requests per second (e.g., 10)
  * - Bounding box limits (bbox constraints)
  * - Feature access limits (collectionId -> featureIds mapping)
  * <p>
- * The limits are applied from the policy issued-at timestamp (iat) defined in the token.
+ * The limits are applied from the policy issued-at timestamp (iat) defined in the token. API hits and
+ * data usage are checked against in-memory {@link UsageCounters} that are reconciled with the
+ * metering table periodically. The rate limit and, in a cluster, the usage are shared across nodes by
+ * {@link ClusterQuota}.
  */
 public class TokenLimitsEnforcementHandler implements Handler<RoutingContext> {
     private static final Logger LOGGER = LogManager.getLogger(TokenLimitsEnforcementHandler.class);
     private static final String LIMITS_CONTEXT_KEY = "VALIDATED_LIMITS";
+    private static final int DEFAULT_USAGE_RECONCILE_INTERVAL_SEC = 60;
+    private static final int DEFAULT_QUOTA_SYNC_INTERVAL_MS = 1000;
 
     Vertx vertx;
     private final DatabaseService databaseService;
+    private final UsageCounters usageCounters;
+    private final ClusterQuota clusterQuota;
 
     /**
      * Constructs the handler with a Vert.x instance and initializes a proxy for DatabaseService.
      *
      * @param vertx Vertx instance used to create service proxies.
+     * @param config config of the API server verticle, for the usage reconcile and sync intervals.
      */
-    public TokenLimitsEnforcementHandler(Vertx vertx) {
+    public TokenLimitsEnforcementHandler(Vertx vertx, JsonObject config) {
         this.vertx = vertx;
         this.databaseService = DatabaseService.createProxy(vertx, DATABASE_SERVICE_ADDRESS);
+        this.usageCounters = UsageCounters.get(vertx, databaseService, 1000L
+                * config.getInteger("usageReconcileIntervalSec", DEFAULT_USAGE_RECONCILE_INTERVAL_SEC));
+        this.clusterQuota = ClusterQuota.get(vertx,
+                config.getInteger("quotaSyncIntervalMs", DEFAULT_QUOTA_SYNC_INTERVAL_MS));
     }
 
     /**
@@ -70,9 +86,9 @@ public class TokenLimitsEnforcementHandler implements Handler<RoutingContext> {
         String collectionId = user.getResourceId().toString();
         String apiPath = routingContext.normalizedPath();
 
-        // Parse limits
+        // Parse limits, already parsed if the token has been used before
         JsonObject limitsJson = user.getConstraints().getJsonObject("limits");
-        Limits limits = Limits.fromJson(limitsJson);
+        Limits limits = user.getLimits();
         if (limits == null) {
             routingContext.next();
             return;
@@ -84,15 +100,25 @@ public class TokenLimitsEnforcementHandler implements Handler<RoutingContext> {
         long policyIssuedAt = limits.getPolicyIssuedAt();
         LOGGER.info("policyIssuedAt: {}", policyIssuedAt);
 
+        if (limits.getRateLimit() != null
+                && !clusterQuota.tryAcquire(userId, collectionId, limits.getRateLimit())) {
+            routingContext.response().putHeader(HttpHeaders.RETRY_AFTER, "1");
+            routingContext.fail(new OgcException(429, TOO_MANY_REQUESTS, RATE_LIMIT_EXCEEDED));
+            return;
+        }
+        if (limits.getApiHitsLimit() != null || limits.getDataUsageLimitInBytes() != null) {
+            clusterQuota.track(userId, collectionId, apiPath);
+        }
+
         boolean constraintHandled = false;
 
         for (String key : limitsJson.fieldNames()) {
             switch (key) {
                 case "dataUsage":
                     long limitInBytes = limits.getDataUsageLimitInBytes();
-                    databaseService.getTotalDataUsage(userId, apiPath, collectionId, policyIssuedAt)
-                            .onSuccess(dataUsage -> {
-                                if (dataUsage > limitInBytes) {
+                    usageCounters.get(userId, collectionId, apiPath, policyIssuedAt)
+                            .onSuccess(usage -> {
+                                if (usage.getDataUsage() > limitInBytes) {
                                     routingContext.fail(new OgcException(429, TOO_MANY_REQUESTS, DATA_USAGE_LIMIT_EXCEEDED));
                                 } else {
                                     routingContext.next();
@@ -107,9 +133,9 @@ public class TokenLimitsEnforcementHandler implements Handler<RoutingContext> {
 
                 case "apiHits":
                     long apiHitsLimit = limits.getApiHitsLimit();
-                    databaseService.getTotalApiHits(userId, apiPath, collectionId, policyIssuedAt)
-                            .onSuccess(apiHits -> {
-                                if (apiHits > apiHitsLimit) {
+                    usageCounters.get(userId, collectionId, apiPath, policyIssuedAt)
+                            .onSuccess(usage -> {
+                                if (usage.getApiHits() > apiHitsLimit) {
                                     routingContext.fail(new OgcException(429, TOO_MANY_REQUESTS, API_CALLS_LIMIT_EXCEEDED));
                                 } else {
                                     routingContext.next();
@@ -176,6 +202,10 @@ public class TokenLimitsEnforcementHandler implements Handler<RoutingContext> {
                     constraintHandled = true;
                     break;
 
+                case "rate":
+                    // enforced before the other limits
+                    break;
+
                 default:
                     LOGGER.warn("Unknown usage constraint key: {}", key);
                     break;
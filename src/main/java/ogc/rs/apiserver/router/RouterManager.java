@@ -40,6 +40,10 @@ import static ogc.rs.common.Constants.*;
 public class RouterManager {
 
   private static final String SPEC_AND_ROUTER_UPDATE_PG_CHANNEL = "update_spec_and_routes_now";
+  /* notified by triggers on the TMS tables, see the V35 migration */
+  private static final String TILE_MATRIX_SETS_CHANGED_PG_CHANNEL = "tile_matrix_sets_changed";
+  /* notified by triggers on the tables used to authorize requests, see the V37 migration */
+  private static final String AUTHZ_METADATA_CHANGED_PG_CHANNEL = "authz_metadata_changed";
   private static final int PG_CHANNEL_CONN_RETRIES_COUNT = 360;
   private static final long PG_CHANNEL_CONN_INTERVAL_MS = 5000;
 
@@ -199,7 +203,10 @@ public class RouterManager {
 
   /**
    * Set up Postgres LISTEN/NOTIFY channel to allow the {@link RouterManager} to be notified when a
-   * router/spec update needs to be done.
+   * router/spec update needs to be done. Changes to tile matrix sets are also listened for and
+   * published on {@link ogc.rs.common.Constants#TILE_MATRIX_SETS_CHANGED_ADDRESS}, and changes to
+   * the metadata used to authorize requests on
+   * {@link ogc.rs.common.Constants#AUTHZ_METADATA_CHANGED_ADDRESS}.
    * 
    * @param config the server config to get Postgres info
    */
@@ -221,6 +228,18 @@ public class RouterManager {
       refreshSpecsAndRegenRouters();
     });
 
+    // API servers hold the tile matrix sets in memory, relay the change to all of them
+    subl.channel(TILE_MATRIX_SETS_CHANGED_PG_CHANNEL).handler(table -> {
+      LOGGER.debug("Tile matrix sets changed in table '{}'", table);
+      vertx.eventBus().publish(TILE_MATRIX_SETS_CHANGED_ADDRESS, table);
+    });
+
+    // API servers cache the metadata used to authorize requests, relay the change to all of them
+    subl.channel(AUTHZ_METADATA_CHANGED_PG_CHANNEL).handler(table -> {
+      LOGGER.debug("Authorization metadata changed in table '{}'", table);
+      vertx.eventBus().publish(AUTHZ_METADATA_CHANGED_ADDRESS, table);
+    });
+
     subl.connect().onSuccess(succ -> {
       LOGGER.info(
           "Successfully connected to Postgres channel '{}' to trigger spec updates and router regenerations",
@@ -72,6 +72,21 @@ public class OgcFeaturesEntity implements GisEntityInterface {
                     .handler(apiServerVerticle::putCommonResponseHeaders)
                     .handler(apiServerVerticle::buildResponse)
                     .failureHandler(failureHandler);
+
+      } else if (opId.matches(OgcFeaturesMetadata.OGC_GET_VECTOR_TILE_OP_ID_REGEX)) {
+            builder.operation(opId)
+                    .handler(
+                        ctx -> {
+                          ctx.addBodyEndHandler(
+                              context -> ogcRouterBuilder.tilesMeteringHandler.handleMetering(ctx));
+                          ctx.next();
+                        })
+                    .handler(ogcRouterBuilder.ogcFeaturesAuthZHandler)
+                    .handler(ogcRouterBuilder.tokenLimitsEnforcementHandler)
+                    .handler(apiServerVerticle::getVectorTile)
+                    .handler(apiServerVerticle::putCommonResponseHeaders)
+                    .handler(apiServerVerticle::buildResponse)
+                    .failureHandler(failureHandler);
           }
         });
   }
@@ -11,6 +11,7 @@ import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import ogc.rs.apiserver.util.VectorTiles;
 
 /**
  * Class used to hold metadata for OGC Feature collections. 
@@ -27,6 +28,7 @@ public class OgcFeaturesMetadata {
   public static final String OGC_GET_COLLECTION_ITEMS_OP_ID_REGEX = "^ogcFeature-.*-get-features$";
   public static final String OGC_GET_SPECIFIC_FEATURE_OP_ID_REGEX =
       "^ogcFeature-.*-get-specific-feature$";
+  public static final String OGC_GET_VECTOR_TILE_OP_ID_REGEX = "^ogcFeature-.*-get-vector-tile$";
 
   private UUID id;
   private String title;
@@ -52,6 +54,13 @@ public class OgcFeaturesMetadata {
   private final Supplier<String> OGC_GET_SPECIFIC_FEATURE_ENDPOINT =
       () -> "/collections/" + id.toString() + "/items/{featureId}";
 
+  private final Supplier<String> OGC_GET_VECTOR_TILE_SUMMARY =
+      () -> "Get vector tile generated from " + description;
+  private final Supplier<String> OGC_GET_VECTOR_TILE_OPERATION_ID =
+      () -> "ogcFeature-" + id.toString() + "-get-vector-tile";
+  private final Supplier<String> OGC_GET_VECTOR_TILE_ENDPOINT =
+      () -> "/collections/" + id.toString() + "/tiles/{tileMatrixSetId}/{tileMatrix}/{tileRow}/{tileCol}";
+
   @SuppressWarnings("unchecked")
   public OgcFeaturesMetadata(JsonObject obj) {
     id = UUID.fromString(obj.getString("id"));
@@ -156,6 +165,35 @@ public class OgcFeaturesMetadata {
     block.put(OGC_GET_SPECIFIC_FEATURE_ENDPOINT.get(),
         new JsonObject().put("get", featureSpecificApi));
 
+    /* GET /collections/<collection-ID>/tiles/WebMercatorQuad/<tileMatrix>/<tileRow>/<tileCol> */
+    JsonObject vectorTileApi = new JsonObject();
+
+    vectorTileApi.put("tags", new JsonArray().add(title));
+    vectorTileApi.put("summary", OGC_GET_VECTOR_TILE_SUMMARY.get());
+    vectorTileApi.put("operationId", OGC_GET_VECTOR_TILE_OPERATION_ID.get());
+
+    vectorTileApi.mergeIn(OAS_TOKEN_SECURITY);
+
+    JsonObject tileMatrixSetIdParam = new JsonObject().put("in", "path")
+        .put("name", "tileMatrixSetId").put("required", true).put("schema", new JsonObject()
+            .put("type", "string").put("enum", new JsonArray().add(VectorTiles.TILE_MATRIX_SET)));
+
+    JsonObject tileMatrixParam = new JsonObject().put("in", "path").put("name", "tileMatrix")
+        .put("required", true).put("schema", new JsonObject().put("type", "integer")
+            .put("minimum", 0).put("maximum", VectorTiles.MAX_TILE_MATRIX));
+
+    vectorTileApi.put("parameters", new JsonArray().add(tileMatrixSetIdParam).add(tileMatrixParam)
+        .add(new JsonObject().put("$ref", "#/components/parameters/tileRow"))
+        .add(new JsonObject().put("$ref", "#/components/parameters/tileCol")));
+
+    vectorTileApi.put("responses",
+        new JsonObject().put("200", new JsonObject().put("$ref", "#/components/responses/VectorTile"))
+            .put("204", new JsonObject().put("$ref", "#/components/responses/EmptyTile"))
+            .put("400", new JsonObject().put("$ref", "#/components/responses/InvalidParameter"))
+            .put("500", new JsonObject().put("$ref", "#/components/responses/ServerError")));
+
+    block.put(OGC_GET_VECTOR_TILE_ENDPOINT.get(), new JsonObject().put("get", vectorTileApi));
+
     return block;
   }
 
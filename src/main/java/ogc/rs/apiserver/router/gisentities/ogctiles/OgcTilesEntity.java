@@ -70,6 +70,14 @@ public class OgcTilesEntity implements GisEntityInterface{
         .handler(apiServerVerticle::putCommonResponseHeaders)
         .handler(apiServerVerticle::buildResponse)
         .failureHandler(failureHandler);
+
+    // auth is done once for the whole batch, getTileBatch writes the response and meters each tile
+    // served
+    builder
+        .operation(TILE_BATCH_API)
+        .handler(ogcRouterBuilder.ogcFeaturesAuthZHandler)
+        .handler(apiServerVerticle::getTileBatch)
+        .failureHandler(failureHandler);
   }
 
   @Override
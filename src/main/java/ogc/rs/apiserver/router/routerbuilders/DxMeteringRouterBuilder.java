@@ -87,6 +87,13 @@ public class DxMeteringRouterBuilder extends EntityRouterBuilder {
         .handler(apiServerVerticle::buildResponse)
         .failureHandler(failureHandler);
 
+    // the usage stream handler writes the response itself, as a stream of server-sent events
+    routerBuilder
+        .operation(USAGE_STREAM_API)
+        .handler(meteringAuthZHandler)
+        .handler(apiServerVerticle::streamUsage)
+        .failureHandler(failureHandler);
+
     return;
   }
 }
@@ -8,6 +8,8 @@ import static ogc.rs.apiserver.util.Constants.HEADER_CONTENT_TYPE;
 import static ogc.rs.apiserver.util.Constants.HEADER_HOST;
 import static ogc.rs.apiserver.util.Constants.HEADER_ORIGIN;
 import static ogc.rs.apiserver.util.Constants.HEADER_REFERER;
+import static ogc.rs.apiserver.util.Constants.MIME_APPLICATION_GEOJSON;
+import static ogc.rs.apiserver.util.Constants.STAC_ITEMS_STREAMING_REGEX;
 import static ogc.rs.common.Constants.OAS_BEARER_SECURITY_SCHEME;
 
 import io.vertx.core.Vertx;
@@ -17,6 +19,7 @@ import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.BodyHandler;
 import io.vertx.ext.web.handler.CorsHandler;
 import io.vertx.ext.web.openapi.RouterBuilder;
@@ -49,10 +52,12 @@ public abstract class EntityRouterBuilder {
 
   /* create all handlers here and make them public so that they can be accessed */
   public FailureHandler failureHandler = new FailureHandler();
+  CorsHandler corsHandler =
+      CorsHandler.create().allowedHeaders(allowedHeaders).allowedMethods(allowedMethods);
 
   public RouterBuilder routerBuilder;
   private JsonObject config;
-  private DxTokenAuthenticationHandler tokenAuthenticationHandler;
+  DxTokenAuthenticationHandler tokenAuthenticationHandler;
   public StacAssetsAuthZHandler stacAssetsAuthZHandler;
   public MeteringAuthZHandler meteringAuthZHandler = new MeteringAuthZHandler();
   public OgcFeaturesAuthZHandler ogcFeaturesAuthZHandler;
@@ -72,14 +77,18 @@ public abstract class EntityRouterBuilder {
     this.routerBuilder = routerBuilder;
     this.config = config;
     tokenAuthenticationHandler = new DxTokenAuthenticationHandler(vertx, config);
-    stacAssetsAuthZHandler = new StacAssetsAuthZHandler(vertx);
-    ogcFeaturesAuthZHandler = new OgcFeaturesAuthZHandler(vertx);
-    processAuthZHandler = new ProcessAuthZHandler(vertx, config);
-    tilesMeteringHandler = new TilesMeteringHandler(vertx, config);
+    stacAssetsAuthZHandler =
+        new StacAssetsAuthZHandler(vertx, apiServerVerticle::getAssetRecord,
+            apiServerVerticle::getCollectionAccess);
+    ogcFeaturesAuthZHandler =
+        new OgcFeaturesAuthZHandler(vertx, apiServerVerticle::getCollectionAccess);
+    processAuthZHandler = new ProcessAuthZHandler(apiServerVerticle::getProcessTitle);
+    tilesMeteringHandler = apiServerVerticle.getTilesMeteringHandler();
     stacCollectionOnboardingAuthZHandler = new StacCollectionOnboardingAuthZHandler(vertx, config);
-    stacItemByIdAuthZHandler = new StacItemByIdAuthZHandler(vertx);
+    stacItemByIdAuthZHandler =
+        new StacItemByIdAuthZHandler(vertx, apiServerVerticle::getCollectionAccess);
     stacItemOnboardingAuthZHandler = new StacItemOnboardingAuthZHandler(vertx);
-    tokenLimitsEnforcementHandler = new TokenLimitsEnforcementHandler(vertx);
+    tokenLimitsEnforcementHandler = new TokenLimitsEnforcementHandler(vertx, config);
   }
 
   /**
@@ -103,9 +112,36 @@ public abstract class EntityRouterBuilder {
      */
     routerBuilder.securityHandler(OAS_BEARER_SECURITY_SCHEME, tokenAuthenticationHandler);
     
-    routerBuilder.rootHandler(
-        CorsHandler.create().allowedHeaders(allowedHeaders).allowedMethods(allowedMethods));
-    routerBuilder.rootHandler(BodyHandler.create());
+    routerBuilder.rootHandler(corsHandler);
+
+    /*
+     * Streamed STAC item uploads must reach their handler with the request body unread, so the body
+     * handler is skipped for them. Since the OGC router is mounted before the STAC router, this
+     * needs to be done in all routers.
+     */
+    BodyHandler bodyHandler = BodyHandler.create();
+    routerBuilder.rootHandler(routingContext -> {
+      if (isStreamedStacItemsUpload(routingContext)) {
+        routingContext.next();
+        return;
+      }
+      bodyHandler.handle(routingContext);
+    });
+  }
+
+  /**
+   * Check if the request is a STAC FeatureCollection upload that is to be parsed as a stream. These
+   * are POSTs to the STAC items endpoint with <code>Content-Type: application/geo+json</code>.
+   *
+   * @param routingContext the routing context
+   * @return true if the request body should not be buffered
+   */
+  static boolean isStreamedStacItemsUpload(RoutingContext routingContext) {
+    String contentType = routingContext.request().getHeader(HEADER_CONTENT_TYPE);
+    return HttpMethod.POST.equals(routingContext.request().method())
+        && contentType != null
+        && contentType.startsWith(MIME_APPLICATION_GEOJSON)
+        && routingContext.normalizedPath().matches(STAC_ITEMS_STREAMING_REGEX);
   }
 
   /**
@@ -119,6 +155,7 @@ public abstract class EntityRouterBuilder {
     addImplSpecificRoutes();
 
     Router router = routerBuilder.createRouter();
+    addNonOasRoutes(router);
 
     JsonObject oasJson = routerBuilder.getOpenAPI().getOpenAPI();
 
@@ -188,4 +225,15 @@ public abstract class EntityRouterBuilder {
    * Add all implementation specific routes to the {@link RouterBuilder}.
    */
   abstract void addImplSpecificRoutes();
+
+  /**
+   * Add routes that cannot be described through the OpenAPI spec directly to the built
+   * {@link Router}, e.g. routes that need to handle the request body as a stream. No routes are
+   * added by default.
+   *
+   * @param router the router created by the {@link RouterBuilder}
+   */
+  void addNonOasRoutes(Router router) {
+    return;
+  }
 }
@@ -5,7 +5,12 @@ import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Router;
 import io.vertx.ext.web.openapi.RouterBuilder;
+import io.vertx.json.schema.Draft;
+import io.vertx.json.schema.JsonSchema;
+import io.vertx.json.schema.JsonSchemaOptions;
+import io.vertx.json.schema.Validator;
 import ogc.rs.apiserver.ApiServerVerticle;
 import ogc.rs.apiserver.router.RouterManager;
 import ogc.rs.apiserver.router.gisentities.GisEntityInterface;
@@ -143,6 +148,27 @@ public class StacRouterBuilder extends EntityRouterBuilder {
         .handler(apiServerVerticle::buildResponse)
         .failureHandler(failureHandler);
 
+    routerBuilder
+        .operation(STAC_AGGREGATE_GET_API)
+        .handler(apiServerVerticle::getStacItemAggregate)
+        .handler(apiServerVerticle::putCommonResponseHeaders)
+        .handler(apiServerVerticle::buildResponse)
+        .failureHandler(failureHandler);
+
+    routerBuilder
+        .operation(STAC_AGGREGATE_POST_API)
+        .handler(apiServerVerticle::postStacItemAggregate)
+        .handler(apiServerVerticle::putCommonResponseHeaders)
+        .handler(apiServerVerticle::buildResponse)
+        .failureHandler(failureHandler);
+
+    routerBuilder
+        .operation(STAC_AGGREGATIONS_API)
+        .handler(apiServerVerticle::getStacAggregations)
+        .handler(apiServerVerticle::putCommonResponseHeaders)
+        .handler(apiServerVerticle::buildResponse)
+        .failureHandler(failureHandler);
+
         routerBuilder
                 .operation(STAC_POST_COLLECTION_API)
                 .handler(stacCollectionOnboardingAuthZHandler)
@@ -166,4 +192,41 @@ public class StacRouterBuilder extends EntityRouterBuilder {
 
         return;
     }
+
+  /**
+   * Add the streaming STAC item upload route. It has a lower order than the routes created by the
+   * {@link RouterBuilder} so that it is matched before the OAS request validation, which needs the
+   * entire body in memory. See {@link EntityRouterBuilder#isStreamedStacItemsUpload}. The route
+   * hence adds the CORS handler itself, and each streamed item is validated against the
+   * <code>postOrPutItem</code> schema of the OAS, like the items of a buffered upload.
+   */
+  @Override
+  void addNonOasRoutes(Router router) {
+    JsonObject oas = routerBuilder.getOpenAPI().getOpenAPI();
+    JsonObject itemSchema = new JsonObject()
+        .put("$ref", "#/components/schemas/postOrPutItem")
+        .put("components", oas.getJsonObject("components"));
+    Validator itemValidator = Validator.create(JsonSchema.of(itemSchema),
+        new JsonSchemaOptions().setDraft(Draft.DRAFT4).setBaseUri("https://example.com"));
+
+    router
+        .post(STAC_ITEMS_STREAMING_PATH)
+        .order(-1)
+        .consumes(MIME_APPLICATION_GEOJSON)
+        .handler(corsHandler)
+        .handler(
+            routingContext -> {
+              /* hold the body back till auth is done and the parser is ready */
+              routingContext.request().pause();
+              routingContext.next();
+            })
+        .handler(tokenAuthenticationHandler)
+        .handler(stacItemOnboardingAuthZHandler)
+        .handler(
+            routingContext ->
+                apiServerVerticle.createStacItemsStreaming(routingContext, itemValidator))
+        .handler(apiServerVerticle::putCommonResponseHeaders)
+        .handler(apiServerVerticle::buildResponse)
+        .failureHandler(failureHandler);
+  }
 }
@@ -0,0 +1,99 @@
+package ogc.rs.apiserver.util;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Bounded, least-recently-used cache of asset records from the <code>asset_registry</code> view,
+ * keyed by asset ID. A record holds the asset's kind, collection ID, item ID (for STAC item assets),
+ * href and S3 bucket ID, which is all that is needed to authorize and stream the asset. Lookups that
+ * are in progress are shared, so the authorization handler and the download handler of a request
+ * cause at most one DB query. Failed lookups (e.g. asset not found) are not cached.
+ *
+ * <p>Each API server verticle instance holds its own cache, which its event bus consumers invalidate
+ * when STAC items or assets change.
+ */
+public class AssetCache {
+
+  private final long ttlMillis;
+  private final Map<String, CachedAsset> assets;
+
+  /**
+   * @param maxEntries maximum number of assets held, the least recently used asset is evicted first
+   * @param ttlMillis maximum age of a cached asset
+   */
+  public AssetCache(int maxEntries, long ttlMillis) {
+    this.ttlMillis = ttlMillis;
+    this.assets =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, CachedAsset> eldest) {
+            return size() > maxEntries;
+          }
+        };
+  }
+
+  /**
+   * Get an asset record, using <code>loader</code> to fetch it if it is not cached or has expired.
+   * A copy is returned so that the caller is free to modify it.
+   *
+   * @param assetId the asset ID
+   * @param loader fetches the asset record given the asset ID
+   * @return future of the asset record
+   */
+  public Future<JsonObject> get(String assetId, Function<String, Future<JsonObject>> loader) {
+    CachedAsset cached = assets.get(assetId);
+
+    if (cached != null && System.currentTimeMillis() - cached.cachedAt <= ttlMillis) {
+      return cached.asset.map(JsonObject::copy);
+    }
+
+    Future<JsonObject> loading = loader.apply(assetId);
+    CachedAsset entry = new CachedAsset(loading, System.currentTimeMillis());
+    assets.put(assetId, entry);
+
+    loading.onFailure(
+        err -> {
+          if (assets.get(assetId) == entry) {
+            assets.remove(assetId);
+          }
+        });
+    return loading.map(JsonObject::copy);
+  }
+
+  /**
+   * Remove all assets of a STAC item, e.g. when the item is updated or deleted.
+   *
+   * @param collectionId the STAC collection ID
+   * @param itemId the STAC item ID
+   */
+  public void invalidateItem(String collectionId, String itemId) {
+    assets
+        .values()
+        .removeIf(
+            cached -> {
+              JsonObject asset = cached.asset.result();
+              return asset != null
+                  && collectionId.equals(asset.getString("collection_id"))
+                  && itemId.equals(asset.getString("item_id"));
+            });
+  }
+
+  /** Remove all assets, e.g. when collection-level assets may have changed. */
+  public void invalidateAll() {
+    assets.clear();
+  }
+
+  private static final class CachedAsset {
+    private final Future<JsonObject> asset;
+    private final long cachedAt;
+
+    private CachedAsset(Future<JsonObject> asset, long cachedAt) {
+      this.asset = asset;
+      this.cachedAt = cachedAt;
+    }
+  }
+}
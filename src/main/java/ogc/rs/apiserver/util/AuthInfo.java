@@ -14,6 +14,7 @@ public class AuthInfo {
   private UUID resourceId;
   private boolean isRsToken;
   private long expiry;
+  private Limits limits;
 
   public enum RoleEnum {
     provider,
@@ -86,6 +87,40 @@ public class AuthInfo {
     return expiry;
   }
 
+  /**
+   * Get the limits in the constraints of the token, parsed on first use. Copies made after share the
+   * parsed limits.
+   *
+   * @return the limits, or null if the token has none
+   * @throws OgcException if the limits are invalid
+   */
+  public Limits getLimits() {
+    if (limits == null && constraints != null) {
+      limits = Limits.fromJson(constraints.getJsonObject("limits"));
+    }
+    return limits;
+  }
+
+  /**
+   * Copy the user, e.g. so that a cached user can be handed to a request that may set the resource
+   * ID. The constraints and limits are shared and must not be modified.
+   *
+   * @return a copy of the user
+   */
+  public AuthInfo copy() {
+    AuthInfo copy = new AuthInfo();
+    copy.userId = userId;
+    copy.role = role;
+    copy.constraints = constraints;
+    copy.delegatorRole = delegatorRole;
+    copy.delegatorUserId = delegatorUserId;
+    copy.resourceId = resourceId;
+    copy.isRsToken = isRsToken;
+    copy.expiry = expiry;
+    copy.limits = limits;
+    return copy;
+  }
+
   @Override
   public String toString() {
     return "{"
@@ -0,0 +1,116 @@
+package ogc.rs.apiserver.util;
+
+import io.vertx.core.Future;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Bounded, least-recently-used cache of the metadata that authorization handlers need from the DB:
+ * whether a collection is open or secure, and the titles of processes. The cache is invalidated when
+ * the metadata changes in the DB (see the V37 migration), with a TTL as a safeguard in case a change
+ * is missed. Lookups that are in progress are shared, so concurrent requests for a collection cause
+ * at most one DB query. Failed lookups (e.g. collection not found) are not cached.
+ *
+ * <p>Asset ownership is cached by {@link AssetCache}.
+ *
+ * <p>Each API server verticle instance holds its own cache, invalidated from its consumer of
+ * {@link ogc.rs.common.Constants#AUTHZ_METADATA_CHANGED_ADDRESS}.
+ */
+public class AuthZMetadataCache {
+
+  private final Entries<Boolean> access;
+  private final Entries<String> processTitles;
+
+  /**
+   * @param maxEntries maximum number of collections and of processes held, the least recently used
+   *     is evicted first
+   * @param ttlMillis maximum age of cached metadata
+   */
+  public AuthZMetadataCache(int maxEntries, long ttlMillis) {
+    this.access = new Entries<>(maxEntries, ttlMillis);
+    this.processTitles = new Entries<>(maxEntries, ttlMillis);
+  }
+
+  /**
+   * Get whether a collection is open, using <code>loader</code> to fetch it if it is not cached.
+   *
+   * @param collectionId the collection ID
+   * @param loader fetches the access of a collection given the collection ID, true if open
+   * @return future of true if the collection is open, false if secure
+   */
+  public Future<Boolean> getAccess(String collectionId, Function<String, Future<Boolean>> loader) {
+    return access.get(collectionId, loader);
+  }
+
+  /**
+   * Get the title of a process, using <code>loader</code> to fetch it if it is not cached.
+   *
+   * @param processId the process ID
+   * @param loader fetches the title of a process given the process ID
+   * @return future of the title
+   */
+  public Future<String> getProcessTitle(String processId, Function<String, Future<String>> loader) {
+    return processTitles.get(processId, loader);
+  }
+
+  /** Remove the access of all collections, e.g. when <code>ri_details</code> changes. */
+  public void invalidateAccess() {
+    access.clear();
+  }
+
+  /** Remove all process titles, e.g. when <code>processes_table</code> changes. */
+  public void invalidateProcessTitles() {
+    processTitles.clear();
+  }
+
+  private static final class Entries<T> {
+    private final long ttlMillis;
+    private final Map<String, Cached<T>> entries;
+
+    private Entries(int maxEntries, long ttlMillis) {
+      this.ttlMillis = ttlMillis;
+      this.entries =
+          new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached<T>> eldest) {
+              return size() > maxEntries;
+            }
+          };
+    }
+
+    private Future<T> get(String key, Function<String, Future<T>> loader) {
+      Cached<T> cached = entries.get(key);
+
+      if (cached != null && System.currentTimeMillis() - cached.cachedAt <= ttlMillis) {
+        return cached.value;
+      }
+
+      Future<T> loading = loader.apply(key);
+      Cached<T> entry = new Cached<>(loading, System.currentTimeMillis());
+      entries.put(key, entry);
+
+      loading.onFailure(
+          err -> {
+            if (entries.get(key) == entry) {
+              entries.remove(key);
+            }
+          });
+      return loading;
+    }
+
+    private void clear() {
+      entries.clear();
+    }
+  }
+
+  private static final class Cached<T> {
+    private final Future<T> value;
+    private final long cachedAt;
+
+    private Cached(Future<T> value, long cachedAt) {
+      this.value = value;
+      this.cachedAt = cachedAt;
+    }
+  }
+}
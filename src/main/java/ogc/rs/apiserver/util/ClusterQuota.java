@@ -0,0 +1,236 @@
+package ogc.rs.apiserver.util;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Rate limits and usage of users shared across the API server nodes of a cluster. There is one
+ * instance per node, shared by all verticle instances, see {@link #get(Vertx, long)}. Usage is kept
+ * per user, collection and API path, like the token limits are enforced.
+ *
+ * <p>Rate limits are token buckets per user and collection, shared by all API paths of the
+ * collection (e.g. all tiles), that refill at the allowed number of requests per second and hold up
+ * to one second of requests. Whether a request is allowed is decided locally from the node's
+ * bucket.
+ *
+ * <p>When Vert.x is clustered, each node adds the requests it allowed and the usage it metered to
+ * cluster-wide counters ({@link io.vertx.core.shareddata.SharedData#getCounter(String)}) once per
+ * sync interval. The counters tell the node what the other nodes have added since, which is taken
+ * out of its buckets and added to its {@link UsageCounters}. A node therefore lags behind the
+ * cluster by at most one sync interval. When Vert.x is not clustered, the node's own buckets and
+ * usage counters are all there is and nothing is synced.
+ *
+ * <p>Instances are thread-safe. Counters of keys that have not been used for a while stop being
+ * synced.
+ */
+public final class ClusterQuota implements Shareable {
+  private static final Logger LOGGER = LogManager.getLogger(ClusterQuota.class);
+  private static final String QUOTA_MAP = "ClusterQuotaMap";
+  private static final String COUNTER_PREFIX = "ogc.rs.quota.";
+  private static final long IDLE_MILLIS = 10 * 60 * 1000L;
+  /* API path of the rate limit buckets, which are not per API path */
+  private static final String ALL_API_PATHS = "*";
+
+  private final Vertx vertx;
+  private final ConcurrentMap<String, KeyQuota> quotas = new ConcurrentHashMap<>();
+
+  private ClusterQuota(Vertx vertx, long syncIntervalMillis) {
+    this.vertx = vertx;
+
+    if (vertx.isClustered()) {
+      vertx.setPeriodic(syncIntervalMillis, id -> sync());
+    }
+  }
+
+  /**
+   * Get the instance of this node, creating it on first use.
+   *
+   * @param vertx the Vertx instance
+   * @param syncIntervalMillis how often counters are synced with the cluster, used by the first call
+   * @return the instance of this node
+   */
+  public static ClusterQuota get(Vertx vertx, long syncIntervalMillis) {
+    LocalMap<String, ClusterQuota> instances = vertx.sharedData().getLocalMap(QUOTA_MAP);
+    return instances.computeIfAbsent(QUOTA_MAP, key -> new ClusterQuota(vertx, syncIntervalMillis));
+  }
+
+  /**
+   * Get the instance of this node if it has been created.
+   *
+   * @param vertx the Vertx instance
+   * @return the instance of this node, or null
+   */
+  static ClusterQuota lookup(Vertx vertx) {
+    LocalMap<String, ClusterQuota> instances = vertx.sharedData().getLocalMap(QUOTA_MAP);
+    return instances.get(QUOTA_MAP);
+  }
+
+  /**
+   * Take a token from the rate limit bucket of a user for a collection.
+   *
+   * @param userId the user ID
+   * @param collectionId the collection ID
+   * @param requestsPerSecond the rate limit of the user
+   * @return true if the request is allowed
+   */
+  public boolean tryAcquire(String userId, String collectionId, double requestsPerSecond) {
+    return quota(userId, collectionId, ALL_API_PATHS)
+        .tryAcquire(requestsPerSecond, System.currentTimeMillis());
+  }
+
+  /**
+   * Start syncing the usage of a user with the cluster, e.g. when the usage limits of the user are
+   * checked on this node.
+   *
+   * @param userId the user ID
+   * @param collectionId the collection ID
+   * @param apiPath the API path
+   */
+  public void track(String userId, String collectionId, String apiPath) {
+    quota(userId, collectionId, apiPath);
+  }
+
+  private KeyQuota quota(String userId, String collectionId, String apiPath) {
+    KeyQuota quota = quotas.computeIfAbsent(userId + " " + collectionId + " " + apiPath,
+        key -> new KeyQuota(userId, collectionId, apiPath));
+    quota.lastUsedAt = System.currentTimeMillis();
+    return quota;
+  }
+
+  /**
+   * Add usage metered on this node, to be synced with the cluster.
+   *
+   * @param userId the user ID
+   * @param collectionId the collection ID
+   * @param apiPath the API path
+   * @param apiHits the API hits
+   * @param dataUsage the data usage in bytes
+   */
+  void addUsage(String userId, String collectionId, String apiPath, long apiHits,
+      long dataUsage) {
+    if (!vertx.isClustered()) {
+      return;
+    }
+    KeyQuota quota = quota(userId, collectionId, apiPath);
+    quota.apiHits.pending.addAndGet(apiHits);
+    quota.dataUsage.pending.addAndGet(dataUsage);
+  }
+
+  /* runs on the context of the verticle instance that created this instance */
+  private void sync() {
+    long idleBefore = System.currentTimeMillis() - IDLE_MILLIS;
+
+    quotas.forEach((key, quota) -> {
+      if (quota.lastUsedAt < idleBefore) {
+        quotas.remove(key, quota);
+        return;
+      }
+
+      if (ALL_API_PATHS.equals(quota.apiPath)) {
+        quota.requests.sync(COUNTER_PREFIX + "requests." + key, quota::debit);
+        return;
+      }
+      quota.apiHits.sync(COUNTER_PREFIX + "apiHits." + key, apiHits -> UsageCounters.add(vertx,
+          quota.userId, quota.collectionId, quota.apiPath, apiHits, 0));
+      quota.dataUsage.sync(COUNTER_PREFIX + "dataUsage." + key, dataUsage -> UsageCounters.add(
+          vertx, quota.userId, quota.collectionId, quota.apiPath, 0, dataUsage));
+    });
+  }
+
+  /**
+   * Rate limit bucket of a user and collection, or usage counters of a user, collection and API
+   * path.
+   */
+  private final class KeyQuota {
+    private final String userId;
+    private final String collectionId;
+    private final String apiPath;
+    private final SyncedCounter requests = new SyncedCounter();
+    private final SyncedCounter apiHits = new SyncedCounter();
+    private final SyncedCounter dataUsage = new SyncedCounter();
+    private volatile long lastUsedAt;
+    /* guarded by this, refilledAt is 0 until the first request */
+    private double tokens;
+    private double capacity;
+    private long refilledAt;
+
+    private KeyQuota(String userId, String collectionId, String apiPath) {
+      this.userId = userId;
+      this.collectionId = collectionId;
+      this.apiPath = apiPath;
+    }
+
+    private synchronized boolean tryAcquire(double requestsPerSecond, long now) {
+      capacity = Math.max(1, requestsPerSecond);
+      if (refilledAt == 0) {
+        tokens = capacity;
+      } else {
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * requestsPerSecond / 1000);
+      }
+      refilledAt = now;
+
+      if (tokens < 1) {
+        return false;
+      }
+      tokens--;
+      if (vertx.isClustered()) {
+        requests.pending.incrementAndGet();
+      }
+      return true;
+    }
+
+    /* requests allowed by other nodes, the bucket may go into debt of up to one second */
+    private synchronized void debit(long requests) {
+      if (refilledAt != 0) {
+        tokens = Math.max(-capacity, tokens - requests);
+      }
+    }
+  }
+
+  /**
+   * A value added to by this node and synced with a cluster-wide counter. Only accessed by
+   * {@link #sync()} except for {@link #pending}.
+   */
+  private final class SyncedCounter {
+    private final AtomicLong pending = new AtomicLong();
+    /* cluster-wide total after the last sync, -1 before the first sync */
+    private long synced = -1;
+    private boolean isSyncing;
+
+    /**
+     * Add the pending value of this node to the cluster-wide counter.
+     *
+     * @param name name of the cluster-wide counter
+     * @param addedByOthers called with the value added by other nodes since the last sync
+     */
+    private void sync(String name, LongConsumer addedByOthers) {
+      if (isSyncing) {
+        return;
+      }
+      isSyncing = true;
+      long added = pending.getAndSet(0);
+
+      vertx.sharedData().getCounter(name)
+          .compose(counter -> counter.addAndGet(added))
+          .onSuccess(total -> {
+            long byOthers = synced < 0 ? 0 : total - synced - added;
+            synced = total;
+            if (byOthers > 0) {
+              addedByOthers.accept(byOthers);
+            }
+          })
+          .onFailure(err -> {
+            pending.addAndGet(added);
+            LOGGER.warn("Failed to sync {} with the cluster - {}", name, err.getMessage());
+          })
+          .onComplete(done -> isSyncing = false);
+    }
+  }
+}
@@ -37,6 +37,7 @@ public class Constants {
     public static final String TILESETSLIST_API = ".collection.map.getTileSetsList";
     public static final String TILESET_API = ".collection.map.getTileSet";
     public static final String TILE_API = ".collection.map.getTile";
+    public static final String TILE_BATCH_API = ".collection.map.getTileBatch";
 
     public static final String STAC = "stac";
     public static final String STAC_OPENAPI_SPEC = "/stac/api";
@@ -54,11 +55,16 @@ public class Constants {
     public static final String STAC_ITEMS_DELETE_API = "deleteStacItem";
     public static final String STAC_ITEM_SEARCH_GET_API = "getItemSearch";
     public static final String STAC_ITEM_SEARCH_POST_API = "postItemSearch";
+    public static final String STAC_AGGREGATE_GET_API = "getAggregate";
+    public static final String STAC_AGGREGATE_POST_API = "postAggregate";
+    public static final String STAC_AGGREGATIONS_API = "getAggregations";
     public static final String ASSET_API = "getAsset";
     public static final String STAC_POST_COLLECTION_API = "postStacCollection";
     public static final String STAC_UPDATE_COLLECTION_API = "updateStacCollection";
     public static final String STAC_CONFORMANCE_CLASSES = "getConformanceDeclaration";
     public static final String STAC_ASSETS_BY_ID_REGEX = "^/stac/collections/[^/]+/items/[^/]+$";
+    public static final String STAC_ITEMS_STREAMING_PATH = "/stac/collections/:collectionId/items";
+    public static final String STAC_ITEMS_STREAMING_REGEX = "^/stac/collections/[^/]+/items$";
     // Pattern to extract processId from path: /processes/{processId}/execution
     public static final Pattern PROCESS_ID_PATTERN = Pattern.compile("/processes/([^/]+)/execution");
     public static final String PROCESS_EXECUTION_REGEX = "/processes/[a-f0-9]{8}-[a-f0-9]{4}-[a-f0-9]{4}-[a-f0-9]{4}-[a-f0-9]{12}/execution";
@@ -71,13 +77,18 @@ public class Constants {
     public static final String PROVIDER_AUDIT_API = "provider/audit";
     public static final String SUMMARY_AUDIT_API = "summary";
     public static final String OVERVIEW_AUDIT_API = "overview";
+    public static final String USAGE_STREAM_API = "usage/stream";
     public static final String CAT_SEARCH_PATH = "/search";
     public static final String AUTH_CERTIFICATE_PATH = "/cert";
     public static final String ASSET_NOT_FOUND = "Asset not found";
+    public static final String STAC_ASSET_CONTEXT_KEY = "assetRecord";
+    public static final String REDIRECTED_RESPONSE_SIZE_KEY = "redirectedResponseSize";
     public static final String NOT_FOUND = "Not Found";
     public static final String TOO_MANY_REQUESTS = "Too many requests";
     public static final String API_CALLS_LIMIT_EXCEEDED = "API calls limit exceeded";
     public static final String DATA_USAGE_LIMIT_EXCEEDED = "Data usage limit exceeded";
+    public static final String RATE_LIMIT_EXCEEDED = "Rate limit exceeded";
+    public static final String ERR_RATE_LIMIT = "Rate limit must be a positive number of requests per second";
     public static final String BBOX_VIOLATES_CONSTRAINTS = "Requested bbox is outside the allowed area";
     public static final String INVALID_BBOX_FORMAT = "Invalid bbox format: must have exactly 4 elements (minLon, minLat, maxLon, maxLat)";
     public static final String ERR_BBOX_NON_NUMERIC = "Bbox must contain only numeric values";
@@ -13,7 +13,7 @@ import static ogc.rs.apiserver.util.Constants.*;
 import static ogc.rs.common.Constants.UUID_REGEX;
 
 /**
- * Represents API usage, data usage, spatial (bbox), and feature limits extracted from a user's token.
+ * Represents API usage, data usage, rate, spatial (bbox), and feature limits extracted from a user's token.
  */
 @DataObject
 public class Limits {
@@ -23,6 +23,7 @@ public class Limits {
     private Long policyIssuedAt;
     private Long dataUsageLimitInBytes;
     private Long apiHitsLimit;
+    private Double rateLimit;
     private JsonArray bboxLimit;
     private JsonObject featLimit;
 
@@ -35,6 +36,7 @@ public class Limits {
         this.policyIssuedAt = json.getLong("policyIssuedAt");
         this.dataUsageLimitInBytes = json.getLong("dataUsageLimitInBytes");
         this.apiHitsLimit = json.getLong("apiHitsLimit");
+        this.rateLimit = json.getDouble("rateLimit");
         this.bboxLimit = json.getJsonArray("bboxLimit");
         this.featLimit = json.getJsonObject("featLimit");
     }
@@ -45,16 +47,18 @@ public class Limits {
         if (policyIssuedAt != null) json.put("policyIssuedAt", policyIssuedAt);
         if (dataUsageLimitInBytes != null) json.put("dataUsageLimitInBytes", dataUsageLimitInBytes);
         if (apiHitsLimit != null) json.put("apiHitsLimit", apiHitsLimit);
+        if (rateLimit != null) json.put("rateLimit", rateLimit);
         if (bboxLimit != null) json.put("bboxLimit", bboxLimit);
         if (featLimit != null) json.put("featLimit", featLimit);
         return json;
     }
 
     private Limits(Long policyIssuedAt, Long dataUsageLimitInBytes, Long apiHitsLimit,
-                   JsonArray bboxLimit, JsonObject featLimit) {
+                   Double rateLimit, JsonArray bboxLimit, JsonObject featLimit) {
         this.policyIssuedAt = policyIssuedAt;
         this.dataUsageLimitInBytes = dataUsageLimitInBytes;
         this.apiHitsLimit = apiHitsLimit;
+        this.rateLimit = rateLimit;
         this.bboxLimit = bboxLimit;
         this.featLimit = featLimit;
     }
@@ -62,7 +66,7 @@ public class Limits {
     /**
      * Parses the JsonObject representing limits and constructs a Limits instance.
      *
-     * @param limitsJson JsonObject with fields like "iat", "dataUsage", "apiHits", "bbox", "feat"
+     * @param limitsJson JsonObject with fields like "iat", "dataUsage", "apiHits", "rate", "bbox", "feat"
      * @return Limits object, or null if limitsJson is null
      */
     @GenIgnore
@@ -84,6 +88,11 @@ public class Limits {
             apiHits = limitsJson.getLong("apiHits");
         }
 
+        Double rate = null;
+        if (limitsJson.containsKey("rate")) {
+            rate = parseRateLimit(limitsJson.getValue("rate"));
+        }
+
         JsonArray bbox = null;
         if (limitsJson.containsKey("bbox")) {
             bbox = parseBboxLimitToJsonArray(limitsJson.getJsonArray("bbox"));
@@ -94,7 +103,28 @@ public class Limits {
             feat = parseFeatLimitToJsonObject(limitsJson.getJsonObject("feat"));
         }
 
-        return new Limits(iat, dataUsageBytes, apiHits, bbox, feat);
+        return new Limits(iat, dataUsageBytes, apiHits, rate, bbox, feat);
+    }
+
+    /**
+     * Validates the rate limit, the number of requests allowed per second.
+     *
+     * @param rate the value of the "rate" limit
+     * @return requests per second
+     * @throws OgcException if the rate is not a positive number
+     */
+    @GenIgnore
+    private static Double parseRateLimit(Object rate) {
+        if (!(rate instanceof Number)) {
+            throw new OgcException(400, "Bad Request", ERR_RATE_LIMIT);
+        }
+
+        double requestsPerSecond = ((Number) rate).doubleValue();
+        if (Double.isNaN(requestsPerSecond) || Double.isInfinite(requestsPerSecond)
+                || requestsPerSecond <= 0) {
+            throw new OgcException(400, "Bad Request", ERR_RATE_LIMIT);
+        }
+        return requestsPerSecond;
     }
 
     /**
@@ -287,6 +317,13 @@ public class Limits {
         return apiHitsLimit;
     }
 
+    /**
+     * @return the number of requests allowed per second, or null if the rate is not limited
+     */
+    public Double getRateLimit() {
+        return rateLimit;
+    }
+
     public JsonArray getBboxLimit() {
         return bboxLimit;
     }
@@ -0,0 +1,181 @@
+package ogc.rs.apiserver.util;
+
+import static ogc.rs.common.Constants.METERING_MESSAGE;
+import static ogc.rs.common.Constants.METERING_ROW;
+import static ogc.rs.metering.util.MeteringConstant.DEFAULT_SPOOL_DIR;
+import static ogc.rs.metering.util.MeteringConstant.POSTGRES_SPOOL;
+import static ogc.rs.metering.util.MeteringConstant.RMQ_SPOOL;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import ogc.rs.metering.MeteringService;
+import ogc.rs.metering.MeteringSpool;
+import ogc.rs.metering.util.QueryBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Bounded in-memory queue of metering records, sent to the metering service in batches so that
+ * metering a request costs an enqueue instead of a metering table insert and an RMQ publish. A batch
+ * is sent once enough records are queued, or at every flush interval. One batch is in flight at a
+ * time. Records of a batch that fails to be sent are queued again, ahead of the newer records. When
+ * the queue is full the oldest record is taken out of it and spilled to the {@link MeteringSpool},
+ * at every flush interval.
+ *
+ * <p>The metering service spools records it can't insert or publish, and replays the records
+ * spilled here as spool files of another instance, so records are not lost as long as the spool
+ * directory is the one of the metering verticle.
+ *
+ * <p>Records are also counted by a {@link UsageStream} as they are queued, for the usage stream API.
+ *
+ * <p>Records are flushed by a periodic timer, registered on the context of the verticle instance
+ * that creates the buffer and never cancelled. Records must be added from that context.
+ */
+public class MeteringBuffer {
+  private static final Logger LOGGER = LogManager.getLogger(MeteringBuffer.class);
+  private static final int DEFAULT_METERING_BUFFER_SIZE = 10000;
+  private static final int DEFAULT_METERING_BATCH_SIZE = 500;
+  private static final int DEFAULT_METERING_FLUSH_INTERVAL_MS = 1000;
+
+  private final MeteringService meteringService;
+  private final UsageStream usageStream;
+  private final int maxRecords;
+  private final int batchSize;
+  private final MeteringSpool meteringSpool;
+  private final Deque<JsonObject> records = new ArrayDeque<>();
+  private List<JsonObject> overflow = new ArrayList<>();
+  private boolean isSending;
+  private long spilledRecords;
+
+  /**
+   * @param vertx the Vertx instance
+   * @param meteringService the metering service proxy
+   * @param usageStream counts the records for the usage stream API
+   * @param meteringSpool spool the records are spilled to when the queue is full
+   * @param maxRecords maximum number of records queued
+   * @param batchSize maximum number of records sent at a time
+   * @param flushIntervalMillis maximum time a record is queued for while the metering service is up
+   */
+  public MeteringBuffer(Vertx vertx, MeteringService meteringService, UsageStream usageStream,
+      MeteringSpool meteringSpool, int maxRecords, int batchSize, long flushIntervalMillis) {
+    this.meteringService = meteringService;
+    this.usageStream = usageStream;
+    this.meteringSpool = meteringSpool;
+    this.maxRecords = maxRecords;
+    this.batchSize = batchSize;
+
+    vertx.setPeriodic(flushIntervalMillis, id -> {
+      spillOverflow();
+      flush();
+    });
+  }
+
+  /**
+   * Create a buffer configured by <code>meteringBufferSize</code>, <code>meteringBatchSize</code> and
+   * <code>meteringFlushIntervalMs</code>, with a {@link UsageStream} configured by
+   * <code>usageStreamIntervalMs</code> and spilling to the {@link MeteringSpool} in
+   * <code>meteringSpoolDir</code>.
+   *
+   * @param vertx the Vertx instance
+   * @param meteringService the metering service proxy
+   * @param config config of the API server verticle
+   * @return the buffer
+   */
+  public static MeteringBuffer create(Vertx vertx, MeteringService meteringService,
+      JsonObject config) {
+    int batchSize = config.getInteger("meteringBatchSize", DEFAULT_METERING_BATCH_SIZE);
+    int flushIntervalMillis =
+        config.getInteger("meteringFlushIntervalMs", DEFAULT_METERING_FLUSH_INTERVAL_MS);
+    /* the spool is only appended to here, it is replayed by the metering service */
+    MeteringSpool meteringSpool = new MeteringSpool(vertx,
+        config.getString("meteringSpoolDir", DEFAULT_SPOOL_DIR), Long.MAX_VALUE, batchSize);
+
+    return new MeteringBuffer(vertx, meteringService, UsageStream.create(vertx, config),
+        meteringSpool,
+        config.getInteger("meteringBufferSize", DEFAULT_METERING_BUFFER_SIZE),
+        batchSize, flushIntervalMillis);
+  }
+
+  /**
+   * Queue a metering record.
+   *
+   * @param meteringRow the row for the metering table, as for
+   *     {@link MeteringService#insertIntoPostgresAuditTable(JsonObject)}
+   * @param message the message for RMQ, as for
+   *     {@link MeteringService#insertMeteringValuesInRmq(JsonObject)}
+   */
+  public void add(JsonObject meteringRow, JsonObject message) {
+    usageStream.record(message);
+
+    if (records.size() >= maxRecords) {
+      overflow.add(records.removeFirst());
+    }
+    records.addLast(new JsonObject().put(METERING_ROW, meteringRow).put(METERING_MESSAGE, message));
+
+    if (records.size() >= batchSize) {
+      flush();
+    }
+  }
+
+  private void spillOverflow() {
+    if (overflow.isEmpty()) {
+      return;
+    }
+    List<JsonObject> spilled = overflow;
+    overflow = new ArrayList<>();
+    spilledRecords += spilled.size();
+    LOGGER.warn("Metering buffer is full, spilling {} records ({} so far)", spilled.size(),
+        spilledRecords);
+
+    List<JsonObject> rows = new ArrayList<>();
+    List<JsonObject> messages = new ArrayList<>();
+    QueryBuilder queryBuilder = new QueryBuilder();
+    spilled.forEach(record -> {
+      rows.add(record.getJsonObject(METERING_ROW));
+      messages.add(queryBuilder.buildMessageForRmq(record.getJsonObject(METERING_MESSAGE)));
+    });
+
+    meteringSpool
+        .append(POSTGRES_SPOOL, rows)
+        .compose(appended -> meteringSpool.append(RMQ_SPOOL, messages))
+        .onFailure(err -> LOGGER.error("Failed to spill {} metering records, they are lost - {}",
+            spilled.size(), err.getMessage()));
+  }
+
+  private void flush() {
+    if (isSending || records.isEmpty()) {
+      return;
+    }
+    isSending = true;
+
+    JsonArray batch = new JsonArray();
+    while (batch.size() < batchSize && !records.isEmpty()) {
+      batch.add(records.pollFirst());
+    }
+
+    meteringService
+        .insertMeteringBatch(batch)
+        .onSuccess(sent -> LOGGER.debug("Sent {} metering records", batch.size()))
+        .onFailure(
+            err -> {
+              LOGGER.error("Failed to send {} metering records - {}", batch.size(),
+                  err.getMessage());
+              // requeue ahead of newer records, as far as there is room
+              for (int i = batch.size() - 1; i >= 0 && records.size() < maxRecords; i--) {
+                records.addFirst(batch.getJsonObject(i));
+              }
+            })
+        .onComplete(
+            done -> {
+              isSending = false;
+              if (done.succeeded() && records.size() >= batchSize) {
+                flush();
+              }
+            });
+  }
+}
@@ -10,15 +10,28 @@ public class OgcException extends ServiceException {
   private final int statusCode;
   private final String code;
   private final String description;
+  private final JsonObject details;
   public OgcException(int status, String code, String description) {
+    this(status, code, description, null);
+  }
+
+  /**
+   * @param status the HTTP status code
+   * @param code the error code
+   * @param description the error description
+   * @param details additional members of the error JSON, e.g. what was done before the error
+   */
+  public OgcException(int status, String code, String description, JsonObject details) {
     super(OGC_FUTURE_ERROR, description);
     this.code = code;
     this.description = description;
     this.statusCode = status;
+    this.details = details;
   }
 
   public JsonObject getJson() {
-    return new JsonObject().put("code", this.code).put("description", this.description);
+    JsonObject json = new JsonObject().put("code", this.code).put("description", this.description);
+    return details == null ? json : json.mergeIn(details);
   }
   public int getStatusCode() {
     return this.statusCode;
@@ -0,0 +1,196 @@
+package ogc.rs.apiserver.util;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.core.buffer.Buffer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import ogc.rs.common.S3Config;
+import org.apache.commons.exec.CommandLine;
+import org.apache.commons.exec.DefaultExecutor;
+import org.apache.commons.exec.ExecuteWatchdog;
+import org.apache.commons.exec.environment.EnvironmentUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Renders PNG map tiles on the fly from a GeoTIFF (ideally a Cloud Optimized GeoTIFF) held in S3,
+ * for collections that have no pre-generated map tiles.
+ *
+ * <p>GDAL reads the GeoTIFF through <code>/vsis3/</code>, which fetches only the byte ranges of the
+ * overview and tiles covering the requested tile when the GeoTIFF is cloud optimized.
+ * <code>gdalwarp</code> writes a VRT that reprojects and resamples the source to the 256x256 tile
+ * and <code>gdal_translate</code> encodes it as PNG, with an alpha band for no-data areas. The GDAL
+ * processes run on a dedicated worker pool so that rendering does not hold up other blocking work.
+ *
+ * <p>Only the WebMercatorQuad and WorldCRS84Quad tile matrix sets are supported.
+ */
+public class RasterTileRenderer {
+  private static final Logger LOGGER = LogManager.getLogger(RasterTileRenderer.class);
+
+  public static final Set<String> TILE_MATRIX_SETS = Set.of("WebMercatorQuad", "WorldCRS84Quad");
+  private static final int TILE_SIZE = 256;
+  private static final double WEB_MERCATOR_HALF_EXTENT = 20037508.342789244;
+
+  private final WorkerExecutor workerExecutor;
+  private final Duration timeout;
+
+  /**
+   * @param vertx the Vertx instance
+   * @param poolSize number of tiles rendered at a time
+   * @param timeout maximum time a tile is rendered for
+   */
+  public RasterTileRenderer(Vertx vertx, int poolSize, Duration timeout) {
+    this.workerExecutor = vertx.createSharedWorkerExecutor("raster-tile-renderer", poolSize);
+    this.timeout = timeout;
+  }
+
+  /**
+   * Render a PNG tile from a GeoTIFF in S3.
+   *
+   * @param s3Config config of the bucket holding the GeoTIFF
+   * @param href S3 object key of the GeoTIFF
+   * @param tileMatrixSetId the tile matrix set ID, one of {@link #TILE_MATRIX_SETS}
+   * @param tileMatrix the tile matrix
+   * @param tileRow the tile row
+   * @param tileCol the tile column
+   * @return future of the PNG tile
+   */
+  public Future<Buffer> render(S3Config s3Config, String href, String tileMatrixSetId,
+      int tileMatrix, long tileRow, long tileCol) {
+    String source = "/vsis3/" + s3Config.getBucket() + "/" + href;
+
+    return workerExecutor.<Buffer>executeBlocking(promise -> {
+      Path vrt = null;
+      Path png = null;
+      try {
+        vrt = Files.createTempFile("raster-tile", ".vrt");
+        png = Files.createTempFile("raster-tile", ".png");
+
+        Map<String, String> environment = gdalEnvironment(s3Config);
+
+        CommandLine warp = new CommandLine("gdalwarp");
+        addTileExtent(warp, tileMatrixSetId, tileMatrix, tileRow, tileCol);
+        warp.addArgument("-ts");
+        warp.addArgument(String.valueOf(TILE_SIZE));
+        warp.addArgument(String.valueOf(TILE_SIZE));
+        warp.addArgument("-r");
+        warp.addArgument("bilinear");
+        warp.addArgument("-dstalpha");
+        warp.addArgument("-overwrite");
+        warp.addArgument("-of");
+        warp.addArgument("VRT");
+        warp.addArgument(source, false);
+        warp.addArgument(vrt.toString(), false);
+        execute(warp, environment);
+
+        CommandLine translate = new CommandLine("gdal_translate");
+        translate.addArgument("-of");
+        translate.addArgument("PNG");
+        translate.addArgument(vrt.toString(), false);
+        translate.addArgument(png.toString(), false);
+        execute(translate, environment);
+
+        promise.complete(Buffer.buffer(Files.readAllBytes(png)));
+      } catch (IOException e) {
+        promise.fail(e);
+      } finally {
+        deleteQuietly(vrt);
+        deleteQuietly(png);
+        if (png != null) {
+          deleteQuietly(Path.of(png + ".aux.xml"));
+        }
+      }
+    }, false).recover(err -> {
+      LOGGER.error("Failed to render tile {}/{}/{}/{} from {} - {}", tileMatrixSetId, tileMatrix,
+          tileRow, tileCol, source, err.getMessage());
+      return Future.failedFuture(
+          new OgcException(500, "Internal Server Error", "Failed to render tile"));
+    });
+  }
+
+  /** Close the worker pool. */
+  public void close() {
+    workerExecutor.close();
+  }
+
+  private static void deleteQuietly(Path path) {
+    if (path == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      LOGGER.warn("Failed to delete {} - {}", path, e.getMessage());
+    }
+  }
+
+  private void execute(CommandLine command, Map<String, String> environment) throws IOException {
+    LOGGER.debug("Rendering tile using {}", command.getExecutable());
+    DefaultExecutor executor = DefaultExecutor.builder().get();
+    executor.setExitValue(0);
+    executor.setWatchdog(ExecuteWatchdog.builder().setTimeout(timeout).get());
+    executor.execute(command, environment);
+  }
+
+  /** Set the target CRS and extent of the tile, rows are counted from the top of the TMS. */
+  private static void addTileExtent(CommandLine command, String tileMatrixSetId, int tileMatrix,
+      long tileRow, long tileCol) {
+    String crs;
+    double left;
+    double top;
+    double tileSpan;
+
+    if ("WebMercatorQuad".equals(tileMatrixSetId)) {
+      crs = "EPSG:3857";
+      tileSpan = 2 * WEB_MERCATOR_HALF_EXTENT / (1L << tileMatrix);
+      left = -WEB_MERCATOR_HALF_EXTENT;
+      top = WEB_MERCATOR_HALF_EXTENT;
+    } else {
+      crs = "EPSG:4326";
+      tileSpan = 180.0 / (1L << tileMatrix);
+      left = -180;
+      top = 90;
+    }
+
+    double minX = left + tileCol * tileSpan;
+    double maxY = top - tileRow * tileSpan;
+
+    command.addArgument("-t_srs");
+    command.addArgument(crs);
+    command.addArgument("-te");
+    for (double coordinate : new double[] {minX, maxY - tileSpan, minX + tileSpan, maxY}) {
+      command.addArgument(String.format(Locale.ROOT, "%.10f", coordinate));
+    }
+  }
+
+  /**
+   * The environment of the GDAL processes, with the config options to read from the bucket using
+   * byte range requests. The options are passed as environment variables instead of
+   * <code>--config</code> arguments so that the credentials do not show in the process list.
+   */
+  private static Map<String, String> gdalEnvironment(S3Config s3Config) throws IOException {
+    Map<String, String> environment = EnvironmentUtils.getProcEnvironment();
+    environment.put("AWS_S3_ENDPOINT", s3Config.getEndpoint().replaceFirst("https?://", ""));
+    environment.put("AWS_ACCESS_KEY_ID", s3Config.getAccessKey());
+    environment.put("AWS_SECRET_ACCESS_KEY", s3Config.getSecretKey());
+    environment.put("AWS_REGION", s3Config.getRegion());
+    if (!s3Config.isHttps()) {
+      environment.put("AWS_HTTPS", "NO");
+    }
+    if (s3Config.isPathBasedAccess()) {
+      environment.put("AWS_VIRTUAL_HOSTING", "FALSE");
+    }
+    // a COG is read with range requests only, without listing the bucket
+    environment.put("GDAL_DISABLE_READDIR_ON_OPEN", "EMPTY_DIR");
+    environment.put("GDAL_HTTP_MERGE_CONSECUTIVE_RANGES", "YES");
+    environment.put("CPL_TMPDIR", System.getProperty("java.io.tmpdir"));
+    return environment;
+  }
+}
@@ -0,0 +1,105 @@
+package ogc.rs.apiserver.util;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * An API response body that has been rendered once and can be served any number of times, along
+ * with a strong ETag for it.
+ */
+public class RenderedDocument {
+
+  private final String body;
+  private final String etag;
+
+  private RenderedDocument(String body, String etag) {
+    this.body = body;
+    this.etag = etag;
+  }
+
+  /**
+   * Create a document whose ETag is derived from the SHA-256 digest of the body.
+   *
+   * @param body the rendered response body
+   * @return the document
+   */
+  public static RenderedDocument fromBody(String body) {
+    return new RenderedDocument(body, quote(sha256Hex(body)));
+  }
+
+  /**
+   * Create a document with an ETag derived from a version identifier, e.g. a row version, instead
+   * of the body.
+   *
+   * @param body the rendered response body
+   * @param version any value that changes whenever the body changes
+   * @return the document
+   */
+  public static RenderedDocument fromVersion(String body, String version) {
+    return new RenderedDocument(body, quote(version));
+  }
+
+  public String getBody() {
+    return body;
+  }
+
+  public String getEtag() {
+    return etag;
+  }
+
+  /**
+   * Check if the ETag of this document matches any of the ETags in an <code>If-None-Match</code>
+   * header. Weak comparison is used as per RFC 9110.
+   *
+   * @param ifNoneMatch value of the <code>If-None-Match</code> header, can be null
+   * @return true if a 304 can be sent
+   */
+  public boolean matches(String ifNoneMatch) {
+    return etagMatches(etag, ifNoneMatch);
+  }
+
+  /**
+   * Check if an ETag matches any of the ETags in an <code>If-None-Match</code> header. Weak
+   * comparison is used as per RFC 9110.
+   *
+   * @param etag the quoted ETag of the current representation
+   * @param ifNoneMatch value of the <code>If-None-Match</code> header, can be null
+   * @return true if a 304 can be sent
+   */
+  public static boolean etagMatches(String etag, String ifNoneMatch) {
+    if (etag == null || ifNoneMatch == null || ifNoneMatch.isBlank()) {
+      return false;
+    }
+    if ("*".equals(ifNoneMatch.trim())) {
+      return true;
+    }
+    String current = etag.startsWith("W/") ? etag.substring(2) : etag;
+    for (String tag : ifNoneMatch.split(",")) {
+      String candidate = tag.trim();
+      if (candidate.startsWith("W/")) {
+        candidate = candidate.substring(2);
+      }
+      if (current.equals(candidate)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String quote(String value) {
+    return "\"" + value + "\"";
+  }
+
+  private static String sha256Hex(String body) {
+    try {
+      byte[] digest =
+          MessageDigest.getInstance("SHA-256").digest(body.getBytes(StandardCharsets.UTF_8));
+      return String.format("%064x", new BigInteger(1, digest));
+    } catch (NoSuchAlgorithmException e) {
+      /* SHA-256 is guaranteed to be present in every JVM */
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package ogc.rs.apiserver.util;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Cache of pre-rendered STAC collection documents - <code>/stac/collections</code>, each
+ * <code>/stac/collections/{collectionId}</code> and the child links of the STAC landing page. All
+ * documents are rendered together from one read of the collections and are replaced as a whole
+ * when the STAC metadata changes, i.e. when {@link #invalidate()} is called or the TTL runs out.
+ *
+ * <p>Each API server verticle instance renders and holds its own snapshot.
+ */
+public class StacCollectionsCache {
+  private static final Logger LOGGER = LogManager.getLogger(StacCollectionsCache.class);
+
+  private final long ttlMillis;
+  private Future<Snapshot> snapshot;
+  private long renderedAt;
+
+  /**
+   * @param ttlMillis maximum age of the rendered documents, so that changes made to the STAC
+   *     metadata outside the APIs (e.g. collection assets) are eventually picked up
+   */
+  public StacCollectionsCache(long ttlMillis) {
+    this.ttlMillis = ttlMillis;
+  }
+
+  /**
+   * Get the current snapshot, rendering a new one using <code>renderer</code> if there is none or
+   * if it has expired. Concurrent calls made while rendering share the same result. A failed render
+   * is not cached.
+   *
+   * @param renderer supplies a freshly rendered snapshot
+   * @return future of the snapshot
+   */
+  public Future<Snapshot> get(Supplier<Future<Snapshot>> renderer) {
+    if (snapshot != null && System.currentTimeMillis() - renderedAt <= ttlMillis) {
+      return snapshot;
+    }
+
+    Future<Snapshot> rendering = renderer.get();
+    snapshot = rendering;
+    renderedAt = System.currentTimeMillis();
+
+    rendering.onFailure(
+        err -> {
+          if (snapshot == rendering) {
+            snapshot = null;
+          }
+        });
+    return rendering;
+  }
+
+  /** Drop the current snapshot. The next call to {@link #get(Supplier)} renders afresh. */
+  public void invalidate() {
+    LOGGER.debug("Invalidating rendered STAC collection documents");
+    snapshot = null;
+  }
+
+  /** One consistent set of rendered STAC collection documents. */
+  public static class Snapshot {
+    private final RenderedDocument collections;
+    private final Map<String, RenderedDocument> collectionById;
+    private final JsonArray catalogChildLinks;
+
+    public Snapshot(
+        RenderedDocument collections,
+        Map<String, RenderedDocument> collectionById,
+        JsonArray catalogChildLinks) {
+      this.collections = collections;
+      this.collectionById = Map.copyOf(collectionById);
+      this.catalogChildLinks = catalogChildLinks;
+    }
+
+    public RenderedDocument getCollections() {
+      return collections;
+    }
+
+    public Optional<RenderedDocument> getCollection(String collectionId) {
+      return Optional.ofNullable(collectionById.get(collectionId));
+    }
+
+    /**
+     * Get the <code>child</code> links to be added to the STAC landing page. A copy is returned
+     * since the caller adds it to a response.
+     *
+     * @return array of link objects
+     */
+    public JsonArray getCatalogChildLinks() {
+      return catalogChildLinks.copy();
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package ogc.rs.apiserver.util;
+
+import io.vertx.core.json.JsonObject;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Bounded, least-recently-used cache of STAC items as read from the database, keyed by collection
+ * ID and item ID. Items are kept before any per-request rendering (links, pre-signed asset URLs),
+ * so one entry can serve all users. Entries are removed when the item is updated or deleted, and
+ * expire after a TTL to cover changes made directly in the database.
+ *
+ * <p>Entries are kept in access order, so even {@link #get(String, String)} modifies the cache,
+ * which is hence held by one verticle instance and not shared.
+ */
+public class StacItemCache {
+
+  private final long ttlMillis;
+  private final Map<String, CachedItem> items;
+
+  /**
+   * @param maxEntries maximum number of items held, the least recently used item is evicted first
+   * @param ttlMillis maximum age of a cached item
+   */
+  public StacItemCache(int maxEntries, long ttlMillis) {
+    this.ttlMillis = ttlMillis;
+    this.items =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, CachedItem> eldest) {
+            return size() > maxEntries;
+          }
+        };
+  }
+
+  /**
+   * Get a copy of a cached item, so that the caller is free to modify it.
+   *
+   * @param collectionId the STAC collection ID
+   * @param itemId the STAC item ID
+   * @return the item if present and not expired
+   */
+  public Optional<JsonObject> get(String collectionId, String itemId) {
+    String key = key(collectionId, itemId);
+    CachedItem cached = items.get(key);
+
+    if (cached == null) {
+      return Optional.empty();
+    }
+    if (System.currentTimeMillis() - cached.cachedAt > ttlMillis) {
+      items.remove(key);
+      return Optional.empty();
+    }
+    return Optional.of(cached.item.copy());
+  }
+
+  public void put(String collectionId, String itemId, JsonObject item) {
+    items.put(key(collectionId, itemId), new CachedItem(item.copy(), System.currentTimeMillis()));
+  }
+
+  public void invalidate(String collectionId, String itemId) {
+    items.remove(key(collectionId, itemId));
+  }
+
+  private static String key(String collectionId, String itemId) {
+    return collectionId + "/" + itemId;
+  }
+
+  private static final class CachedItem {
+    private final JsonObject item;
+    private final long cachedAt;
+
+    private CachedItem(JsonObject item, long cachedAt) {
+      this.item = item;
+      this.cachedAt = cachedAt;
+    }
+  }
+}
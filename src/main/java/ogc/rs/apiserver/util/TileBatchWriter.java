@@ -0,0 +1,141 @@
+package ogc.rs.apiserver.util;
+
+import static ogc.rs.apiserver.util.Constants.MIME_APPLICATION_JSON;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Writes the tiles of a batch as the parts of a <code>multipart/mixed</code> response, in the order
+ * in which they are fetched. At most <code>maxInFlight</code> tiles are fetched at a time, and no
+ * tile is fetched while the write queue of the response is full, so that a batch holds a bounded
+ * number of tiles in memory however slow the client is. Each part is identified by its
+ * <code>Content-Location</code> (<code>{tileMatrix}/{tileRow}/{tileCol}</code>). A tile that could
+ * not be fetched is sent as a part holding the error JSON, with the error code in a
+ * <code>Status</code> header. An empty tile is sent as a part with no body and a <code>Status</code>
+ * of 204.
+ *
+ * <p>A writer writes the response of one batch request and is driven from the event loop of that
+ * request, by the completion of its tile fetches and by the drain handler of the response.
+ */
+public class TileBatchWriter {
+  private static final Logger LOGGER = LogManager.getLogger(TileBatchWriter.class);
+
+  private final HttpServerResponse response;
+  private final String boundary;
+  private final String mediaType;
+  private final JsonArray tiles;
+  private final int maxInFlight;
+  private final Function<JsonObject, Future<TileCache.Tile>> tileFetcher;
+  private final List<JsonObject> servedTiles = new ArrayList<>();
+  private final Promise<List<JsonObject>> written = Promise.promise();
+  private int nextTile;
+  private int inFlight;
+
+  /**
+   * @param response the response, with its headers set
+   * @param boundary the boundary of the parts
+   * @param mediaType the media type of the tiles
+   * @param tiles the coordinates of the tiles, as JSON objects with <code>tileMatrix</code>,
+   *     <code>tileRow</code> and <code>tileCol</code>
+   * @param maxInFlight maximum number of tiles fetched at a time
+   * @param tileFetcher fetches a tile given its coordinates
+   */
+  public TileBatchWriter(HttpServerResponse response, String boundary, String mediaType,
+      JsonArray tiles, int maxInFlight, Function<JsonObject, Future<TileCache.Tile>> tileFetcher) {
+    this.response = response;
+    this.boundary = boundary;
+    this.mediaType = mediaType;
+    this.tiles = tiles;
+    this.maxInFlight = maxInFlight;
+    this.tileFetcher = tileFetcher;
+  }
+
+  /**
+   * Write the parts of all tiles. The response is not ended.
+   *
+   * @return future completed once all parts are written or the response is closed, with the
+   *     coordinates of the tiles sent with data, each with the <code>size</code> of the tile in
+   *     bytes
+   */
+  public Future<List<JsonObject>> write() {
+    response.closeHandler(closed -> fetchNext());
+    fetchNext();
+    return written.future();
+  }
+
+  private void fetchNext() {
+    if (response.closed() || nextTile == tiles.size()) {
+      if (inFlight == 0) {
+        written.tryComplete(servedTiles);
+      }
+      return;
+    }
+
+    if (response.writeQueueFull()) {
+      response.drainHandler(drained -> fetchNext());
+      return;
+    }
+
+    while (!response.closed() && inFlight < maxInFlight && nextTile < tiles.size()) {
+      JsonObject coordinates = tiles.getJsonObject(nextTile++);
+      inFlight++;
+      tileFetcher
+          .apply(coordinates)
+          .transform(fetched -> writePart(coordinates, fetched))
+          .onComplete(
+              done -> {
+                inFlight--;
+                fetchNext();
+              });
+    }
+  }
+
+  private Future<Void> writePart(JsonObject coordinates, AsyncResult<TileCache.Tile> fetched) {
+    if (response.closed()) {
+      return Future.succeededFuture();
+    }
+
+    String tilePath = coordinates.getString("tileMatrix") + "/" + coordinates.getInteger("tileRow")
+        + "/" + coordinates.getInteger("tileCol");
+    Buffer part = Buffer.buffer("--" + boundary + "\r\n")
+        .appendString("Content-Location: " + tilePath + "\r\n");
+    Buffer body;
+
+    if (fetched.succeeded() && fetched.result().getData().length() == 0) {
+      part.appendString("Status: 204\r\n");
+      body = Buffer.buffer();
+    } else if (fetched.succeeded()) {
+      TileCache.Tile tile = fetched.result();
+      if (tile.getEtag() != null) {
+        part.appendString("ETag: " + tile.getEtag() + "\r\n");
+      }
+      part.appendString("Content-Type: " + mediaType + "\r\n");
+      body = tile.getData();
+      servedTiles.add(coordinates.copy().put("size", body.length()));
+    } else {
+      OgcException error = fetched.cause() instanceof OgcException
+          ? (OgcException) fetched.cause()
+          : new OgcException(500, "Internal Server Error", "Internal Server Error");
+      LOGGER.debug("Failed to get tile {} of batch - {}", tilePath, fetched.cause().getMessage());
+      part.appendString("Status: " + error.getStatusCode() + "\r\n")
+          .appendString("Content-Type: " + MIME_APPLICATION_JSON + "\r\n");
+      body = error.getJson().toBuffer();
+    }
+
+    part.appendString("Content-Length: " + body.length() + "\r\n\r\n")
+        .appendBuffer(body)
+        .appendString("\r\n");
+    return response.write(part);
+  }
+}
@@ -0,0 +1,382 @@
+package ogc.rs.apiserver.util;
+
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.CopyOptions;
+import io.vertx.core.file.FileSystem;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Predicate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Two-level cache of tile bytes fetched from S3 or generated from the DB. Tiles do not change once
+ * onboarded, so a tile is cached until it is evicted. Generated tiles are removed using
+ * {@link #removeIf(Predicate)} when their data changes. A tile generated from data read before a
+ * removal must not be cached after it, so the {@link #generation()} is read before generating a tile
+ * and passed to {@link #put(String, Tile, long)}, which skips the tile if tiles were removed since.
+ *
+ * <ul>
+ *   <li>Level 1 is an in-heap LRU map bounded by the total number of bytes held. Frequently
+ *       requested tiles (typically the low zoom levels) stay here.
+ *   <li>Level 2 is an optional LRU on-disk cache, also bounded by bytes, for the long tail. Every
+ *       cached tile is written to it and tiles read from it are promoted to level 1.
+ * </ul>
+ *
+ * Tiles are keyed by collection ID, tile matrix set, tile matrix, row, column and format, e.g. the
+ * S3 object path of the tile. Tiles bigger than the configured maximum tile size are not cached. The
+ * S3 <code>ETag</code> and <code>Last-Modified</code> of a tile are kept with it so that conditional
+ * requests can be answered from the cache.
+ *
+ * <p>Tiles that are known to be empty, i.e. missing in S3 or generated without features, are held
+ * by key only, in a separate LRU set bounded by the number of keys. They expire after a TTL since an
+ * empty tile may be filled when tiles are onboarded again. {@link #get(String)} returns a tile with
+ * no data for them.
+ *
+ * <p>Each API server verticle instance holds its own cache, which uses its own directory under the
+ * <code>tile-cache</code> directory of the disk cache directory, removed on {@link #close()}. The
+ * <code>tile-cache</code> directory is emptied when the first instance of the JVM is created, so
+ * that directories left by a crash do not pile up. The disk cache directory must hence not be
+ * shared by servers.
+ */
+public class TileCache {
+  private static final Logger LOGGER = LogManager.getLogger(TileCache.class);
+  private static final String DISK_CACHE_SUBDIR = "tile-cache";
+  /* disk cache directories emptied by this JVM */
+  private static final Set<String> CLEANED_DISK_CACHE_DIRS = new HashSet<>();
+
+  private final FileSystem fileSystem;
+  private final long maxTileBytes;
+  private final long maxHeapBytes;
+  private final long maxDiskBytes;
+  private final String diskDir;
+  private final Map<String, Tile> heapTiles = new LinkedHashMap<>(16, 0.75f, true);
+  /* the tile bytes are on disk, the in-memory entries hold the metadata with an empty buffer */
+  private final Map<String, Tile> diskTiles = new LinkedHashMap<>(16, 0.75f, true);
+  /* key of empty tile -> time it was cached at */
+  private final Map<String, Long> emptyTiles;
+  private final long emptyTileTtlMillis;
+  /* key of tile being written to disk -> ID of the write, removed when the write is cancelled */
+  private final Map<String, String> pendingDiskWrites = new HashMap<>();
+  private long heapBytes;
+  private long diskBytes;
+  private long generation;
+
+  /**
+   * @param fileSystem the Vert.x file system
+   * @param maxTileBytes size of the biggest tile that is cached
+   * @param maxHeapBytes maximum total size of tiles held in memory
+   * @param diskCacheDir directory for the on-disk cache, or null to disable it
+   * @param maxDiskBytes maximum total size of tiles held on disk
+   * @param maxEmptyTiles maximum number of empty tile keys held
+   * @param emptyTileTtlMillis maximum age of a cached empty tile
+   */
+  public TileCache(FileSystem fileSystem, long maxTileBytes, long maxHeapBytes,
+      String diskCacheDir, long maxDiskBytes, int maxEmptyTiles, long emptyTileTtlMillis) {
+    this.fileSystem = fileSystem;
+    this.maxTileBytes = maxTileBytes;
+    this.maxHeapBytes = maxHeapBytes;
+    this.maxDiskBytes = maxDiskBytes;
+    this.emptyTileTtlMillis = emptyTileTtlMillis;
+    this.emptyTiles =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > maxEmptyTiles;
+          }
+        };
+
+    if (diskCacheDir == null) {
+      this.diskDir = null;
+    } else {
+      String cacheDir = Paths.get(diskCacheDir, DISK_CACHE_SUBDIR).toString();
+      cleanDiskCacheDir(fileSystem, cacheDir);
+      this.diskDir = Paths.get(cacheDir, UUID.randomUUID().toString()).toString();
+      fileSystem.mkdirsBlocking(diskDir);
+      LOGGER.info("On-disk tile cache at {}", diskDir);
+    }
+  }
+
+  /* remove the directories of the instances of an earlier run, once per JVM */
+  private static synchronized void cleanDiskCacheDir(FileSystem fileSystem, String cacheDir) {
+    if (!CLEANED_DISK_CACHE_DIRS.add(cacheDir)) {
+      return;
+    }
+    if (fileSystem.existsBlocking(cacheDir)) {
+      LOGGER.info("Removing tiles cached on disk by an earlier run at {}", cacheDir);
+      fileSystem.deleteRecursiveBlocking(cacheDir, true);
+    }
+  }
+
+  /**
+   * Get the current generation of the cache, incremented by every {@link #removeIf(Predicate)}.
+   *
+   * @return the generation
+   */
+  public long generation() {
+    return generation;
+  }
+
+  /**
+   * Check if a tile of the given size would be cached, so that the caller knows whether to buffer
+   * the tile or stream it.
+   *
+   * @param size size of the tile in bytes
+   * @return true if the tile can be cached
+   */
+  public boolean isCacheable(long size) {
+    return size <= maxTileBytes && size <= maxHeapBytes;
+  }
+
+  /**
+   * Get a tile from memory, or from disk if the on-disk cache is enabled.
+   *
+   * @param key the tile key
+   * @return future of the tile, with no data if the tile is known to be empty, completed with null
+   *     if the tile is not cached
+   */
+  public Future<Tile> get(String key) {
+    Tile tile = heapTiles.get(key);
+    if (tile != null) {
+      return Future.succeededFuture(tile);
+    }
+
+    Long emptyCachedAt = emptyTiles.get(key);
+    if (emptyCachedAt != null) {
+      if (System.currentTimeMillis() - emptyCachedAt <= emptyTileTtlMillis) {
+        return Future.succeededFuture(new Tile(Buffer.buffer(), null, null));
+      }
+      emptyTiles.remove(key);
+    }
+
+    Tile onDisk = diskDir == null ? null : diskTiles.get(key);
+    if (onDisk == null) {
+      return Future.succeededFuture();
+    }
+
+    return fileSystem
+        .readFile(diskPath(key))
+        .map(
+            data -> {
+              Tile fromDisk = new Tile(data, onDisk.etag, onDisk.lastModified);
+              putInHeap(key, fromDisk);
+              return fromDisk;
+            })
+        .otherwise(
+            err -> {
+              LOGGER.warn("Failed to read cached tile {} from disk - {}", key, err.getMessage());
+              removeFromDisk(key);
+              return null;
+            });
+  }
+
+  /**
+   * Cache a tile in memory and, if enabled, on disk, as of the current generation. This is meant for
+   * tiles that are never removed, e.g. tiles from S3.
+   *
+   * @param key the tile key
+   * @param tile the tile
+   */
+  public void put(String key, Tile tile) {
+    put(key, tile, generation);
+  }
+
+  /**
+   * Cache a tile in memory and, if enabled, on disk. Writing to disk happens in the background. An
+   * empty tile is cached as a known-empty key. The tile is not cached if tiles were removed since
+   * the given generation, since it may have been generated from data that has changed since.
+   *
+   * @param key the tile key
+   * @param tile the tile
+   * @param generation the {@link #generation()} read before the tile was generated
+   */
+  public void put(String key, Tile tile, long generation) {
+    if (generation != this.generation) {
+      LOGGER.debug("Not caching tile {}, tiles were removed while it was generated", key);
+      return;
+    }
+    if (tile.size() == 0) {
+      emptyTiles.put(key, System.currentTimeMillis());
+      return;
+    }
+    emptyTiles.remove(key);
+    if (!isCacheable(tile.size())) {
+      return;
+    }
+    putInHeap(key, tile);
+
+    if (diskDir == null || diskTiles.containsKey(key) || pendingDiskWrites.containsKey(key)) {
+      return;
+    }
+
+    // write to a temporary file first so that a partially written tile is never read
+    String path = diskPath(key);
+    String writeId = UUID.randomUUID().toString();
+    String tempPath = path + "." + writeId + ".tmp";
+    pendingDiskWrites.put(key, writeId);
+
+    fileSystem
+        .writeFile(tempPath, tile.data)
+        .compose(written -> {
+          if (!writeId.equals(pendingDiskWrites.get(key))) {
+            return Future.failedFuture("removed while being written");
+          }
+          return fileSystem.move(tempPath, path, new CopyOptions().setReplaceExisting(true));
+        })
+        .onSuccess(
+            moved -> {
+              if (!pendingDiskWrites.remove(key, writeId)) {
+                // removed while being moved, unless a newer write of the tile is in progress
+                if (!pendingDiskWrites.containsKey(key)) {
+                  fileSystem.delete(path);
+                }
+                return;
+              }
+              if (diskTiles.put(key, new Tile(Buffer.buffer(), tile.etag, tile.lastModified,
+                  tile.size())) == null) {
+                diskBytes += tile.size();
+              }
+              evictFromDisk();
+            })
+        .onFailure(
+            err -> {
+              pendingDiskWrites.remove(key, writeId);
+              LOGGER.warn("Failed to write tile {} to disk cache - {}", key, err.getMessage());
+              fileSystem.delete(tempPath);
+            });
+  }
+
+  /**
+   * Remove tiles from memory and disk, e.g. generated tiles whose data has changed.
+   *
+   * @param keys predicate matching the keys of the tiles to remove
+   */
+  public void removeIf(Predicate<String> keys) {
+    generation++;
+    emptyTiles.keySet().removeIf(keys);
+    // cancel writes in progress, the tiles written are not added to the disk cache
+    pendingDiskWrites.keySet().removeIf(keys);
+
+    Iterator<Map.Entry<String, Tile>> heapEntries = heapTiles.entrySet().iterator();
+    while (heapEntries.hasNext()) {
+      Map.Entry<String, Tile> entry = heapEntries.next();
+      if (keys.test(entry.getKey())) {
+        heapBytes -= entry.getValue().size();
+        heapEntries.remove();
+      }
+    }
+
+    Iterator<Map.Entry<String, Tile>> diskEntries = diskTiles.entrySet().iterator();
+    while (diskEntries.hasNext()) {
+      Map.Entry<String, Tile> entry = diskEntries.next();
+      if (keys.test(entry.getKey())) {
+        diskBytes -= entry.getValue().size();
+        diskEntries.remove();
+        fileSystem.delete(diskPath(entry.getKey()));
+      }
+    }
+  }
+
+  /** Remove all known-empty tiles, e.g. when tiles may have been onboarded. */
+  public void removeEmptyTiles() {
+    emptyTiles.clear();
+  }
+
+  /**
+   * Remove the on-disk cache directory of this instance.
+   *
+   * @return future completed once the directory is removed
+   */
+  public Future<Void> close() {
+    heapTiles.clear();
+    diskTiles.clear();
+    emptyTiles.clear();
+    pendingDiskWrites.clear();
+    if (diskDir == null) {
+      return Future.succeededFuture();
+    }
+    return fileSystem.deleteRecursive(diskDir, true);
+  }
+
+  private void putInHeap(String key, Tile tile) {
+    Tile previous = heapTiles.put(key, tile);
+    heapBytes += tile.size() - (previous == null ? 0 : previous.size());
+
+    Iterator<Tile> eldest = heapTiles.values().iterator();
+    while (heapBytes > maxHeapBytes && eldest.hasNext()) {
+      heapBytes -= eldest.next().size();
+      eldest.remove();
+    }
+  }
+
+  private void evictFromDisk() {
+    Iterator<Map.Entry<String, Tile>> eldest = diskTiles.entrySet().iterator();
+    while (diskBytes > maxDiskBytes && eldest.hasNext()) {
+      Map.Entry<String, Tile> entry = eldest.next();
+      diskBytes -= entry.getValue().size();
+      eldest.remove();
+      fileSystem.delete(diskPath(entry.getKey()));
+    }
+  }
+
+  private void removeFromDisk(String key) {
+    Tile removed = diskTiles.remove(key);
+    if (removed != null) {
+      diskBytes -= removed.size();
+    }
+  }
+
+  /* the key may contain path separators, so a name derived from it is used for the file */
+  private String diskPath(String key) {
+    return Paths.get(diskDir, UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString())
+        .toString();
+  }
+
+  /** A cached tile along with its S3 validators. */
+  public static class Tile {
+    private final Buffer data;
+    private final String etag;
+    private final String lastModified;
+    private final long size;
+
+    /**
+     * @param data the tile bytes
+     * @param etag the S3 <code>ETag</code> of the tile, can be null
+     * @param lastModified the S3 <code>Last-Modified</code> of the tile, can be null
+     */
+    public Tile(Buffer data, String etag, String lastModified) {
+      this(data, etag, lastModified, data.length());
+    }
+
+    private Tile(Buffer data, String etag, String lastModified, long size) {
+      this.data = data;
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.size = size;
+    }
+
+    public Buffer getData() {
+      return data;
+    }
+
+    public String getEtag() {
+      return etag;
+    }
+
+    public String getLastModified() {
+      return lastModified;
+    }
+
+    long size() {
+      return size;
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package ogc.rs.apiserver.util;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable snapshot of the tile matrix sets in <code>tms_metadata</code> and the tile sets of
+ * collections in <code>tilematrixsets_relation</code>. TMS definitions and tile sets change only
+ * when tiles are onboarded, so the API server holds a snapshot in memory and replaces it when the DB
+ * notifies a change.
+ *
+ * <p>For the quadtree tile matrix sets of the OGC TMS registry, the matrix width and height of each
+ * tile matrix are computed once, so that tile coordinates can be checked against the matrix limits
+ * without any I/O. Coordinates of other tile matrix sets are only checked to be non-negative.
+ */
+public final class TileMatrixSetRegistry {
+
+  /* matrix width and height at tile matrix 0 of the quadtree TMSs, each level doubles both */
+  private static final Map<String, long[]> QUADTREE_TILE_MATRIX_0 = Map.of(
+      "WebMercatorQuad", new long[] {1, 1},
+      "WorldMercatorWGS84Quad", new long[] {1, 1},
+      "WorldCRS84Quad", new long[] {2, 1});
+  private static final int QUADTREE_MAX_TILE_MATRIX = 24;
+  /* TMS ID -> tile matrix -> {matrix width, matrix height} */
+  private static final Map<String, long[][]> MATRIX_LIMITS = new HashMap<>();
+
+  static {
+    QUADTREE_TILE_MATRIX_0.forEach((tileMatrixSetId, tileMatrix0) -> {
+      long[][] matrices = new long[QUADTREE_MAX_TILE_MATRIX + 1][];
+      for (int tileMatrix = 0; tileMatrix <= QUADTREE_MAX_TILE_MATRIX; tileMatrix++) {
+        matrices[tileMatrix] =
+            new long[] {tileMatrix0[0] << tileMatrix, tileMatrix0[1] << tileMatrix};
+      }
+      MATRIX_LIMITS.put(tileMatrixSetId, matrices);
+    });
+  }
+
+  private final List<JsonObject> tileMatrixSets;
+  /* collection ID -> TMS ID -> tile set */
+  private final Map<String, Map<String, JsonObject>> tileSets;
+
+  /**
+   * @param definitions the TMS definitions and tile sets, as returned by
+   *     {@link ogc.rs.database.DatabaseService#getTileMatrixSetDefinitions()}
+   */
+  public TileMatrixSetRegistry(JsonObject definitions) {
+    List<JsonObject> tmsList = new ArrayList<>();
+    definitions.getJsonArray("tileMatrixSets", new JsonArray())
+        .forEach(tms -> tmsList.add((JsonObject) tms));
+
+    Map<String, Map<String, JsonObject>> sets = new HashMap<>();
+    definitions.getJsonArray("tileSets", new JsonArray()).forEach(set -> {
+      JsonObject tileSet = (JsonObject) set;
+      sets.computeIfAbsent(tileSet.getString("collection_id"), collectionId -> new HashMap<>())
+          .put(tileSet.getString("tilematrixset"), tileSet);
+    });
+
+    this.tileMatrixSets = Collections.unmodifiableList(tmsList);
+    this.tileSets = Collections.unmodifiableMap(sets);
+  }
+
+  /**
+   * Get all tile matrix sets. Copies are returned so that the caller is free to modify them.
+   *
+   * @return list of tile matrix sets with their <code>id</code>, <code>title</code> and
+   *     <code>uri</code>
+   */
+  public List<JsonObject> getTileMatrixSets() {
+    return tileMatrixSets.stream().map(JsonObject::copy).collect(Collectors.toList());
+  }
+
+  /**
+   * Get the tile sets of a collection. Copies are returned so that the caller is free to modify
+   * them.
+   *
+   * @param collectionId the collection ID
+   * @return list of tile sets, empty if the collection has none
+   */
+  public List<JsonObject> getTileSets(String collectionId) {
+    return tileSets.getOrDefault(collectionId, Map.of()).values().stream()
+        .map(JsonObject::copy)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Get the tile set of a collection in a tile matrix set. A copy is returned so that the caller is
+   * free to modify it.
+   *
+   * @param collectionId the collection ID
+   * @param tileMatrixSetId the tile matrix set ID
+   * @return the tile set, or null if the collection has no tiles in the tile matrix set
+   */
+  public JsonObject getTileSet(String collectionId, String tileMatrixSetId) {
+    JsonObject tileSet = tileSets.getOrDefault(collectionId, Map.of()).get(tileMatrixSetId);
+    return tileSet == null ? null : tileSet.copy();
+  }
+
+  /**
+   * Check if tile coordinates are within the limits of the tile matrix set.
+   *
+   * @param tileMatrixSetId the tile matrix set ID
+   * @param tileMatrix the tile matrix ID
+   * @param tileRow the tile row
+   * @param tileCol the tile column
+   * @return true if the tile can exist in the tile matrix set
+   */
+  public boolean isInTileMatrixSet(String tileMatrixSetId, String tileMatrix, long tileRow,
+      long tileCol) {
+    if (tileRow < 0 || tileCol < 0) {
+      return false;
+    }
+
+    long[][] matrices = MATRIX_LIMITS.get(tileMatrixSetId);
+    if (matrices == null) {
+      return true;
+    }
+
+    int matrix;
+    try {
+      matrix = Integer.parseInt(tileMatrix);
+    } catch (NumberFormatException e) {
+      return false;
+    }
+    return matrix >= 0 && matrix < matrices.length
+        && tileCol < matrices[matrix][0] && tileRow < matrices[matrix][1];
+  }
+}
@@ -0,0 +1,253 @@
+package ogc.rs.apiserver.util;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+import ogc.rs.database.DatabaseService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * In-memory API hits and data usage of users, used to enforce the <code>apiHits</code> and
+ * <code>dataUsage</code> token limits without aggregating the <code>metering</code> table on every
+ * request. Usage is counted like the metering table is queried, i.e. per user, collection and API
+ * path since the issued-at time of the user's policy. A metering record with a response size of 0
+ * is not an API hit.
+ *
+ * <p>The usage since a policy's issued-at time is seeded from the metering table the first time it
+ * is needed. Every metering record is then also counted in memory using {@link #record(Vertx,
+ * String, String, String, long)}. The usage is reconciled with the metering table once per reconcile
+ * interval, in the background, so that usage metered by other API server instances is counted.
+ * In a cluster, usage metered by other nodes is also added as it is synced by {@link ClusterQuota}.
+ * Usage counted in memory while reconciling is kept. Usage that has not been needed for two
+ * reconcile intervals is dropped.
+ *
+ * <p>Usage is held in a {@link LocalMap}, so that it is shared by all verticle instances. There is
+ * one instance per Vertx instance, shared by all verticle instances, see {@link #get(Vertx,
+ * DatabaseService, long)}. Instances are thread-safe.
+ */
+public final class UsageCounters implements Shareable {
+  private static final Logger LOGGER = LogManager.getLogger(UsageCounters.class);
+  private static final String USAGE_MAP = "UsageCountersMap";
+  private static final String INSTANCE_MAP = "UsageCountersInstanceMap";
+
+  private final LocalMap<String, PolicyUsages> usages;
+  private final DatabaseService databaseService;
+  private final long reconcileIntervalMillis;
+  /* key of usage -> seeding or reconciling in progress */
+  private final Map<String, Future<Usage>> seeding = new ConcurrentHashMap<>();
+
+  private UsageCounters(Vertx vertx, DatabaseService databaseService, long reconcileIntervalMillis) {
+    this.usages = vertx.sharedData().getLocalMap(USAGE_MAP);
+    this.databaseService = databaseService;
+    this.reconcileIntervalMillis = reconcileIntervalMillis;
+
+    vertx.setPeriodic(reconcileIntervalMillis, id -> removeIdle());
+  }
+
+  /**
+   * Get the instance of this Vertx instance, creating it on first use.
+   *
+   * @param vertx the Vertx instance
+   * @param databaseService service to seed and reconcile the usage from the metering table, used by
+   *     the first call
+   * @param reconcileIntervalMillis how often the usage is reconciled with the metering table, used
+   *     by the first call
+   * @return the instance of this Vertx instance
+   */
+  public static UsageCounters get(Vertx vertx, DatabaseService databaseService,
+      long reconcileIntervalMillis) {
+    LocalMap<String, UsageCounters> instances = vertx.sharedData().getLocalMap(INSTANCE_MAP);
+    return instances.computeIfAbsent(INSTANCE_MAP,
+        key -> new UsageCounters(vertx, databaseService, reconcileIntervalMillis));
+  }
+
+  /**
+   * Count a metering record. Only the usage of policies that is already held is updated, other
+   * usage is seeded from the metering table when needed.
+   *
+   * @param vertx the Vertx instance
+   * @param userId the <code>user_id</code> of the metering record
+   * @param collectionId the <code>collection_id</code> of the metering record
+   * @param apiPath the <code>api_path</code> of the metering record
+   * @param responseSize the <code>resp_size</code> of the metering record
+   */
+  public static void record(Vertx vertx, String userId, String collectionId, String apiPath,
+      long responseSize) {
+    long apiHits = responseSize > 0 ? 1 : 0;
+    add(vertx, userId, collectionId, apiPath, apiHits, responseSize);
+
+    ClusterQuota clusterQuota = ClusterQuota.lookup(vertx);
+    if (clusterQuota != null) {
+      clusterQuota.addUsage(userId, collectionId, apiPath, apiHits, responseSize);
+    }
+  }
+
+  /**
+   * Add to the usage of policies that is already held, e.g. usage metered on other nodes.
+   *
+   * @param vertx the Vertx instance
+   * @param userId the user ID
+   * @param collectionId the collection ID
+   * @param apiPath the API path
+   * @param apiHits the API hits to add
+   * @param dataUsage the data usage in bytes to add
+   */
+  static void add(Vertx vertx, String userId, String collectionId, String apiPath, long apiHits,
+      long dataUsage) {
+    LocalMap<String, PolicyUsages> usages = vertx.sharedData().getLocalMap(USAGE_MAP);
+    usages.computeIfPresent(key(userId, collectionId, apiPath),
+        (key, policyUsages) -> policyUsages.add(apiHits, dataUsage));
+  }
+
+  /**
+   * Get the usage of a user since the issued-at time of a policy. Usage held in memory is returned
+   * right away, and reconciled in the background if it is due.
+   *
+   * @param userId the user ID
+   * @param collectionId the collection ID
+   * @param apiPath the API path
+   * @param policyIssuedAt the issued-at time of the policy, in epoch seconds
+   * @return future of the usage
+   */
+  public Future<Usage> get(String userId, String collectionId, String apiPath,
+      long policyIssuedAt) {
+    String key = key(userId, collectionId, apiPath);
+    PolicyUsages policyUsages = usages.get(key);
+    Usage usage = policyUsages == null ? null : policyUsages.get(policyIssuedAt);
+
+    if (usage == null) {
+      return seed(key, userId, collectionId, apiPath, policyIssuedAt);
+    }
+
+    if (System.currentTimeMillis() - usage.seededAt > reconcileIntervalMillis) {
+      seed(key, userId, collectionId, apiPath, policyIssuedAt)
+          .onFailure(err -> LOGGER.warn("Failed to reconcile usage of {} - {}", key,
+              err.getMessage()));
+    }
+    return Future.succeededFuture(usage);
+  }
+
+  /**
+   * Read the usage since the issued-at time of a policy from the metering table. Usage counted in
+   * memory while the metering table is read is added to it.
+   */
+  private Future<Usage> seed(String key, String userId, String collectionId, String apiPath,
+      long policyIssuedAt) {
+    String seedingKey = key + " " + policyIssuedAt;
+    Future<Usage> inProgress = seeding.get(seedingKey);
+    if (inProgress != null) {
+      return inProgress;
+    }
+
+    PolicyUsages before = usages.get(key);
+    Usage usageBefore = before == null ? null : before.get(policyIssuedAt);
+    long seededAt = System.currentTimeMillis();
+
+    Future<Long> apiHits =
+        databaseService.getTotalApiHits(userId, apiPath, collectionId, policyIssuedAt);
+    Future<Long> dataUsage =
+        databaseService.getTotalDataUsage(userId, apiPath, collectionId, policyIssuedAt);
+
+    Future<Usage> seeded = Future.all(apiHits, dataUsage).map(totals -> {
+      PolicyUsages updated = usages.compute(key, (k, current) -> {
+        Usage counted = current == null ? null : current.get(policyIssuedAt);
+        long apiHitsSince = delta(counted, usageBefore, Usage::getApiHits);
+        long dataUsageSince = delta(counted, usageBefore, Usage::getDataUsage);
+        Usage usage = new Usage(apiHits.result() + apiHitsSince,
+            dataUsage.result() + dataUsageSince, seededAt);
+        return (current == null ? new PolicyUsages(Map.of()) : current)
+            .put(policyIssuedAt, usage);
+      });
+      return updated.get(policyIssuedAt);
+    });
+
+    seeding.put(seedingKey, seeded);
+    seeded.onComplete(done -> seeding.remove(seedingKey, seeded));
+    return seeded;
+  }
+
+  /* usage counted in memory since the metering table started to be read */
+  private static long delta(Usage counted, Usage before, ToLongFunction<Usage> value) {
+    if (counted == null) {
+      return 0;
+    }
+    return value.applyAsLong(counted) - (before == null ? 0 : value.applyAsLong(before));
+  }
+
+  /* usage that is in use is reconciled every reconcile interval */
+  private void removeIdle() {
+    long idleBefore = System.currentTimeMillis() - 2 * reconcileIntervalMillis;
+    usages.keySet().forEach(key ->
+        usages.computeIfPresent(key, (k, policyUsages) -> policyUsages.withoutIdle(idleBefore)));
+  }
+
+  private static String key(String userId, String collectionId, String apiPath) {
+    return userId + " " + collectionId + " " + apiPath;
+  }
+
+  /** API hits and data usage since the issued-at time of a policy. */
+  public static final class Usage implements Shareable {
+    private final long apiHits;
+    private final long dataUsage;
+    /* time the usage was last read from the metering table */
+    private final long seededAt;
+
+    private Usage(long apiHits, long dataUsage, long seededAt) {
+      this.apiHits = apiHits;
+      this.dataUsage = dataUsage;
+      this.seededAt = seededAt;
+    }
+
+    public long getApiHits() {
+      return apiHits;
+    }
+
+    /**
+     * @return the sum of the response sizes in bytes
+     */
+    public long getDataUsage() {
+      return dataUsage;
+    }
+  }
+
+  /* immutable, so that it can be held in a LocalMap, the usage of a user, collection and API path
+   * by policy issued-at time */
+  private static final class PolicyUsages implements Shareable {
+    private final Map<Long, Usage> byPolicyIssuedAt;
+
+    private PolicyUsages(Map<Long, Usage> byPolicyIssuedAt) {
+      this.byPolicyIssuedAt = Collections.unmodifiableMap(byPolicyIssuedAt);
+    }
+
+    private Usage get(long policyIssuedAt) {
+      return byPolicyIssuedAt.get(policyIssuedAt);
+    }
+
+    private PolicyUsages put(long policyIssuedAt, Usage usage) {
+      Map<Long, Usage> updated = new HashMap<>(byPolicyIssuedAt);
+      updated.put(policyIssuedAt, usage);
+      return new PolicyUsages(updated);
+    }
+
+    private PolicyUsages add(long apiHits, long dataUsage) {
+      Map<Long, Usage> updated = new HashMap<>();
+      byPolicyIssuedAt.forEach((policyIssuedAt, usage) -> updated.put(policyIssuedAt,
+          new Usage(usage.apiHits + apiHits, usage.dataUsage + dataUsage, usage.seededAt)));
+      return new PolicyUsages(updated);
+    }
+
+    /* null if all usage is idle, so that the entry is removed */
+    private PolicyUsages withoutIdle(long idleBefore) {
+      Map<Long, Usage> updated = new HashMap<>(byPolicyIssuedAt);
+      updated.values().removeIf(usage -> usage.seededAt < idleBefore);
+      return updated.isEmpty() ? null : new PolicyUsages(updated);
+    }
+  }
+}
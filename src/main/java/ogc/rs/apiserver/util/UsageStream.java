@@ -0,0 +1,97 @@
+package ogc.rs.apiserver.util;
+
+import static ogc.rs.common.Constants.ID;
+import static ogc.rs.common.Constants.PROVIDER_ID;
+import static ogc.rs.common.Constants.RESOURCE_GROUP;
+import static ogc.rs.common.Constants.RESPONSE_SIZE;
+import static ogc.rs.common.Constants.USAGE_STREAM_ADDRESS;
+import static ogc.rs.common.Constants.USER_ID;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts the API hits and data usage of the metering records of a verticle instance and publishes
+ * them on {@link ogc.rs.common.Constants#USAGE_STREAM_ADDRESS} once per publish interval, for the
+ * usage stream API. Usage is counted per provider, user and resource, and only the usage since the
+ * previous publish is published, as a {@link JsonArray} of JSON objects with the
+ * <code>providerId</code>, <code>userid</code>, <code>id</code> and <code>resourceGroup</code> of
+ * the metering message and the <code>api_hits</code> and <code>data_usage</code>. Nothing is
+ * published when there was no usage. A metering record with a response size of 0 is not an API hit.
+ *
+ * <p>Usage is published by a periodic timer registered on the context of the verticle instance
+ * that creates the stream and never cancelled. Records must be counted from that context.
+ */
+public class UsageStream {
+  public static final String API_HITS = "api_hits";
+  public static final String DATA_USAGE = "data_usage";
+  private static final int DEFAULT_USAGE_STREAM_INTERVAL_MS = 1000;
+
+  private final Vertx vertx;
+  private Map<String, JsonObject> usage = new HashMap<>();
+
+  /**
+   * @param vertx the Vertx instance
+   * @param publishIntervalMillis how often usage is published
+   */
+  public UsageStream(Vertx vertx, long publishIntervalMillis) {
+    this.vertx = vertx;
+
+    vertx.setPeriodic(publishIntervalMillis, id -> publish());
+  }
+
+  /**
+   * Create a usage stream configured by <code>usageStreamIntervalMs</code>.
+   *
+   * @param vertx the Vertx instance
+   * @param config config of the API server verticle
+   * @return the usage stream
+   */
+  public static UsageStream create(Vertx vertx, JsonObject config) {
+    return new UsageStream(vertx,
+        config.getInteger("usageStreamIntervalMs", DEFAULT_USAGE_STREAM_INTERVAL_MS));
+  }
+
+  /**
+   * Count a metering record.
+   *
+   * @param message the message for RMQ of the metering record, as for
+   *     {@link ogc.rs.metering.MeteringService#insertMeteringValuesInRmq(JsonObject)}
+   */
+  public void record(JsonObject message) {
+    String providerId = message.getString(PROVIDER_ID);
+    String userId = message.getString(USER_ID);
+    String resourceId = message.getString(ID);
+    long responseSize = message.getLong(RESPONSE_SIZE, 0L);
+
+    JsonObject counted =
+        usage.computeIfAbsent(
+            providerId + " " + userId + " " + resourceId,
+            key ->
+                new JsonObject()
+                    .put(PROVIDER_ID, providerId)
+                    .put(USER_ID, userId)
+                    .put(ID, resourceId)
+                    .put(RESOURCE_GROUP, message.getString(RESOURCE_GROUP))
+                    .put(API_HITS, 0L)
+                    .put(DATA_USAGE, 0L));
+
+    counted
+        .put(API_HITS, counted.getLong(API_HITS) + (responseSize > 0 ? 1 : 0))
+        .put(DATA_USAGE, counted.getLong(DATA_USAGE) + responseSize);
+  }
+
+  private void publish() {
+    if (usage.isEmpty()) {
+      return;
+    }
+    JsonArray published = new JsonArray();
+    usage.values().forEach(published::add);
+    usage = new HashMap<>();
+
+    vertx.eventBus().publish(USAGE_STREAM_ADDRESS, published);
+  }
+}
@@ -0,0 +1,79 @@
+package ogc.rs.apiserver.util;
+
+import io.vertx.core.json.JsonArray;
+import java.util.function.Predicate;
+
+/**
+ * Helpers for vector tiles generated on the fly from OGC feature collections. Tiles are generated in
+ * the WebMercatorQuad tile matrix set only, since its tile bounds can be computed by PostGIS
+ * (<code>ST_TileEnvelope</code>) without a tile matrix definition.
+ *
+ * <p>Generated tiles are held in the {@link TileCache} under keys of the form
+ * <code>mvt/{collectionId}/WebMercatorQuad/{tileMatrix}/{tileCol}/{tileRow}</code>, so that the
+ * tiles of a collection that fall in a changed extent can be found and removed.
+ */
+public final class VectorTiles {
+
+  public static final String TILE_MATRIX_SET = "WebMercatorQuad";
+  public static final int MAX_TILE_MATRIX = 24;
+  private static final String CACHE_KEY_PREFIX = "mvt/";
+
+  private VectorTiles() {}
+
+  /**
+   * Check if a tile lies within the tile matrix, i.e. both its row and column are less than the
+   * matrix width and height of 2<sup>tileMatrix</sup>.
+   */
+  public static boolean isInTileMatrix(int tileMatrix, int tileRow, int tileCol) {
+    if (tileMatrix < 0 || tileMatrix > MAX_TILE_MATRIX) {
+      return false;
+    }
+    long matrixSize = 1L << tileMatrix;
+    return tileRow >= 0 && tileRow < matrixSize && tileCol >= 0 && tileCol < matrixSize;
+  }
+
+  public static String cacheKey(String collectionId, int tileMatrix, int tileRow, int tileCol) {
+    return CACHE_KEY_PREFIX + collectionId + "/" + TILE_MATRIX_SET + "/" + tileMatrix + "/" + tileCol
+        + "/" + tileRow;
+  }
+
+  /**
+   * Get a predicate matching the cache keys of the tiles of a collection that intersect an extent.
+   *
+   * @param collectionId the collection ID
+   * @param bbox the extent as [minLon, minLat, maxLon, maxLat] in CRS84
+   * @return predicate over tile cache keys
+   */
+  public static Predicate<String> cacheKeysInExtent(String collectionId, JsonArray bbox) {
+    String prefix = CACHE_KEY_PREFIX + collectionId + "/" + TILE_MATRIX_SET + "/";
+    double minLon = bbox.getDouble(0);
+    double minLat = bbox.getDouble(1);
+    double maxLon = bbox.getDouble(2);
+    double maxLat = bbox.getDouble(3);
+
+    return key -> {
+      if (!key.startsWith(prefix)) {
+        return false;
+      }
+      String[] coordinates = key.substring(prefix.length()).split("/");
+      int tileMatrix = Integer.parseInt(coordinates[0]);
+      int tileCol = Integer.parseInt(coordinates[1]);
+      int tileRow = Integer.parseInt(coordinates[2]);
+
+      // tile rows increase southwards, so the top edge of a tile is its max latitude
+      return tileLon(tileCol, tileMatrix) <= maxLon
+          && tileLon(tileCol + 1, tileMatrix) >= minLon
+          && tileLat(tileRow + 1, tileMatrix) <= maxLat
+          && tileLat(tileRow, tileMatrix) >= minLat;
+    };
+  }
+
+  private static double tileLon(int tileCol, int tileMatrix) {
+    return tileCol / Math.pow(2, tileMatrix) * 360.0 - 180.0;
+  }
+
+  private static double tileLat(int tileRow, int tileMatrix) {
+    double n = Math.PI * (1 - 2 * tileRow / Math.pow(2, tileMatrix));
+    return Math.toDegrees(Math.atan(Math.sinh(n)));
+  }
+}
@@ -0,0 +1,95 @@
+package ogc.rs.apiserver.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Bounded, least-recently-used cache of the users of JWTs whose signature and claims have been
+ * verified, so that a token reused by a client is not verified and parsed again on every request.
+ * Tokens are keyed by their SHA-256 hash, so that the cache does not hold the tokens themselves. An
+ * entry expires when its token expires or after a TTL, whichever is first.
+ */
+public class VerifiedTokenCache {
+
+  private final long ttlMillis;
+  private final boolean isExpiryIgnored;
+  private final Map<String, CachedUser> users;
+
+  /**
+   * @param maxEntries maximum number of tokens held, the least recently used token is evicted first
+   * @param ttlMillis maximum age of a cached token
+   * @param isExpiryIgnored true if the <code>exp</code> of tokens is not checked, then only the TTL
+   *     applies
+   */
+  public VerifiedTokenCache(int maxEntries, long ttlMillis, boolean isExpiryIgnored) {
+    this.ttlMillis = ttlMillis;
+    this.isExpiryIgnored = isExpiryIgnored;
+    this.users =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, CachedUser> eldest) {
+            return size() > maxEntries;
+          }
+        };
+  }
+
+  /**
+   * Get a copy of the user of a verified token, so that the caller is free to modify it.
+   *
+   * @param token the JWT
+   * @return the user if the token is cached and has not expired
+   */
+  public Optional<AuthInfo> get(String token) {
+    String key = hash(token);
+    CachedUser cached = users.get(key);
+
+    if (cached == null) {
+      return Optional.empty();
+    }
+    if (System.currentTimeMillis() >= cached.expiresAt) {
+      users.remove(key);
+      return Optional.empty();
+    }
+    return Optional.of(cached.user.copy());
+  }
+
+  /**
+   * Cache the user of a token that has been verified.
+   *
+   * @param token the JWT
+   * @param user the user created from the token, a copy is cached
+   */
+  public void put(String token, AuthInfo user) {
+    long expiresAt = System.currentTimeMillis() + ttlMillis;
+    if (!isExpiryIgnored && user.getExpiry() > 0) {
+      expiresAt = Math.min(expiresAt, user.getExpiry() * 1000);
+    }
+    users.put(hash(token), new CachedUser(user.copy(), expiresAt));
+  }
+
+  private static String hash(String token) {
+    try {
+      byte[] digest =
+          MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+      return Base64.getEncoder().encodeToString(digest);
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform supports SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static final class CachedUser {
+    private final AuthInfo user;
+    private final long expiresAt;
+
+    private CachedUser(AuthInfo user, long expiresAt) {
+      this.user = user;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
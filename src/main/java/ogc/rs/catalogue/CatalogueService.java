@@ -10,6 +10,9 @@ import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.ext.web.client.WebClientOptions;
 import io.vertx.ext.web.client.predicate.ResponsePredicate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import ogc.rs.apiserver.util.OgcException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -22,6 +25,16 @@ public class CatalogueService {
   final String catBasePath;
   final String path;
 
+  private static final int DEFAULT_CAT_ITEM_CACHE_SIZE = 10000;
+  private static final int DEFAULT_CAT_ITEM_CACHE_TTL_SEC = 300;
+  private static final int DEFAULT_CAT_ITEM_CACHE_MISS_TTL_SEC = 30;
+  private final long itemTtlMillis;
+  private final long itemMissTtlMillis;
+  /* least recently used items are evicted first, a null item is one that doesn't exist */
+  private final Map<String, CachedItem> items;
+  /* item ID -> catalogue call in progress */
+  private final Map<String, Future<JsonObject>> itemFetches = new HashMap<>();
+
   public CatalogueService(Vertx vertx, JsonObject config) {
     WebClientOptions options = new WebClientOptions();
     options.setTrustAll(false).setVerifyHost(true).setSsl(true);
@@ -30,10 +43,73 @@ public class CatalogueService {
     port = config.getInteger("catServerPort");
     this.catBasePath = config.getString("dxCatalogueBasePath");
     this.path = catBasePath + CAT_SEARCH_PATH;
+
+    int itemCacheSize = config.getInteger("catItemCacheSize", DEFAULT_CAT_ITEM_CACHE_SIZE);
+    this.itemTtlMillis =
+        config.getInteger("catItemCacheTtlSec", DEFAULT_CAT_ITEM_CACHE_TTL_SEC) * 1000L;
+    this.itemMissTtlMillis =
+        config.getInteger("catItemCacheMissTtlSec", DEFAULT_CAT_ITEM_CACHE_MISS_TTL_SEC) * 1000L;
+    this.items =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, CachedItem> eldest) {
+            return size() > itemCacheSize;
+          }
+        };
   }
 
+  /**
+   * Get a catalogue item. Items are cached for <code>catItemCacheTtlSec</code> and refreshed in the
+   * background when they are requested during the last quarter of their TTL, so that a requested
+   * item is rarely fetched on the request's path. Items that don't exist in the catalogue are cached
+   * for <code>catItemCacheMissTtlSec</code>. Concurrent requests for an item that is not cached share
+   * one catalogue call. Failed catalogue calls are not cached, a cached item that fails to be
+   * refreshed is served until it expires.
+   *
+   * @param id the ID of the item
+   * @return future of the item, failed if the item doesn't exist or the catalogue call failed
+   */
   public Future<JsonObject> getCatItem(String id) {
     LOGGER.debug("get item for id: {} ", id);
+    CachedItem cached = items.get(id);
+    long now = System.currentTimeMillis();
+
+    Future<JsonObject> item;
+    if (cached != null && now < cached.expiresAt) {
+      if (cached.item != null && now >= cached.refreshAt) {
+        fetchCatItemOnce(id)
+            .onFailure(err -> LOGGER.warn("Failed to refresh catalogue item {} - {}", id,
+                err.getMessage()));
+      }
+      item = Future.succeededFuture(cached.item);
+    } else {
+      item = fetchCatItemOnce(id);
+    }
+
+    return item.compose(found -> found == null
+        ? Future.failedFuture("catalogue call search api failed")
+        : Future.succeededFuture(found.copy()));
+  }
+
+  /* completes with null if the item doesn't exist in the catalogue */
+  private Future<JsonObject> fetchCatItemOnce(String id) {
+    Future<JsonObject> inProgress = itemFetches.get(id);
+    if (inProgress != null) {
+      return inProgress;
+    }
+
+    Future<JsonObject> fetched = fetchCatItem(id)
+        .onSuccess(item -> {
+          long fetchedAt = System.currentTimeMillis();
+          long ttlMillis = item == null ? itemMissTtlMillis : itemTtlMillis;
+          items.put(id, new CachedItem(item, fetchedAt + ttlMillis * 3 / 4, fetchedAt + ttlMillis));
+        });
+    itemFetches.put(id, fetched);
+    fetched.onComplete(done -> itemFetches.remove(id, fetched));
+    return fetched;
+  }
+
+  private Future<JsonObject> fetchCatItem(String id) {
     Promise<JsonObject> promise = Promise.promise();
 
     catWebClient
@@ -55,6 +131,9 @@ public class CatalogueService {
                     relHandler.result().bodyAsJsonObject().getJsonArray("results");
                 JsonObject response = resultArray.getJsonObject(0);
                 promise.complete(response);
+              } else if (relHandler.succeeded()) {
+                LOGGER.debug("Item " + id + " doesn't exist in catalogue");
+                promise.complete(null);
               } else {
                 LOGGER.debug("catalogue call search api failed: " + relHandler.cause());
                 promise.fail("catalogue call search api failed");
@@ -101,4 +180,16 @@ public class CatalogueService {
 
         return promise.future();
     }
+
+    private static final class CachedItem {
+        private final JsonObject item;
+        private final long refreshAt;
+        private final long expiresAt;
+
+        private CachedItem(JsonObject item, long refreshAt, long expiresAt) {
+            this.item = item;
+            this.refreshAt = refreshAt;
+            this.expiresAt = expiresAt;
+        }
+    }
 }
@@ -2,6 +2,7 @@ package ogc.rs.common;
 
 import ogc.rs.apiserver.util.ProcessException;
 
+import java.util.List;
 import java.util.Set;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
@@ -14,10 +15,26 @@ public class Constants {
     public static final String METERING_SERVICE_ADDRESS = "ogc.rs.metering.service";
     public static final String PROCESSING_SERVICE_ADDRESS = "ogc.rs.processes.service";
     public static final String JOBS_SERVICE_ADDRESS = "ogc.rs.jobs.service";
+
+    /* event bus addresses for cache invalidation, messages are published to all instances */
+    public static final String STAC_METADATA_CHANGED_ADDRESS = "ogc.rs.stac.metadata.changed";
+    public static final String STAC_ITEM_CHANGED_ADDRESS = "ogc.rs.stac.item.changed";
+    public static final String FEATURES_APPENDED_ADDRESS = "ogc.rs.features.appended";
+    public static final String TILE_MATRIX_SETS_CHANGED_ADDRESS = "ogc.rs.tilematrixsets.changed";
+    public static final String AUTHZ_METADATA_CHANGED_ADDRESS = "ogc.rs.authz.metadata.changed";
+    /* usage metered by the API servers, published to all instances for the usage stream */
+    public static final String USAGE_STREAM_ADDRESS = "ogc.rs.metering.usage";
     public static final String DEFAULT_SERVER_CRS = "http://www.opengis.net/def/crs/OGC/1.3/CRS84";
     public static final Integer DEFAULT_CRS_SRID = 4326;
     public static final Set<String> WELL_KNOWN_QUERY_PARAMETERS =
         Set.of("limit", "bbox", "datetime", "offset", "bbox-crs", "crs");
+    /* aggregations supported by STAC Item Search aggregation, the first 3 produce a single value */
+    public static final List<String> STAC_AGGREGATIONS = List.of("total_count", "datetime_min",
+        "datetime_max", "collection_frequency", "datetime_frequency", "cloud_cover_frequency");
+    public static final Set<String> STAC_AGGREGATION_SINGLE_VALUES =
+        Set.of("total_count", "datetime_min", "datetime_max");
+    public static final List<String> STAC_AGGREGATION_DATETIME_INTERVALS =
+        List.of("year", "month", "week", "day", "hour");
     public static final String UUID_REGEX = "^[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}$";
 
     public static final String OAS_BEARER_SECURITY_SCHEME = "DX-AAA-Token";
@@ -54,4 +71,7 @@ public class Constants {
       new ProcessException(500, INTERNAL_SERVER_ERROR, INTERNAL_SERVER_ERROR);
   public static final String INVALID_ENDPOINT_ERROR = "API / Collection not found";
   public static final int METERING_UPDATE_PERIOD = 60000;
+  /* a batched metering record holds the metering table row and the RMQ message */
+  public static final String METERING_ROW = "meteringRow";
+  public static final String METERING_MESSAGE = "meteringMessage";
 }
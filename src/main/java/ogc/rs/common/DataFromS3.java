@@ -6,6 +6,7 @@ import io.vertx.core.Promise;
 import io.vertx.core.http.HttpClient;
 import io.vertx.core.http.HttpClientResponse;
 import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.http.RequestOptions;
 import ogc.rs.apiserver.util.OgcException;
 import ogc.rs.common.awss3.AWS4SignerBase;
@@ -16,11 +17,18 @@ import org.apache.logging.log4j.Logger;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class DataFromS3 {
 
   private static final Logger LOGGER = LogManager.getLogger(DataFromS3.class);
+  /* client request headers that are forwarded to S3 for conditional and range requests */
+  private static final List<String> FORWARDED_REQUEST_HEADERS =
+      List.of("Range", "If-Range", "If-None-Match", "If-Modified-Since");
+  /* S3 response headers that are passed through to the client */
+  private static final List<String> PASSED_THROUGH_RESPONSE_HEADERS = List.of("ETag",
+      "Last-Modified", "Cache-Control", "Accept-Ranges", "Content-Range", "Content-Length");
   private static HttpClient client;
 
   private String s3Url;
@@ -30,6 +38,7 @@ public class DataFromS3 {
   static String S3_SECRET_KEY;
   private final Map<String, String> headers;
   private URL url;
+  private boolean isNotFoundExpected;
 
   public DataFromS3(HttpClient client, S3Config config) {
     S3_BUCKET = config.getBucket();
@@ -58,10 +67,18 @@ public class DataFromS3 {
         .compose(req -> req.send())
         .onSuccess(res -> {
           if (res.statusCode() == 404) {
-            LOGGER.error("FILE not found {}",url.toString());
+            if (isNotFoundExpected) {
+              LOGGER.debug("FILE not found {}", url.toString());
+            } else {
+              LOGGER.error("FILE not found {}",url.toString());
+            }
             response.fail(new OgcException(404, "Not Found", "File not found."));
-          } else if (res.statusCode() == 200) {
+          } else if (res.statusCode() == 200 || res.statusCode() == 206
+              || res.statusCode() == 304) {
             response.complete(res);
+          } else if (res.statusCode() == 416) {
+            response.fail(new OgcException(416, "Range Not Satisfiable",
+                "Requested range is not satisfiable."));
           } else {
             LOGGER.error("Internal Server Error, Something went wrong here. {},{},{},{}",res.statusCode(),httpMethod,url.toString(),res.body().result().toString());
             response.fail(new OgcException(500, "Internal Server Error", "Internal Server Error"));
@@ -78,6 +95,60 @@ public class DataFromS3 {
     return response.future();
   }
 
+  /**
+   * Set whether a missing object is an expected outcome, e.g. for tiles where a missing tile is an
+   * empty tile, so that it is not logged as an error.
+   *
+   * @param isNotFoundExpected true if a 404 from S3 is expected
+   */
+  public void setNotFoundExpected(boolean isNotFoundExpected) {
+    this.isNotFoundExpected = isNotFoundExpected;
+  }
+
+  /**
+   * Forward the conditional and range headers of a client request to S3, i.e. <code>Range</code>,
+   * <code>If-Range</code>, <code>If-None-Match</code> and <code>If-Modified-Since</code>. Must be
+   * called before {@link #setSignatureHeader(HttpMethod)} since the headers are signed.
+   *
+   * @param clientRequestHeaders headers of the client request
+   */
+  public void setForwardedRequestHeaders(MultiMap clientRequestHeaders) {
+    FORWARDED_REQUEST_HEADERS.forEach(name -> {
+      String value = clientRequestHeaders.get(name);
+      if (value != null) {
+        headers.put(name, value);
+      }
+    });
+  }
+
+  /**
+   * Send an S3 response to the client, keeping the status code (200, 206 or 304) and the
+   * validator, caching and range headers. The body, if any, is streamed.
+   *
+   * @param s3Response response from {@link #getDataFromS3(HttpMethod)}
+   * @param response the response to the client
+   * @return future completed once the response has ended
+   */
+  public static Future<Void> pipeToClient(HttpClientResponse s3Response,
+      HttpServerResponse response) {
+    response.setStatusCode(s3Response.statusCode());
+    PASSED_THROUGH_RESPONSE_HEADERS.forEach(name -> {
+      String value = s3Response.getHeader(name);
+      if (value != null) {
+        response.putHeader(name, value);
+      }
+    });
+
+    if (s3Response.statusCode() == 304) {
+      response.setChunked(false).headers().remove("Content-Length");
+      return response.end();
+    }
+
+    // stream with the length given by S3 if known, chunked otherwise
+    response.setChunked(s3Response.getHeader("Content-Length") == null);
+    return s3Response.pipeTo(response);
+  }
+
   public void setSignatureHeader (HttpMethod httpMethod) {
     headers.put("x-amz-content-sha256", AWS4SignerBase.EMPTY_BODY_SHA256);
     AWS4SignerForAuthorizationHeader signer =
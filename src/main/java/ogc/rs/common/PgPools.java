@@ -0,0 +1,75 @@
+package ogc.rs.common;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.pgclient.PgConnectOptions;
+import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.PoolOptions;
+
+/**
+ * Registry of the Postgres connection pools of the server, one per workload. A pool is shared by
+ * all verticle instances that get the pool of the same name, so the number of connections a
+ * workload opens is the size of its pool, whatever the number of verticle instances. A shared pool
+ * is closed once all verticle instances using it are undeployed.
+ *
+ * <p>The size of a pool is <code>poolSize</code> and the max number of requests waiting for a
+ * connection is <code>poolMaxWaitQueueSize</code> (unbounded by default), both from the config of
+ * the verticle that uses the pool. When Vert.x metrics are enabled, see
+ * {@link ogc.rs.deploy.Deployer#getMetricsOptions()}, each pool reports the <code>vertx_pool_*</code>
+ * metrics tagged with <code>pool_type="sql"</code> and its name as <code>pool_name</code>, e.g.
+ * <code>vertx_pool_queue_pending</code> for the requests waiting for a connection,
+ * <code>vertx_pool_queue_time</code>, <code>vertx_pool_in_use</code> and
+ * <code>vertx_pool_usage</code>.
+ */
+public final class PgPools {
+  /** Pool of the OGC DB used by the database verticle to serve the APIs. */
+  public static final String OGC_DB_POOL = "ogc-db";
+  /** Pool of the OGC DB used by the process verticle to run processes. */
+  public static final String PROCESSES_POOL = "ogc-db-processes";
+  /** Pool of the OGC DB used by the jobs verticle. */
+  public static final String JOBS_POOL = "ogc-db-jobs";
+  /** Pool of the OGC DB used by the metering verticle to write the metering table. */
+  public static final String METERING_POOL = "ogc-db-metering";
+  /** Pool of the metering DB used by the metering verticle for the metering APIs. */
+  public static final String METERING_DB_POOL = "metering-db";
+
+  private PgPools() {}
+
+  /**
+   * Get the shared pool of a workload, creating it on first use.
+   *
+   * @param vertx the Vertx instance
+   * @param name name of the pool, one of the names defined in this class
+   * @param connectOptions options to connect to the DB, used by the first call
+   * @param config config of the verticle, with <code>poolSize</code> and optionally
+   *     <code>poolMaxWaitQueueSize</code>, used by the first call
+   * @return the pool
+   */
+  public static PgPool get(Vertx vertx, String name, PgConnectOptions connectOptions,
+      JsonObject config) {
+    return get(vertx, name, connectOptions, config.getInteger("poolSize"), config);
+  }
+
+  /**
+   * Get the shared pool of a workload, creating it on first use, for verticles that use several
+   * pools sized independently.
+   *
+   * @param vertx the Vertx instance
+   * @param name name of the pool, one of the names defined in this class
+   * @param connectOptions options to connect to the DB, used by the first call
+   * @param poolSize max number of connections of the pool, used by the first call
+   * @param config config of the verticle, with optionally <code>poolMaxWaitQueueSize</code>, used
+   *     by the first call
+   * @return the pool
+   */
+  public static PgPool get(Vertx vertx, String name, PgConnectOptions connectOptions,
+      int poolSize, JsonObject config) {
+    PoolOptions poolOptions =
+        new PoolOptions()
+            .setName(name)
+            .setShared(true)
+            .setMaxSize(poolSize)
+            .setMaxWaitQueueSize(config.getInteger("poolMaxWaitQueueSize", -1));
+    return PgPool.pool(vertx, connectOptions, poolOptions);
+  }
+}
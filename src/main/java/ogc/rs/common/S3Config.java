@@ -26,6 +26,12 @@ public class S3Config {
   private S3BucketReadAccess readAccess;
 
   private Boolean pathBasedAccess;
+
+  private boolean presignedRedirect;
+  private Integer presignedRedirectExpirySec;
+
+  /* default validity of pre-signed URLs used for redirects */
+  private static final int DEFAULT_PRESIGNED_REDIRECT_EXPIRY_SEC = 300;
   
   /**
    * Returns the configured bucket name.
@@ -95,6 +101,34 @@ public class S3Config {
     return endpoint.startsWith("https://");
   }
 
+  /**
+   * Returns whether authorized downloads from this bucket are answered with a redirect to a
+   * short-lived pre-signed URL instead of being streamed through the server. Defaults to false.
+   *
+   * @return if downloads are redirected
+   */
+  public boolean isPresignedRedirect() {
+    return presignedRedirect;
+  }
+
+  /**
+   * Returns the validity in seconds of the pre-signed URLs used for redirects. Defaults to 300.
+   *
+   * @return validity of the pre-signed URLs in seconds
+   */
+  public Integer getPresignedRedirectExpirySec() {
+    return presignedRedirectExpirySec != null ? presignedRedirectExpirySec
+        : DEFAULT_PRESIGNED_REDIRECT_EXPIRY_SEC;
+  }
+
+  public void setPresignedRedirect(boolean presignedRedirect) {
+    this.presignedRedirect = presignedRedirect;
+  }
+
+  public void setPresignedRedirectExpirySec(Integer presignedRedirectExpirySec) {
+    this.presignedRedirectExpirySec = presignedRedirectExpirySec;
+  }
+
   public Boolean getPathBasedAccess() {
     return pathBasedAccess;
   }
@@ -28,6 +28,8 @@ public class S3ConfigsHolder {
   private static final String SECRET_KEY_CONF_OP = "secretKey";
   private static final String READ_ACCESS_CONF_OP = "readAccess";
   private static final String PATH_BASED_ACC_CONF_OP = "pathBasedAccess";
+  private static final String PRESIGNED_REDIRECT_CONF_OP = "presignedRedirect";
+  private static final String PRESIGNED_REDIRECT_EXPIRY_CONF_OP = "presignedRedirectExpirySec";
 
   private JsonObject configs;
   /**
@@ -141,6 +143,19 @@ public class S3ConfigsHolder {
           + identifier + "' : " + PATH_BASED_ACC_CONF_OP + " is not a boolean");
     }
 
+    if (obj.containsKey(PRESIGNED_REDIRECT_CONF_OP)
+        && !(obj.getValue(PRESIGNED_REDIRECT_CONF_OP) instanceof Boolean)) {
+      throw new IllegalArgumentException("Failed to initialize S3 config for identifier '"
+          + identifier + "' : " + PRESIGNED_REDIRECT_CONF_OP + " is not a boolean");
+    }
+
+    if (obj.containsKey(PRESIGNED_REDIRECT_EXPIRY_CONF_OP)
+        && (!(obj.getValue(PRESIGNED_REDIRECT_EXPIRY_CONF_OP) instanceof Integer)
+            || obj.getInteger(PRESIGNED_REDIRECT_EXPIRY_CONF_OP) <= 0)) {
+      throw new IllegalArgumentException("Failed to initialize S3 config for identifier '"
+          + identifier + "' : " + PRESIGNED_REDIRECT_EXPIRY_CONF_OP + " is not a positive integer");
+    }
+
     try {
       S3BucketReadAccess.valueOf(obj.getString(READ_ACCESS_CONF_OP));
     } catch (IllegalArgumentException e) {
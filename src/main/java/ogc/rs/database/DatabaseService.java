@@ -5,6 +5,7 @@ import io.vertx.codegen.annotations.ProxyGen;
 import io.vertx.codegen.annotations.VertxGen;
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import ogc.rs.apiserver.util.Limits;
@@ -36,18 +37,12 @@ public interface DatabaseService {
 
     Future<JsonObject> getStacCollection(String collectionId);
 
-    Future<List<JsonObject>> getTileMatrixSets();
-
     Future<List<JsonObject>> getStacItems(String collectionId, int limit, int offset);
 
     Future<JsonObject> getStacItemById(String collectionId, String stacItemId);
 
     Future<List<JsonObject>> getTileMatrixSetMetaData(String tileMatrixSet);
 
-    Future<List<JsonObject>> getTileMatrixSetRelation(String collectionId);
-
-    Future<List<JsonObject>> getTileMatrixSetRelationOverload(String collectionId, String tileMatrixSetId);
-
     Future<JsonObject> getAssets(String assetId);
 
     Future<JsonObject> getProcesses(int limit);
@@ -119,6 +114,18 @@ public interface DatabaseService {
      */
     Future<JsonObject> stacItemSearch(StacItemSearchParams params);
 
+    /**
+     * Compute STAC Item Search aggregations over all items matching the filters in
+     * {@link StacItemSearchParams}, in one query. Limit and offset are not used.
+     *
+     * @param params contains the STAC Item Search filters
+     * @param aggregations names of the aggregations to compute, in the order to be returned
+     * @param datetimeInterval interval used to bucket <code>datetime_frequency</code>
+     * @return STAC <code>AggregationCollection</code> JSON without links
+     */
+    Future<JsonObject> stacItemAggregate(StacItemSearchParams params, List<String> aggregations,
+        String datetimeInterval);
+
 
     /**
      * Create STAC collection by inserting the items in following order.
@@ -191,6 +198,48 @@ public interface DatabaseService {
      */
     Future<String> getTileS3BucketId(String collectionId, String tileMatrixSetId);
 
+    /**
+     * Get all tile matrix set definitions from <code>tms_metadata</code> and all tile sets of
+     * collections from <code>tilematrixsets_relation</code>, to be held in memory by the API server.
+     *
+     * @return JsonObject with the tile matrix sets in <code>tileMatrixSets</code> and the tile sets,
+     *     along with their data type and S3 bucket ID, in <code>tileSets</code>
+     */
+    Future<JsonObject> getTileMatrixSetDefinitions();
+
+    /**
+     * Get the GeoTIFF enclosure of a collection, from which map tiles can be rendered if the
+     * collection has no pre-generated map tiles.
+     *
+     * @param collectionId the collection ID
+     * @return JsonObject with the <code>href</code> and <code>s3_bucket_id</code> of the GeoTIFF,
+     *     empty if the collection has none
+     */
+    Future<JsonObject> getRasterTileSource(String collectionId);
+
+    /**
+     * Get the title of a process, used to authorize its execution.
+     *
+     * @param processId the process ID
+     * @return the title of the process, fails with a 404 {@link ogc.rs.apiserver.util.OgcException}
+     *     if the process does not exist
+     */
+    Future<String> getProcessTitle(String processId);
+
+    /**
+     * Generate a Mapbox vector tile of an OGC feature collection in the WebMercatorQuad tile matrix
+     * set from the features in the DB. The bbox and feature limits of the token are applied.
+     *
+     * @param collectionId the collection ID
+     * @param tileMatrix the tile matrix (zoom level)
+     * @param tileRow the tile row
+     * @param tileCol the tile column
+     * @param limits limits of the token, can be null
+     * @return Buffer the tile, empty if no feature falls in the tile
+     */
+    Future<Buffer> getVectorTile(String collectionId, Integer tileMatrix, Integer tileRow,
+        Integer tileCol, Limits limits);
+
     Future<List<JsonObject>> deleteStacItem(String collectionId, String itemId);
 
 }
@@ -5,6 +5,7 @@ import static ogc.rs.database.util.Constants.PROCESSES_TABLE_NAME;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.pgclient.PgPool;
@@ -599,32 +600,6 @@ public class DatabaseServiceImpl implements DatabaseService{
     return result.future();
   }
 
-  @Override
-  public Future<List<JsonObject>> getTileMatrixSets() {
-    LOGGER.info("getTileMatrixSets");
-    Promise<List<JsonObject>> result = Promise.promise();
-    Collector<Row, ?, List<JsonObject>> collector = Collectors.mapping(Row::toJson, Collectors.toList());
-    client.withConnection(conn ->
-            conn.preparedQuery("Select title as id, title, uri from tms_metadata")
-                .collecting(collector)
-                .execute()
-                .map(SqlResult::value))
-        .onSuccess(success -> {
-          if (success.isEmpty()) {
-            LOGGER.error("TileMatrixSet_relation table is empty!");
-            result.fail(new OgcException(404, "Not found", "TileMatrixSets (tiling scheme) not found"));
-          } else {
-            LOGGER.debug("TileMatrixSets Result: {}", success.toString());
-            result.complete(success);
-          }
-        })
-        .onFailure(fail -> {
-          LOGGER.error("Failed to getTileMatrixSets(tiling scheme)! - {}", fail.getMessage());
-          result.fail("Error!");
-        });
-    return result.future();
-  }
-
   @Override
   public Future<JsonObject> getStacCollection(String collectionId) {
     LOGGER.info("getFeature");
@@ -731,9 +706,14 @@ public class DatabaseServiceImpl implements DatabaseService{
     String getItemQuery = String.format("select item_table.id, cast(st_asgeojson(item_table.geom) as json) as" +
         " geometry, item_table.bbox, item_table.properties" +
         ", jsonb_agg((row_to_json(stac_items_assets.*)::jsonb-'item_id')) as assetobjects, 'Feature' as type" +
+        // assets are not versioned and may change without the item being updated, so they are hashed
+        ", concat(item_table.p_id, '-', item_table.row_version, '-'" +
+        ", md5(jsonb_agg((row_to_json(stac_items_assets.*)::jsonb-'item_id')" +
+        " order by stac_items_assets.id)::text)) as item_version" +
         ", '%1$s' as collection from \"%1$s\" as item_table left join stac_items_assets" +
         " on item_table.id=stac_items_assets.item_id" +
         " group by item_table.id, item_table.geom, item_table.bbox, item_table.properties, item_table.collection_id" +
+        ", item_table.p_id, item_table.row_version" +
         " having item_table.id = $1::text and item_table.collection_id = $2::uuid", collectionId);
     checkIfCollectionExist(collectionId)
         .compose(collectionExist -> client.withConnection(
@@ -767,35 +747,11 @@ public class DatabaseServiceImpl implements DatabaseService{
     Collector<Row, ?, List<JsonObject>> collector =
         Collectors.mapping(Row::toJson, Collectors.toList());
 
-    FeatureQueryBuilder featureQuery = new FeatureQueryBuilder();
+    FeatureQueryBuilder featureQuery = createItemSearchQueryBuilder(params);
 
     featureQuery.setLimit(params.getLimit());
     featureQuery.setOffset(params.getOffset());
 
-    if (!params.getBbox().isEmpty()) {
-      featureQuery.setBboxCrsSrid(String.valueOf(DEFAULT_CRS_SRID));
-      featureQuery.setBbox(
-          params.getBbox().stream().map(i -> i.toString()).collect(Collectors.joining(",")),
-          String.valueOf(DEFAULT_CRS_SRID));
-    }
-
-    if (params.getDatetime() != null) {
-      featureQuery.setDatetimeKey(STAC_ITEMS_DATETIME_KEY);
-      featureQuery.setDatetime(params.getDatetime());
-    }
-
-    if (!params.getCollections().isEmpty()) {
-      featureQuery.setStacCollectionIds(params.getCollections().toArray(String[]::new));
-    }
-
-    if (!params.getIds().isEmpty()) {
-      featureQuery.setStacItemIds(params.getIds().toArray(String[]::new));
-    }
-
-    if (params.getIntersects() != null) {
-      featureQuery.setStacIntersectsGeom(params.getIntersects());
-    }
-
     Tuple tuple = Tuple.tuple();
     String builtQuery = featureQuery.buildItemSearchSqlString(tuple);
 
@@ -823,6 +779,110 @@ public class DatabaseServiceImpl implements DatabaseService{
     return result.future();
     }
 
+  @Override
+  public Future<JsonObject> stacItemAggregate(StacItemSearchParams params,
+      List<String> aggregations, String datetimeInterval) {
+    LOGGER.debug("stacItemAggregate");
+
+    Promise<JsonObject> result = Promise.promise();
+
+    FeatureQueryBuilder featureQuery = createItemSearchQueryBuilder(params);
+
+    Tuple tuple = Tuple.tuple();
+    String builtQuery =
+        featureQuery.buildItemAggregationSqlString(tuple, aggregations, datetimeInterval);
+
+    client.withConnection(conn ->
+        conn.preparedQuery(builtQuery).execute(tuple)
+          .onSuccess(rows -> {
+            Map<String, JsonArray> bucketsByName = new HashMap<String, JsonArray>();
+            Map<String, Row> singleValueByName = new HashMap<String, Row>();
+
+            rows.forEach(row -> {
+              String name = row.getString("name");
+              if (STAC_AGGREGATION_SINGLE_VALUES.contains(name)) {
+                singleValueByName.put(name, row);
+                return;
+              }
+              bucketsByName.computeIfAbsent(name, key -> new JsonArray())
+                  .add(new JsonObject()
+                      .put("key", row.getString("key"))
+                      .put("data_type", "datetime_frequency".equals(name) ? "datetime" : "string")
+                      .put("frequency", row.getLong("frequency")));
+            });
+
+            JsonArray aggregationsJson = new JsonArray();
+
+            aggregations.forEach(name -> {
+              if ("total_count".equals(name)) {
+                Row row = singleValueByName.get(name);
+                aggregationsJson.add(new JsonObject()
+                    .put("name", name)
+                    .put("data_type", "integer")
+                    .put("value", row == null ? 0L : row.getLong("frequency")));
+              } else if (STAC_AGGREGATION_SINGLE_VALUES.contains(name)) {
+                Row row = singleValueByName.get(name);
+                aggregationsJson.add(new JsonObject()
+                    .put("name", name)
+                    .put("data_type", "datetime")
+                    .put("value", row == null ? null : row.getString("key")));
+              } else {
+                aggregationsJson.add(new JsonObject()
+                    .put("name", name)
+                    .put("data_type", "frequency_distribution")
+                    .put("overflow", 0)
+                    .put("buckets", bucketsByName.getOrDefault(name, new JsonArray())));
+              }
+            });
+
+            result.complete(new JsonObject()
+                .put("type", "AggregationCollection")
+                .put("aggregations", aggregationsJson));
+          })
+          .onFailure(failed -> {
+            LOGGER.error("Failed at stacItemAggregate- {}", failed.getMessage());
+            result.fail("Error!");
+          }));
+    return result.future();
+  }
+
+  /**
+   * Create a {@link FeatureQueryBuilder} with the STAC Item Search filters in <code>params</code>
+   * set. Limit and offset are left to the caller.
+   *
+   * @param params STAC Item Search params
+   * @return the query builder
+   */
+  private FeatureQueryBuilder createItemSearchQueryBuilder(StacItemSearchParams params) {
+    FeatureQueryBuilder featureQuery = new FeatureQueryBuilder();
+
+    if (!params.getBbox().isEmpty()) {
+      featureQuery.setBboxCrsSrid(String.valueOf(DEFAULT_CRS_SRID));
+      featureQuery.setBbox(
+          params.getBbox().stream().map(i -> i.toString()).collect(Collectors.joining(",")),
+          String.valueOf(DEFAULT_CRS_SRID));
+    }
+
+    if (params.getDatetime() != null) {
+      featureQuery.setDatetimeKey(STAC_ITEMS_DATETIME_KEY);
+      featureQuery.setDatetime(params.getDatetime());
+    }
+
+    if (!params.getCollections().isEmpty()) {
+      featureQuery.setStacCollectionIds(params.getCollections().toArray(String[]::new));
+    }
+
+    if (!params.getIds().isEmpty()) {
+      featureQuery.setStacItemIds(params.getIds().toArray(String[]::new));
+    }
+
+    if (params.getIntersects() != null) {
+      featureQuery.setStacIntersectsGeom(params.getIntersects());
+    }
+
+    return featureQuery;
+  }
+
     @Override
     public Future<JsonObject> postStacCollection(JsonObject jsonObject) {
         LOGGER.debug("Inserting a new collection");
@@ -1113,8 +1173,8 @@ public class DatabaseServiceImpl implements DatabaseService{
     String geometry = stacItem.containsKey("geometry") ? stacItem.getJsonObject("geometry").toString() : null;
     JsonObject properties = stacItem.containsKey("properties") ? stacItem.getJsonObject("properties") : null;
     String updateItemQuery = "UPDATE stac_collections_part SET bbox = COALESCE($3, bbox)," +
-        " geom = COALESCE(st_geomfromgeojson($4), geom), properties = COALESCE($5::jsonb, properties)" +
-        " WHERE id = $1 and collection_id = $2";
+        " geom = COALESCE(st_geomfromgeojson($4), geom), properties = COALESCE($5::jsonb, properties)," +
+        " row_version = row_version + 1 WHERE id = $1 and collection_id = $2";
 
     checkIfCollectionExist(collectionId)
         .compose(collection -> checkIfItemExistForUpdateOrDelete(itemId, collectionId))
@@ -1509,89 +1569,124 @@ public class DatabaseServiceImpl implements DatabaseService{
   }
 
   @Override
-  public Future<List<JsonObject>> getTileMatrixSetRelation(String collectionId) {
-    LOGGER.info("getTileMatrixSetRelation");
-    Promise<List<JsonObject>> result = Promise.promise();
-    Collector<Row, ?, List<JsonObject>> collector = Collectors.mapping(Row::toJson, Collectors.toList());
+  public Future<String> getTileS3BucketId(String collectionId, String tileMatrixSetId) {
+    Promise<String> result = Promise.promise();
     client.withConnection(conn ->
-              conn.preparedQuery("select tmsr.collection_id as collection_id, tms_meta.crs" +
-                      " , tms_meta.title as tilematrixset, tms_meta.uri, ctype.type as datatype" +
-                      " from tilematrixsets_relation as tmsr join tms_metadata as tms_meta" +
-                      " on tmsr.tms_id = tms_meta.id join collection_type as ctype " +
-                      " on ctype.collection_id=tmsr.collection_id where ctype.collection_id = $1::uuid" +
-                      " and (ctype.type = 'VECTOR' or ctype.type = 'MAP')")
-                .collecting(collector)
-                .execute(Tuple.of(collectionId))
+              conn.preparedQuery("SELECT s3_bucket_id FROM tilematrixsets_relation AS tmsr join tms_metadata AS tms_meta" +
+                      " ON tmsr.tms_id = tms_meta.id WHERE collection_id = $1::uuid AND tms_meta.title = $2::text")
+                .execute(Tuple.of(collectionId, tileMatrixSetId))
                 .map(SqlResult::value))
         .onSuccess(success -> {
-          if (success.isEmpty()) {
-            LOGGER.error("TileMatrixSet_relation or collections_details table is empty!");
-            result.fail(new OgcException(404, "Not found", "TileSetList not found"));
+          if (success.rowCount() == 0) {
+            result.fail(new OgcException(404, "Failed to get tile", "Could not get S3 bucket id for collection + TMS"));
           } else {
-            LOGGER.debug("TileSets Result: {}", success.toString());
-            result.complete(success);
+            result.complete(success.iterator().next().getString("s3_bucket_id"));
           }
         })
         .onFailure(fail -> {
-          LOGGER.error("Failed to getTileSetList! - {}", fail.getMessage());
+          LOGGER.error("Failed S3 bucket id for collection + TMS! - {}", fail.getMessage());
           result.fail("Error!");
         });
     return result.future();
-
   }
 
   @Override
-  public Future<List<JsonObject>> getTileMatrixSetRelationOverload(String collectionId, String tileMatrixSetId) {
-    LOGGER.info("getTileMatrixSetRelation<collId,tileMatrixSetId>");
-    Promise<List<JsonObject>> result = Promise.promise();
+  public Future<JsonObject> getTileMatrixSetDefinitions() {
+    LOGGER.info("getTileMatrixSetDefinitions");
     Collector<Row, ?, List<JsonObject>> collector = Collectors.mapping(Row::toJson, Collectors.toList());
-    client.withConnection(conn ->
-              conn.preparedQuery("select tmsr.collection_id as collection_id, tms_meta.crs," +
-                      " tms_meta.title as tilematrixset, tms_meta.title as tilematrixset_title, tms_meta.uri," +
-                      " ctype.type as datatype from tilematrixsets_relation as tmsr join tms_metadata as tms_meta" +
-                      " on tmsr.tms_id = tms_meta.id join collection_type as ctype" +
-                      " on ctype.collection_id=tmsr.collection_id" +
-                      " where ctype.collection_id = $1::uuid and (ctype.type = 'VECTOR' or ctype.type = 'MAP')" +
-                      " and tms_meta.title = $2::text")
+    return client.withConnection(conn ->
+            conn.query("SELECT title AS id, title, uri FROM tms_metadata")
                 .collecting(collector)
-                .execute(Tuple.of(collectionId, tileMatrixSetId))
-                .map(SqlResult::value))
-        .onSuccess(success -> {
-          if (success.isEmpty()) {
-            LOGGER.error("TileMatrixSet_relation or collections_details table is empty!");
-            result.fail(new OgcException(404, "Not found", "TileSetList not found"));
-          } else {
-            LOGGER.debug("TileSets Result: {}", success.toString());
-            result.complete(success);
-          }
-        })
-        .onFailure(fail -> {
-          LOGGER.error("Failed to getTileSetList! - {}", fail.getMessage());
-          result.fail("Error!");
+                .execute()
+                .map(SqlResult::value)
+                .compose(tileMatrixSets ->
+                    conn.query("SELECT tmsr.collection_id AS collection_id, tms_meta.crs," +
+                            " tms_meta.title AS tilematrixset, tms_meta.title AS tilematrixset_title, tms_meta.uri," +
+                            " ctype.type AS datatype, tmsr.s3_bucket_id FROM tilematrixsets_relation AS tmsr" +
+                            " JOIN tms_metadata AS tms_meta ON tmsr.tms_id = tms_meta.id" +
+                            " JOIN collection_type AS ctype ON ctype.collection_id = tmsr.collection_id" +
+                            " WHERE ctype.type = 'VECTOR' OR ctype.type = 'MAP'")
+                        .collecting(collector)
+                        .execute()
+                        .map(SqlResult::value)
+                        .map(tileSets -> new JsonObject()
+                            .put("tileMatrixSets", new JsonArray(tileMatrixSets))
+                            .put("tileSets", new JsonArray(tileSets)))))
+        .recover(fail -> {
+          LOGGER.error("Failed to getTileMatrixSetDefinitions! - {}", fail.getMessage());
+          return Future.failedFuture("Error!");
         });
-    return result.future();
   }
 
   @Override
-  public Future<String> getTileS3BucketId(String collectionId, String tileMatrixSetId) {
-    Promise<String> result = Promise.promise();
-    client.withConnection(conn ->
-              conn.preparedQuery("SELECT s3_bucket_id FROM tilematrixsets_relation AS tmsr join tms_metadata AS tms_meta" +
-                      " ON tmsr.tms_id = tms_meta.id WHERE collection_id = $1::uuid AND tms_meta.title = $2::text")
-                .execute(Tuple.of(collectionId, tileMatrixSetId))
-                .map(SqlResult::value))
-        .onSuccess(success -> {
-          if (success.rowCount() == 0) {
-            result.fail(new OgcException(404, "Failed to get tile", "Could not get S3 bucket id for collection + TMS"));
-          } else {
-            result.complete(success.iterator().next().getString("s3_bucket_id"));
+  public Future<JsonObject> getRasterTileSource(String collectionId) {
+    LOGGER.info("getRasterTileSource");
+    // the type column is too short for the COG profile parameter, so any GeoTIFF is used
+    return client.withConnection(conn ->
+            conn.preparedQuery("SELECT href, s3_bucket_id FROM collections_enclosure" +
+                    " WHERE collections_id = $1::uuid AND type ILIKE 'image/tiff%' ORDER BY title LIMIT 1")
+                .execute(Tuple.of(UUID.fromString(collectionId))))
+        .map(rows -> rows.size() == 0 ? new JsonObject() : rows.iterator().next().toJson())
+        .recover(fail -> {
+          LOGGER.error("Failed to getRasterTileSource! - {}", fail.getMessage());
+          return Future.failedFuture("Error!");
+        });
+  }
+
+  @Override
+  public Future<String> getProcessTitle(String processId) {
+    return client.withConnection(conn ->
+            conn.preparedQuery("SELECT title FROM " + PROCESSES_TABLE_NAME + " WHERE id = $1::uuid")
+                .execute(Tuple.of(UUID.fromString(processId))))
+        .recover(fail -> {
+          LOGGER.error("Failed to get process title: {}", fail.getMessage());
+          return Future.failedFuture(
+              new OgcException(500, "Database Error", "Failed to retrieve process information"));
+        })
+        .compose(rows -> rows.size() == 0
+            ? Future.failedFuture(
+                new OgcException(404, "Not Found", "The requested process does not exist"))
+            : Future.succeededFuture(rows.iterator().next().getString("title")));
+  }
+
+  @Override
+  public Future<Buffer> getVectorTile(String collectionId, Integer tileMatrix, Integer tileRow,
+      Integer tileCol, Limits limits) {
+    FeatureQueryBuilder featureQuery = new FeatureQueryBuilder(collectionId);
+
+    return getSridOfStorageCrs(collectionId)
+        .compose(srid -> {
+          // the limits have been validated by TokenLimitsEnforcementHandler
+          if (limits != null && limits.getBboxLimit() != null) {
+            String tokenBbox = limits.getBboxLimitAsList().stream()
+                .map(String::valueOf)
+                .collect(Collectors.joining(","));
+            featureQuery.setBbox(tokenBbox, srid);
+          }
+          if (limits != null && limits.getFeatLimit() != null && !limits.getFeatLimit().isEmpty()) {
+            Map<String, List<String>> featLimits = limits.getFeatLimitAsMap();
+            String tokenFeatCollectionId = featLimits.keySet().iterator().next();
+            featureQuery.setFeatLimits(tokenFeatCollectionId,
+                String.join(",", featLimits.get(tokenFeatCollectionId)));
           }
+
+          return client.withConnection(conn ->
+              conn.preparedQuery(featureQuery.buildVectorTileSqlString(srid))
+                  .execute(Tuple.of(tileMatrix, tileCol, tileRow)));
         })
-        .onFailure(fail -> {
-          LOGGER.error("Failed S3 bucket id for collection + TMS! - {}", fail.getMessage());
-          result.fail("Error!");
+        .map(rows -> {
+          Buffer tile = rows.iterator().next().getBuffer("tile");
+          return tile == null ? Buffer.buffer() : tile;
+        })
+        .recover(fail -> {
+          if (fail instanceof OgcException) {
+            return Future.failedFuture(fail);
+          }
+          LOGGER.error("Failed to generate vector tile {}/{}/{} of {} - {}", tileMatrix, tileCol,
+              tileRow, collectionId, fail.getMessage());
+          return Future.failedFuture(
+              new OgcException(500, "Internal Server Error", "Internal Server Error"));
         });
-    return result.future();
   }
 
   @Override
@@ -1633,56 +1728,23 @@ public class DatabaseServiceImpl implements DatabaseService{
     Promise<JsonObject> result = Promise.promise();
     Collector<Row, ?, List<JsonObject>> collector =
         Collectors.mapping(Row::toJson, Collectors.toList());
+
+    // asset_registry covers STAC collection assets, STAC item assets and collection enclosures, an
+    // ID may be in more than one of them and resolves to the asset of the lowest precedence
     client
         .withConnection(
             conn ->
-                conn.preparedQuery("select * from stac_collections_assets where id = $1::uuid")
+                conn.preparedQuery(
+                        "select * from asset_registry where id = $1::uuid"
+                            + " order by precedence limit 1")
                     .collecting(collector)
                     .execute(Tuple.of(UUID.fromString(assetId)))
                     .map(SqlResult::value))
         .onSuccess(
             success -> {
               if (success.isEmpty()) {
-                LOGGER.info("Given asset is not present in stac_collections_assets table. Trying stac_items_assets " +
-                    "table...");
-                client.withConnection(conn1 ->
-                  conn1.preparedQuery("select * from stac_items_assets where id = $1::uuid")
-                      .collecting(collector)
-                      .execute(Tuple.of(UUID.fromString(assetId)))
-                      .map(SqlResult::value)
-                      .onSuccess(successAsset -> {
-                        if (successAsset.isEmpty()) {
-                          LOGGER.error("Given asset is not present in either stac_collections_assets or " +
-                              "stac_items_assets table. Trying collections_enclosure table.");
-                          client.withConnection(conn2 ->
-                            conn2.preparedQuery("select * from collections_enclosure where id = $1::uuid")
-                                    .collecting(collector)
-                                    .execute(Tuple.of(UUID.fromString(assetId)))
-                                    .map(SqlResult::value)
-                                    .onSuccess(successAssetEnclosure -> {
-                                      if (successAssetEnclosure.isEmpty()) {
-                                        LOGGER.error(" Given asset is not present in either stac_collection_assets, " +
-                                                        "stac_items_assets table or collections_enclosure");
-                                        result.fail(new OgcException(404, "Not found", "Asset not found"));
-                                      } else {
-                                        LOGGER.debug("Asset Result: {}", successAssetEnclosure.get(0));
-                                        result.complete(successAssetEnclosure.get(0));
-                                      }
-                                    })
-                                    .onFailure(failedAssetEnclosure -> {
-                                      LOGGER.error("Failed to get assets! - {}", failedAssetEnclosure.getMessage());
-                                      result.fail("Error!");
-                                    }));
-                                                  }
-                        else {
-                          LOGGER.debug("Asset Result: {}", successAsset.get(0));
-                          result.complete(successAsset.get(0));
-                        }
-                      })
-                      .onFailure(failedOp -> {
-                        LOGGER.error("Failed to get assets! - {}", failedOp.getMessage());
-                        result.fail("Error!");
-                      }));
+                LOGGER.error("Given asset is not present in asset_registry");
+                result.fail(new OgcException(404, "Not found", "Asset not found"));
               } else {
                 LOGGER.debug("Asset Result: {}", success.get(0));
                 result.complete(success.get(0));
@@ -1804,9 +1866,9 @@ public class DatabaseServiceImpl implements DatabaseService{
     public Future<Long> getTotalApiHits(String userId, String apiPath, String collectionId, long policyIssuedAt) {
         Promise<Long> result = Promise.promise();
 
-        // Query to count API hits for the given user, api_path, and collection_id within the time window
-        String query = "SELECT COUNT(*) FROM metering WHERE user_id = $1 AND api_path = $2 AND collection_id = $3 " +
-                "AND timestamp > to_timestamp($4) AND resp_size > 0";
+        // Query to count API hits for the given user, api_path, and collection_id within the time window,
+        // mostly read from the hourly and daily rollups of the metering table
+        String query = "SELECT api_hits FROM metering_usage($1, $3, $2, to_timestamp($4)::timestamp)";
 
         client.preparedQuery(query)
                 .execute(Tuple.of(userId, apiPath, collectionId, policyIssuedAt))
@@ -1837,9 +1899,9 @@ public class DatabaseServiceImpl implements DatabaseService{
     public Future<Long> getTotalDataUsage(String userId, String apiPath, String collectionId, long policyIssuedAt) {
         Promise<Long> result = Promise.promise();
 
-        // Query to sum the data usage (resp_size) for the given user, api_path, and collection_id within the time window
-        String query = "SELECT SUM(resp_size) FROM metering WHERE user_id = $1 AND api_path = $2 AND collection_id = $3 " +
-                "AND timestamp > to_timestamp($4)";
+        // Query to sum the data usage (resp_size) for the given user, api_path, and collection_id within the time window,
+        // mostly read from the hourly and daily rollups of the metering table
+        String query = "SELECT data_usage FROM metering_usage($1, $3, $2, to_timestamp($4)::timestamp)";
 
         client.preparedQuery(query)
                 .execute(Tuple.of(userId, apiPath, collectionId, policyIssuedAt))
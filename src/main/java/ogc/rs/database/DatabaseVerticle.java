@@ -7,7 +7,7 @@ import io.vertx.core.json.JsonObject;
 import io.vertx.pgclient.PgConnectOptions;
 import io.vertx.pgclient.PgPool;
 import io.vertx.serviceproxy.ServiceBinder;
-import io.vertx.sqlclient.PoolOptions;
+import ogc.rs.common.PgPools;
 import static ogc.rs.common.Constants.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -17,14 +17,12 @@ public class DatabaseVerticle extends AbstractVerticle {
     private MessageConsumer<JsonObject> consumer;
     private ServiceBinder binder;
     private PgConnectOptions connectOptions;
-    private PoolOptions poolOptions;
     private PgPool pool;
     private String databaseIp;
     private int databasePort;
     private String databaseName;
     private String databaseUserName;
     private String databasePassword;
-    private int poolSize;
 
     private DatabaseService dbService;
 
@@ -36,7 +34,6 @@ public class DatabaseVerticle extends AbstractVerticle {
         databaseName = config().getString("databaseName");
         databaseUserName = config().getString("databaseUser");
         databasePassword = config().getString("databasePassword");
-        poolSize = config().getInteger("poolSize");
 
         this.connectOptions =
                 new PgConnectOptions()
@@ -48,8 +45,8 @@ public class DatabaseVerticle extends AbstractVerticle {
                         .setReconnectAttempts(2)
                         .setReconnectInterval(1000L);
 
-        this.poolOptions = new PoolOptions().setMaxSize(poolSize);
-        this.pool = PgPool.pool(vertx, connectOptions, poolOptions);
+        // shared by all instances of the verticle
+        this.pool = PgPools.get(vertx, PgPools.OGC_DB_POOL, connectOptions, config());
 
         dbService = new DatabaseServiceImpl(this.pool,this.config());
 
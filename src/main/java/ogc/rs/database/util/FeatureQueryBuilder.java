@@ -5,7 +5,9 @@ import io.vertx.sqlclient.Tuple;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import static ogc.rs.common.Constants.DEFAULT_CRS_SRID;
@@ -32,6 +34,9 @@ public class FeatureQueryBuilder {
   private String datetimeKey;
   private String[] stacItemIds = {};
   private String stacIntersectsGeom;
+  /* tile coordinate space and the buffer around the tile, in tile coordinates, of vector tiles */
+  private static final int VECTOR_TILE_EXTENT = 4096;
+  private static final int VECTOR_TILE_BUFFER = 64;
 
   public FeatureQueryBuilder(String tableName) {
     this.tableName = tableName;
@@ -479,8 +484,45 @@ public class FeatureQueryBuilder {
             "SELECT scp.id AS id, 'Feature' AS type, collection_id AS collection, " + this.geoColumn
                     + " AS geometry, properties, p_id FROM stac_collections_part scp WHERE 1=1");
 
+    appendItemSearchFilters(stacPartitionTableQuery, tup);
+
+    if (offset != 0) {
+      stacPartitionTableQuery.append(" AND p_id > ").append(offset);
+    }
+
+    // limit always added
+    stacPartitionTableQuery.append(" LIMIT ").append(this.limit);
+
+    // forming CTE with the stac_collections_part query to get required data from stac_items_assets
+    // and then joining the result
+    StringBuilder finalCteQuery = new StringBuilder().append("WITH items AS (")
+            .append(stacPartitionTableQuery.toString())
+            .append("), assets AS (SELECT collection_id, item_id,"
+                    + " jsonb_agg((row_to_json(stac_items_assets.*)::jsonb - 'item_id'))"
+                    + " AS assetobjects FROM stac_items_assets"
+                    + " JOIN items ON item_id = items.id AND collection_id = items.collection"
+                    + " GROUP BY collection_id, item_id)"
+                    + " SELECT items.*, assets.assetobjects FROM assets"
+                    + " JOIN items ON items.collection = assets.collection_id AND assets.item_id = items.id"
+                    + " ORDER BY items.p_id");
+
+    LOGGER.debug("<builder> Item Search SQL query - {}", finalCteQuery.toString());
+
+    return finalCteQuery.toString();
+  }
+
+  /**
+   * Append the STAC Item Search filters (bbox, datetime, intersects, collection IDs and item IDs) to
+   * a query on <code>stac_collections_part</code> that already has a <code>WHERE</code> clause.
+   * Values that may be user-controlled are added to <code>tup</code>.
+   *
+   * @param stacPartitionTableQuery the query to append the filters to
+   * @param tup tuple to which query parameters are added
+   */
+  private void appendItemSearchFilters(StringBuilder stacPartitionTableQuery, Tuple tup) {
+
     // integer that stores the parameter index as params are added to the tuple
-    int parameterIndex = 0;
+    int parameterIndex = tup.size();
 
     if (!bbox.isEmpty()) {
       stacPartitionTableQuery.append(" AND ").append(this.bbox);
@@ -509,29 +551,145 @@ public class FeatureQueryBuilder {
       stacPartitionTableQuery.append(" AND id = ANY($" + parameterIndex + ")");
       tup.addArrayOfString(stacItemIds);
     }
+  }
 
-    if (offset != 0) {
-      stacPartitionTableQuery.append(" AND p_id > ").append(offset);
-    }
+  /**
+   * Build a single query computing the requested STAC Item Search aggregations over all items
+   * matching the search filters, i.e. the items {@link #buildItemSearchSqlString(Tuple)} would
+   * return over all pages. Limit and offset are ignored. Every aggregation contributes rows
+   * of <code>(name, key, frequency)</code>:
+   * <ul>
+   * <li><code>total_count</code> - one row, count in <code>frequency</code></li>
+   * <li><code>datetime_min</code>, <code>datetime_max</code> - one row, the datetime in
+   * <code>key</code></li>
+   * <li><code>collection_frequency</code>, <code>datetime_frequency</code>,
+   * <code>cloud_cover_frequency</code> - one row per bucket</li>
+   * </ul>
+   *
+   * @param tup tuple to which query parameters are added
+   * @param aggregations names of the aggregations, must be one of the above
+   * @param datetimeInterval the <code>date_trunc</code> field used to bucket
+   *        <code>datetime_frequency</code>, e.g. <code>month</code>
+   * @return the SQL query
+   */
+  public String buildItemAggregationSqlString(Tuple tup, List<String> aggregations,
+      String datetimeInterval) {
 
-    // limit always added
-    stacPartitionTableQuery.append(" LIMIT ").append(this.limit);
+    String datetimeFormat = "'yyyy-mm-dd\"T\"HH24:MI:SS\"Z\"'";
 
-    // forming CTE with the stac_collections_part query to get required data from stac_items_assets
-    // and then joining the result
-    StringBuilder finalCteQuery = new StringBuilder().append("WITH items AS (")
+    StringBuilder stacPartitionTableQuery = new StringBuilder();
+
+    // only the columns the aggregations need are materialized, not the item properties or geometry
+    stacPartitionTableQuery.append("SELECT collection_id,"
+            + " properties -> 'eo:cloud_cover' AS cloud_cover, to_timestamp("
+            + STAC_ITEMS_DATETIME_KEY + ", " + datetimeFormat
+            + ") AS item_datetime FROM stac_collections_part scp WHERE 1=1");
+
+    appendItemSearchFilters(stacPartitionTableQuery, tup);
+
+    // item search joins the assets, so items without assets are not counted either
+    stacPartitionTableQuery.append(" AND EXISTS (SELECT 1 FROM stac_items_assets"
+            + " WHERE stac_items_assets.item_id = scp.id"
+            + " AND stac_items_assets.collection_id = scp.collection_id)");
+
+    List<String> aggregationQueries = new ArrayList<String>();
+
+    for (String aggregation : aggregations) {
+      switch (aggregation) {
+        case "total_count":
+          aggregationQueries.add("SELECT 'total_count' AS name, NULL::text AS key,"
+                  + " count(*) AS frequency FROM items");
+          break;
+        case "datetime_min":
+        case "datetime_max":
+          aggregationQueries.add("SELECT '" + aggregation + "' AS name, to_char("
+                  + aggregation.substring("datetime_".length())
+                  + "(item_datetime) AT TIME ZONE 'UTC', " + datetimeFormat
+                  + ") AS key, NULL::bigint AS frequency FROM items");
+          break;
+        case "collection_frequency":
+          aggregationQueries.add("SELECT 'collection_frequency' AS name, collection_id::text AS key,"
+                  + " count(*) AS frequency FROM items GROUP BY collection_id");
+          break;
+        case "datetime_frequency":
+          aggregationQueries.add("SELECT 'datetime_frequency' AS name, to_char(date_trunc('"
+                  + toDateTruncField(datetimeInterval) + "', item_datetime AT TIME ZONE 'UTC'), "
+                  + datetimeFormat + ") AS key, count(*) AS frequency FROM items"
+                  + " WHERE item_datetime IS NOT NULL GROUP BY 2");
+          break;
+        case "cloud_cover_frequency":
+          // 10 buckets of width 10, a cloud cover of 100 goes into the last bucket
+          aggregationQueries.add("SELECT 'cloud_cover_frequency' AS name,"
+                  + " (bucket * 10)::text || '-' || (bucket * 10 + 10)::text AS key,"
+                  + " count(*) AS frequency FROM (SELECT least(floor((cloud_cover #>> '{}')"
+                  + "::numeric / 10), 9)::int AS bucket FROM items"
+                  + " WHERE jsonb_typeof(cloud_cover) = 'number') cloud_cover"
+                  + " GROUP BY bucket");
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported STAC aggregation " + aggregation);
+      }
+    }
+
+    StringBuilder finalCteQuery = new StringBuilder().append("WITH items AS MATERIALIZED (")
             .append(stacPartitionTableQuery.toString())
-            .append("), assets AS (SELECT collection_id, item_id,"
-                    + " jsonb_agg((row_to_json(stac_items_assets.*)::jsonb - 'item_id'))"
-                    + " AS assetobjects FROM stac_items_assets"
-                    + " JOIN items ON item_id = items.id AND collection_id = items.collection"
-                    + " GROUP BY collection_id, item_id)"
-                    + " SELECT items.*, assets.assetobjects FROM assets"
-                    + " JOIN items ON items.collection = assets.collection_id AND assets.item_id = items.id"
-                    + " ORDER BY items.p_id");
+            .append(") ")
+            .append(String.join(" UNION ALL ", aggregationQueries))
+            .append(" ORDER BY name, key");
 
-    LOGGER.debug("<builder> Item Search SQL query - {}", finalCteQuery.toString());
+    LOGGER.debug("<builder> Item Aggregation SQL query - {}", finalCteQuery.toString());
 
     return finalCteQuery.toString();
   }
-}
\ No newline at end of file
+
+  /**
+   * Build a query for a Mapbox vector tile of the collection in the WebMercatorQuad tile matrix
+   * set, using <code>ST_TileEnvelope</code> for the tile bounds. The tile matrix (zoom), tile column
+   * and tile row are bound as <code>$1</code>, <code>$2</code> and <code>$3</code>. The bbox and
+   * feature limits set on the builder, if any, are applied. The query returns a single row with the
+   * tile in the column <code>tile</code>, which is empty if no feature falls in the tile.
+   *
+   * @param storageSrid SRID of the geometries of the collection
+   * @return the SQL query
+   */
+  public String buildVectorTileSqlString(String storageSrid) {
+    StringBuilder conditions = new StringBuilder("ST_Intersects(geom, ST_Transform(bounds.envelope, ")
+        .append(storageSrid).append("))");
+
+    if (!bbox.isEmpty()) {
+      conditions.append(" AND ").append(bbox);
+    }
+
+    if (!tokenFeatIds.isEmpty()) {
+      conditions.append(" AND EXISTS (SELECT 1 FROM \"").append(tokenFeatCollectionId)
+          .append("\" token_feature WHERE token_feature.id IN (").append(tokenFeatIds)
+          .append(") AND ST_Intersects(\"").append(tableName).append("\".geom, token_feature.geom))");
+    }
+
+    this.sqlString = String.format("WITH bounds AS (SELECT ST_TileEnvelope($1, $2, $3) AS envelope),"
+            + " mvt_features AS (SELECT id, ST_AsMVTGeom(ST_Transform(geom, 3857), bounds.envelope,"
+            + " %3$d, %4$d, true) AS geom, (row_to_json(\"%1$s\")::jsonb - 'id' - 'geom') AS properties"
+            + " FROM \"%1$s\", bounds WHERE %2$s)"
+            + " SELECT ST_AsMVT(mvt_features.*, '%1$s', %3$d, 'geom', 'id') AS tile FROM mvt_features",
+        this.tableName, conditions, VECTOR_TILE_EXTENT, VECTOR_TILE_BUFFER);
+
+    LOGGER.debug("<builder>Vector tile sql query- {}", sqlString);
+    return sqlString;
+  }
+
+  /**
+   * Allow only known <code>date_trunc</code> fields since the value is added to the query as is.
+   */
+  private static String toDateTruncField(String datetimeInterval) {
+    switch (datetimeInterval) {
+      case "year":
+      case "month":
+      case "week":
+      case "day":
+      case "hour":
+        return datetimeInterval;
+      default:
+        throw new IllegalArgumentException("Unsupported datetime interval " + datetimeInterval);
+    }
+  }
+}
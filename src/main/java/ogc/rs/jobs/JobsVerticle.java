@@ -12,7 +12,7 @@ import io.vertx.ext.web.client.WebClientOptions;
 import io.vertx.pgclient.PgConnectOptions;
 import io.vertx.pgclient.PgPool;
 import io.vertx.serviceproxy.ServiceBinder;
-import io.vertx.sqlclient.PoolOptions;
+import ogc.rs.common.PgPools;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -21,14 +21,12 @@ public class JobsVerticle extends AbstractVerticle {
   private MessageConsumer<JsonObject> consumer;
   private ServiceBinder binder;
   private PgConnectOptions connectOptions;
-  private PoolOptions poolOptions;
   private PgPool pool;
   private String databaseIp;
   private int databasePort;
   private String databaseName;
   private String databaseUserName;
   private String databasePassword;
-  private int poolSize;
   private JobsService jobsService;
 
   @Override
@@ -39,15 +37,14 @@ public class JobsVerticle extends AbstractVerticle {
     databaseName = config().getString("databaseName");
     databaseUserName = config().getString("databaseUser");
     databasePassword = config().getString("databasePassword");
-    poolSize = config().getInteger("poolSize");
 
     this.connectOptions =
       new PgConnectOptions().setPort(databasePort).setHost(databaseIp).setDatabase(databaseName)
         .setUser(databaseUserName).setPassword(databasePassword).setReconnectAttempts(5)
         .setReconnectInterval(1000L).setTcpKeepAlive(true);
 
-    this.poolOptions = new PoolOptions().setMaxSize(poolSize);
-    this.pool = PgPool.pool(vertx, connectOptions, poolOptions);
+    // shared by all instances of the verticle
+    this.pool = PgPools.get(vertx, PgPools.JOBS_POOL, connectOptions, config());
 
 
     jobsService = new JobsServiceImpl(pool, config());
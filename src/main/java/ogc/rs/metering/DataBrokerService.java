@@ -2,7 +2,18 @@ package ogc.rs.metering;
 
 import io.vertx.core.Future;
 import io.vertx.core.json.JsonObject;
+import java.util.List;
 
 public interface DataBrokerService {
   Future<Void> publishMessage(String toExchange, String routingKey, JsonObject body);
+
+  /**
+   * Publish a batch of messages and wait for the broker to confirm all of them.
+   *
+   * @param toExchange the exchange
+   * @param routingKey the routing key
+   * @param bodies the messages
+   * @return future completed once all messages are confirmed, failed if any is not
+   */
+  Future<Void> publishMessages(String toExchange, String routingKey, List<JsonObject> bodies);
 }
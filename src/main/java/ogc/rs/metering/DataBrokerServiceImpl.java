@@ -5,11 +5,14 @@ import io.vertx.core.Promise;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonObject;
 import io.vertx.rabbitmq.RabbitMQClient;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 public class DataBrokerServiceImpl implements DataBrokerService {
   private static final Logger LOGGER = LogManager.getLogger(DataBrokerServiceImpl.class);
+  private static final long CONFIRM_TIMEOUT_MILLIS = 10000;
   RabbitMQClient rabbitWebclient;
 
   public DataBrokerServiceImpl(RabbitMQClient client) {
@@ -45,4 +48,30 @@ public class DataBrokerServiceImpl implements DataBrokerService {
 
     return promise.future();
   }
+
+  @Override
+  public Future<Void> publishMessages(String toExchange, String routingKey,
+      List<JsonObject> bodies) {
+    if (bodies.isEmpty()) {
+      return Future.succeededFuture();
+    }
+
+    Future<Void> rabbitMqClientStartFuture = rabbitWebclient.isConnected()
+        ? Future.succeededFuture()
+        : rabbitWebclient.start();
+
+    // the channel may have been recovered since the last batch, so confirms are enabled every time
+    return rabbitMqClientStartFuture
+        .compose(started -> rabbitWebclient.confirmSelect())
+        .compose(confirming -> {
+          List<Future<Void>> published = new ArrayList<>();
+          bodies.forEach(body -> published.add(
+              rabbitWebclient.basicPublish(toExchange, routingKey, Buffer.buffer(body.toString()))));
+          return Future.all(published);
+        })
+        .compose(published -> rabbitWebclient.waitForConfirms(CONFIRM_TIMEOUT_MILLIS))
+        .onSuccess(confirmed -> LOGGER.debug("{} messages published in RMQ", bodies.size()))
+        .onFailure(err -> LOGGER.error("Failed to publish {} messages in RMQ - {}", bodies.size(),
+            err.getMessage()));
+  }
 }
@@ -8,6 +8,7 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
 @ProxyGen
@@ -24,6 +25,15 @@ public interface MeteringService {
 
     Future<JsonObject> insertMeteringValuesInRmq(JsonObject request);
 
+    /**
+     * Insert a batch of metering records into the metering table and publish them to RMQ. Records
+     * that can't be inserted or published are spooled locally and retried later.
+     *
+     * @param records records with the metering table row and the RMQ message
+     * @return future completed once the records are inserted and published, or spooled
+     */
+    Future<Void> insertMeteringBatch(JsonArray records);
+
     Future<JsonObject> monthlyOverview(JsonObject request);
 
     Future<JsonObject> summaryOverview(JsonObject request);
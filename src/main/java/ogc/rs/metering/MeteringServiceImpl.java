@@ -1,10 +1,13 @@
 package ogc.rs.metering;
 
+import static ogc.rs.common.Constants.METERING_MESSAGE;
+import static ogc.rs.common.Constants.METERING_ROW;
 import static ogc.rs.metering.util.MeteringConstant.*;
 
 import io.vertx.core.*;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.pgclient.PgException;
 import io.vertx.pgclient.PgPool;
 import io.vertx.sqlclient.Row;
 
@@ -41,6 +44,8 @@ public class MeteringServiceImpl implements MeteringService {
   int loopi;
   PgPool meteringPgClient;
   PgPool ogcPgClient;
+  MeteringSpool meteringSpool;
+  Integer meteringRetentionMonths;
 
     public MeteringServiceImpl(
       Vertx vertx,
@@ -52,6 +57,22 @@ public class MeteringServiceImpl implements MeteringService {
     this.meteringPgClient = meteringPgClient;
     this.ogcPgClient = ogcPgClient;
     catalogueService = new CatalogueService(vertx, config);
+
+    /* records that can't be inserted or published are spooled to disk and replayed periodically */
+    int replayIntervalSec =
+        config.getInteger("meteringSpoolReplayIntervalSec", DEFAULT_SPOOL_REPLAY_INTERVAL_SEC);
+    meteringSpool = new MeteringSpool(vertx,
+        config.getString("meteringSpoolDir", DEFAULT_SPOOL_DIR),
+        2000L * replayIntervalSec,
+        config.getInteger("meteringBatchSize", DEFAULT_METERING_BATCH_SIZE));
+    vertx.setPeriodic(1000L * replayIntervalSec, id -> replaySpool());
+
+    /*
+     * monthly partitions of the metering table are created ahead of time and dropped after retention,
+     * as are the hourly and daily rollups
+     */
+    meteringRetentionMonths = config.getInteger("meteringRetentionMonths");
+    vertx.setPeriodic(1000L, METERING_PARTITION_MAINTENANCE_INTERVAL_MS, id -> maintainMeteringPartitions());
   }
 
   @Override
@@ -65,6 +86,12 @@ public class MeteringServiceImpl implements MeteringService {
       return promise.future();
     }
 
+    String cursor = request.getString(CURSOR);
+    if (cursor != null && !queryBuilder.isValidCursor(cursor)) {
+      promise.fail(new OgcException(400, "Bad Request", "Invalid cursor"));
+      return promise.future();
+    }
+
     String count = request.getString("options");
     if (count == null) {
       countQueryForRead(request)
@@ -121,10 +148,11 @@ public class MeteringServiceImpl implements MeteringService {
     int offset = request.getInteger(OFFSETPARAM);
     int limit = request.getInteger(LIMITPARAM);
 
-    queryPg = queryBuilder.buildReadQueryForPg(request);
+    Tuple tup = Tuple.tuple();
+    queryPg = queryBuilder.buildReadQueryForPg(request, tup);
     LOGGER.info("read query = {}", queryPg);
 
-    Future<JsonObject> resultsPg = executeQueryDatabaseOperation(queryPg);
+    Future<JsonObject> resultsPg = executeQueryDatabaseOperation(queryPg, tup);
     resultsPg.onComplete(
         readHandler -> {
           if (readHandler.succeeded()) {
@@ -133,6 +161,12 @@ public class MeteringServiceImpl implements MeteringService {
             resultJsonObject.put(LIMITPARAM, limit);
             resultJsonObject.put(OFFSETPARAM, offset);
             resultJsonObject.put(TOTALHITS, request.getLong(TOTALHITS));
+            // a full page may be followed by more records, read from the cursor of its last record
+            JsonArray records = resultJsonObject.getJsonArray("result");
+            if (records.size() == limit) {
+              resultJsonObject.put(NEXT_CURSOR,
+                  queryBuilder.buildCursor(records.getJsonObject(records.size() - 1)));
+            }
             promise.complete(resultJsonObject);
           } else {
             LOGGER.debug("Could not read from DB : " + readHandler.cause());
@@ -144,9 +178,10 @@ public class MeteringServiceImpl implements MeteringService {
 
   private Future<Long> countQuery(JsonObject request) {
     Promise<Long> promise = Promise.promise();
-    queryCount = queryBuilder.buildCountReadQueryFromPg(request);
+    Tuple tup = Tuple.tuple();
+    queryCount = queryBuilder.buildCountReadQueryFromPg(request, tup);
     LOGGER.info("count query = {}", queryCount);
-    Future<JsonObject> resultCountPg = executeQueryDatabaseOperation(queryCount);
+    Future<JsonObject> resultCountPg = executeQueryDatabaseOperation(queryCount, tup);
     resultCountPg.onComplete(
         countHandler -> {
           if (countHandler.succeeded()) {
@@ -178,21 +213,10 @@ public class MeteringServiceImpl implements MeteringService {
     public Future<Void> insertIntoPostgresAuditTable(JsonObject request) {
         Promise<Void> promise = Promise.promise();
 
-        String sql = "INSERT INTO metering (user_id, collection_id, api_path, timestamp, resp_size) " +
-                "VALUES ($1, $2, $3, $4, $5)";
-
         //LOGGER.debug("Metering payload: {}", request.encodePrettily());
 
-        UUID userId = UUID.fromString(request.getString("user_id"));
-        UUID collectionId = UUID.fromString(request.getString("collection_id"));
-        String apiPath = request.getString("api_path");
-        String timestampStr = request.getString("timestamp");
-        long respSize = request.getLong("resp_size");
-
-        LocalDateTime timestamp = ZonedDateTime.parse(timestampStr).toLocalDateTime();
-
-        ogcPgClient.preparedQuery(sql)
-                .execute(Tuple.of(userId, collectionId, apiPath, timestamp, respSize))
+        ogcPgClient.preparedQuery(INSERT_METERING_QUERY)
+                .execute(toMeteringTuple(request))
                 .onSuccess(res -> {
                     LOGGER.debug("Inserted into Postgres metering table");
                     promise.complete();
@@ -205,6 +229,163 @@ public class MeteringServiceImpl implements MeteringService {
         return promise.future();
     }
 
+    @Override
+    public Future<Void> insertMeteringBatch(JsonArray records) {
+        List<JsonObject> rows = new ArrayList<>();
+        List<JsonObject> messages = new ArrayList<>();
+        List<JsonObject> invalidRecords = new ArrayList<>();
+        records.forEach(record -> {
+            JsonObject row = ((JsonObject) record).getJsonObject(METERING_ROW);
+            JsonObject message = ((JsonObject) record).getJsonObject(METERING_MESSAGE);
+            if (!isValidMeteringRow(row) || message == null) {
+                invalidRecords.add((JsonObject) record);
+                return;
+            }
+            rows.add(row);
+            messages.add(queryBuilder.buildMessageForRmq(message));
+        });
+        deadLetter(invalidRecords);
+
+        Future<Void> inserted = insertMeteringRows(rows)
+                .recover(err -> {
+                    LOGGER.error("Failed to insert {} rows into Postgres metering table - {}", rows.size(), err.getMessage());
+                    return meteringSpool.append(POSTGRES_SPOOL, rows);
+                });
+        Future<Void> published = dataBrokerService.publishMessages(EXCHANGE_NAME, ROUTING_KEY, messages)
+                .recover(err -> meteringSpool.append(RMQ_SPOOL, messages));
+
+        return Future.all(inserted, published).mapEmpty();
+    }
+
+    /**
+     * Insert rows into the metering table using a single batched statement. Rows that can never be
+     * inserted, because they are malformed or violate a constraint, are dead-lettered instead of
+     * failing the batch, so that the other rows are not retried forever along with them. If the batch
+     * fails on such a row, the rows are inserted one at a time and those that then fail for another
+     * reason are spooled.
+     *
+     * <p>Dead-lettering and spooling are not waited for, since this is also used to replay the spool.
+     *
+     * @param rows the rows, as for {@link #insertIntoPostgresAuditTable(JsonObject)}
+     * @return future completed once the rows are inserted or set aside, failed if the batch could not
+     *     be inserted for a reason other than its rows
+     */
+    private Future<Void> insertMeteringRows(List<JsonObject> rows) {
+        List<JsonObject> validRows = new ArrayList<>();
+        List<JsonObject> invalidRows = new ArrayList<>();
+        rows.forEach(row -> (isValidMeteringRow(row) ? validRows : invalidRows).add(row));
+        deadLetter(invalidRows);
+
+        if (validRows.isEmpty()) {
+            return Future.succeededFuture();
+        }
+        List<Tuple> batch = validRows.stream().map(MeteringServiceImpl::toMeteringTuple).collect(Collectors.toList());
+        return ogcPgClient.preparedQuery(INSERT_METERING_QUERY).executeBatch(batch)
+                .<Void>mapEmpty()
+                .recover(err -> {
+                    if (!isDataError(err)) {
+                        return Future.failedFuture(err);
+                    }
+                    LOGGER.warn("Failed to insert {} rows into Postgres metering table, inserting them one at a time - {}",
+                            validRows.size(), err.getMessage());
+                    return insertMeteringRowsOneByOne(validRows);
+                });
+    }
+
+    private Future<Void> insertMeteringRowsOneByOne(List<JsonObject> rows) {
+        List<JsonObject> failedRows = new ArrayList<>();
+        List<JsonObject> rejectedRows = new ArrayList<>();
+        List<Future<Void>> inserted = rows.stream()
+                .map(row -> ogcPgClient.preparedQuery(INSERT_METERING_QUERY).execute(toMeteringTuple(row))
+                        .<Void>mapEmpty()
+                        .onFailure(err -> (isDataError(err) ? rejectedRows : failedRows).add(row)))
+                .collect(Collectors.toList());
+
+        return Future.join(inserted).transform(done -> {
+            deadLetter(rejectedRows);
+            if (!failedRows.isEmpty()) {
+                meteringSpool.append(POSTGRES_SPOOL, failedRows);
+            }
+            return Future.succeededFuture();
+        });
+    }
+
+    private static boolean isValidMeteringRow(JsonObject row) {
+        try {
+            toMeteringTuple(row);
+            return true;
+        } catch (RuntimeException e) {
+            LOGGER.error("Invalid metering row {} - {}", row, e.toString());
+            return false;
+        }
+    }
+
+    /* data exceptions (class 22) and integrity constraint violations (class 23) fail on every retry */
+    private static boolean isDataError(Throwable err) {
+        String sqlState = err instanceof PgException ? ((PgException) err).getSqlState() : null;
+        return sqlState != null && (sqlState.startsWith("22") || sqlState.startsWith("23"));
+    }
+
+    /**
+     * Set aside metering records that can never be inserted or published in the dead letter spool,
+     * which is not replayed, so that they can be inspected and fixed by hand.
+     *
+     * @param records the records
+     */
+    private void deadLetter(List<JsonObject> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        LOGGER.error("Dead-lettering {} metering records", records.size());
+        meteringSpool.append(DEAD_LETTER_SPOOL, records)
+                .onFailure(err -> LOGGER.error("Failed to dead-letter metering records {} - {}", records,
+                        err.getMessage()));
+    }
+
+    private static Tuple toMeteringTuple(JsonObject row) {
+        UUID userId = UUID.fromString(row.getString("user_id"));
+        UUID collectionId = UUID.fromString(row.getString("collection_id"));
+        LocalDateTime timestamp = ZonedDateTime.parse(row.getString("timestamp")).toLocalDateTime();
+        String apiPath = Objects.requireNonNull(row.getString("api_path"), "api_path");
+        Long respSize = Objects.requireNonNull(row.getLong("resp_size"), "resp_size");
+        return Tuple.of(userId, collectionId, apiPath, timestamp, respSize);
+    }
+
+    private void replaySpool() {
+        meteringSpool.replay(POSTGRES_SPOOL, this::insertMeteringRows)
+                .onFailure(err -> LOGGER.warn("Failed to replay spooled metering rows - {}", err.getMessage()))
+                .transform(done -> meteringSpool.replay(RMQ_SPOOL,
+                        messages -> dataBrokerService.publishMessages(EXCHANGE_NAME, ROUTING_KEY, messages)))
+                .onFailure(err -> LOGGER.warn("Failed to replay spooled metering messages - {}", err.getMessage()));
+    }
+
+    /**
+     * Create the monthly partitions of the metering table for this month and the next months, and drop
+     * the partitions and delete the hourly and daily rollups older than
+     * <code>meteringRetentionMonths</code> if it is configured.
+     */
+    private void maintainMeteringPartitions() {
+        Future<Void> created = ogcPgClient.preparedQuery(CREATE_METERING_PARTITIONS_QUERY)
+                .execute(Tuple.of(METERING_PARTITIONS_AHEAD_MONTHS))
+                .<Void>mapEmpty()
+                .onFailure(err -> LOGGER.error("Failed to create metering table partitions - {}", err.getMessage()));
+
+        if (meteringRetentionMonths != null) {
+            created.transform(done -> ogcPgClient.preparedQuery(DROP_METERING_PARTITIONS_QUERY)
+                            .execute(Tuple.of(meteringRetentionMonths)))
+                    .onSuccess(dropped -> LOGGER.debug("Dropped metering table partitions older than {} months",
+                            meteringRetentionMonths))
+                    .onFailure(err -> LOGGER.error("Failed to drop metering table partitions - {}", err.getMessage()))
+                    .transform(done -> ogcPgClient.preparedQuery(PRUNE_METERING_HOURLY_QUERY)
+                            .execute(Tuple.of(meteringRetentionMonths)))
+                    .compose(pruned -> ogcPgClient.preparedQuery(PRUNE_METERING_DAILY_QUERY)
+                            .execute(Tuple.of(meteringRetentionMonths)))
+                    .onSuccess(pruned -> LOGGER.debug("Pruned metering rollups older than {} months",
+                            meteringRetentionMonths))
+                    .onFailure(err -> LOGGER.error("Failed to prune metering rollups - {}", err.getMessage()));
+        }
+    }
+
     @Override
   public Future<JsonObject> insertMeteringValuesInRmq(JsonObject request) {
     Promise<JsonObject> promise = Promise.promise();
@@ -254,10 +435,11 @@ public class MeteringServiceImpl implements MeteringService {
 
     String role = request.getString(ROLE);
     if (role.equalsIgnoreCase("admin") || role.equalsIgnoreCase("consumer")) {
-      queryOverview = queryBuilder.buildMonthlyOverview(request);
+      Tuple tup = Tuple.tuple();
+      queryOverview = queryBuilder.buildMonthlyOverview(request, tup);
       LOGGER.debug("query Overview = " + queryOverview);
 
-      Future<JsonObject> result = executeQueryDatabaseOperation(queryOverview);
+      Future<JsonObject> result = executeQueryDatabaseOperation(queryOverview, tup);
       result.onComplete(
           handlers -> {
             if (handlers.succeeded()) {
@@ -278,10 +460,11 @@ public class MeteringServiceImpl implements MeteringService {
                 String providerId = providerHandler.getString("provider");
                 request.put("providerid", providerId);
 
-                queryOverview = queryBuilder.buildMonthlyOverview(request);
+                Tuple tup = Tuple.tuple();
+                queryOverview = queryBuilder.buildMonthlyOverview(request, tup);
                 LOGGER.debug("query Overview =" + queryOverview);
 
-                Future<JsonObject> result = executeQueryDatabaseOperation(queryOverview);
+                Future<JsonObject> result = executeQueryDatabaseOperation(queryOverview, tup);
                 result.onComplete(
                     monthlyHandlers -> {
                       if (monthlyHandlers.succeeded()) {
@@ -323,9 +506,10 @@ public class MeteringServiceImpl implements MeteringService {
 
     String role = request.getString(ROLE);
     if (role.equalsIgnoreCase("admin") || role.equalsIgnoreCase("consumer")) {
-      summaryOverview = queryBuilder.buildSummaryOverview(request);
+      Tuple tup = Tuple.tuple();
+      summaryOverview = queryBuilder.buildSummaryOverview(request, tup);
       LOGGER.debug("summary query = {}", summaryOverview);
-      Future<JsonObject> result = executeQueryDatabaseOperation(summaryOverview);
+      Future<JsonObject> result = executeQueryDatabaseOperation(summaryOverview, tup);
       result.onComplete(
           handlers -> {
             if (handlers.succeeded()) {
@@ -357,9 +541,10 @@ public class MeteringServiceImpl implements MeteringService {
               providerHandler -> {
                 String providerId = providerHandler.getString("provider");
                 request.put("providerid", providerId);
-                summaryOverview = queryBuilder.buildSummaryOverview(request);
+                Tuple tup = Tuple.tuple();
+                summaryOverview = queryBuilder.buildSummaryOverview(request, tup);
                 LOGGER.debug("summary query {}", summaryOverview);
-                Future<JsonObject> result = executeQueryDatabaseOperation(summaryOverview);
+                Future<JsonObject> result = executeQueryDatabaseOperation(summaryOverview, tup);
                 result.onComplete(
                     handlers -> {
                       if (handlers.succeeded()) {
@@ -435,9 +620,9 @@ public class MeteringServiceImpl implements MeteringService {
     return promise.future();
   }
 
-  private Future<JsonObject> executeQueryDatabaseOperation(String query) {
+  private Future<JsonObject> executeQueryDatabaseOperation(String query, Tuple tup) {
     Promise<JsonObject> promise = Promise.promise();
-    executeQuery(query)
+    executeQuery(query, tup)
         .onSuccess(
             handler -> {
               promise.complete(handler);
@@ -450,14 +635,26 @@ public class MeteringServiceImpl implements MeteringService {
     return promise.future();
   }
 
-  public Future<JsonObject> executeQuery(final String query) {
+  /**
+   * Run a parameterised report query on the metering DB. Report queries are prepared statements,
+   * which are cached by the connections of the metering DB pool.
+   *
+   * @param query the query
+   * @param tup the parameters of the query
+   * @return future of a JSON object with the rows as a <code>result</code> array
+   */
+  public Future<JsonObject> executeQuery(final String query, final Tuple tup) {
     Promise<JsonObject> promise = Promise.promise();
     Collector<Row, ?, List<JsonObject>> rowCollector =
         Collectors.mapping(row -> row.toJson(), Collectors.toList());
     meteringPgClient
         .withConnection(
             connection ->
-                connection.query(query).collecting(rowCollector).execute().map(row -> row.value()))
+                connection
+                    .preparedQuery(query)
+                    .collecting(rowCollector)
+                    .execute(tup)
+                    .map(row -> row.value()))
         .onSuccess(
             successHandler -> {
               JsonArray result = new JsonArray(successHandler);
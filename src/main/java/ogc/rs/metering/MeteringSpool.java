@@ -0,0 +1,161 @@
+package ogc.rs.metering;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.FileSystem;
+import io.vertx.core.file.OpenOptions;
+import io.vertx.core.json.JsonObject;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Local append-only files of metering records that could not be written to Postgres or published to
+ * RMQ, replayed once they are reachable again. Records are spooled as one JSON object per line, in a
+ * file per destination and per instance, so that instances never append to the same file. A file is
+ * replayed by first moving it aside, so that records spooled while it is replayed go to a new file.
+ * Files left by earlier runs are replayed too, once they have not been written to for a while. A
+ * file whose replay was interrupted by a crash keeps a <code>.replaying</code> suffix and is not
+ * replayed again automatically.
+ *
+ * <p>The appends and replays of an instance run one after the other, and each instance writes its
+ * own files, so that the instances of several verticles can share the spool directory.
+ */
+public class MeteringSpool {
+  private static final Logger LOGGER = LogManager.getLogger(MeteringSpool.class);
+  private static final String SPOOL_SUFFIX = ".spool";
+  private static final String REPLAY_SUFFIX = ".replaying";
+
+  private final FileSystem fileSystem;
+  private final String spoolDir;
+  private final String instanceId = UUID.randomUUID().toString();
+  private final long orphanAgeMillis;
+  private final int batchSize;
+  /* appends and replays of this instance run one at a time, after the spool directory is created */
+  private Future<Void> lastOperation;
+
+  /**
+   * @param vertx the Vertx instance
+   * @param spoolDir directory of the spool files
+   * @param orphanAgeMillis age after which a spool file of another instance is replayed
+   * @param batchSize number of records replayed at a time
+   */
+  public MeteringSpool(Vertx vertx, String spoolDir, long orphanAgeMillis, int batchSize) {
+    this.fileSystem = vertx.fileSystem();
+    this.spoolDir = spoolDir;
+    this.orphanAgeMillis = orphanAgeMillis;
+    this.batchSize = batchSize;
+    // not blocking, since spools are created from the start of verticles, on the event loop
+    this.lastOperation = fileSystem.mkdirs(spoolDir)
+        .onFailure(err -> LOGGER.error("Failed to create the metering spool directory {} - {}",
+            spoolDir, err.getMessage()));
+  }
+
+  /**
+   * Append records to the spool of a destination.
+   *
+   * @param destination the destination the records are for, e.g. <code>postgres</code>
+   * @param records the records
+   * @return future completed once the records are written to the spool file
+   */
+  public Future<Void> append(String destination, List<JsonObject> records) {
+    if (records.isEmpty()) {
+      return Future.succeededFuture();
+    }
+    return chain(() -> write(destination, records))
+        .onSuccess(written -> LOGGER.warn("Spooled {} metering records for {}", records.size(),
+            destination));
+  }
+
+  /**
+   * Replay the spool files of a destination, those of this instance and those left by other
+   * instances. Records that fail to be replayed are spooled again.
+   *
+   * @param destination the destination the records are for
+   * @param sender sends a batch of records to the destination
+   * @return future completed once the spool files have been replayed
+   */
+  public Future<Void> replay(String destination, Function<List<JsonObject>, Future<Void>> sender) {
+    String ownFile = destination + "-" + instanceId + SPOOL_SUFFIX;
+
+    return chain(() -> fileSystem.readDir(spoolDir, destination + "-.*\\" + SPOOL_SUFFIX)
+        .compose(paths -> {
+          Future<Void> replayed = Future.succeededFuture();
+          for (String path : paths) {
+            replayed = replayed.compose(done -> isReplayable(path, ownFile)
+                .compose(isReplayable -> isReplayable
+                    ? replayFile(destination, path, sender)
+                    : Future.succeededFuture()));
+          }
+          return replayed;
+        }));
+  }
+
+  private Future<Boolean> isReplayable(String path, String ownFile) {
+    if (Paths.get(path).getFileName().toString().equals(ownFile)) {
+      return Future.succeededFuture(true);
+    }
+    return fileSystem.props(path)
+        .map(props -> System.currentTimeMillis() - props.lastModifiedTime() > orphanAgeMillis);
+  }
+
+  private Future<Void> replayFile(String destination, String path,
+      Function<List<JsonObject>, Future<Void>> sender) {
+    String replayPath = path + "." + instanceId + REPLAY_SUFFIX;
+
+    return fileSystem.move(path, replayPath)
+        .compose(moved -> fileSystem.readFile(replayPath))
+        .compose(contents -> {
+          List<JsonObject> records = new ArrayList<>();
+          for (String line : contents.toString().split("\n")) {
+            if (!line.isBlank()) {
+              records.add(new JsonObject(line));
+            }
+          }
+          LOGGER.info("Replaying {} spooled metering records for {}", records.size(), destination);
+          return sendInBatches(destination, records, 0, sender);
+        })
+        .compose(sent -> fileSystem.delete(replayPath));
+  }
+
+  /* stops at the first failed batch and spools the remaining records again */
+  private Future<Void> sendInBatches(String destination, List<JsonObject> records, int from,
+      Function<List<JsonObject>, Future<Void>> sender) {
+    if (from >= records.size()) {
+      return Future.succeededFuture();
+    }
+    int to = Math.min(from + batchSize, records.size());
+
+    return sender.apply(records.subList(from, to))
+        .compose(
+            sent -> sendInBatches(destination, records, to, sender),
+            err -> {
+              LOGGER.warn("Failed to replay metering records for {} - {}", destination,
+                  err.getMessage());
+              return write(destination, records.subList(from, records.size()));
+            });
+  }
+
+  /* the spool file is opened for every write, so that a file moved aside is not written to */
+  private Future<Void> write(String destination, List<JsonObject> records) {
+    Buffer lines = Buffer.buffer();
+    records.forEach(record -> lines.appendString(record.encode()).appendString("\n"));
+    String path = Paths.get(spoolDir, destination + "-" + instanceId + SPOOL_SUFFIX).toString();
+
+    return fileSystem
+        .open(path, new OpenOptions().setAppend(true).setCreate(true).setWrite(true))
+        .compose(file -> file.write(lines).onComplete(written -> file.close()));
+  }
+
+  private Future<Void> chain(Supplier<Future<Void>> operation) {
+    Future<Void> next = lastOperation.transform(previous -> operation.get());
+    lastOperation = next;
+    return next;
+  }
+}
@@ -10,7 +10,7 @@ import io.vertx.pgclient.PgPool;
 import io.vertx.rabbitmq.RabbitMQClient;
 import io.vertx.rabbitmq.RabbitMQOptions;
 import io.vertx.serviceproxy.ServiceBinder;
-import io.vertx.sqlclient.PoolOptions;
+import ogc.rs.common.PgPools;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -22,7 +22,6 @@ public class MeteringVerticle extends AbstractVerticle {
   private DataBrokerService dataBrokerService;
   private PgConnectOptions meteringConnectOptions;
   private PgConnectOptions dbConnectOptions;
-  private PoolOptions poolOptions;
   private PgPool meteringPool;
   private PgPool dbPool;
   private String meteringDatabaseHost;
@@ -35,7 +34,6 @@ public class MeteringVerticle extends AbstractVerticle {
   private String ogcDatabaseName;
   private String ogcDatabaseUserName;
   private String ogcDatabasePassword;
-  private int poolSize;
 
   @Override
   public void start() throws Exception {
@@ -80,8 +78,6 @@ public class MeteringVerticle extends AbstractVerticle {
     ogcDatabaseUserName = config().getString("databaseUser");
     ogcDatabasePassword = config().getString("databasePassword");
 
-    poolSize = config().getInteger("poolSize");
-
     this.meteringConnectOptions =
         new PgConnectOptions()
             .setPort(meteringDatabasePort)
@@ -90,7 +86,9 @@ public class MeteringVerticle extends AbstractVerticle {
             .setUser(meteringDatabaseUserName)
             .setPassword(meteringDatabasePassword)
             .setReconnectAttempts(2)
-            .setReconnectInterval(1000L);
+            .setReconnectInterval(1000L)
+            // the report queries are parameterised, so they are prepared once per connection
+            .setCachePreparedStatements(true);
 
     this.dbConnectOptions =
             new PgConnectOptions()
@@ -102,9 +100,13 @@ public class MeteringVerticle extends AbstractVerticle {
                     .setReconnectAttempts(2)
                     .setReconnectInterval(1000L);
 
-    this.poolOptions = new PoolOptions().setMaxSize(poolSize);
-    this.meteringPool = PgPool.pool(vertx, meteringConnectOptions, poolOptions);
-    this.dbPool = PgPool.pool(vertx, dbConnectOptions, poolOptions); // Create new pool for ogc db
+    // shared by all instances of the verticle, the report queries and the metering writes are sized
+    // independently
+    int poolSize = config().getInteger("poolSize");
+    this.meteringPool = PgPools.get(vertx, PgPools.METERING_DB_POOL, meteringConnectOptions,
+        config().getInteger("meteringDatabasePoolSize", poolSize), config());
+    this.dbPool = PgPools.get(vertx, PgPools.METERING_POOL, dbConnectOptions,
+        config().getInteger("databasePoolSize", poolSize), config()); // pool for ogc db
     LOGGER.info("Metering Database Connection done");
     LOGGER.info("OGC Database Connection done");
     binder = new ServiceBinder(vertx);
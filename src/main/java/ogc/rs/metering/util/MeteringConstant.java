@@ -7,6 +7,27 @@ public class MeteringConstant {
   public static final String USER_ID = "userid";
   public static final String EXCHANGE_NAME = "auditing";
   public static final String ROUTING_KEY = "#";
+  public static final String POSTGRES_SPOOL = "postgres";
+  public static final String RMQ_SPOOL = "rmq";
+  /* records that can never be inserted or published, kept for inspection and never replayed */
+  public static final String DEAD_LETTER_SPOOL = "deadletter";
+  public static final String DEFAULT_SPOOL_DIR = "metering-spool";
+  public static final int DEFAULT_SPOOL_REPLAY_INTERVAL_SEC = 30;
+  public static final int DEFAULT_METERING_BATCH_SIZE = 500;
+  public static final String INSERT_METERING_QUERY =
+      "INSERT INTO metering (user_id, collection_id, api_path, timestamp, resp_size) "
+          + "VALUES ($1, $2, $3, $4, $5)";
+  public static final long METERING_PARTITION_MAINTENANCE_INTERVAL_MS = 24 * 60 * 60 * 1000L;
+  public static final int METERING_PARTITIONS_AHEAD_MONTHS = 2;
+  public static final String CREATE_METERING_PARTITIONS_QUERY =
+      "SELECT create_metering_partitions(now()::timestamp, "
+          + "now()::timestamp + make_interval(months => $1))";
+  public static final String DROP_METERING_PARTITIONS_QUERY =
+      "SELECT drop_metering_partitions(now()::timestamp - make_interval(months => $1))";
+  public static final String PRUNE_METERING_HOURLY_QUERY =
+      "DELETE FROM metering_hourly WHERE hour < now()::timestamp - make_interval(months => $1)";
+  public static final String PRUNE_METERING_DAILY_QUERY =
+      "DELETE FROM metering_daily WHERE day < now()::timestamp - make_interval(months => $1)";
   public static final String TIME_RELATION = "timeRelation";
   public static final String DURING = "during";
   public static final String BETWEEN = "between";
@@ -21,21 +42,24 @@ public class MeteringConstant {
   public static final String INVALID_DATE_TIME = "invalid date-time";
   public static final String RESOURCE_ID = "resourceId";
   public static final String CONSUMER_ID = "consumerID";
+  public static final String CURSOR = "cursor";
+  public static final String NEXT_CURSOR = "nextCursor";
   public static final String PROVIDERID_TIME_INTERVAL_COUNT_QUERY =
-      "SELECT count(*) FROM auditing_ogc where time between '$1' and '$2' and providerid='$3'";
+      "SELECT count(*) FROM auditing_ogc where time between $1 and $2 and providerid = $3";
   public static final String CONSUMERID_TIME_INTERVAL_COUNT_QUERY =
-      "SELECT count(*) FROM auditing_ogc where time between '$1' and '$2' and userid='$3'";
+      "SELECT count(*) FROM auditing_ogc where time between $1 and $2 and userid = $3";
   public static final String TOTALHITS = "totalHits";
   public static final String LIMITPARAM = "limit";
   public static final String OFFSETPARAM = "offset";
-  public static final String API_QUERY = " and api='$4' ";
-  public static final String RESOURCEID_QUERY = " and resourceid = '$5' ";
-  public static final String USER_ID_QUERY = " and userid='$6' ";
+  public static final String API_QUERY = " and api = $4 ";
+  public static final String RESOURCEID_QUERY = " and resourceid = $5 ";
+  public static final String USER_ID_QUERY = " and userid = $6 ";
   public static final String PROVIDERID_TIME_INTERVAL_READ_QUERY =
-      "SELECT * FROM auditing_ogc where time between '$1' and '$2' and providerid='$3'";
+      "SELECT * FROM auditing_ogc where time between $1 and $2 and providerid = $3";
   public static final String CONSUMERID_TIME_INTERVAL_READ_QUERY =
-      "SELECT * FROM auditing_ogc where time between '$1' and '$2' and userid='$3'";
-  public static final String ORDER_BY = " ORDER BY time";
+      "SELECT * FROM auditing_ogc where time between $1 and $2 and userid = $3";
+  public static final String AFTER_CURSOR_QUERY = " and (time, id) > ($t::timestamp, $i::varchar)";
+  public static final String ORDER_BY = " ORDER BY time, id";
   public static final String OFFSET_QUERY = " offset $8";
   public static final String LIMIT_QUERY = " limit $7";
   public static final String SUCCESS = "Success";
@@ -49,26 +73,24 @@ public class MeteringConstant {
           + "FROM  (\n"
           + "   SELECT day::date ,to_char(date_trunc('month', day),'FMmonth') as month"
           + ",extract('year' from day) as year\n"
-          + "   FROM   generate_series(timestamp '$0'\n"
-          + "                        , timestamp '$1'\n"
+          + "   FROM   generate_series($1::timestamp\n"
+          + "                        , $2::timestamp\n"
           + "                        , interval  '1 month') day\n"
           + "   ) d\n"
           + "LEFT  JOIN (\n"
           + "   SELECT date_trunc('month', time)::date AS day\n"
           + "        , count(api) as counts \n"
           + "   FROM   auditing_ogc \n"
-          + "   WHERE  time between '$2'\n"
-          + "   AND '$3'\n";
+          + "   WHERE  time between $3\n"
+          + "   AND $4\n";
   public static final String GROUPBY =
       "\n" + "   GROUP  BY 1\n" + "   ) t USING (day)\n" + "ORDER  BY day";
   public static final String COLLECTION_DETAILS_QUERY =
       "select * from collections_details where id = '$1'";
   public static final String SUMMARY_QUERY_FOR_METERING =
       "select resourceid,count(*) from auditing_ogc ";
-  public static final String USERID_SUMMARY = " and userid = '$9' ";
-  public static final String USERID_SUMMARY_WITHOUT_TIME = " userid = '$9' ";
-  public static final String PROVIDERID_SUMMARY = " and providerid = '$8' ";
-  public static final String PROVIDERID_SUMMARY_WITHOUT_TIME = " providerid = '$8' ";
+  public static final String USERID_SUMMARY = "userid = $9";
+  public static final String PROVIDERID_SUMMARY = "providerid = $8";
   public static final String GROUPBY_RESOURCEID = " group by resourceid";
   public static final String DATABASE_TABLE_NAME = "databaseTableName";
 }
@@ -5,9 +5,15 @@ import static ogc.rs.common.Constants.PROVIDER_ID;
 import static ogc.rs.metering.util.MeteringConstant.*;
 
 import io.vertx.core.json.JsonObject;
+import io.vertx.sqlclient.Tuple;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
 import java.util.UUID;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -28,110 +34,150 @@ public class QueryBuilder {
     return request;
   }
 
-  public String buildCountReadQueryFromPg(JsonObject request) {
-    String startTime = request.getString(START_TIME);
-    String endTime = request.getString(END_TIME);
-    String resourceId = request.getString(RESOURCE_ID);
-    String userId = request.getString(USER_ID);
-    String api = request.getString(API);
-    String providerId = request.getString(PROVIDER_ID);
-    String consumerId = request.getString(CONSUMER_ID);
-    StringBuilder query = null;
-
-    if (providerId != null) {
-      query =
-          new StringBuilder(
-              PROVIDERID_TIME_INTERVAL_COUNT_QUERY
-                  .replace("$1", startTime)
-                  .replace("$2", endTime)
-                  .replace("$3", providerId));
-      if (api != null) {
-        query = query.append(API_QUERY.replace("$4", api));
-      }
-      if (resourceId != null) {
-        query = query.append(RESOURCEID_QUERY.replace("$5", resourceId));
-      }
-      if (consumerId != null) {
-        query = query.append(USER_ID_QUERY.replace("$6", consumerId));
-      }
+  /**
+   * Build the query counting the audit records of a provider or consumer report. The query is
+   * parameterised, the parameters are added to <code>tup</code>.
+   *
+   * @param request the report request
+   * @param tup empty tuple to which query params are added
+   * @return the formed query which must be run with the passed-in tuple
+   */
+  public String buildCountReadQueryFromPg(JsonObject request, Tuple tup) {
+    StringBuilder query;
+    if (request.getString(PROVIDER_ID) != null) {
+      query = new StringBuilder(PROVIDERID_TIME_INTERVAL_COUNT_QUERY);
+      tup.addValue(toTimestamp(request.getString(START_TIME)))
+          .addValue(toTimestamp(request.getString(END_TIME)))
+          .addValue(UUID.fromString(request.getString(PROVIDER_ID)));
     } else {
-      query =
-          new StringBuilder(
-              CONSUMERID_TIME_INTERVAL_COUNT_QUERY
-                  .replace("$1", startTime)
-                  .replace("$2", endTime)
-                  .replace("$3", userId));
-      if (api != null) {
-        query = query.append(API_QUERY.replace("$4", api));
-      }
-      if (resourceId != null) {
-        query = query.append(RESOURCEID_QUERY.replace("$5", resourceId));
-      }
+      query = new StringBuilder(CONSUMERID_TIME_INTERVAL_COUNT_QUERY);
+      tup.addValue(toTimestamp(request.getString(START_TIME)))
+          .addValue(toTimestamp(request.getString(END_TIME)))
+          .addValue(UUID.fromString(request.getString(USER_ID)));
     }
+    appendReportFilters(query, request, tup);
     return query.toString();
   }
 
-  public String buildReadQueryForPg(JsonObject jsonObject) {
-
+  /**
+   * Build the query reading a page of the audit records of a provider or consumer report, in
+   * <code>time</code> and <code>id</code> order. The query is parameterised, the parameters are
+   * added to <code>tup</code>. Pages after the first are read from the <code>cursor</code> of the
+   * request, i.e. the <code>time</code> and <code>id</code> of the last record of the previous page
+   * (see {@link #buildCursor(JsonObject)}), so that the records of the previous pages are not read
+   * again as they are with <code>offset</code>. <code>offset</code> is still applied when there is
+   * no cursor.
+   *
+   * @param jsonObject the report request
+   * @param tup empty tuple to which query params are added
+   * @return the formed query which must be run with the passed-in tuple
+   */
+  public String buildReadQueryForPg(JsonObject jsonObject, Tuple tup) {
     StringBuilder query;
-    String checkProvider = jsonObject.getString(PROVIDER_ID);
+    if (jsonObject.getString(PROVIDER_ID) != null) {
+      query = new StringBuilder(PROVIDERID_TIME_INTERVAL_READ_QUERY);
+      tup.addValue(toTimestamp(jsonObject.getString(START_TIME)))
+          .addValue(toTimestamp(jsonObject.getString(END_TIME)))
+          .addValue(UUID.fromString(jsonObject.getString(PROVIDER_ID)));
+    } else {
+      query = new StringBuilder(CONSUMERID_TIME_INTERVAL_READ_QUERY);
+      tup.addValue(toTimestamp(jsonObject.getString(START_TIME)))
+          .addValue(toTimestamp(jsonObject.getString(END_TIME)))
+          .addValue(UUID.fromString(jsonObject.getString(USER_ID)));
+    }
+    appendReportFilters(query, jsonObject, tup);
 
-    if (checkProvider != null) {
-      String startTime = jsonObject.getString(START_TIME);
-      String endTime = jsonObject.getString(END_TIME);
-      String resourceId = jsonObject.getString(RESOURCE_ID);
-      String api = jsonObject.getString(API);
-      String providerId = jsonObject.getString(PROVIDER_ID);
+    String cursor = jsonObject.getString(CURSOR);
+    if (cursor != null) {
+      String[] after = parseCursor(cursor);
+      tup.addValue(LocalDateTime.parse(after[0])).addValue(after[1]);
+      query.append(AFTER_CURSOR_QUERY.replace("$t", "$" + (tup.size() - 1))
+          .replace("$i", "$" + tup.size()));
+    }
 
-      query =
-          new StringBuilder(
-              PROVIDERID_TIME_INTERVAL_READ_QUERY
-                  .replace("$1", startTime)
-                  .replace("$2", endTime)
-                  .replace("$3", providerId));
+    query.append(ORDER_BY);
+    tup.addLong(jsonObject.getLong(LIMITPARAM));
+    query.append(LIMIT_QUERY.replace("$7", "$" + tup.size()));
 
-      if (resourceId != null) {
-        query.append(RESOURCEID_QUERY.replace("$5", resourceId));
-      }
+    long offset = jsonObject.getLong(OFFSETPARAM, 0L);
+    if (cursor == null && offset > 0) {
+      tup.addLong(offset);
+      query.append(OFFSET_QUERY.replace("$8", "$" + tup.size()));
+    }
+    return query.toString();
+  }
 
-      if (api != null) {
-        query.append(API_QUERY.replace("$4", api));
-      }
+  /**
+   * Build the cursor of the page after a record of a report.
+   *
+   * @param lastRecord the last record of a page, with its <code>time</code> and <code>id</code>
+   * @return the cursor of the next page
+   */
+  public String buildCursor(JsonObject lastRecord) {
+    String after = lastRecord.getValue("time").toString() + "," + lastRecord.getString("id");
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(after.getBytes(StandardCharsets.UTF_8));
+  }
 
-      String consumerId = jsonObject.getString(CONSUMER_ID);
-      if (consumerId != null) {
-        query.append(USER_ID_QUERY.replace("$6", consumerId));
-      }
-    } else {
-      String startTime = jsonObject.getString(START_TIME);
-      String endTime = jsonObject.getString(END_TIME);
-      String resourceId = jsonObject.getString(RESOURCE_ID);
-      String userId = jsonObject.getString(USER_ID);
-      String api = jsonObject.getString(API);
+  /**
+   * Check that a cursor was built by {@link #buildCursor(JsonObject)}.
+   *
+   * @param cursor the cursor
+   * @return true if the cursor is valid
+   */
+  public boolean isValidCursor(String cursor) {
+    try {
+      LocalDateTime.parse(parseCursor(cursor)[0]);
+      return true;
+    } catch (IllegalArgumentException | DateTimeParseException e) {
+      return false;
+    }
+  }
 
-      query =
-          new StringBuilder(
-              CONSUMERID_TIME_INTERVAL_READ_QUERY
-                  .replace("$1", startTime)
-                  .replace("$2", endTime)
-                  .replace("$3", userId));
-      if (resourceId != null) {
-        query.append(RESOURCEID_QUERY.replace("$5", resourceId));
-      }
-      if (api != null) {
-        query.append(API_QUERY.replace("$4", api));
-      }
+  /* the time and the id of the record in a cursor */
+  private String[] parseCursor(String cursor) {
+    String after = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    String[] timeAndId = after.split(",", 2);
+    if (timeAndId.length != 2 || timeAndId[1].isEmpty()) {
+      throw new IllegalArgumentException("Invalid cursor");
     }
-    query.append(ORDER_BY);
-    int limit = Integer.parseInt(jsonObject.getString(LIMITPARAM));
-    int offset = Integer.parseInt(jsonObject.getString(OFFSETPARAM));
-    query.append(LIMIT_QUERY.replace("$7", Integer.toString(limit)));
-    query.append(OFFSET_QUERY.replace("$8", Integer.toString(offset)));
+    return timeAndId;
+  }
 
-    return query.toString();
+  /* the api, resourceid and (for providers) userid filters of a report */
+  private void appendReportFilters(StringBuilder query, JsonObject request, Tuple tup) {
+    String api = request.getString(API);
+    if (api != null) {
+      tup.addValue(api);
+      query.append(API_QUERY.replace("$4", "$" + tup.size()));
+    }
+    String resourceId = request.getString(RESOURCE_ID);
+    if (resourceId != null) {
+      tup.addValue(UUID.fromString(resourceId));
+      query.append(RESOURCEID_QUERY.replace("$5", "$" + tup.size()));
+    }
+    String consumerId = request.getString(CONSUMER_ID);
+    if (request.getString(PROVIDER_ID) != null && consumerId != null) {
+      tup.addValue(UUID.fromString(consumerId));
+      query.append(USER_ID_QUERY.replace("$6", "$" + tup.size()));
+    }
   }
 
-  public String buildMonthlyOverview(JsonObject request) {
+  /* the report times are compared with the timestamp column in their local time, as a timestamp
+   * literal would be */
+  private static LocalDateTime toTimestamp(String time) {
+    return ZonedDateTime.parse(time).toLocalDateTime();
+  }
+
+  /**
+   * Build the query counting the API hits of each month of the overview report. The query is
+   * parameterised, the parameters are added to <code>tup</code>.
+   *
+   * @param request the overview request
+   * @param tup empty tuple to which query params are added
+   * @return the formed query which must be run with the passed-in tuple
+   */
+  public String buildMonthlyOverview(JsonObject request, Tuple tup) {
     String role = request.getString(ROLE);
 
     String current = ZonedDateTime.now().toString();
@@ -142,7 +188,7 @@ public class QueryBuilder {
     LocalDateTime utcTime = zonedDateTimeUtc.toLocalDateTime();
     LOGGER.debug("UTCtime =" + utcTime);
     today = zonedDateTimeUtc.getDayOfMonth();
-    String timeYearBack =
+    LocalDateTime timeYearBack =
         utcTime
             .minusYears(1)
             .minusDays(today)
@@ -150,120 +196,71 @@ public class QueryBuilder {
             .withHour(0)
             .withMinute(0)
             .withSecond(0)
-            .toString();
+            .withNano(0);
     LOGGER.debug("Year back =" + timeYearBack);
     String startTime = request.getString(STARTT);
     String endTime = request.getString(ENDT);
     if (startTime != null && endTime != null) {
       ZonedDateTime timeSeries = ZonedDateTime.parse(startTime);
-      String timeSeriesToFirstDay = String.valueOf(timeSeries.withDayOfMonth(1));
+      LocalDateTime timeSeriesToFirstDay = timeSeries.withDayOfMonth(1).toLocalDateTime();
       LOGGER.debug("Time series = " + timeSeriesToFirstDay);
-      if (role.equalsIgnoreCase("admin")) {
-        monthQuery =
-            new StringBuilder(
-                OVERVIEW_QUERY
-                    .concat(GROUPBY)
-                    .replace("$0", timeSeriesToFirstDay)
-                    .replace("$1", endTime)
-                    .replace("$2", startTime)
-                    .replace("$3", endTime));
-      } else if (role.equalsIgnoreCase("consumer")) {
-        String userId = request.getString(USER_ID);
-        monthQuery =
-            new StringBuilder(
-                OVERVIEW_QUERY
-                    .concat(" and userid = '$4' ")
-                    .concat(GROUPBY)
-                    .replace("$0", timeSeriesToFirstDay)
-                    .replace("$1", endTime)
-                    .replace("$2", startTime)
-                    .replace("$3", endTime)
-                    .replace("$4", userId));
-      } else if (role.equalsIgnoreCase("provider") || role.equalsIgnoreCase("delegate")) {
-        String providerId = request.getString("providerid");
-        LOGGER.debug("Provider = {}", providerId);
-        monthQuery =
-            new StringBuilder(
-                OVERVIEW_QUERY
-                    .concat(" and providerid = '$4' ")
-                    .concat(GROUPBY)
-                    .replace("$0", timeSeriesToFirstDay)
-                    .replace("$1", endTime)
-                    .replace("$2", startTime)
-                    .replace("$3", endTime)
-                    .replace("$4", providerId));
-      }
+      tup.addValue(timeSeriesToFirstDay)
+          .addValue(toTimestamp(endTime))
+          .addValue(toTimestamp(startTime))
+          .addValue(toTimestamp(endTime));
     } else {
-      if (role.equalsIgnoreCase("admin")) {
-        monthQuery =
-            new StringBuilder(
-                OVERVIEW_QUERY
-                    .concat(GROUPBY)
-                    .replace("$0", timeYearBack)
-                    .replace("$1", utcTime.toString())
-                    .replace("$2", timeYearBack)
-                    .replace("$3", utcTime.toString()));
-      } else if (role.equalsIgnoreCase("consumer")) {
-        String userId = request.getString(USER_ID);
-        monthQuery =
-            new StringBuilder(
-                OVERVIEW_QUERY
-                    .concat(" and userid = '$4' ")
-                    .concat(GROUPBY)
-                    .replace("$0", timeYearBack)
-                    .replace("$1", utcTime.toString())
-                    .replace("$2", timeYearBack)
-                    .replace("$3", utcTime.toString())
-                    .replace("$4", userId));
-      } else if (role.equalsIgnoreCase("provider") || role.equalsIgnoreCase("delegate")) {
-        String providerId = request.getString("providerid");
-        LOGGER.debug("Provider = {}", providerId);
-        monthQuery =
-            new StringBuilder(
-                OVERVIEW_QUERY
-                    .concat(" and providerid = '$4' ")
-                    .concat(GROUPBY)
-                    .replace("$0", timeYearBack)
-                    .replace("$1", utcTime.toString())
-                    .replace("$2", timeYearBack)
-                    .replace("$3", utcTime.toString())
-                    .replace("$4", providerId));
-      }
+      tup.addValue(timeYearBack)
+          .addValue(utcTime)
+          .addValue(timeYearBack)
+          .addValue(utcTime);
+    }
+
+    monthQuery = new StringBuilder(OVERVIEW_QUERY);
+    if (role.equalsIgnoreCase("consumer")) {
+      tup.addValue(UUID.fromString(request.getString(USER_ID)));
+      monthQuery.append(" and userid = $5 ");
+    } else if (role.equalsIgnoreCase("provider") || role.equalsIgnoreCase("delegate")) {
+      String providerId = request.getString("providerid");
+      LOGGER.debug("Provider = {}", providerId);
+      tup.addValue(UUID.fromString(providerId));
+      monthQuery.append(" and providerid = $5 ");
     }
+    monthQuery.append(GROUPBY);
 
     return monthQuery.toString();
   }
 
-  public String buildSummaryOverview(JsonObject request) {
+  /**
+   * Build the query counting the API hits of each resource of the summary report. The query is
+   * parameterised, the parameters are added to <code>tup</code>.
+   *
+   * @param request the summary request
+   * @param tup empty tuple to which query params are added
+   * @return the formed query which must be run with the passed-in tuple
+   */
+  public String buildSummaryOverview(JsonObject request, Tuple tup) {
     String startTime = request.getString(STARTT);
     String endTime = request.getString(ENDT);
     String role = request.getString(ROLE);
 
     StringBuilder summaryQuery = new StringBuilder(SUMMARY_QUERY_FOR_METERING);
+    List<String> conditions = new ArrayList<>();
     if (startTime != null && endTime != null) {
-      summaryQuery.append(
-          " where time between '$2' AND '$3' ".replace("$2", startTime).replace("$3", endTime));
-      if (role.equalsIgnoreCase("provider") || role.equalsIgnoreCase("delegate")) {
-        String providerId = request.getString("providerid");
-        LOGGER.debug("Provider = {}", providerId);
-        summaryQuery.append(PROVIDERID_SUMMARY.replace("$8", providerId));
-      }
-      if (role.equalsIgnoreCase("consumer")) {
-        String userid = request.getString(USER_ID);
-        summaryQuery.append(USERID_SUMMARY.replace("$9", userid));
-      }
-    } else {
-      if (role.equalsIgnoreCase("provider") || role.equalsIgnoreCase("delegate")) {
-        String providerId = request.getString("providerid");
-        LOGGER.debug("Provider = {}", providerId);
-        summaryQuery.append(" where ");
-        summaryQuery.append(PROVIDERID_SUMMARY_WITHOUT_TIME.replace("$8", providerId));
-      }
-      if (role.equalsIgnoreCase("consumer")) {
-        String userid = request.getString(USER_ID);
-        summaryQuery.append(" where ");
-        summaryQuery.append(USERID_SUMMARY_WITHOUT_TIME.replace("$9", userid));
-      }
+      tup.addValue(toTimestamp(startTime)).addValue(toTimestamp(endTime));
+      conditions.add("time between $1 AND $2");
+    }
+    if (role.equalsIgnoreCase("provider") || role.equalsIgnoreCase("delegate")) {
+      String providerId = request.getString("providerid");
+      LOGGER.debug("Provider = {}", providerId);
+      tup.addValue(UUID.fromString(providerId));
+      conditions.add(PROVIDERID_SUMMARY.replace("$8", "$" + tup.size()));
+    }
+    if (role.equalsIgnoreCase("consumer")) {
+      tup.addValue(UUID.fromString(request.getString(USER_ID)));
+      conditions.add(USERID_SUMMARY.replace("$9", "$" + tup.size()));
+    }
+    if (!conditions.isEmpty()) {
+      summaryQuery.append(" where ").append(String.join(" and ", conditions));
     }
     summaryQuery.append(GROUPBY_RESOURCEID);
     return summaryQuery.toString();
@@ -13,7 +13,7 @@ import io.vertx.ext.web.client.WebClientOptions;
 import io.vertx.pgclient.PgConnectOptions;
 import io.vertx.pgclient.PgPool;
 import io.vertx.serviceproxy.ServiceBinder;
-import io.vertx.sqlclient.PoolOptions;
+import ogc.rs.common.PgPools;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -22,14 +22,12 @@ public class ProcessVerticle extends AbstractVerticle {
   private MessageConsumer<JsonObject> consumer;
   private ServiceBinder binder;
   private PgConnectOptions connectOptions;
-  private PoolOptions poolOptions;
   private PgPool pool;
   private String databaseIp;
   private int databasePort;
   private String databaseName;
   private String databaseUserName;
   private String databasePassword;
-  private int poolSize;
   private ProcessesRunnerService processService;
   private HttpClient httpClient;
 
@@ -53,7 +51,6 @@ public class ProcessVerticle extends AbstractVerticle {
     databaseName = config().getString("databaseName");
     databaseUserName = config().getString("databaseUser");
     databasePassword = config().getString("databasePassword");
-    poolSize = config().getInteger("poolSize");
 
     this.connectOptions =
       new PgConnectOptions()
@@ -66,8 +63,8 @@ public class ProcessVerticle extends AbstractVerticle {
         .setReconnectInterval(1000L)
         .setTcpKeepAlive(true);
 
-    this.poolOptions = new PoolOptions().setMaxSize(poolSize);
-    this.pool = PgPool.pool(vertx, connectOptions, poolOptions);
+    // shared by all instances of the verticle
+    this.pool = PgPools.get(vertx, PgPools.PROCESSES_POOL, connectOptions, config());
     this.httpClient = vertx.createHttpClient(new HttpClientOptions().setShared(true));
 
     processService = new ProcessesRunnerImpl(pool,createWebClient(vertx),config(),vertx);
@@ -8,6 +8,7 @@ import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.Row;
 import io.vertx.sqlclient.Tuple;
 import ogc.rs.apiserver.util.ProcessException;
 import ogc.rs.common.DataFromS3;
@@ -32,6 +33,7 @@ import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+import static ogc.rs.common.Constants.FEATURES_APPENDED_ADDRESS;
 import static ogc.rs.processes.collectionAppending.Constants.*;
 
 
@@ -134,6 +136,7 @@ public class CollectionAppendingProcess implements ProcessService {
                 .compose(progressUpdateHandler->collectionOnboarding.ogr2ogrCmdExtent(requestInput))
                 .compose(checkDbHandler -> utilClass.updateJobTableStatus(requestInput, Status.SUCCESSFUL,BBOX_UPDATE_MESSAGE))
                 .onSuccess(successHandler -> {
+                    publishAppendedExtent(requestInput);
                     deleteTempTable(requestInput)
                             .onComplete(deleteHandler ->
                                     LOGGER.debug(APPEND_SUCCESS_MESSAGE)
@@ -553,8 +556,18 @@ public class CollectionAppendingProcess implements ProcessService {
                     pgPool.withConnection(sqlConnection ->
                             sqlConnection.query(mergeQuery)
                                     .execute()
-                                    .onSuccess(successHandler -> {
+                                    .compose(merged -> sqlConnection
+                                            .query(String.format(TEMP_TABLE_EXTENT_QUERY, tempTableName))
+                                            .execute())
+                                    .onSuccess(extentRows -> {
                                         LOGGER.debug(MERGE_TEMP_TABLE_MESSAGE + " " + "for jobId - {}:",jobId);
+                                        // extent of the appended features, used to invalidate generated vector tiles
+                                        Row extent = extentRows.iterator().next();
+                                        if (extent.getValue("xmin") != null) {
+                                            requestInput.put("appendedExtent", new JsonArray()
+                                                    .add(extent.getDouble("xmin")).add(extent.getDouble("ymin"))
+                                                    .add(extent.getDouble("xmax")).add(extent.getDouble("ymax")));
+                                        }
                                         promise.complete();
                                     })
                                     .onFailure(failureHandler -> {
@@ -568,6 +581,26 @@ public class CollectionAppendingProcess implements ProcessService {
         return promise.future();
     }
 
+    /**
+     * Publishes the extent of the appended features so that API servers can drop cached vector tiles
+     * of the collection that are now stale.
+     *
+     * @param requestInput The JsonObject containing input parameters for the operation, including
+     *                     collectionsDetailsTableId and the appendedExtent set by the merge.
+     */
+
+    private void publishAppendedExtent(JsonObject requestInput) {
+
+        JsonArray appendedExtent = requestInput.getJsonArray("appendedExtent");
+        if (appendedExtent == null) {
+            return;
+        }
+
+        vertx.eventBus().publish(FEATURES_APPENDED_ADDRESS, new JsonObject()
+                .put("collectionId", requestInput.getString("collectionsDetailsTableId"))
+                .put("bbox", appendedExtent));
+    }
+
     /**
      * Deletes the temporary table associated with the given job ID from the PostgreSQL database.
      *
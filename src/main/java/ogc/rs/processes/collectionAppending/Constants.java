@@ -9,6 +9,9 @@ public class Constants {
             "INSERT INTO \"%s\" (%s) SELECT %s FROM \"%s\"";
     public static final String DELETE_TEMP_TABLE_QUERY =
             "DROP TABLE IF EXISTS \"%s\"";
+    public static final String TEMP_TABLE_EXTENT_QUERY =
+            "SELECT ST_XMin(extent) AS xmin, ST_YMin(extent) AS ymin, ST_XMax(extent) AS xmax,"
+                    + " ST_YMax(extent) AS ymax FROM (SELECT ST_Extent(geom) AS extent FROM \"%s\") AS appended";
     public static final String STARTING_APPEND_PROCESS_MESSAGE =
             "Starting collection append process.";
     public static final String RESOURCE_OWNERSHIP_CHECK_MESSAGE=
@@ -12,9 +12,35 @@ public class Constants {
     public static final String PROCESS_SUCCESS_MESSAGE = "Tiles Onboarding Process completed successfully!";
     public static final String PROCESS_FAILURE_MESSAGE = "Tiles Onboarding process failed!";
     public static final String HANDLE_FAILURE_MESSAGE = "Failed to update job table status to FAILED after handler failure";
-    public static final String OGR_2_OGR_FAILED = "Failed to onboard tiles using OGR2OGR.";
+    public static final String TILE_UPLOAD_FAILED = "Failed to upload tiles to S3.";
+    public static final String SEEDING_PROGRESS_MESSAGE = "Seeding tiles: %d units done, %d tiles uploaded";
+    public static final String TILE_MATRIX_SET = "WorldCRS84Quad";
 
     //SQL Constants
     public static final String COLLECTION_TYPE_SELECT_QUERY = "SELECT type from collection_type where collection_id = $1";
+    public static final String STORAGE_SRID_SELECT_QUERY = "SELECT srid FROM collections_details JOIN crs_to_srid"
+            + " ON collections_details.crs = crs_to_srid.crs AND collections_details.id = $1::uuid";
+    // Tiles of one quadrant of a WorldCRS84Quad tile matrix covered by the bbox of a feature. $1 is the tile size in
+    // degrees, $2 to $5 the column and row range of the quadrant and $6 to $9 its extent.
+    public static final String SEEDING_CANDIDATE_TILES_QUERY = "SELECT DISTINCT tile_col, tile_row FROM"
+            + " (SELECT ST_Envelope(ST_Transform(geom, 4326)) AS geom FROM \"%1$s\""
+            + " WHERE ST_Intersects(geom, ST_Transform(ST_MakeEnvelope($6, $7, $8, $9, 4326), %2$d))) features,"
+            + " LATERAL generate_series(GREATEST($2, floor((ST_XMin(geom) + 180) / $1)::bigint),"
+            + " LEAST($3, floor((ST_XMax(geom) + 180) / $1)::bigint)) AS tile_col,"
+            + " LATERAL generate_series(GREATEST($4, floor((90 - ST_YMax(geom)) / $1)::bigint),"
+            + " LEAST($5, floor((90 - ST_YMin(geom)) / $1)::bigint)) AS tile_row";
+    // A WorldCRS84Quad tile matrix is the lower half of the square tile matrix with one more level, spanning
+    // -180,-270 to 180,90, which is the GDAL tiling scheme used earlier. $1 is the tile matrix, $2 the column, $3 the row.
+    public static final String SEEDING_RENDER_TILE_QUERY = "WITH bounds AS (SELECT ST_TileEnvelope($1::int + 1,"
+            + " $2::int, $3::int, ST_MakeEnvelope(-180, -270, 180, 90, 4326)) AS envelope),"
+            + " mvt_features AS (SELECT id, ST_AsMVTGeom(ST_Transform(geom, 4326), bounds.envelope, 4096, 64, true) AS geom,"
+            + " (row_to_json(\"%1$s\")::jsonb - 'id' - 'geom') AS properties FROM \"%1$s\", bounds"
+            + " WHERE ST_Intersects(geom, ST_Transform(bounds.envelope, %2$d)))"
+            + " SELECT ST_AsMVT(mvt_features.*, '%1$s', 4096, 'geom', 'id') AS tile FROM mvt_features";
+    public static final String LATEST_CHECKPOINT_SELECT_QUERY = "SELECT checkpoint FROM jobs_table WHERE process_id = $1"
+            + " AND input->>'resourceId' = $2 AND id != $3 AND status IN ('FAILED', 'RUNNING') AND checkpoint IS NOT NULL"
+            + " ORDER BY updated_at DESC LIMIT 1";
+    public static final String UPDATE_JOB_CHECKPOINT_QUERY = "UPDATE jobs_table SET checkpoint = $1, updated_at = NOW()"
+            + " WHERE id = $2";
 
 }
@@ -0,0 +1,364 @@
+package ogc.rs.processes.tilesOnboardingFromExistingFeature;
+
+import static ogc.rs.processes.tilesOnboardingFromExistingFeature.Constants.*;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.Cursor;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.Tuple;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+import ogc.rs.processes.util.UtilClass;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+/**
+ * Renders the WorldCRS84Quad MVT tile pyramid of a feature collection from PostGIS and uploads the
+ * tiles to S3 as <code>{collectionId}/{tileMatrixSet}/{tileMatrix}/{tileCol}/{tileRow}.pbf</code>.
+ *
+ * <p>The pyramid is partitioned into units of one zoom level and one quadrant of its tile matrix.
+ * The units are seeded one after the other. Within a unit, the tiles whose extent holds features
+ * are read from a DB cursor and rendered by parallel workers with <code>ST_AsMVT</code>. Non-empty
+ * tiles are uploaded with bounded concurrency. Once a unit is done it is recorded in the
+ * <code>checkpoint</code> column of the job. A later job seeding the same collection with the same
+ * zoom levels continues from the checkpoint of the last job that did not finish.
+ */
+public class TileSeeder {
+  private static final Logger LOGGER = LogManager.getLogger(TileSeeder.class);
+
+  private static final int CURSOR_FETCH_SIZE = 500;
+  private static final int QUADRANTS = 4;
+  /* WorldCRS84Quad is 2x1 tiles of 180 degrees at tile matrix 0 */
+  private static final double TILE_MATRIX_0_TILE_SIZE = 180.0;
+  private static final String TILE_CONTENT_TYPE = "application/vnd.mapbox-vector-tile";
+
+  private final Vertx vertx;
+  private final PgPool pgPool;
+  private final UtilClass utilClass;
+  private final S3Client s3Client;
+  private final String bucket;
+  private final int renderConcurrency;
+  private final int uploadConcurrency;
+
+  /**
+   * @param vertx the Vertx instance
+   * @param pgPool the PostgreSQL connection pool
+   * @param s3Client client for the bucket the tiles are uploaded to
+   * @param bucket the bucket the tiles are uploaded to
+   * @param renderConcurrency max number of tiles rendered at a time, each uses a DB connection
+   * @param uploadConcurrency max number of tiles uploaded at a time
+   */
+  public TileSeeder(Vertx vertx, PgPool pgPool, S3Client s3Client, String bucket,
+      int renderConcurrency, int uploadConcurrency) {
+    this.vertx = vertx;
+    this.pgPool = pgPool;
+    this.utilClass = new UtilClass(pgPool);
+    this.s3Client = s3Client;
+    this.bucket = bucket;
+    this.renderConcurrency = renderConcurrency;
+    this.uploadConcurrency = uploadConcurrency;
+  }
+
+  /**
+   * Seed the tiles of a collection between the min and max zoom levels of the request, resuming
+   * from the checkpoint of an earlier job if there is one.
+   *
+   * @param requestInput the process input, with jobId, processId, resourceId, tileMatrixSet,
+   *     minZoomLevel and maxZoomLevel
+   * @param progressFrom job progress when seeding starts
+   * @param progressTo job progress when seeding ends
+   * @return future completed with the number of tiles uploaded by this job
+   */
+  public Future<Long> seed(JsonObject requestInput, float progressFrom, float progressTo) {
+    String collectionId = requestInput.getString("resourceId");
+    int minZoomLevel = requestInput.getInteger("minZoomLevel");
+    int maxZoomLevel = requestInput.getInteger("maxZoomLevel");
+    List<String> units = units(minZoomLevel, maxZoomLevel);
+
+    return Future.all(getStorageSrid(collectionId), loadCheckpoint(requestInput))
+        .compose(loaded -> {
+          int srid = loaded.resultAt(0);
+          Set<String> completedUnits = loaded.resultAt(1);
+
+          if (!completedUnits.isEmpty()) {
+            LOGGER.info("Resuming tile seeding of {}, {} of {} units already done", collectionId,
+                completedUnits.size(), units.size());
+          }
+
+          SeedingState state = new SeedingState(completedUnits);
+          Future<Void> seeding = Future.succeededFuture();
+          for (String unit : units) {
+            seeding = seeding.compose(previous -> {
+              if (state.completedUnits.contains(unit)) {
+                return Future.succeededFuture();
+              }
+              return seedUnit(collectionId, srid, unit, state)
+                  .compose(seeded -> {
+                    state.completedUnits.add(unit);
+                    float progress = progressFrom
+                        + (progressTo - progressFrom) * state.completedUnits.size() / units.size();
+                    return saveCheckpoint(requestInput, state, progress);
+                  });
+            });
+          }
+          return seeding.map(seeded -> state.tilesUploaded);
+        });
+  }
+
+  /**
+   * Get the units of the zoom levels to seed, in the order they are seeded.
+   *
+   * @param minZoomLevel the min zoom level
+   * @param maxZoomLevel the max zoom level
+   * @return the units, as <code>{tileMatrix}/{quadrant}</code>
+   */
+  static List<String> units(int minZoomLevel, int maxZoomLevel) {
+    List<String> units = new ArrayList<>();
+    for (int tileMatrix = minZoomLevel; tileMatrix <= maxZoomLevel; tileMatrix++) {
+      for (int quadrant = 0; quadrant < QUADRANTS; quadrant++) {
+        units.add(tileMatrix + "/" + quadrant);
+      }
+    }
+    return units;
+  }
+
+  /**
+   * Get the tiles of a unit. Quadrants 0 and 1 are the upper half, 0 and 2 the left half of the
+   * tile matrix. The lower quadrants of tile matrix 0, which is one tile high, are empty.
+   *
+   * @param unit the unit, as <code>{tileMatrix}/{quadrant}</code>
+   * @return the tile columns and rows of the unit, or null if the unit is empty
+   */
+  static UnitTiles unitTiles(String unit) {
+    String[] unitParts = unit.split("/");
+    int tileMatrix = Integer.parseInt(unitParts[0]);
+    int quadrant = Integer.parseInt(unitParts[1]);
+
+    long matrixWidth = 2L << tileMatrix;
+    long matrixHeight = 1L << tileMatrix;
+
+    long colMin = quadrant % 2 == 0 ? 0 : matrixWidth / 2;
+    long colMax = quadrant % 2 == 0 ? matrixWidth / 2 - 1 : matrixWidth - 1;
+    long rowMin = quadrant < 2 ? 0 : (matrixHeight + 1) / 2;
+    long rowMax = quadrant < 2 ? (matrixHeight + 1) / 2 - 1 : matrixHeight - 1;
+
+    if (rowMin > rowMax) {
+      return null;
+    }
+    return new UnitTiles(tileMatrix, colMin, colMax, rowMin, rowMax);
+  }
+
+  /**
+   * Seed the tiles of one unit, i.e. one quadrant of a tile matrix. Candidate tiles are those
+   * covered by the bounding box of a feature, they are read with a cursor so that a unit at a high
+   * zoom level does not have to be held in memory.
+   */
+  private Future<Void> seedUnit(String collectionId, int srid, String unit, SeedingState state) {
+    UnitTiles tiles = unitTiles(unit);
+    if (tiles == null) {
+      return Future.succeededFuture();
+    }
+
+    int tileMatrix = tiles.tileMatrix;
+    double tileSize = TILE_MATRIX_0_TILE_SIZE / (1L << tileMatrix);
+
+    Tuple candidateParams =
+        Tuple.of(tileSize, tiles.colMin, tiles.colMax, tiles.rowMin, tiles.rowMax)
+            .addDouble(-180 + tiles.colMin * tileSize)
+            .addDouble(90 - (tiles.rowMax + 1) * tileSize)
+            .addDouble(-180 + (tiles.colMax + 1) * tileSize)
+            .addDouble(90 - tiles.rowMin * tileSize);
+
+    String candidateQuery = String.format(SEEDING_CANDIDATE_TILES_QUERY, collectionId, srid);
+    String renderQuery = String.format(SEEDING_RENDER_TILE_QUERY, collectionId, srid);
+
+    LOGGER.debug("Seeding tiles of {} for unit {}", collectionId, unit);
+
+    return pgPool.withTransaction(conn -> conn.prepare(candidateQuery)
+        .compose(statement -> seedFromCursor(statement.cursor(candidateParams), collectionId,
+            tileMatrix, renderQuery, state)));
+  }
+
+  private Future<Void> seedFromCursor(Cursor cursor, String collectionId, int tileMatrix,
+      String renderQuery, SeedingState state) {
+    return cursor.read(CURSOR_FETCH_SIZE).compose(rows -> {
+      List<Future<Void>> tiles = new ArrayList<>();
+
+      for (Row row : rows) {
+        long tileCol = row.getLong("tile_col");
+        long tileRow = row.getLong("tile_row");
+        String objectKey = collectionId + "/" + TILE_MATRIX_SET + "/" + tileMatrix + "/" + tileCol
+            + "/" + tileRow + ".pbf";
+
+        tiles.add(state.renders
+            .submit(() -> pgPool
+                .preparedQuery(renderQuery)
+                .execute(Tuple.of(tileMatrix, tileCol, tileRow))
+                .map(rendered -> rendered.iterator().next().getBuffer("tile")))
+            .compose(tile -> {
+              if (tile == null || tile.length() == 0) {
+                return Future.succeededFuture();
+              }
+              return state.uploads.submit(() -> upload(objectKey, tile));
+            }));
+      }
+
+      return Future.all(tiles).compose(done -> {
+        if (cursor.hasMore()) {
+          return seedFromCursor(cursor, collectionId, tileMatrix, renderQuery, state);
+        }
+        return cursor.close();
+      });
+    });
+  }
+
+  private Future<Void> upload(String objectKey, Buffer tile) {
+    return vertx.<Void>executeBlocking(promise -> {
+      try {
+        s3Client.putObject(PutObjectRequest.builder()
+            .bucket(bucket)
+            .key(objectKey)
+            .contentType(TILE_CONTENT_TYPE)
+            .build(), RequestBody.fromBytes(tile.getBytes()));
+        promise.complete();
+      } catch (Exception e) {
+        LOGGER.error("Failed to upload tile {} - {}", objectKey, e.getMessage());
+        promise.fail(TILE_UPLOAD_FAILED);
+      }
+    }, false);
+  }
+
+  private Future<Integer> getStorageSrid(String collectionId) {
+    return pgPool.preparedQuery(STORAGE_SRID_SELECT_QUERY)
+        .execute(Tuple.of(UUID.fromString(collectionId)))
+        .compose(rows -> rows.size() == 0
+            ? Future.failedFuture(RESOURCE_NOT_ONBOARDED_MESSAGE)
+            : Future.succeededFuture(rows.iterator().next().getInteger("srid")));
+  }
+
+  /**
+   * Get the units completed by the last unfinished job that seeded the same collection and zoom
+   * levels, and carry them over to the current job.
+   */
+  private Future<Set<String>> loadCheckpoint(JsonObject requestInput) {
+    Tuple params = Tuple.of(UUID.fromString(requestInput.getString("processId")),
+        requestInput.getString("resourceId"), UUID.fromString(requestInput.getString("jobId")));
+
+    return pgPool.preparedQuery(LATEST_CHECKPOINT_SELECT_QUERY).execute(params).map(rows ->
+        rows.size() == 0
+            ? new LinkedHashSet<String>()
+            : completedUnits(requestInput,
+                (JsonObject) rows.iterator().next().getValue("checkpoint")));
+  }
+
+  /**
+   * Get the units of a checkpoint that a job can resume from. Units are only carried over if the
+   * checkpoint was saved for the same tile matrix set and zoom levels.
+   *
+   * @param requestInput the process input
+   * @param checkpoint the checkpoint of an earlier job
+   * @return the completed units of the checkpoint, or none
+   */
+  static Set<String> completedUnits(JsonObject requestInput, JsonObject checkpoint) {
+    Set<String> completedUnits = new LinkedHashSet<>();
+    if (requestInput.getString("tileMatrixSet").equals(checkpoint.getString("tileMatrixSet"))
+        && requestInput.getInteger("minZoomLevel").equals(checkpoint.getInteger("minZoomLevel"))
+        && requestInput.getInteger("maxZoomLevel").equals(checkpoint.getInteger("maxZoomLevel"))) {
+      checkpoint.getJsonArray("completedUnits", new JsonArray())
+          .forEach(unit -> completedUnits.add(unit.toString()));
+    }
+    return completedUnits;
+  }
+
+  private Future<Void> saveCheckpoint(JsonObject requestInput, SeedingState state,
+      float progress) {
+    JsonObject checkpoint = new JsonObject()
+        .put("tileMatrixSet", requestInput.getString("tileMatrixSet"))
+        .put("minZoomLevel", requestInput.getInteger("minZoomLevel"))
+        .put("maxZoomLevel", requestInput.getInteger("maxZoomLevel"))
+        .put("completedUnits", new JsonArray(new ArrayList<>(state.completedUnits)));
+
+    return pgPool.preparedQuery(UPDATE_JOB_CHECKPOINT_QUERY)
+        .execute(Tuple.of(checkpoint, UUID.fromString(requestInput.getString("jobId"))))
+        .compose(updated -> utilClass.updateJobTableProgress(requestInput
+            .put("progress", progress)
+            .put("message", String.format(SEEDING_PROGRESS_MESSAGE, state.completedUnits.size(),
+                state.tilesUploaded))));
+  }
+
+  /** The tile columns and rows of a unit, bounds included. */
+  static final class UnitTiles {
+    final int tileMatrix;
+    final long colMin;
+    final long colMax;
+    final long rowMin;
+    final long rowMax;
+
+    private UnitTiles(int tileMatrix, long colMin, long colMax, long rowMin, long rowMax) {
+      this.tileMatrix = tileMatrix;
+      this.colMin = colMin;
+      this.colMax = colMax;
+      this.rowMin = rowMin;
+      this.rowMax = rowMax;
+    }
+  }
+
+  private final class SeedingState {
+    private final Set<String> completedUnits;
+    private final BoundedRunner renders = new BoundedRunner(renderConcurrency);
+    private final BoundedRunner uploads = new BoundedRunner(uploadConcurrency);
+    private long tilesUploaded;
+
+    private SeedingState(Set<String> completedUnits) {
+      this.completedUnits = completedUnits;
+      this.uploads.onSuccess = () -> tilesUploaded++;
+    }
+  }
+
+  /** Runs asynchronous tasks with at most a given number of them in progress at a time. */
+  private static final class BoundedRunner {
+    private final int maxRunning;
+    private final Queue<Runnable> waiting = new ArrayDeque<>();
+    private int running;
+    private Runnable onSuccess = () -> {};
+
+    private BoundedRunner(int maxRunning) {
+      this.maxRunning = maxRunning;
+    }
+
+    private <T> Future<T> submit(Supplier<Future<T>> task) {
+      Promise<T> promise = Promise.promise();
+      waiting.add(() -> task.get()
+          .onSuccess(result -> onSuccess.run())
+          .onComplete(result -> {
+            running--;
+            runWaiting();
+            promise.handle(result);
+          }));
+      runWaiting();
+      return promise.future();
+    }
+
+    private void runWaiting() {
+      while (running < maxRunning && !waiting.isEmpty()) {
+        running++;
+        waiting.poll().run();
+      }
+    }
+  }
+}
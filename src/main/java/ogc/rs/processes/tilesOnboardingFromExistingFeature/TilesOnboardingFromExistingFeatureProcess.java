@@ -14,20 +14,21 @@ import ogc.rs.processes.tilesMetaDataOnboarding.TilesMetaDataOnboardingProcess;
 import static ogc.rs.processes.tilesOnboardingFromExistingFeature.Constants.*;
 import ogc.rs.processes.util.Status;
 import ogc.rs.processes.util.UtilClass;
-import org.apache.commons.exec.CommandLine;
-import org.apache.commons.exec.DefaultExecutor;
-import org.apache.commons.exec.ExecuteWatchdog;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import java.io.IOException;
-import java.time.Duration;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Process for onboarding tiles from an existing feature collection.
- * This process includes checking the collection type, converting features to tiles using ogr2ogr,
- * uploading to S3, and handling tiles metadata onboarding.
+ * This process includes checking the collection type, seeding MVT tiles from the features into S3
+ * using {@link TileSeeder}, and handling tiles metadata onboarding.
  */
 public class TilesOnboardingFromExistingFeatureProcess implements ProcessService{
     private static final Logger LOGGER = LogManager.getLogger(TilesOnboardingFromExistingFeatureProcess.class);
@@ -37,11 +38,8 @@ public class TilesOnboardingFromExistingFeatureProcess implements ProcessService
     private final CollectionOnboardingProcess featureCollectionOnboarding;
     private final TilesMetaDataOnboardingProcess tilesMetaDataOnboarding;
     private final S3Config s3conf;
-    private String databaseName;
-    private String databaseHost;
-    private String databasePassword;
-    private String databaseUser;
-    private int databasePort;
+    private final int renderConcurrency;
+    private final int uploadConcurrency;
 
     /**
      * Constructor for TilesOnboardingFromExistingFeatureProcess.
@@ -56,23 +54,15 @@ public class TilesOnboardingFromExistingFeatureProcess implements ProcessService
         this.vertx = vertx;
         this.pgPool = pgPool;
         this.utilClass = new UtilClass(pgPool);
-        this.s3conf = s3conf;
         this.featureCollectionOnboarding = new CollectionOnboardingProcess(pgPool, webClient, config, s3conf, vertx);
         this.tilesMetaDataOnboarding = new TilesMetaDataOnboardingProcess(pgPool, webClient, config, s3conf, vertx);
-        initializeConfig(config);
-    }
 
-    /**
-     * Initializes configuration parameters from the provided JsonObject.
-     *
-     * @param config the configuration object
-     */
-    private void initializeConfig(JsonObject config){
-        this.databaseName = config.getString("databaseName");
-        this.databaseHost = config.getString("databaseHost");
-        this.databasePassword = config.getString("databasePassword");
-        this.databaseUser = config.getString("databaseUser");
-        this.databasePort = config.getInteger("databasePort");
+        this.s3conf = s3conf;
+
+        // each tile being rendered holds a DB connection, leave one for the job table updates
+        this.renderConcurrency = Math.max(1, Math.min(config.getInteger("tileSeedingRenderConcurrency", 4),
+                config.getInteger("poolSize", 5) - 1));
+        this.uploadConcurrency = config.getInteger("tileSeedingUploadConcurrency", 8);
     }
 
     /**
@@ -84,7 +74,7 @@ public class TilesOnboardingFromExistingFeatureProcess implements ProcessService
     public Future<JsonObject> execute(JsonObject requestInput){
         Promise<JsonObject> promise = Promise.promise();
 
-        requestInput.put("tileMatrixSet","WorldCRS84Quad");
+        requestInput.put("tileMatrixSet",TILE_MATRIX_SET);
         requestInput.put("collectionType", "VECTOR");
         requestInput.put("pureTile", false);
         requestInput.put("progress",calculateProgress(1));
@@ -156,131 +146,38 @@ public class TilesOnboardingFromExistingFeatureProcess implements ProcessService
     }
 
     /**
-     * Onboards tiles from an existing feature collection using ogr2ogr. Note, if tiles are present
-     * in S3 at the exact location, <code>ogr2ogr<code> will not overwrite the tiles and will fail.
+     * Onboards tiles from an existing feature collection by seeding the MVT tiles of the requested zoom levels
+     * from PostGIS into S3. Existing tiles at the same location are overwritten, and a job that failed part way
+     * through is resumed by the next job for the same collection and zoom levels.
      *
      * @param requestInput the input JSON object containing process parameters
      * @return a Future containing the result of the onboarding operation
      */
     private Future<JsonObject> onboardTilesFromExistingFeatureCollection(JsonObject requestInput){
-        Promise<JsonObject> promise = Promise.promise();
-        boolean VERTX_EXECUTE_BLOCKING_IN_ORDER = false;
-        vertx.<JsonObject>executeBlocking(
-                        onboardingPromise -> {
-                            LOGGER.debug("Trying to onboard tiles from the existing feature collection...");
-                            CommandLine cmdLine = getCommandLineOgr2Ogr(requestInput);
-                            DefaultExecutor defaultExecutor = DefaultExecutor.builder().get();
-                            defaultExecutor.setExitValue(0);
-                            ExecuteWatchdog watchDog = ExecuteWatchdog.builder().setTimeout(Duration.ofHours(1)).get();
-                            defaultExecutor.setWatchdog(watchDog);
-
-                            try{
-                                int exitValue = defaultExecutor.execute(cmdLine);
-                                LOGGER.debug("Exit value in ogr2ogr: {}",exitValue);
-                                requestInput.put("exitValue",exitValue);
-                                LOGGER.debug("OGR2OGR command executed successfully!");
-                                onboardingPromise.complete(requestInput);
-                            }
-                            catch(IOException e){
-                                LOGGER.error("Failed to onboard tiles using ogr2ogr because:{}", e.getMessage());
-                                onboardingPromise.fail(OGR_2_OGR_FAILED);
-                            }}, VERTX_EXECUTE_BLOCKING_IN_ORDER)
-                .onSuccess(promise::complete)
-                .onFailure(promise::fail);
-
-        return promise.future();
-    }
-
-    /**
-     * Configures S3 options for HTTP access and path-based access.
-     *
-     * @param cmd the {@link CommandLine} object to be configured with S3 options.
-     */
-
-    private void setS3Options(CommandLine cmd){
-        if (!s3conf.isHttps()) {
-              cmd.addArgument("--config");
-              cmd.addArgument("AWS_HTTPS");
-              cmd.addArgument("NO");
-        }
-        
-        if (s3conf.isPathBasedAccess()) {
-              cmd.addArgument("--config");
-              cmd.addArgument("AWS_VIRTUAL_HOSTING");
-              cmd.addArgument("FALSE");
-        }
-    }
-
-    /**
-     * Constructs the ogr2ogr command for converting features to tiles.
-     *
-     * @param requestInput the input JSON object containing process parameters
-     * @return a CommandLine object representing the ogr2ogr command
-     */
-    private CommandLine getCommandLineOgr2Ogr(JsonObject requestInput) {
-        String collectionId = requestInput.getString("resourceId");
-        String tileMatrixSet = requestInput.getString("tileMatrixSet");
-        int minZoomLevel = requestInput.getInteger("minZoomLevel");
-        int maxZoomLevel = requestInput.getInteger("maxZoomLevel");
-
-        // Construct the S3 output path dynamically using resourceId and tileMatrixSet
-        String s3OutputPath = String.format("/vsis3/%s/%s/%s", s3conf.getBucket(), collectionId, tileMatrixSet);
-
-        // SQL query to select tiles from the feature collection
-        String sqlQuery = String.format("SELECT * FROM \"%s\"", collectionId);
-
-        // Build the ogr2ogr command
-        CommandLine cmdLine = new CommandLine("ogr2ogr");
-        cmdLine.addArgument("--config");
-        cmdLine.addArgument("CPL_VSIL_USE_TEMP_FILE_FOR_RANDOM_WRITE");
-        cmdLine.addArgument("YES");
-        // set temp directory for temp file used when creating MVTs.
-        // GDAL uses working dir by default, which causes problems on non-writeable filesystems 
-        // in for e.g. a docker container
-        cmdLine.addArgument("--config");
-        cmdLine.addArgument("CPL_TMPDIR");
-        cmdLine.addArgument(System.getProperty("java.io.tmpdir"));
-        // Set the output format to MVT
-        cmdLine.addArgument("-f");
-        cmdLine.addArgument("MVT");
-        // Add the output path
-        cmdLine.addArgument(s3OutputPath);
-        // Add the database connection string
-        cmdLine.addArgument(
-                String.format("PG:host=%s dbname=%s user=%s port=%d password=%s schemas=public", databaseHost,
-                        databaseName, databaseUser, databasePort, databasePassword), false);
-        // Add the SQL query
-        cmdLine.addArgument("-sql");
-        cmdLine.addArgument(sqlQuery, false);
-        // Configure AWS credentials and endpoint
-        cmdLine.addArgument("--config");
-        cmdLine.addArgument("AWS_S3_ENDPOINT");
-        cmdLine.addArgument(s3conf.getEndpoint().replaceFirst("https?://", "")); // GDAL needs endpoint without protocol
-        cmdLine.addArgument("--config");
-        cmdLine.addArgument("AWS_ACCESS_KEY_ID");
-        cmdLine.addArgument(s3conf.getAccessKey());
-        cmdLine.addArgument("--config");
-        cmdLine.addArgument("AWS_SECRET_ACCESS_KEY");
-        cmdLine.addArgument(s3conf.getSecretKey());
-        // Set dataset creation options (TILING_SCHEME, MINZOOM, MAXZOOM, COMPRESS)
-        cmdLine.addArgument("-dsco");
-        cmdLine.addArgument("TILING_SCHEME=EPSG:4326,-180,90,180");
-        cmdLine.addArgument("-dsco");
-        cmdLine.addArgument(String.format("MAXZOOM=%d", maxZoomLevel));
-        cmdLine.addArgument("-dsco");
-        cmdLine.addArgument(String.format("MINZOOM=%d", minZoomLevel));
-        cmdLine.addArgument("-dsco");
-        cmdLine.addArgument("COMPRESS=NO");
-        // Enable progress and debug
-        cmdLine.addArgument("-progress");
-        cmdLine.addArgument("--debug");
-        cmdLine.addArgument("ON");
-        
-        setS3Options(cmdLine);
-
-        LOGGER.debug("Generated ogr2ogr command: {}", cmdLine);
-
-        return cmdLine;
+        LOGGER.debug("Trying to onboard tiles from the existing feature collection...");
+        // the client is only used for the seeding and closed once it's over, the process runs once
+        S3Client s3Client = S3Client.builder()
+                .region(Region.of(s3conf.getRegion()))
+                .endpointOverride(URI.create(s3conf.getEndpoint()))
+                .credentialsProvider(StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create(s3conf.getAccessKey(), s3conf.getSecretKey())
+                ))
+                .serviceConfiguration(S3Configuration.builder()
+                        .pathStyleAccessEnabled(s3conf.isPathBasedAccess())
+                        .build())
+                .build();
+        TileSeeder tileSeeder = new TileSeeder(vertx, pgPool, s3Client, s3conf.getBucket(), renderConcurrency,
+                uploadConcurrency);
+
+        return tileSeeder.seed(requestInput, calculateProgress(4), calculateProgress(5))
+                .onComplete(seeded -> vertx.<Void>executeBlocking(promise -> {
+                    s3Client.close();
+                    promise.complete();
+                }, false))
+                .map(tilesUploaded -> {
+                    LOGGER.debug("Seeded {} tiles for collection {}", tilesUploaded, requestInput.getString("resourceId"));
+                    return requestInput.put("tilesUploaded", tilesUploaded);
+                });
     }
 
     /**
@@ -5,7 +5,7 @@ public class Constants {
     public static final String STARTING_DATASET_USAGE_CHECK_PROCESS_MESSAGE =
             "Starting User Dataset Usage Check Process.";
     public static final String TIMESTAMP_QUERY =
-            "SELECT MAX(timestamp) AS last_used "
-                    + "FROM metering "
+            "SELECT MAX(last_used) AS last_used "
+                    + "FROM metering_daily "
                     + "WHERE user_id = $1 AND collection_id = $2";
 }
@@ -0,0 +1,13 @@
+---
+-- indexes for the metering reports
+---
+
+-- The reports filter on the provider or the user and a time range. The audit reports are paged in
+-- (time, id) order from the last record of the previous page. The resource and API are included so
+-- that the summary and overview reports count records from the index.
+-- The indexes are built concurrently so that auditing_ogc is not locked against inserts while they
+-- are built. Flyway runs this migration outside a transaction since it only has CONCURRENTLY
+-- statements, so no other statements must be added here. If the migration fails, drop the invalid
+-- index left behind before running it again.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ogc_providerid_time_index ON auditing_ogc (providerid, time, id) INCLUDE (resourceid, api);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ogc_userid_time_index ON auditing_ogc (userid, time, id) INCLUDE (resourceid, api);
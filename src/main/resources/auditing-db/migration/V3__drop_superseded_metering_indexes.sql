@@ -0,0 +1,8 @@
+---
+-- drop the indexes superseded by the metering report indexes
+---
+
+-- ogc_providerid_time_index and ogc_userid_time_index, built by the previous migration, also serve
+-- lookups of a provider or a user. Dropped concurrently, so that auditing_ogc is not locked.
+DROP INDEX CONCURRENTLY IF EXISTS ogc_userid_index;
+DROP INDEX CONCURRENTLY IF EXISTS ogc_providerid_index;
@@ -0,0 +1,5 @@
+-- row_version is incremented on every update of a STAC item (including its assets) and is used to
+-- build the ETag for the item. New partitions get the column through CREATE TABLE ... LIKE, and the
+-- default is applied when rows are inserted through stac_collections_part.
+
+ALTER TABLE stac_collections_part ADD COLUMN row_version bigint NOT NULL DEFAULT 1;
@@ -0,0 +1,22 @@
+-- Single lookup point for all downloadable assets, keyed by asset ID. The asset ID is the primary key
+-- of each of the underlying tables, so resolving an asset is one index lookup per table in a single
+-- query. collection_id is named the same for all kinds of assets.
+--
+-- The asset IDs of STAC collection assets were copied into collections_enclosure (see V18), so an ID
+-- is not unique across the view. An asset is the row of the ID with the lowest precedence, i.e. the
+-- STAC collection asset, then the STAC item asset, then the collection enclosure.
+
+CREATE VIEW asset_registry AS
+    SELECT id, 'STAC_COLLECTION_ASSET' AS kind, stac_collections_id AS collection_id,
+        NULL::varchar AS item_id, title, href, type, size, s3_bucket_id, 1 AS precedence
+    FROM stac_collections_assets
+    UNION ALL
+    SELECT id, 'STAC_ITEM_ASSET' AS kind, collection_id, item_id, title, href, type, size, s3_bucket_id,
+        2 AS precedence
+    FROM stac_items_assets
+    UNION ALL
+    SELECT id, 'COLLECTION_ENCLOSURE' AS kind, collections_id AS collection_id,
+        NULL::varchar AS item_id, title, href, type, size, s3_bucket_id, 3 AS precedence
+    FROM collections_enclosure;
+
+GRANT SELECT ON asset_registry TO ${ogcUser};
@@ -0,0 +1,2 @@
+-- Progress of a job that can be resumed, e.g. the tile seeding units completed by a tiles onboarding job.
+ALTER TABLE jobs_table ADD COLUMN checkpoint jsonb;
@@ -0,0 +1,26 @@
+-- Notify the API servers when tile matrix sets or tile sets of collections change, so that they reload
+-- the definitions they hold in memory. The triggers are statement level, so a bulk change causes a
+-- single reload.
+
+CREATE OR REPLACE FUNCTION notify_tile_matrix_sets_changed ()
+    RETURNS TRIGGER
+    LANGUAGE plpgsql
+    AS $$
+BEGIN
+    PERFORM pg_notify('tile_matrix_sets_changed', TG_TABLE_NAME);
+    RETURN NULL;
+END
+$$;
+
+CREATE TRIGGER tms_metadata_changed
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON tms_metadata
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_tile_matrix_sets_changed ();
+
+CREATE TRIGGER tilematrixsets_relation_changed
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON tilematrixsets_relation
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_tile_matrix_sets_changed ();
+
+-- the data type of a tile set is the VECTOR or MAP type of its collection
+CREATE TRIGGER collection_type_changed
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON collection_type
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_tile_matrix_sets_changed ();
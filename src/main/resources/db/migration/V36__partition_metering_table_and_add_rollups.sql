@@ -0,0 +1,199 @@
+-- The metering table is recreated as a table partitioned by month on timestamp, with a default
+-- partition for rows outside the monthly partitions. Monthly partitions are created ahead of time and
+-- dropped after a retention period by the metering verticle, using the functions below.
+--
+-- API hits, data usage and the last use per user, collection and API path are rolled up by hour and
+-- by day as rows are inserted, so that usage is read from the rollups instead of aggregating the
+-- metering table. Rows are only ever inserted into the metering table, updates and deletes are not
+-- rolled up. The rollups are kept when partitions are dropped.
+
+ALTER TABLE metering RENAME TO metering_unpartitioned;
+ALTER INDEX metering_pkey RENAME TO metering_unpartitioned_pkey;
+ALTER SEQUENCE IF EXISTS metering_id_seq RENAME TO metering_unpartitioned_id_seq;
+
+CREATE TABLE metering (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    user_id UUID NOT NULL,
+    collection_id UUID NOT NULL,
+    api_path TEXT NOT NULL,
+    timestamp TIMESTAMP NOT NULL,
+    resp_size BIGINT NOT NULL,
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+CREATE TABLE metering_default PARTITION OF metering DEFAULT;
+
+-- usage is read from the rollups, only the usage within the first hour of a policy is read from here
+CREATE INDEX idx_metering_partitioned_user_collection_time
+    ON metering(user_id, collection_id, timestamp);
+
+CREATE TABLE metering_hourly (
+    user_id UUID NOT NULL,
+    collection_id UUID NOT NULL,
+    api_path TEXT NOT NULL,
+    hour TIMESTAMP NOT NULL,
+    api_hits BIGINT NOT NULL,
+    data_usage BIGINT NOT NULL,
+    last_used TIMESTAMP NOT NULL,
+    PRIMARY KEY (user_id, collection_id, api_path, hour)
+);
+
+CREATE TABLE metering_daily (
+    user_id UUID NOT NULL,
+    collection_id UUID NOT NULL,
+    api_path TEXT NOT NULL,
+    day TIMESTAMP NOT NULL,
+    api_hits BIGINT NOT NULL,
+    data_usage BIGINT NOT NULL,
+    last_used TIMESTAMP NOT NULL,
+    PRIMARY KEY (user_id, collection_id, api_path, day)
+);
+
+-- A record with a response size of 0 is not an API hit. Rows are upserted in key order, so that
+-- concurrent inserts lock rollup rows in the same order.
+CREATE OR REPLACE FUNCTION rollup_metering ()
+    RETURNS TRIGGER
+    LANGUAGE plpgsql
+    AS $$
+BEGIN
+    INSERT INTO metering_hourly AS h (user_id, collection_id, api_path, hour, api_hits, data_usage, last_used)
+    SELECT user_id, collection_id, api_path, date_trunc('hour', timestamp),
+           COUNT(*) FILTER (WHERE resp_size > 0), SUM(resp_size), MAX(timestamp)
+    FROM new_rows
+    GROUP BY 1, 2, 3, 4
+    ORDER BY 1, 2, 3, 4
+    ON CONFLICT (user_id, collection_id, api_path, hour) DO UPDATE
+        SET api_hits = h.api_hits + EXCLUDED.api_hits,
+            data_usage = h.data_usage + EXCLUDED.data_usage,
+            last_used = GREATEST(h.last_used, EXCLUDED.last_used);
+
+    INSERT INTO metering_daily AS d (user_id, collection_id, api_path, day, api_hits, data_usage, last_used)
+    SELECT user_id, collection_id, api_path, date_trunc('day', timestamp),
+           COUNT(*) FILTER (WHERE resp_size > 0), SUM(resp_size), MAX(timestamp)
+    FROM new_rows
+    GROUP BY 1, 2, 3, 4
+    ORDER BY 1, 2, 3, 4
+    ON CONFLICT (user_id, collection_id, api_path, day) DO UPDATE
+        SET api_hits = d.api_hits + EXCLUDED.api_hits,
+            data_usage = d.data_usage + EXCLUDED.data_usage,
+            last_used = GREATEST(d.last_used, EXCLUDED.last_used);
+
+    RETURN NULL;
+END
+$$;
+
+CREATE TRIGGER metering_rollup
+    AFTER INSERT ON metering
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION rollup_metering ();
+
+-- API hits and data usage of a user, collection and API path after a time: whole days from the daily
+-- rollup, whole hours of the first day from the hourly rollup and the rest of the first hour from the
+-- metering table.
+CREATE OR REPLACE FUNCTION metering_usage (p_user_id UUID, p_collection_id UUID, p_api_path TEXT, p_since TIMESTAMP)
+    RETURNS TABLE (api_hits BIGINT, data_usage BIGINT)
+    LANGUAGE sql
+    STABLE
+    AS $$
+    WITH bounds AS (
+        SELECT date_trunc('hour', p_since) + interval '1 hour' AS first_hour,
+               date_trunc('day', p_since) + interval '1 day' AS first_day
+    ),
+    usage AS (
+        SELECT COUNT(*) FILTER (WHERE m.resp_size > 0) AS api_hits, SUM(m.resp_size) AS data_usage
+        FROM metering m, bounds b
+        WHERE m.user_id = p_user_id AND m.collection_id = p_collection_id AND m.api_path = p_api_path
+          AND m.timestamp > p_since AND m.timestamp < b.first_hour
+        UNION ALL
+        SELECT SUM(h.api_hits), SUM(h.data_usage)
+        FROM metering_hourly h, bounds b
+        WHERE h.user_id = p_user_id AND h.collection_id = p_collection_id AND h.api_path = p_api_path
+          AND h.hour >= b.first_hour AND h.hour < b.first_day
+        UNION ALL
+        SELECT SUM(d.api_hits), SUM(d.data_usage)
+        FROM metering_daily d, bounds b
+        WHERE d.user_id = p_user_id AND d.collection_id = p_collection_id AND d.api_path = p_api_path
+          AND d.day >= b.first_day
+    )
+    SELECT COALESCE(SUM(usage.api_hits), 0)::BIGINT, COALESCE(SUM(usage.data_usage), 0)::BIGINT
+    FROM usage;
+$$;
+
+-- Create the monthly partitions from the month of p_from to the month of p_to that don't exist yet.
+-- Rows of the month in the default partition are moved into the new partition. They are inserted
+-- into the partition itself, so that they are not rolled up again.
+CREATE OR REPLACE FUNCTION create_metering_partitions (p_from TIMESTAMP, p_to TIMESTAMP)
+    RETURNS VOID
+    LANGUAGE plpgsql
+    SECURITY DEFINER
+    SET search_path FROM CURRENT
+    AS $$
+DECLARE
+    month TIMESTAMP := date_trunc('month', p_from);
+    partition_name TEXT;
+BEGIN
+    -- metering verticle instances maintain the partitions one at a time
+    PERFORM pg_advisory_xact_lock(hashtext('metering_partitions'));
+
+    WHILE month <= p_to LOOP
+        partition_name := 'metering_' || to_char(month, 'YYYY_MM');
+
+        IF to_regclass(partition_name) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I (LIKE metering)', partition_name);
+            EXECUTE format('WITH moved AS (DELETE FROM metering_default WHERE timestamp >= %L AND timestamp < %L RETURNING *) '
+                || 'INSERT INTO %I SELECT * FROM moved', month, month + interval '1 month', partition_name);
+            EXECUTE format('ALTER TABLE metering ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                partition_name, month, month + interval '1 month');
+        END IF;
+
+        month := month + interval '1 month';
+    END LOOP;
+END
+$$;
+
+-- Drop the monthly partitions that end before p_before.
+CREATE OR REPLACE FUNCTION drop_metering_partitions (p_before TIMESTAMP)
+    RETURNS VOID
+    LANGUAGE plpgsql
+    SECURITY DEFINER
+    SET search_path FROM CURRENT
+    AS $$
+DECLARE
+    partition_name TEXT;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('metering_partitions'));
+
+    FOR partition_name IN
+        SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'metering'::regclass AND c.relname ~ '^metering_\d{4}_\d{2}$'
+    LOOP
+        IF to_date(substring(partition_name FROM 10), 'YYYY_MM')::TIMESTAMP + interval '1 month' <= p_before THEN
+            EXECUTE format('DROP TABLE %I', partition_name);
+        END IF;
+    END LOOP;
+END
+$$;
+
+-- partitions for the existing rows and the next two months, then move the rows over and roll them up
+SELECT create_metering_partitions (
+    COALESCE((SELECT MIN(timestamp) FROM metering_unpartitioned), now()::TIMESTAMP),
+    now()::TIMESTAMP + interval '2 months');
+
+INSERT INTO metering (id, user_id, collection_id, api_path, timestamp, resp_size)
+SELECT id, user_id, collection_id, api_path, timestamp, resp_size FROM metering_unpartitioned;
+
+SELECT setval(pg_get_serial_sequence('metering', 'id'),
+    COALESCE((SELECT MAX(id) FROM metering_unpartitioned), 0) + 1, false);
+
+DROP TABLE metering_unpartitioned;
+
+ALTER TABLE metering OWNER TO ${flyway:user};
+ALTER TABLE metering_default OWNER TO ${flyway:user};
+ALTER TABLE metering_hourly OWNER TO ${flyway:user};
+ALTER TABLE metering_daily OWNER TO ${flyway:user};
+GRANT SELECT,INSERT,UPDATE,DELETE ON TABLE metering TO ${ogcUser};
+GRANT SELECT,INSERT,UPDATE,DELETE ON TABLE metering_hourly TO ${ogcUser};
+GRANT SELECT,INSERT,UPDATE,DELETE ON TABLE metering_daily TO ${ogcUser};
+GRANT EXECUTE ON FUNCTION metering_usage TO ${ogcUser};
+GRANT EXECUTE ON FUNCTION create_metering_partitions TO ${ogcUser};
+GRANT EXECUTE ON FUNCTION drop_metering_partitions TO ${ogcUser};
@@ -0,0 +1,34 @@
+-- Notify the API servers when the metadata used to authorize requests changes, i.e. the access of
+-- collections, processes and the ownership of assets, so that they invalidate the metadata they cache.
+-- The triggers are statement level, so a bulk change causes a single invalidation.
+
+CREATE OR REPLACE FUNCTION notify_authz_metadata_changed ()
+    RETURNS TRIGGER
+    LANGUAGE plpgsql
+    AS $$
+BEGIN
+    PERFORM pg_notify('authz_metadata_changed', TG_TABLE_NAME);
+    RETURN NULL;
+END
+$$;
+
+CREATE TRIGGER ri_details_authz_changed
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON ri_details
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_authz_metadata_changed ();
+
+CREATE TRIGGER processes_table_authz_changed
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON processes_table
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_authz_metadata_changed ();
+
+-- the tables of the asset_registry view
+CREATE TRIGGER stac_collections_assets_authz_changed
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON stac_collections_assets
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_authz_metadata_changed ();
+
+CREATE TRIGGER stac_items_assets_authz_changed
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON stac_items_assets
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_authz_metadata_changed ();
+
+CREATE TRIGGER collections_enclosure_authz_changed
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON collections_enclosure
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_authz_metadata_changed ();
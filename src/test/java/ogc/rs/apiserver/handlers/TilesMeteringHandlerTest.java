@@ -0,0 +1,125 @@
+package ogc.rs.apiserver.handlers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import ogc.rs.apiserver.util.AuthInfo;
+import ogc.rs.apiserver.util.MeteringBuffer;
+import ogc.rs.catalogue.CatalogueService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith({VertxExtension.class, MockitoExtension.class})
+public class TilesMeteringHandlerTest {
+  private static final String USER_ID = "0ff3d306-9402-4430-8e18-6f95e4c03c97";
+  private static final String COLLECTION_ID = "a5a6e26f-d252-446d-b7dd-4d50ea945102";
+  private static final String BATCH_PATH =
+      "/collections/" + COLLECTION_ID + "/map/tiles/WorldCRS84Quad/batch";
+
+  @Mock RoutingContext routingContext;
+  @Mock HttpServerRequest request;
+  @Mock HttpServerResponse response;
+  @Mock CatalogueService catalogueService;
+  @Mock MeteringBuffer meteringBuffer;
+
+  private static JsonObject tile(int tileRow, int tileCol, long size) {
+    return new JsonObject()
+        .put("tileMatrix", "3")
+        .put("tileRow", tileRow)
+        .put("tileCol", tileCol)
+        .put("size", size);
+  }
+
+  private void mockBatchRequest() {
+    AuthInfo authInfo = AuthInfo.createUser(new JsonObject()
+        .put("sub", USER_ID)
+        .put("role", "consumer")
+        .put("iid", "ri:" + COLLECTION_ID)
+        .put("cons", new JsonObject()));
+    when(routingContext.data())
+        .thenReturn(Map.<String, Object>of(DxTokenAuthenticationHandler.USER_KEY, authInfo));
+    when(routingContext.request()).thenReturn(request);
+    when(request.path()).thenReturn(BATCH_PATH);
+    when(catalogueService.getCatItem(COLLECTION_ID)).thenReturn(Future.succeededFuture(
+        new JsonObject()
+            .put("resourceGroup", UUID.randomUUID().toString())
+            .put("provider", UUID.randomUUID().toString())));
+  }
+
+  @Test
+  @DisplayName("Each tile of a batch served with data is metered")
+  public void testBatchMeteredPerTile(Vertx vertx, VertxTestContext testContext) {
+    mockBatchRequest();
+
+    new TilesMeteringHandler(vertx, catalogueService, meteringBuffer)
+        .handleBatchMetering(routingContext,
+            List.of(tile(1, 2, 100), tile(1, 3, 250), tile(2, 2, 75)));
+
+    ArgumentCaptor<JsonObject> rows = ArgumentCaptor.forClass(JsonObject.class);
+    ArgumentCaptor<JsonObject> messages = ArgumentCaptor.forClass(JsonObject.class);
+    verify(meteringBuffer, times(3)).add(rows.capture(), messages.capture());
+
+    assertEquals(List.of(100L, 250L, 75L), rows.getAllValues().stream()
+        .map(row -> row.getLong("resp_size"))
+        .collect(Collectors.toList()));
+    rows.getAllValues().forEach(row -> {
+      assertEquals(USER_ID, row.getString("user_id"));
+      assertEquals(COLLECTION_ID, row.getString("collection_id"));
+      assertEquals("/collections/" + COLLECTION_ID + "/map/tiles/WorldCRS84Quad",
+          row.getString("api_path"));
+    });
+    assertEquals(new JsonObject().put("tileMatrix", "3").put("tileRow", 1).put("tileCol", 3),
+        messages.getAllValues().get(1).getJsonObject("request_json"));
+    testContext.completeNow();
+  }
+
+  @Test
+  @DisplayName("The tiles served before the client disconnected are metered")
+  public void testClosedBatchMetered(Vertx vertx, VertxTestContext testContext) {
+    mockBatchRequest();
+    lenient().when(routingContext.response()).thenReturn(response);
+    lenient().when(response.closed()).thenReturn(true);
+
+    new TilesMeteringHandler(vertx, catalogueService, meteringBuffer)
+        .handleBatchMetering(routingContext, List.of(tile(1, 2, 100), tile(1, 3, 250)));
+
+    ArgumentCaptor<JsonObject> rows = ArgumentCaptor.forClass(JsonObject.class);
+    verify(meteringBuffer, times(2)).add(rows.capture(), any());
+    assertEquals(List.of(100L, 250L), rows.getAllValues().stream()
+        .map(row -> row.getLong("resp_size"))
+        .collect(Collectors.toList()));
+    testContext.completeNow();
+  }
+
+  @Test
+  @DisplayName("A batch with no tile served with data is not metered")
+  public void testBatchWithoutServedTiles(Vertx vertx, VertxTestContext testContext) {
+    new TilesMeteringHandler(vertx, catalogueService, meteringBuffer)
+        .handleBatchMetering(routingContext, List.of());
+
+    verify(catalogueService, never()).getCatItem(any());
+    verify(meteringBuffer, never()).add(any(), any());
+    testContext.completeNow();
+  }
+}
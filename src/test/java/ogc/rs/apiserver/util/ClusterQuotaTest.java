@@ -0,0 +1,91 @@
+package ogc.rs.apiserver.util;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(VertxExtension.class)
+public class ClusterQuotaTest {
+  private static final String USER_ID = "0ff3d306-9402-4430-8e18-6f95e4c03c97";
+  private static final String COLLECTION_ID = "5d568f3b-0c9a-4a4e-9d8b-3c8d1b5f4e0a";
+  private static final String OTHER_COLLECTION_ID = "a7c2b6e1-3f4d-4b8a-9e1c-2d3f4a5b6c7d";
+  private static final long SYNC_INTERVAL_MS = 1000;
+
+  @Test
+  @DisplayName("One instance is shared per Vertx instance")
+  public void testSingleInstancePerVertx(Vertx vertx, VertxTestContext testContext) {
+    ClusterQuota quota = ClusterQuota.get(vertx, SYNC_INTERVAL_MS);
+
+    assertSame(quota, ClusterQuota.get(vertx, SYNC_INTERVAL_MS));
+    assertSame(quota, ClusterQuota.lookup(vertx));
+    testContext.completeNow();
+  }
+
+  @Test
+  @DisplayName("A bucket holds one second of requests")
+  public void testBucketCapacity(Vertx vertx, VertxTestContext testContext) {
+    ClusterQuota quota = ClusterQuota.get(vertx, SYNC_INTERVAL_MS);
+
+    assertTrue(quota.tryAcquire(USER_ID, COLLECTION_ID, 2));
+    assertTrue(quota.tryAcquire(USER_ID, COLLECTION_ID, 2));
+    assertFalse(quota.tryAcquire(USER_ID, COLLECTION_ID, 2));
+    testContext.completeNow();
+  }
+
+  @Test
+  @DisplayName("A rate below one request per second allows one request at a time")
+  public void testFractionalRate(Vertx vertx, VertxTestContext testContext) {
+    ClusterQuota quota = ClusterQuota.get(vertx, SYNC_INTERVAL_MS);
+
+    assertTrue(quota.tryAcquire(USER_ID, COLLECTION_ID, 0.5));
+    assertFalse(quota.tryAcquire(USER_ID, COLLECTION_ID, 0.5));
+    testContext.completeNow();
+  }
+
+  @Test
+  @DisplayName("Buckets are per user and collection")
+  public void testBucketPerUserAndCollection(Vertx vertx, VertxTestContext testContext) {
+    ClusterQuota quota = ClusterQuota.get(vertx, SYNC_INTERVAL_MS);
+
+    assertTrue(quota.tryAcquire(USER_ID, COLLECTION_ID, 1));
+    assertFalse(quota.tryAcquire(USER_ID, COLLECTION_ID, 1));
+    assertTrue(quota.tryAcquire(USER_ID, OTHER_COLLECTION_ID, 1));
+    assertTrue(quota.tryAcquire("other-user", COLLECTION_ID, 1));
+    testContext.completeNow();
+  }
+
+  @Test
+  @DisplayName("Tracking usage of an API path does not take from the bucket of the collection")
+  public void testTrackDoesNotShareBucket(Vertx vertx, VertxTestContext testContext) {
+    ClusterQuota quota = ClusterQuota.get(vertx, SYNC_INTERVAL_MS);
+
+    quota.track(USER_ID, COLLECTION_ID, "/collections/" + COLLECTION_ID + "/items");
+    assertTrue(quota.tryAcquire(USER_ID, COLLECTION_ID, 1));
+    assertFalse(quota.tryAcquire(USER_ID, COLLECTION_ID, 1));
+    testContext.completeNow();
+  }
+
+  @Test
+  @DisplayName("A bucket refills at the allowed rate")
+  public void testRefill(Vertx vertx, VertxTestContext testContext) {
+    ClusterQuota quota = ClusterQuota.get(vertx, SYNC_INTERVAL_MS);
+
+    assertTrue(quota.tryAcquire(USER_ID, COLLECTION_ID, 10));
+    for (int i = 1; i < 10; i++) {
+      quota.tryAcquire(USER_ID, COLLECTION_ID, 10);
+    }
+    assertFalse(quota.tryAcquire(USER_ID, COLLECTION_ID, 10));
+
+    vertx.setTimer(250, id -> testContext.verify(() -> {
+      assertTrue(quota.tryAcquire(USER_ID, COLLECTION_ID, 10));
+      testContext.completeNow();
+    }));
+  }
+}
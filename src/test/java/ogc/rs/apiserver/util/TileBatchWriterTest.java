@@ -0,0 +1,152 @@
+package ogc.rs.apiserver.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class TileBatchWriterTest {
+  private static final String BOUNDARY = "tile-batch";
+  private static final String MEDIA_TYPE = "application/vnd.mapbox-vector-tile";
+
+  @Mock HttpServerResponse response;
+
+  @BeforeEach
+  public void setUp() {
+    when(response.closeHandler(any())).thenReturn(response);
+  }
+
+  private static JsonArray tiles(int count) {
+    JsonArray tiles = new JsonArray();
+    for (int i = 0; i < count; i++) {
+      tiles.add(new JsonObject().put("tileMatrix", "3").put("tileRow", 1).put("tileCol", i));
+    }
+    return tiles;
+  }
+
+  private static TileCache.Tile tileOfSize(int size) {
+    return new TileCache.Tile(Buffer.buffer(new byte[size]), "\"etag\"", null);
+  }
+
+  private TileBatchWriter writer(int tileCount, int maxInFlight,
+      Function<JsonObject, Future<TileCache.Tile>> tileFetcher) {
+    return new TileBatchWriter(response, BOUNDARY, MEDIA_TYPE, tiles(tileCount), maxInFlight,
+        tileFetcher);
+  }
+
+  @Test
+  @DisplayName("Only the tiles sent with data are served, with their size")
+  public void testServedTiles() {
+    when(response.write(any(Buffer.class))).thenReturn(Future.succeededFuture());
+    List<TileCache.Tile> fetched = List.of(tileOfSize(100), tileOfSize(0), tileOfSize(25));
+
+    Future<List<JsonObject>> written = writer(4, 2, coordinates -> {
+      int tileCol = coordinates.getInteger("tileCol");
+      return tileCol < fetched.size()
+          ? Future.succeededFuture(fetched.get(tileCol))
+          : Future.failedFuture(new OgcException(404, "Not Found", "Tile not found"));
+    }).write();
+
+    assertTrue(written.succeeded());
+    assertEquals(List.of(
+            new JsonObject().put("tileMatrix", "3").put("tileRow", 1).put("tileCol", 0)
+                .put("size", 100),
+            new JsonObject().put("tileMatrix", "3").put("tileRow", 1).put("tileCol", 2)
+                .put("size", 25)),
+        written.result());
+
+    ArgumentCaptor<Buffer> parts = ArgumentCaptor.forClass(Buffer.class);
+    verify(response, times(4)).write(parts.capture());
+    List<String> writtenParts = new ArrayList<>();
+    parts.getAllValues().forEach(part -> writtenParts.add(part.toString()));
+    assertTrue(writtenParts.get(0).contains("Content-Location: 3/1/0\r\n"));
+    assertTrue(writtenParts.get(1).contains("Status: 204\r\n"));
+    assertTrue(writtenParts.get(3).contains("Status: 404\r\n"));
+  }
+
+  @Test
+  @DisplayName("At most maxInFlight tiles are fetched at a time")
+  public void testMaxInFlight() {
+    when(response.write(any(Buffer.class))).thenReturn(Future.succeededFuture());
+    List<Promise<TileCache.Tile>> fetches = new ArrayList<>();
+
+    Future<List<JsonObject>> written = writer(3, 2, coordinates -> {
+      Promise<TileCache.Tile> fetch = Promise.promise();
+      fetches.add(fetch);
+      return fetch.future();
+    }).write();
+
+    assertEquals(2, fetches.size());
+    fetches.get(0).complete(tileOfSize(10));
+    assertEquals(3, fetches.size());
+    fetches.get(1).complete(tileOfSize(10));
+    assertFalse(written.isComplete());
+    fetches.get(2).complete(tileOfSize(10));
+    assertEquals(3, written.result().size());
+  }
+
+  @Test
+  @DisplayName("No tile is fetched while the write queue of the response is full")
+  @SuppressWarnings("unchecked")
+  public void testBackpressure() {
+    when(response.writeQueueFull()).thenReturn(true, false);
+    when(response.write(any(Buffer.class))).thenReturn(Future.succeededFuture());
+    ArgumentCaptor<Handler<Void>> drainHandler = ArgumentCaptor.forClass(Handler.class);
+    when(response.drainHandler(drainHandler.capture())).thenReturn(response);
+    List<JsonObject> fetched = new ArrayList<>();
+
+    Future<List<JsonObject>> written = writer(1, 2, coordinates -> {
+      fetched.add(coordinates);
+      return Future.succeededFuture(tileOfSize(10));
+    }).write();
+
+    assertTrue(fetched.isEmpty());
+    drainHandler.getValue().handle(null);
+    assertEquals(1, fetched.size());
+    assertEquals(1, written.result().size());
+  }
+
+  @Test
+  @DisplayName("Fetching stops when the response is closed, with the tiles served so far")
+  public void testClosedResponse() {
+    AtomicBoolean closed = new AtomicBoolean();
+    when(response.closed()).thenAnswer(invocation -> closed.get());
+    when(response.write(any(Buffer.class))).thenReturn(Future.succeededFuture());
+    List<JsonObject> fetched = new ArrayList<>();
+
+    // the client disconnects while the second tile is fetched
+    Future<List<JsonObject>> written = writer(3, 1, coordinates -> {
+      fetched.add(coordinates);
+      closed.set(coordinates.getInteger("tileCol") == 1);
+      return Future.succeededFuture(tileOfSize(10));
+    }).write();
+
+    assertTrue(written.succeeded());
+    assertEquals(1, written.result().size());
+    assertEquals(2, fetched.size());
+    verify(response, times(1)).write(any(Buffer.class));
+  }
+}
@@ -0,0 +1,152 @@
+package ogc.rs.apiserver.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import ogc.rs.database.DatabaseService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith({VertxExtension.class, MockitoExtension.class})
+public class UsageCountersTest {
+  private static final String USER_ID = "0ff3d306-9402-4430-8e18-6f95e4c03c97";
+  private static final String COLLECTION_ID = "5d568f3b-0c9a-4a4e-9d8b-3c8d1b5f4e0a";
+  private static final String API_PATH = "/collections/" + COLLECTION_ID + "/items";
+  private static final long POLICY_ISSUED_AT = 1700000000L;
+  private static final long RECONCILE_INTERVAL_MS = 60 * 60 * 1000L;
+
+  @Mock DatabaseService databaseService;
+
+  private void seedWith(long apiHits, long dataUsage) {
+    when(databaseService.getTotalApiHits(USER_ID, API_PATH, COLLECTION_ID, POLICY_ISSUED_AT))
+        .thenReturn(Future.succeededFuture(apiHits));
+    when(databaseService.getTotalDataUsage(USER_ID, API_PATH, COLLECTION_ID, POLICY_ISSUED_AT))
+        .thenReturn(Future.succeededFuture(dataUsage));
+  }
+
+  @Test
+  @DisplayName("One instance is shared per Vertx instance")
+  public void testSingleInstancePerVertx(Vertx vertx, VertxTestContext testContext) {
+    UsageCounters first = UsageCounters.get(vertx, databaseService, RECONCILE_INTERVAL_MS);
+    UsageCounters second = UsageCounters.get(vertx, databaseService, RECONCILE_INTERVAL_MS);
+
+    assertSame(first, second);
+    testContext.completeNow();
+  }
+
+  @Test
+  @DisplayName("Usage is seeded from the metering table")
+  public void testSeedFromMeteringTable(Vertx vertx, VertxTestContext testContext) {
+    seedWith(5, 1000);
+    UsageCounters usageCounters = UsageCounters.get(vertx, databaseService, RECONCILE_INTERVAL_MS);
+
+    usageCounters
+        .get(USER_ID, COLLECTION_ID, API_PATH, POLICY_ISSUED_AT)
+        .onComplete(testContext.succeeding(usage -> testContext.verify(() -> {
+          assertEquals(5, usage.getApiHits());
+          assertEquals(1000, usage.getDataUsage());
+          testContext.completeNow();
+        })));
+  }
+
+  @Test
+  @DisplayName("Metering records are counted on top of the seeded usage")
+  public void testRecordAfterSeed(Vertx vertx, VertxTestContext testContext) {
+    seedWith(5, 1000);
+    UsageCounters usageCounters = UsageCounters.get(vertx, databaseService, RECONCILE_INTERVAL_MS);
+
+    usageCounters
+        .get(USER_ID, COLLECTION_ID, API_PATH, POLICY_ISSUED_AT)
+        .compose(seeded -> {
+          UsageCounters.record(vertx, USER_ID, COLLECTION_ID, API_PATH, 250);
+          UsageCounters.record(vertx, USER_ID, COLLECTION_ID, API_PATH, 50);
+          UsageCounters.record(vertx, USER_ID, COLLECTION_ID, "/collections/other/items", 50);
+          return usageCounters.get(USER_ID, COLLECTION_ID, API_PATH, POLICY_ISSUED_AT);
+        })
+        .onComplete(testContext.succeeding(usage -> testContext.verify(() -> {
+          assertEquals(7, usage.getApiHits());
+          assertEquals(1300, usage.getDataUsage());
+          verify(databaseService, times(1))
+              .getTotalApiHits(anyString(), anyString(), anyString(), anyLong());
+          testContext.completeNow();
+        })));
+  }
+
+  @Test
+  @DisplayName("A metering record with a response size of 0 is not an API hit")
+  public void testEmptyResponseIsNotAnApiHit(Vertx vertx, VertxTestContext testContext) {
+    seedWith(5, 1000);
+    UsageCounters usageCounters = UsageCounters.get(vertx, databaseService, RECONCILE_INTERVAL_MS);
+
+    usageCounters
+        .get(USER_ID, COLLECTION_ID, API_PATH, POLICY_ISSUED_AT)
+        .compose(seeded -> {
+          UsageCounters.record(vertx, USER_ID, COLLECTION_ID, API_PATH, 0);
+          return usageCounters.get(USER_ID, COLLECTION_ID, API_PATH, POLICY_ISSUED_AT);
+        })
+        .onComplete(testContext.succeeding(usage -> testContext.verify(() -> {
+          assertEquals(5, usage.getApiHits());
+          assertEquals(1000, usage.getDataUsage());
+          testContext.completeNow();
+        })));
+  }
+
+  @Test
+  @DisplayName("Metering records of usage that is not held are left to the seeding")
+  public void testRecordBeforeSeed(Vertx vertx, VertxTestContext testContext) {
+    seedWith(5, 1000);
+    UsageCounters usageCounters = UsageCounters.get(vertx, databaseService, RECONCILE_INTERVAL_MS);
+
+    UsageCounters.record(vertx, USER_ID, COLLECTION_ID, API_PATH, 250);
+
+    usageCounters
+        .get(USER_ID, COLLECTION_ID, API_PATH, POLICY_ISSUED_AT)
+        .onComplete(testContext.succeeding(usage -> testContext.verify(() -> {
+          assertEquals(5, usage.getApiHits());
+          assertEquals(1000, usage.getDataUsage());
+          testContext.completeNow();
+        })));
+  }
+
+  @Test
+  @DisplayName("Usage needed again while it is seeded is seeded once")
+  public void testSeedOnce(Vertx vertx, VertxTestContext testContext) {
+    Promise<Long> apiHits = Promise.promise();
+    Promise<Long> dataUsage = Promise.promise();
+    when(databaseService.getTotalApiHits(USER_ID, API_PATH, COLLECTION_ID, POLICY_ISSUED_AT))
+        .thenReturn(apiHits.future());
+    when(databaseService.getTotalDataUsage(USER_ID, API_PATH, COLLECTION_ID, POLICY_ISSUED_AT))
+        .thenReturn(dataUsage.future());
+    UsageCounters usageCounters = UsageCounters.get(vertx, databaseService, RECONCILE_INTERVAL_MS);
+
+    Future<UsageCounters.Usage> seeding =
+        usageCounters.get(USER_ID, COLLECTION_ID, API_PATH, POLICY_ISSUED_AT);
+    Future<UsageCounters.Usage> sameSeeding =
+        usageCounters.get(USER_ID, COLLECTION_ID, API_PATH, POLICY_ISSUED_AT);
+    apiHits.complete(5L);
+    dataUsage.complete(1000L);
+
+    seeding
+        .compose(seeded -> sameSeeding)
+        .onComplete(testContext.succeeding(usage -> testContext.verify(() -> {
+          assertEquals(5, usage.getApiHits());
+          assertEquals(1000, usage.getDataUsage());
+          verify(databaseService, times(1))
+              .getTotalApiHits(anyString(), anyString(), anyString(), anyLong());
+          testContext.completeNow();
+        })));
+  }
+}
@@ -0,0 +1,121 @@
+package ogc.rs.apiserver.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.vertx.core.json.JsonObject;
+import java.util.UUID;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class VerifiedTokenCacheTest {
+  private static final String TOKEN = "header.payload.signature";
+  private static final String OTHER_TOKEN = "header.otherPayload.signature";
+  private static final long TTL_MS = 60 * 1000L;
+
+  private static AuthInfo user(long expiry) throws OgcException {
+    JsonObject tokenDetails = new JsonObject()
+        .put("sub", "0ff3d306-9402-4430-8e18-6f95e4c03c97")
+        .put("role", "consumer")
+        .put("iid", "rs:ogc.iudx.io")
+        .put("aud", "ogc.iudx.io")
+        .put("cons", new JsonObject());
+    if (expiry > 0) {
+      tokenDetails.put("exp", expiry);
+    }
+    return AuthInfo.createUser(tokenDetails);
+  }
+
+  private static long nowSeconds() {
+    return System.currentTimeMillis() / 1000;
+  }
+
+  @Test
+  @DisplayName("A cached token returns its user")
+  public void testGet() throws OgcException {
+    VerifiedTokenCache cache = new VerifiedTokenCache(10, TTL_MS, false);
+    AuthInfo user = user(nowSeconds() + 3600);
+
+    cache.put(TOKEN, user);
+
+    assertEquals(user.getUserId(), cache.get(TOKEN).orElseThrow().getUserId());
+    assertTrue(cache.get(OTHER_TOKEN).isEmpty());
+  }
+
+  @Test
+  @DisplayName("A cached token expires after the TTL")
+  public void testTtl() throws Exception {
+    VerifiedTokenCache cache = new VerifiedTokenCache(10, 50, false);
+
+    cache.put(TOKEN, user(nowSeconds() + 3600));
+    assertTrue(cache.get(TOKEN).isPresent());
+
+    Thread.sleep(100);
+    assertTrue(cache.get(TOKEN).isEmpty());
+  }
+
+  @Test
+  @DisplayName("A cached token expires when the token expires")
+  public void testTokenExpiry() throws OgcException {
+    VerifiedTokenCache cache = new VerifiedTokenCache(10, TTL_MS, false);
+
+    cache.put(TOKEN, user(nowSeconds() - 1));
+
+    assertTrue(cache.get(TOKEN).isEmpty());
+  }
+
+  @Test
+  @DisplayName("Only the TTL applies when the expiry of tokens is ignored")
+  public void testTokenExpiryIgnored() throws OgcException {
+    VerifiedTokenCache cache = new VerifiedTokenCache(10, TTL_MS, true);
+
+    cache.put(TOKEN, user(nowSeconds() - 1));
+
+    assertTrue(cache.get(TOKEN).isPresent());
+  }
+
+  @Test
+  @DisplayName("A token without an expiry is cached for the TTL")
+  public void testNoTokenExpiry() throws OgcException {
+    VerifiedTokenCache cache = new VerifiedTokenCache(10, TTL_MS, false);
+
+    cache.put(TOKEN, user(0));
+
+    assertTrue(cache.get(TOKEN).isPresent());
+  }
+
+  @Test
+  @DisplayName("The cached user is not modified by the caller")
+  public void testCopy() throws OgcException {
+    VerifiedTokenCache cache = new VerifiedTokenCache(10, TTL_MS, false);
+    AuthInfo user = user(nowSeconds() + 3600);
+
+    cache.put(TOKEN, user);
+    user.setResourceId(UUID.randomUUID());
+    AuthInfo cached = cache.get(TOKEN).orElseThrow();
+    assertNull(cached.getResourceId());
+
+    cached.setResourceId(UUID.randomUUID());
+    AuthInfo cachedAgain = cache.get(TOKEN).orElseThrow();
+    assertNotSame(cached, cachedAgain);
+    assertNull(cachedAgain.getResourceId());
+  }
+
+  @Test
+  @DisplayName("The least recently used token is evicted first")
+  public void testEviction() throws OgcException {
+    VerifiedTokenCache cache = new VerifiedTokenCache(2, TTL_MS, false);
+    AuthInfo user = user(nowSeconds() + 3600);
+
+    cache.put("first", user);
+    cache.put("second", user);
+    cache.get("first");
+    cache.put("third", user);
+
+    assertTrue(cache.get("first").isPresent());
+    assertTrue(cache.get("second").isEmpty());
+    assertTrue(cache.get("third").isPresent());
+  }
+}
@@ -0,0 +1,139 @@
+package ogc.rs.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.pgclient.PgConnectOptions;
+import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.PoolOptions;
+import io.vertx.sqlclient.Tuple;
+import java.util.UUID;
+import ogc.rs.apiserver.util.OgcException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Checks that an asset ID in more than one branch of the <code>asset_registry</code> view resolves
+ * to the asset of the lowest precedence. Runs against the integration test database, see the
+ * <code>intTestDb*</code> system properties set by the failsafe plugin.
+ */
+@ExtendWith(VertxExtension.class)
+public class AssetRegistryIT {
+  private static final UUID COLLECTION_ID = UUID.randomUUID();
+  /* a STAC collection asset that was copied into collections_enclosure */
+  private static final UUID COLLECTION_ASSET_ID = UUID.randomUUID();
+  /* a STAC item asset with the ID of a collection enclosure */
+  private static final UUID ITEM_ASSET_ID = UUID.randomUUID();
+  private static final UUID ENCLOSURE_ID = UUID.randomUUID();
+
+  private static PgPool pool;
+  private static DatabaseService databaseService;
+
+  @BeforeAll
+  public static void setUp(Vertx vertx, VertxTestContext testContext) {
+    String dbUrl = System.getProperty("intTestDbUrl");
+    PgConnectOptions connectOptions =
+        PgConnectOptions.fromUri(dbUrl.replaceFirst("^jdbc:", ""))
+            .setUser(System.getProperty("intTestDbUser"))
+            .setPassword(System.getProperty("intTestDbPassword"));
+    pool = PgPool.pool(vertx, connectOptions, new PoolOptions().setMaxSize(2));
+    databaseService = new DatabaseServiceImpl(pool, new JsonObject());
+
+    pool.withTransaction(conn -> conn
+            .preparedQuery("INSERT INTO collections_details (id, title, description, crs)"
+                + " VALUES ($1, 'Asset registry test', 'A short description',"
+                + " 'http://www.opengis.net/def/crs/OGC/1.3/CRS84')")
+            .execute(Tuple.of(COLLECTION_ID))
+            .compose(inserted -> conn
+                .preparedQuery("INSERT INTO stac_collections_assets"
+                    + " (id, stac_collections_id, title, href, type, size, role, s3_bucket_id)"
+                    + " VALUES ($1, $2, 'collection asset', 'collection-asset.tif', 'image/tiff',"
+                    + " 10, '{data}', 'default')")
+                .execute(Tuple.of(COLLECTION_ASSET_ID, COLLECTION_ID)))
+            .compose(inserted -> conn
+                .preparedQuery("INSERT INTO stac_items_assets"
+                    + " (id, collection_id, item_id, title, href, type, size, roles, s3_bucket_id)"
+                    + " VALUES ($1, $2, 'item', 'item asset', 'item-asset.tif', 'image/tiff', 20,"
+                    + " '{data}', 'default')")
+                .execute(Tuple.of(ITEM_ASSET_ID, COLLECTION_ID)))
+            .compose(inserted -> conn
+                .preparedQuery("INSERT INTO collections_enclosure"
+                    + " (id, collections_id, title, href, type, size, s3_bucket_id)"
+                    + " VALUES ($1, $4, 'copied collection asset', 'enclosure-1.tif', 'image/tiff',"
+                    + " 30, 'default'), ($2, $4, 'item asset id', 'enclosure-2.tif', 'image/tiff',"
+                    + " 40, 'default'), ($3, $4, 'enclosure', 'enclosure-3.tif', 'image/tiff', 50,"
+                    + " 'default')")
+                .execute(Tuple.of(COLLECTION_ASSET_ID, ITEM_ASSET_ID, ENCLOSURE_ID,
+                    COLLECTION_ID))))
+        .onComplete(testContext.succeedingThenComplete());
+  }
+
+  @AfterAll
+  public static void tearDown(VertxTestContext testContext) {
+    Tuple collection = Tuple.of(COLLECTION_ID);
+    pool.withTransaction(conn -> conn
+            .preparedQuery("DELETE FROM collections_enclosure WHERE collections_id = $1")
+            .execute(collection)
+            .compose(deleted -> conn
+                .preparedQuery("DELETE FROM stac_items_assets WHERE collection_id = $1")
+                .execute(collection))
+            .compose(deleted -> conn
+                .preparedQuery("DELETE FROM stac_collections_assets WHERE stac_collections_id = $1")
+                .execute(collection))
+            .compose(deleted -> conn
+                .preparedQuery("DELETE FROM collections_details WHERE id = $1")
+                .execute(collection)))
+        .compose(deleted -> pool.close())
+        .onComplete(testContext.succeedingThenComplete());
+  }
+
+  @Test
+  @DisplayName("A STAC collection asset takes precedence over its copy in the enclosures")
+  public void testCollectionAssetPrecedence(VertxTestContext testContext) {
+    databaseService.getAssets(COLLECTION_ASSET_ID.toString())
+        .onComplete(testContext.succeeding(asset -> testContext.verify(() -> {
+          assertEquals("STAC_COLLECTION_ASSET", asset.getString("kind"));
+          assertEquals("collection-asset.tif", asset.getString("href"));
+          testContext.completeNow();
+        })));
+  }
+
+  @Test
+  @DisplayName("A STAC item asset takes precedence over an enclosure with the same ID")
+  public void testItemAssetPrecedence(VertxTestContext testContext) {
+    databaseService.getAssets(ITEM_ASSET_ID.toString())
+        .onComplete(testContext.succeeding(asset -> testContext.verify(() -> {
+          assertEquals("STAC_ITEM_ASSET", asset.getString("kind"));
+          assertEquals("item", asset.getString("item_id"));
+          assertEquals("item-asset.tif", asset.getString("href"));
+          testContext.completeNow();
+        })));
+  }
+
+  @Test
+  @DisplayName("An enclosure is resolved when its ID is not used by other assets")
+  public void testEnclosure(VertxTestContext testContext) {
+    databaseService.getAssets(ENCLOSURE_ID.toString())
+        .onComplete(testContext.succeeding(asset -> testContext.verify(() -> {
+          assertEquals("COLLECTION_ENCLOSURE", asset.getString("kind"));
+          assertEquals("enclosure-3.tif", asset.getString("href"));
+          testContext.completeNow();
+        })));
+  }
+
+  @Test
+  @DisplayName("An unknown asset ID is not found")
+  public void testUnknownAsset(VertxTestContext testContext) {
+    databaseService.getAssets(UUID.randomUUID().toString())
+        .onComplete(testContext.failing(err -> testContext.verify(() -> {
+          assertEquals(404, ((OgcException) err).getStatusCode());
+          testContext.completeNow();
+        })));
+  }
+}
@@ -0,0 +1,139 @@
+package ogc.rs.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.pgclient.PgConnectOptions;
+import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.PoolOptions;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.Tuple;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Checks that the usage read by <code>metering_usage</code> from the hourly and daily rollups is
+ * the usage aggregated from the metering table. Runs against the integration test database, see the
+ * <code>intTestDb*</code> system properties set by the failsafe plugin.
+ */
+@ExtendWith(VertxExtension.class)
+public class MeteringRollupIT {
+  private static final UUID USER_ID = UUID.randomUUID();
+  private static final UUID COLLECTION_ID = UUID.randomUUID();
+  private static final String API_PATH = "/collections/" + COLLECTION_ID + "/items";
+  private static final LocalDateTime BASE = LocalDateTime.parse("2024-03-10T10:20:00");
+
+  private static final String INSERT_METERING =
+      "INSERT INTO metering (user_id, collection_id, api_path, timestamp, resp_size)"
+          + " VALUES ($1, $2, $3, $4, $5)";
+  private static final String USAGE_FROM_ROLLUPS =
+      "SELECT api_hits, data_usage FROM metering_usage($1, $2, $3, $4)";
+  private static final String USAGE_FROM_METERING =
+      "SELECT COUNT(*) FILTER (WHERE resp_size > 0) AS api_hits,"
+          + " COALESCE(SUM(resp_size), 0) AS data_usage FROM metering"
+          + " WHERE user_id = $1 AND collection_id = $2 AND api_path = $3 AND timestamp > $4";
+
+  private static PgPool pool;
+
+  @BeforeAll
+  public static void setUp(Vertx vertx, VertxTestContext testContext) {
+    String dbUrl = System.getProperty("intTestDbUrl");
+    PgConnectOptions connectOptions =
+        PgConnectOptions.fromUri(dbUrl.replaceFirst("^jdbc:", ""))
+            .setUser(System.getProperty("intTestDbUser"))
+            .setPassword(System.getProperty("intTestDbPassword"));
+    pool = PgPool.pool(vertx, connectOptions, new PoolOptions().setMaxSize(2));
+
+    // usage in the first partial hour, over hours of the first day and over days, with records
+    // exactly on hour and day boundaries and records that are not API hits
+    List<Tuple> records = new ArrayList<>();
+    long[] offsetsInMinutes = {0, 5, 39, 40, 100, 180, 219, 1000, 1180, 1500, 2880, 4000, 10000};
+    for (int i = 0; i < offsetsInMinutes.length; i++) {
+      records.add(Tuple.of(USER_ID, COLLECTION_ID, API_PATH,
+          BASE.plusMinutes(offsetsInMinutes[i]), i % 4 == 0 ? 0L : 100L * (i + 1)));
+    }
+    // another API path of the same collection, which must not be counted
+    records.add(Tuple.of(USER_ID, COLLECTION_ID, "/collections/" + COLLECTION_ID + "/coverage",
+        BASE.plusMinutes(200), 5000L));
+
+    // inserted in two statements, so that rollup rows are both inserted and updated
+    int half = records.size() / 2;
+    pool.preparedQuery(INSERT_METERING)
+        .executeBatch(records.subList(0, half))
+        .compose(inserted -> pool.preparedQuery(INSERT_METERING)
+            .executeBatch(records.subList(half, records.size())))
+        .onComplete(testContext.succeedingThenComplete());
+  }
+
+  @AfterAll
+  public static void tearDown(VertxTestContext testContext) {
+    Tuple keys = Tuple.of(USER_ID, COLLECTION_ID);
+    pool.preparedQuery("DELETE FROM metering WHERE user_id = $1 AND collection_id = $2")
+        .execute(keys)
+        .compose(deleted -> pool.preparedQuery(
+                "DELETE FROM metering_hourly WHERE user_id = $1 AND collection_id = $2")
+            .execute(keys))
+        .compose(deleted -> pool.preparedQuery(
+                "DELETE FROM metering_daily WHERE user_id = $1 AND collection_id = $2")
+            .execute(keys))
+        .compose(deleted -> pool.close())
+        .onComplete(testContext.succeedingThenComplete());
+  }
+
+  private static Future<List<Long>> usage(String query, LocalDateTime since) {
+    return pool.preparedQuery(query)
+        .execute(Tuple.of(USER_ID, COLLECTION_ID, API_PATH, since))
+        .map(rows -> {
+          Row row = rows.iterator().next();
+          return List.of(row.getLong("api_hits"), row.getLong("data_usage"));
+        });
+  }
+
+  @Test
+  @DisplayName("Usage read from the rollups is the usage of the metering table")
+  public void testRollupsMatchMeteringTable(VertxTestContext testContext) {
+    List<LocalDateTime> sinceTimes = List.of(
+        BASE.minusDays(30),
+        BASE.minusMinutes(1),
+        BASE,
+        BASE.plusMinutes(10),
+        BASE.withMinute(0).plusHours(1),
+        BASE.plusMinutes(100),
+        BASE.plusMinutes(181),
+        BASE.toLocalDate().plusDays(1).atStartOfDay(),
+        BASE.plusMinutes(1200),
+        BASE.plusDays(2).plusMinutes(1),
+        BASE.plusDays(30));
+
+    List<Future<String>> checks = sinceTimes.stream()
+        .map(since -> Future.all(usage(USAGE_FROM_ROLLUPS, since),
+                usage(USAGE_FROM_METERING, since))
+            .map(both -> {
+              List<Long> fromRollups = both.resultAt(0);
+              List<Long> fromMetering = both.resultAt(1);
+              return fromRollups.equals(fromMetering) ? null
+                  : "since " + since + " rollups " + fromRollups + " metering " + fromMetering;
+            }))
+        .collect(Collectors.toList());
+
+    Future.all(checks).onComplete(testContext.succeeding(done -> testContext.verify(() -> {
+      List<String> mismatches = checks.stream()
+          .map(Future::result)
+          .filter(mismatch -> mismatch != null)
+          .collect(Collectors.toList());
+      assertEquals(List.of(), mismatches);
+      testContext.completeNow();
+    })));
+  }
+}
@@ -0,0 +1,89 @@
+package ogc.rs.metering.util;
+
+import static ogc.rs.common.Constants.PROVIDER_ID;
+import static ogc.rs.metering.util.MeteringConstant.CURSOR;
+import static ogc.rs.metering.util.MeteringConstant.END_TIME;
+import static ogc.rs.metering.util.MeteringConstant.LIMITPARAM;
+import static ogc.rs.metering.util.MeteringConstant.OFFSETPARAM;
+import static ogc.rs.metering.util.MeteringConstant.START_TIME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.sqlclient.Tuple;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class QueryBuilderTest {
+  private static final String RECORD_ID = "8a2c6f5e1b3d4a7c9e0f1a2b3c4d5e6f";
+  private static final String RECORD_TIME = "2022-06-01T10:15:30.123456";
+
+  private final QueryBuilder queryBuilder = new QueryBuilder();
+
+  private static JsonObject providerReport() {
+    return new JsonObject()
+        .put(PROVIDER_ID, "15c7506f-c800-48d6-adeb-0542b03947c6")
+        .put(START_TIME, "2022-05-29T05:30:00+05:30")
+        .put(END_TIME, "2022-06-04T02:00:00+05:30")
+        .put(LIMITPARAM, 100L)
+        .put(OFFSETPARAM, 200L);
+  }
+
+  private static String encode(String value) {
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  @DisplayName("A cursor built from the last record of a page is valid")
+  public void testBuildCursor() {
+    String cursor =
+        queryBuilder.buildCursor(new JsonObject().put("time", RECORD_TIME).put("id", RECORD_ID));
+
+    assertTrue(queryBuilder.isValidCursor(cursor));
+  }
+
+  @Test
+  @DisplayName("Cursors not built from a record are invalid")
+  public void testInvalidCursor() {
+    assertFalse(queryBuilder.isValidCursor("not a cursor!"));
+    assertFalse(queryBuilder.isValidCursor(encode("no-separator")));
+    assertFalse(queryBuilder.isValidCursor(encode(RECORD_TIME + ",")));
+    assertFalse(queryBuilder.isValidCursor(encode("yesterday," + RECORD_ID)));
+  }
+
+  @Test
+  @DisplayName("The first page is read with the offset")
+  public void testFirstPage() {
+    Tuple tuple = Tuple.tuple();
+    String query = queryBuilder.buildReadQueryForPg(providerReport(), tuple);
+
+    assertTrue(query.endsWith(" ORDER BY time, id limit $4 offset $5"), query);
+    assertFalse(query.contains("(time, id) >"), query);
+    assertEquals(5, tuple.size());
+    assertEquals(100L, tuple.getLong(3));
+    assertEquals(200L, tuple.getLong(4));
+  }
+
+  @Test
+  @DisplayName("Pages after the first are read after the cursor and without offset")
+  public void testPageAfterCursor() {
+    String cursor =
+        queryBuilder.buildCursor(new JsonObject().put("time", RECORD_TIME).put("id", RECORD_ID));
+    Tuple tuple = Tuple.tuple();
+    String query =
+        queryBuilder.buildReadQueryForPg(providerReport().put(CURSOR, cursor), tuple);
+
+    assertTrue(query.endsWith(
+        " and (time, id) > ($4::timestamp, $5::varchar) ORDER BY time, id limit $6"), query);
+    assertFalse(query.contains("offset"), query);
+    assertEquals(6, tuple.size());
+    assertEquals(LocalDateTime.parse(RECORD_TIME), tuple.getLocalDateTime(3));
+    assertEquals(RECORD_ID, tuple.getString(4));
+    assertEquals(100L, tuple.getLong(5));
+  }
+}
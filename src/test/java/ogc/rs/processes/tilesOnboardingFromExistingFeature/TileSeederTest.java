@@ -0,0 +1,198 @@
+package ogc.rs.processes.tilesOnboardingFromExistingFeature;
+
+import static ogc.rs.processes.tilesOnboardingFromExistingFeature.Constants.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.PreparedQuery;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowIterator;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.Tuple;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith({VertxExtension.class, MockitoExtension.class})
+public class TileSeederTest {
+  private static final List<String> UNITS_OF_ZOOM_0_TO_1 =
+      List.of("0/0", "0/1", "0/2", "0/3", "1/0", "1/1", "1/2", "1/3");
+
+  @Mock PgPool pgPool;
+  @Mock PreparedQuery<RowSet<Row>> sridQuery;
+  @Mock PreparedQuery<RowSet<Row>> checkpointQuery;
+  @Mock PreparedQuery<RowSet<Row>> updateCheckpointQuery;
+
+  private static JsonObject requestInput() {
+    return new JsonObject()
+        .put("jobId", UUID.randomUUID().toString())
+        .put("processId", UUID.randomUUID().toString())
+        .put("resourceId", UUID.randomUUID().toString())
+        .put("tileMatrixSet", TILE_MATRIX_SET)
+        .put("minZoomLevel", 0)
+        .put("maxZoomLevel", 1);
+  }
+
+  private static JsonObject checkpoint(List<String> completedUnits) {
+    return new JsonObject()
+        .put("tileMatrixSet", TILE_MATRIX_SET)
+        .put("minZoomLevel", 0)
+        .put("maxZoomLevel", 1)
+        .put("completedUnits", new JsonArray(new ArrayList<>(completedUnits)));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static RowSet<Row> rowSetOf(Row row) {
+    RowSet<Row> rowSet = mock(RowSet.class);
+    RowIterator<Row> iterator = mock(RowIterator.class);
+    when(rowSet.size()).thenReturn(1);
+    when(rowSet.iterator()).thenReturn(iterator);
+    when(iterator.next()).thenReturn(row);
+    return rowSet;
+  }
+
+  /* the collection has an SRID and the last unfinished job completed some units */
+  private void mockSeededBefore(List<String> completedUnits) {
+    Row sridRow = mock(Row.class);
+    when(sridRow.getInteger("srid")).thenReturn(4326);
+    RowSet<Row> sridRows = rowSetOf(sridRow);
+    when(pgPool.preparedQuery(STORAGE_SRID_SELECT_QUERY)).thenReturn(sridQuery);
+    when(sridQuery.execute(any(Tuple.class))).thenReturn(Future.succeededFuture(sridRows));
+
+    Row checkpointRow = mock(Row.class);
+    when(checkpointRow.getValue("checkpoint")).thenReturn(checkpoint(completedUnits));
+    RowSet<Row> checkpointRows = rowSetOf(checkpointRow);
+    when(pgPool.preparedQuery(LATEST_CHECKPOINT_SELECT_QUERY)).thenReturn(checkpointQuery);
+    when(checkpointQuery.execute(any(Tuple.class)))
+        .thenReturn(Future.succeededFuture(checkpointRows));
+  }
+
+  @Test
+  @DisplayName("Units are the quadrants of each zoom level")
+  public void testUnits() {
+    assertEquals(UNITS_OF_ZOOM_0_TO_1, TileSeeder.units(0, 1));
+    assertEquals(List.of("3/0", "3/1", "3/2", "3/3"), TileSeeder.units(3, 3));
+  }
+
+  @Test
+  @DisplayName("Tile matrix 0 is seeded by its upper quadrants")
+  public void testUnitTilesOfTileMatrix0() {
+    TileSeeder.UnitTiles left = TileSeeder.unitTiles("0/0");
+    TileSeeder.UnitTiles right = TileSeeder.unitTiles("0/1");
+
+    assertEquals(List.of(0L, 0L, 0L, 0L),
+        List.of(left.colMin, left.colMax, left.rowMin, left.rowMax));
+    assertEquals(List.of(1L, 1L, 0L, 0L),
+        List.of(right.colMin, right.colMax, right.rowMin, right.rowMax));
+    assertNull(TileSeeder.unitTiles("0/2"));
+    assertNull(TileSeeder.unitTiles("0/3"));
+  }
+
+  @Test
+  @DisplayName("The units of a zoom level cover each tile of the tile matrix once")
+  public void testUnitTilesCoverTileMatrix() {
+    for (int tileMatrix = 1; tileMatrix <= 6; tileMatrix++) {
+      long matrixWidth = 2L << tileMatrix;
+      long matrixHeight = 1L << tileMatrix;
+      long[][] covered = new long[(int) matrixWidth][(int) matrixHeight];
+
+      for (String unit : TileSeeder.units(tileMatrix, tileMatrix)) {
+        TileSeeder.UnitTiles tiles = TileSeeder.unitTiles(unit);
+        assertEquals(tileMatrix, tiles.tileMatrix);
+        for (long col = tiles.colMin; col <= tiles.colMax; col++) {
+          for (long row = tiles.rowMin; row <= tiles.rowMax; row++) {
+            covered[(int) col][(int) row]++;
+          }
+        }
+      }
+
+      for (long[] column : covered) {
+        for (long count : column) {
+          assertEquals(1, count, "tile matrix " + tileMatrix);
+        }
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("A checkpoint of the same tile matrix set and zoom levels is resumed from")
+  public void testCompletedUnitsOfCheckpoint() {
+    Set<String> completedUnits =
+        TileSeeder.completedUnits(requestInput(), checkpoint(List.of("0/0", "0/1")));
+
+    assertEquals(Set.of("0/0", "0/1"), completedUnits);
+  }
+
+  @Test
+  @DisplayName("A checkpoint of other zoom levels or tile matrix set is not resumed from")
+  public void testCompletedUnitsOfOtherCheckpoint() {
+    JsonObject otherZoomLevels = checkpoint(List.of("0/0")).put("maxZoomLevel", 2);
+    JsonObject otherTileMatrixSet =
+        checkpoint(List.of("0/0")).put("tileMatrixSet", "WebMercatorQuad");
+
+    assertTrue(TileSeeder.completedUnits(requestInput(), otherZoomLevels).isEmpty());
+    assertTrue(TileSeeder.completedUnits(requestInput(), otherTileMatrixSet).isEmpty());
+  }
+
+  @Test
+  @DisplayName("Seeding resumes with the units not completed by the checkpoint")
+  public void testResumeFromCheckpoint(Vertx vertx, VertxTestContext testContext) {
+    mockSeededBefore(List.of("0/0", "0/1", "0/2", "0/3", "1/0"));
+    when(pgPool.withTransaction(any())).thenReturn(Future.succeededFuture());
+    when(pgPool.withConnection(any())).thenReturn(Future.succeededFuture());
+    when(pgPool.preparedQuery(UPDATE_JOB_CHECKPOINT_QUERY)).thenReturn(updateCheckpointQuery);
+    ArgumentCaptor<Tuple> savedCheckpoints = ArgumentCaptor.forClass(Tuple.class);
+    when(updateCheckpointQuery.execute(savedCheckpoints.capture()))
+        .thenReturn(Future.succeededFuture());
+
+    new TileSeeder(vertx, pgPool, null, "bucket", 2, 2)
+        .seed(requestInput(), 0, 100)
+        .onComplete(testContext.succeeding(tilesUploaded -> testContext.verify(() -> {
+          assertEquals(0L, tilesUploaded);
+          // units 1/1, 1/2 and 1/3 are seeded, each with its own checkpoint
+          verify(pgPool, times(3)).withTransaction(any());
+          List<Tuple> saved = savedCheckpoints.getAllValues();
+          assertEquals(3, saved.size());
+          JsonObject last = (JsonObject) saved.get(2).getValue(0);
+          assertEquals(new JsonArray(new ArrayList<>(UNITS_OF_ZOOM_0_TO_1)),
+              last.getJsonArray("completedUnits"));
+          testContext.completeNow();
+        })));
+  }
+
+  @Test
+  @DisplayName("Nothing is seeded when the checkpoint completed all units")
+  public void testResumeFromCompletedCheckpoint(Vertx vertx, VertxTestContext testContext) {
+    mockSeededBefore(UNITS_OF_ZOOM_0_TO_1);
+
+    new TileSeeder(vertx, pgPool, null, "bucket", 2, 2)
+        .seed(requestInput(), 0, 100)
+        .onComplete(testContext.succeeding(tilesUploaded -> testContext.verify(() -> {
+          assertEquals(0L, tilesUploaded);
+          verify(pgPool, never()).withTransaction(any());
+          verify(pgPool, never()).preparedQuery(UPDATE_JOB_CHECKPOINT_QUERY);
+          testContext.completeNow();
+        })));
+  }
+}